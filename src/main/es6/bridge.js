@@ -36,7 +36,8 @@ const MessageType = {
     LIST_FILES: 12,
     UPLOAD_FILE: 13,
     REST_FORM: 14,
-    FORGET_EVENT: 15
+    FORGET_EVENT: 15,
+    EXTRACT_PROPERTIES: 16
 }
 
 var protocolDebugEnabled = window.localStorage.getItem(ProtocolDebugEnabledKey) === 'true';
@@ -57,7 +58,12 @@ export class Bridge {
     let interval = parseInt(config['heartbeatInterval'], 10);
 
     if (interval > 0) {
-      this._intervalId = setInterval(() => this._onCallback(CallbackType.HEARTBEAT), interval);
+      this._intervalId = setInterval(() => {
+        // a heartbeat is useless after the connection is restored
+        if (connection.isOpen) {
+          this._onCallback(CallbackType.HEARTBEAT);
+        }
+      }, interval);
     }
   }
 
@@ -87,6 +93,10 @@ export class Bridge {
     let commands = /** @type {Array} */ (JSON.parse(event.data));
     let pCode = commands.shift();
     let k = this._RSP;
+    if (pCode !== MessageType.MODIFY_DOM) {
+      // Keep the order of the commands when DOM modifications are waiting for an animation frame
+      k.flushDomChanges();
+    }
     switch (pCode) {
       case MessageType.SET_RENDER_NUM: k.setRenderNum.apply(k, commands); break;
       case MessageType.CLEAN_ROOT: k.cleanRoot.apply(k, commands); break;
@@ -104,6 +114,7 @@ export class Bridge {
       case MessageType.UPLOAD_FILE: k.uploadFile.apply(k, commands); break;
       case MessageType.REST_FORM: k.resetForm.apply(k, commands); break;
       case MessageType.FORGET_EVENT: k.forgetEvent.apply(k, commands); break;
+      case MessageType.EXTRACT_PROPERTIES: k.extractProperties(commands); break;
       default: console.error(`Procedure ${pCode} is undefined`);
     }
   }
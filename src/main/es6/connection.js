@@ -48,6 +48,11 @@ export class Connection {
     this._webSocketsSupported = window.WebSocket !== undefined;
     this._connectionType = ConnectionType.LONG_POLLING;
     this._wasConnected = false;
+    this._isOpen = false;
+    /** @type {number} the number of messages received from the server, used to resume a session */
+    this._receivedCount = 0;
+    /** @type {!Array<string>} the messages sent while the connection is down, delivered when it is open again */
+    this._pendingMessages = [];
 
     /** @type {?ConnectionType} */
     this._selectedConnectionType = null;
@@ -59,6 +64,8 @@ export class Connection {
 
   get dispatcher() { return this._dispatcher }
 
+  get isOpen() { return this._isOpen }
+
   /**
    * @param {string} type
    * @private
@@ -95,7 +102,7 @@ export class Connection {
   _connectUsingWebSocket() {
 
     let url = (this._useSSL ? "wss://" : "ws://") + this._hostPort;
-    let path = this._serverRootPath + `bridge/web-socket/${this._deviceId}/${this._sessionId}`;
+    let path = this._serverRootPath + `bridge/web-socket/${this._deviceId}/${this._sessionId}?seq=${this._receivedCount}`;
     let uri = url + path;
 
     this._webSocket = new WebSocket(uri);
@@ -181,8 +188,12 @@ export class Connection {
     console.log("Connection opened");
     let event = this._createEvent('open');
     this._wasConnected = true;
+    this._isOpen = true;
     this._reconnectTimeout = MIN_RECONNECT_TIMEOUT;
     this._selectedConnectionType = this._connectionType;
+    let pendingMessages = this._pendingMessages;
+    this._pendingMessages = [];
+    pendingMessages.forEach((data) => this._send(data));
     this._dispatcher.dispatchEvent(event);
   }
 
@@ -196,6 +207,7 @@ export class Connection {
   /** @private */
   _onClose() {
     console.log('Connection closed');
+    this._isOpen = false;
     let event = this._createEvent('close');
     this._dispatcher.dispatchEvent(event);
   }
@@ -206,16 +218,22 @@ export class Connection {
    * @private
    */
   _onMessage(data) {
+    this._receivedCount++;
     let event = this._createEvent('message');
     event.data = data;
     this._dispatcher.dispatchEvent(event);
   }
 
   /**
+   * Sends a message or keeps it until the connection is open again.
    * @param {string} data
    */
   send(data) {
-    this._send(data);
+    if (this._isOpen) {
+      this._send(data);
+    } else {
+      this._pendingMessages.push(data);
+    }
   }
 
   disconnect() {
@@ -51,9 +51,17 @@ window.document.addEventListener("DOMContentLoaded", () => {
 
   window['RSP']['connect'] = () => connection.connect();
 
+  /** @type {?Bridge} */
+  let bridge = null;
+
   connection.dispatcher.addEventListener('open', () => {
     clw.hide();
-    let bridge = new Bridge(config, connection);
+    if (bridge !== null) {
+      // The server resumes the same live page and replays the missed messages
+      console.log('Resuming the session');
+      return;
+    }
+    bridge = new Bridge(config, connection);
     window['RSP']['swapElementInRegistry'] = (a, b) => bridge._RSP.swapElementInRegistry(a, b);
     window['RSP']['element'] = (id) => bridge._RSP.element(id);
     window['RSP']['invokeCallback'] = (name, arg) => bridge._RSP.invokeCustomCallback(name, arg);
@@ -66,20 +74,19 @@ window.document.addEventListener("DOMContentLoaded", () => {
             window.location.reload();
             }, 3000);
     };
+  });
 
-    let closeHandler = (event) => {
+  connection.dispatcher.addEventListener('close', () => {
+    if (bridge === null) {
+      return;
+    }
+    if (reconnect) {
+      clw.show();
+      connection.connect();
+    } else {
       bridge.destroy();
-      if (reconnect) {
-        clw.show();
-        connection.connect();
-      }
-/*      connection
-        .dispatcher
-        .removeEventListener('close', closeHandler);*/
-    };
-    connection
-      .dispatcher
-      .addEventListener('close', closeHandler);
+      bridge = null;
+    }
   });
 
 /*  connection.dispatcher.addEventListener('close', () => {
@@ -58,6 +58,24 @@ const VirtualDomPaths = {
   DOCUMENT_PATH: '1'
 };
 
+/**
+ * @param {string} path
+ * @return {string}
+ */
+function parentPath(path) {
+  let i = path.lastIndexOf('_');
+  return i < 0 ? '' : path.substring(0, i);
+}
+
+/**
+ * @param {string} path
+ * @return {string}
+ */
+function nextSiblingPath(path) {
+  let i = path.lastIndexOf('_');
+  return path.substring(0, i + 1) + (parseInt(path.substring(i + 1), 10) + 1);
+}
+
 export class RSP {
 
   /**
@@ -69,7 +87,12 @@ export class RSP {
     this.config = config;
     /** @type {HTMLElement} */
     this.root = document.documentElement;
-    /** @type {Object} */
+    /**
+     * The registry of the elements by their paths, a command's path is resolved by a single lookup.
+     * It is updated as the structural commands create and remove nodes, a removed subtree is unregistered,
+     * so the registry stays valid within and across the DOM modifications batches.
+     * @type {Object}
+     */
     this.els = {};
     /** @type {number} */
     this.renderNum = 0;
@@ -81,8 +104,18 @@ export class RSP {
     this.initialPath = window.location.pathname;
     /** @type {Function} */
     this.callback = callback;
-    /** @type {Array} */
+    /** @type {Array} the last event of each render by its render number */
     this.eventData = [];
+    /** @type {number} the number of the last renders which events the server still dispatches */
+    this.renderHistorySize = parseInt(config['renderHistorySize'], 10) || 32;
+    /** @type {number} the render number of the oldest event data kept */
+    this.eventDataStart = 0;
+    /** @type {boolean} */
+    this.batchDomUpdates = config['batchDomUpdates'] === true;
+    /** @type {Array<Array>} */
+    this.pendingDomChanges = [];
+    /** @type {boolean} */
+    this.frameRequested = false;
 
     this.historyHandler = (/** @type {Event} */ event) => {
       callback(CallbackType.HISTORY, window.location.pathname + window.location.hash);
@@ -114,6 +147,10 @@ export class RSP {
             result["path"] = window.location.pathname;
             result["query"] = window.location.search;
             result["fragment"] = window.location.hash;
+        } else if (eventType == 'scroll') {
+            var scrolled = e.target === document ? document.scrollingElement : e.target;
+            result["scrollTop"] = Math.round(scrolled.scrollTop);
+            result["clientHeight"] = scrolled.clientHeight;
         } else if (eventType == 'submit') {
             var formData = new FormData(e.target);
             /** @suppress {missingProperties} */
@@ -157,27 +194,35 @@ export class RSP {
   
   /** @param {number} n */
   setRenderNum(n) {
-    // Remove obsolete event data
-    delete this.eventData[n - 2];
+    // The server's render fence drops the events older than its history, their data is never extracted
+    let oldest = n - this.renderHistorySize;
+    for (; this.eventDataStart < oldest; this.eventDataStart++) {
+      delete this.eventData[this.eventDataStart];
+    }
     this.renderNum = n;
   }
 
   /** @param {HTMLElement} rootNode */
   registerRoot(rootNode) {
-    let self = this;
-    function aux(prefix, node) {
-      var children = node.childNodes;
-      for (var i = 0; i < children.length; i++) {
-        var child = children[i];
-        var id = prefix + '_' + (i + 1);
-        child.vId = id;
-        self.els[id] = child;
-        aux(id, child);
-      }
+    this.root = rootNode;
+    this.els[VirtualDomPaths.DOCUMENT_PATH] = rootNode;
+    this.registerChildren(VirtualDomPaths.DOCUMENT_PATH, rootNode);
+  }
+
+  /**
+   * Registers the paths of a node's descendants in one walk.
+   * @param {string} prefix the node's path
+   * @param {Node} node
+   */
+  registerChildren(prefix, node) {
+    var children = node.childNodes;
+    for (var i = 0; i < children.length; i++) {
+      var child = children[i];
+      var id = prefix + '_' + (i + 1);
+      child.vId = id;
+      this.els[id] = child;
+      this.registerChildren(id, child);
     }
-    self.root = rootNode;
-    self.els[VirtualDomPaths.DOCUMENT_PATH] = rootNode;
-    aux(VirtualDomPaths.DOCUMENT_PATH, rootNode);
   }
 
   cleanRoot() {
@@ -216,26 +261,75 @@ export class RSP {
   }
 
   /**
+   * Applies the DOM modifications immediately or, when batching is enabled,
+   * queues them until the next animation frame.
    * @param {Array} data modify DOM elements
    */
   modifyDom(data) {
+    if (!this.batchDomUpdates || document.hidden) {
+      this.flushDomChanges();
+      this.applyDomChanges(data);
+      return;
+    }
+    this.pendingDomChanges.push(data);
+    if (!this.frameRequested) {
+      this.frameRequested = true;
+      window.requestAnimationFrame(() => this.flushDomChanges());
+    }
+  }
+
+  /**
+   * Applies all the queued DOM modifications in one pass.
+   */
+  flushDomChanges() {
+    this.frameRequested = false;
+    if (this.pendingDomChanges.length === 0) return;
+    let batches = this.pendingDomChanges;
+    this.pendingDomChanges = [];
+    for (var i = 0; i < batches.length; i++) {
+      this.applyDomChanges(batches[i]);
+    }
+  }
+
+  /**
+   * @param {Array} data modify DOM elements
+   */
+  applyDomChanges(data) {
     // Reverse data to use pop() instead of shift()
     // pop() faster than shift()
     let atad = data.reverse();
     let r = atad.pop.bind(atad);
+    let lastPath = null;
+    // Decodes an element's path relative to the previous path in this batch
+    let p = () => {
+      let token = r();
+      switch (token) {
+        case '=': break;
+        case '+': lastPath = nextSiblingPath(lastPath); break;
+        case '>': lastPath = lastPath + '_1'; break;
+        case '^': lastPath = parentPath(lastPath); break;
+        case '^+': lastPath = nextSiblingPath(parentPath(lastPath)); break;
+        default: lastPath = token;
+      }
+      return lastPath;
+    };
     while (data.length > 0) {
       switch (r()) { // TODO constants
-        case 0: this.create(r(), r(), r(), r()); break;
-        case 1: this.createText(r(), r(), r()); break;
-        case 2: this.remove(r(), r()); break;
-        case 3: this.setAttr(r(), r(), r(), r(), r()); break;
-        case 4: this.removeAttr(r(), r(), r(), r()); break;
-        case 5: this.setStyle(r(), r(), r()); break;
-        case 6: this.removeStyle(r(), r()); break;
+        case 0: this.create(p(), p(), r(), r()); break;
+        case 1: this.createText(p(), p(), r()); break;
+        case 2: this.remove(p(), p()); break;
+        case 3: this.setAttr(p(), r(), r(), r(), r()); break;
+        case 4: this.removeAttr(p(), r(), r(), r()); break;
+        case 5: this.setStyle(p(), r(), r()); break;
+        case 6: this.removeStyle(p(), r()); break;
+        case 7: this.insertHtml(p(), p(), r()); break;
+        case 8: this.removeNodes(p(), p(), r()); break;
+        case 9: this.setText(p(), r()); break;
+        case 10: this.setAttrs(p(), r(), r); break;
       }
     }
   }
-  
+
    /**
     * @param {string} id
     * @param {string} childId
@@ -253,6 +347,7 @@ export class RSP {
     }
     newElement.vId = childId;
     if (child && child.parentNode === parent) {
+      this.unregister(child);
       parent.replaceChild(newElement, child);
     } else {
       parent.appendChild(newElement);
@@ -273,11 +368,38 @@ export class RSP {
     newElement = document.createTextNode(text);
     newElement.vId = childId;
     if (child && child.parentNode === parent) {
+      this.unregister(child);
+      parent.replaceChild(newElement, child);
+    } else {
+      parent.appendChild(newElement);
+    }
+    this.els[childId] = newElement;
+  }
+
+   /**
+    * Inserts a whole new subtree parsed from its HTML.
+    * @param {string} id
+    * @param {string} childId
+    * @param {string} html
+    */
+  insertHtml(id, childId, html) {
+    var parent = this.els[id],
+      child = this.els[childId],
+      template = document.createElement('template'),
+      newElement;
+    if (!parent) return;
+    template.innerHTML = html;
+    newElement = template.content.firstChild;
+    if (!newElement) return;
+    newElement.vId = childId;
+    if (child && child.parentNode === parent) {
+      this.unregister(child);
       parent.replaceChild(newElement, child);
     } else {
       parent.appendChild(newElement);
     }
     this.els[childId] = newElement;
+    this.registerChildren(childId, newElement);
   }
 
    /**
@@ -289,7 +411,54 @@ export class RSP {
       child = this.els[childId];
     if (!parent) return;
     if (child) {
+      this.unregister(child);
+      parent.removeChild(child);
+    }
+  }
+
+   /**
+    * Removes a range of a parent's child nodes.
+    * @param {string} id
+    * @param {string} childId the path of the first node to remove
+    * @param {number} count the number of nodes to remove
+    */
+  removeNodes(id, childId, count) {
+    var parent = this.els[id],
+      child = this.els[childId];
+    if (!parent || !child || child.parentNode !== parent) return;
+    for (var i = 0; i < count && child; i++) {
+      var next = child.nextSibling;
+      this.unregister(child);
       parent.removeChild(child);
+      child = next;
+    }
+  }
+
+   /**
+    * Replaces a text node's content in place.
+    * @param {string} id
+    * @param {string} text
+    */
+  setText(id, text) {
+    var element = this.els[id];
+    if (element && element.nodeType === Node.TEXT_NODE) {
+      element.nodeValue = text;
+    } else {
+      this.createText(id.substring(0, id.lastIndexOf('_')), id, text);
+    }
+  }
+
+   /**
+    * Drops the detached node and its descendants from the paths registry.
+    * @param {Node} node
+    */
+  unregister(node) {
+    if (this.els[node.vId] === node) {
+      delete this.els[node.vId];
+    }
+    var children = node.childNodes;
+    for (var i = 0; i < children.length; i++) {
+      this.unregister(children[i]);
     }
   }
 
@@ -322,6 +491,27 @@ export class RSP {
           result);
   }
 
+   /**
+    * Reads a number of properties and responds with an array of their values,
+    * a missing or a function property value is null.
+    * @param {Array} commands the descriptor, the number of properties, then the element id and property name pairs
+    */
+  extractProperties(commands) {
+    let descriptor = commands[0];
+    let count = commands[1];
+    let result = [];
+    for (let i = 0; i < count; i++) {
+      let id = commands[2 + i * 2];
+      let element = id === '1' ? window : this.els[id];
+      let value = element ? element[commands[3 + i * 2]] : undefined;
+      result.push(typeof value === 'undefined' || typeof value === 'function' ? null : value);
+    }
+    this.callback(
+        CallbackType.EXTRACT_PROPERTY_RESPONSE,
+         `${descriptor}:${JsonMetadata.DATA}`,
+          result);
+  }
+
    /**
     * @param {string} id
     * @param {string} name
@@ -338,6 +528,17 @@ export class RSP {
     }
   }
 
+   /**
+    * @param {string} id
+    * @param {number} count the number of attributes
+    * @param {function()} r reads the next attribute's name, value and isProperty values
+    */
+  setAttrs(id, count, r) {
+    for (var i = 0; i < count; i++) {
+      this.setAttr(id, 0, r(), r(), r());
+    }
+  }
+
    /**
     * @param {string} id
     * @param {string} name
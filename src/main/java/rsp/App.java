@@ -2,8 +2,12 @@ package rsp;
 
 import rsp.component.*;
 import rsp.jetty.WebServer;
+import rsp.page.InMemoryPassivatedPagesStore;
+import rsp.page.PassivatedPagesStore;
 import rsp.page.QualifiedSessionId;
+import rsp.page.PageRendering;
 import rsp.page.RenderedPage;
+import rsp.page.SessionIdGenerator;
 import rsp.routing.Routing;
 import rsp.server.http.HttpRequest;
 
@@ -22,11 +26,18 @@ public final class App<S> {
     /**
      * The default rate of heartbeat messages from a browser to server.
      */
-    public static final int DEFAULT_HEARTBEAT_INTERVAL_MS = 10000;
+    public static final int DEFAULT_HEARTBEAT_INTERVAL_MS = AppConfig.DEFAULT_HEARTBEAT_INTERVAL_MS;
+
+    /**
+     * The application's configuration.
+     */
+    public final AppConfig config;
 
     /**
      * The application's rate of heartbeat messages from a browser to server.
+     * @deprecated use {@link AppConfig#heartbeatIntervalMs()} of {@link #config} instead
      */
+    @Deprecated
     public final int heartbeatIntervalMs;
 
     /**
@@ -36,6 +47,62 @@ public final class App<S> {
 
     public final Map<QualifiedSessionId, RenderedPage> pagesStorage = new ConcurrentHashMap<>();
 
+    /**
+     * The storage for the data of passivated live pages.
+     */
+    public final PassivatedPagesStore passivatedPagesStore;
+
+    /**
+     * The generator of devices and pages sessions identifiers.
+     */
+    public final SessionIdGenerator sessionIdGenerator;
+
+    /**
+     * The components initial states resolution settings and metrics.
+     */
+    public final StateResolution stateResolution;
+
+    /**
+     * Creates an instance of an application.
+     * @param rootComponentDefinition the root of the components tree
+     * @param config the application's configuration
+     * @param passivatedPagesStore the storage for the data of passivated live pages
+     * @param sessionIdGenerator the generator of devices and pages sessions identifiers
+     */
+    public App(final StatefulComponentDefinition<S> rootComponentDefinition,
+               final AppConfig config,
+               final PassivatedPagesStore passivatedPagesStore,
+               final SessionIdGenerator sessionIdGenerator) {
+        this.rootComponentDefinition = Objects.requireNonNull(rootComponentDefinition);
+        this.config = Objects.requireNonNull(config);
+        this.heartbeatIntervalMs = config.heartbeatIntervalMs();
+        this.passivatedPagesStore = Objects.requireNonNull(passivatedPagesStore);
+        this.sessionIdGenerator = Objects.requireNonNull(sessionIdGenerator);
+        this.stateResolution = new StateResolution(config.componentStateTimeoutMs());
+    }
+
+    /**
+     * Creates an instance of an application.
+     * @param rootComponentDefinition the root of the components tree
+     * @param config the application's configuration
+     * @param passivatedPagesStore the storage for the data of passivated live pages
+     */
+    public App(final StatefulComponentDefinition<S> rootComponentDefinition,
+               final AppConfig config,
+               final PassivatedPagesStore passivatedPagesStore) {
+        this(rootComponentDefinition, config, passivatedPagesStore, new SessionIdGenerator(PageRendering.KEY_LENGTH));
+    }
+
+    /**
+     * Creates an instance of an application.
+     * @param rootComponentDefinition the root of the components tree
+     * @param config the application's configuration
+     */
+    public App(final StatefulComponentDefinition<S> rootComponentDefinition,
+               final AppConfig config) {
+        this(rootComponentDefinition, config, new InMemoryPassivatedPagesStore());
+    }
+
     /**
      * Creates an instance of an application.
      * @param rootComponentDefinition the root of the components tree
@@ -43,8 +110,7 @@ public final class App<S> {
      */
     public App(final StatefulComponentDefinition<S> rootComponentDefinition,
                final int heartbeatIntervalMs) {
-        this.rootComponentDefinition = Objects.requireNonNull(rootComponentDefinition);
-        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this(rootComponentDefinition, AppConfig.DEFAULT.withHeartbeatIntervalMs(heartbeatIntervalMs));
     }
     /**
      * Creates an instance of an application.
@@ -101,5 +167,30 @@ public final class App<S> {
                 DEFAULT_HEARTBEAT_INTERVAL_MS);
     }
 
-}
+    /**
+     * Creates a copy of this application with the provided configuration.
+     * @param config the application's configuration
+     * @return a new application object
+     */
+    public App<S> withConfig(final AppConfig config) {
+        return new App<>(rootComponentDefinition, config, passivatedPagesStore, sessionIdGenerator);
+    }
 
+    /**
+     * Creates a copy of this application with the provided storage for passivated pages.
+     * @param passivatedPagesStore the storage for the data of passivated live pages
+     * @return a new application object
+     */
+    public App<S> withPassivatedPagesStore(final PassivatedPagesStore passivatedPagesStore) {
+        return new App<>(rootComponentDefinition, config, passivatedPagesStore, sessionIdGenerator);
+    }
+
+    /**
+     * Creates a copy of this application with the provided sessions identifiers generator.
+     * @param sessionIdGenerator the generator of devices and pages sessions identifiers
+     * @return a new application object
+     */
+    public App<S> withSessionIdGenerator(final SessionIdGenerator sessionIdGenerator) {
+        return new App<>(rootComponentDefinition, config, passivatedPagesStore, sessionIdGenerator);
+    }
+}
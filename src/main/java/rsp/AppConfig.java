@@ -0,0 +1,238 @@
+package rsp;
+
+/**
+ * An application's runtime configuration.
+ * @param heartbeatIntervalMs the rate of heartbeat messages from a browser to server
+ * @param batchDomUpdates if true, a browser queues incoming DOM modifications and applies them once per animation frame
+ * @param sessionResumeTimeoutMs the time a live page is retained after its connection is lost, zero disables resuming
+ * @param replayBufferSize the maximum number of the last outbound messages kept to be replayed to a resumed connection
+ * @param pagePassivationTimeoutMs the idle time after which a live page keeps only its components states
+ *                                 and drops its rendered tree, zero disables passivation
+ * @param remoteResponseTimeoutMs the time a live page waits for a browser's response to a properties read
+ *                                or a JavaScript evaluation, zero disables the timeout
+ * @param componentStateTimeoutMs the default time a page's HTML waits for a component's initial state
+ *                                before the component's fallback view is sent, zero disables the timeout
+ * @param packedDom if true, live pages keep their rendered DOM trees in a compact packed form between renderings,
+ *                  trading some CPU time on updates for a smaller heap per open page
+ * @param detectStaticPages if true, a page rendered without events handlers and elements references is served
+ *                          as a static page, without the client script and a live session
+ */
+public record AppConfig(int heartbeatIntervalMs,
+                        boolean batchDomUpdates,
+                        int sessionResumeTimeoutMs,
+                        int replayBufferSize,
+                        int pagePassivationTimeoutMs,
+                        int remoteResponseTimeoutMs,
+                        int componentStateTimeoutMs,
+                        boolean packedDom,
+                        boolean detectStaticPages) {
+
+    /**
+     * The default rate of heartbeat messages from a browser to server.
+     */
+    public static final int DEFAULT_HEARTBEAT_INTERVAL_MS = 10000;
+
+    /**
+     * The default time a live page is retained after its connection is lost.
+     */
+    public static final int DEFAULT_SESSION_RESUME_TIMEOUT_MS = 30000;
+
+    /**
+     * The default number of outbound messages kept to be replayed to a resumed connection.
+     */
+    public static final int DEFAULT_REPLAY_BUFFER_SIZE = 256;
+
+    /**
+     * The default time a live page waits for a browser's response.
+     */
+    public static final int DEFAULT_REMOTE_RESPONSE_TIMEOUT_MS = 30000;
+
+    /**
+     * The default time a component's initial state is awaited.
+     */
+    public static final int DEFAULT_COMPONENT_STATE_TIMEOUT_MS = 10000;
+
+    /**
+     * The default configuration.
+     */
+    public static final AppConfig DEFAULT = new AppConfig(DEFAULT_HEARTBEAT_INTERVAL_MS,
+                                                          false,
+                                                          DEFAULT_SESSION_RESUME_TIMEOUT_MS,
+                                                          DEFAULT_REPLAY_BUFFER_SIZE,
+                                                          0,
+                                                          DEFAULT_REMOTE_RESPONSE_TIMEOUT_MS,
+                                                          DEFAULT_COMPONENT_STATE_TIMEOUT_MS,
+                                                          false,
+                                                          false);
+
+    public AppConfig {
+        if (sessionResumeTimeoutMs < 0) {
+            throw new IllegalArgumentException("Session resume timeout expected to be a non-negative number: " + sessionResumeTimeoutMs);
+        }
+        if (replayBufferSize < 0) {
+            throw new IllegalArgumentException("Replay buffer size expected to be a non-negative number: " + replayBufferSize);
+        }
+        if (pagePassivationTimeoutMs < 0) {
+            throw new IllegalArgumentException("Page passivation timeout expected to be a non-negative number: " + pagePassivationTimeoutMs);
+        }
+        if (remoteResponseTimeoutMs < 0) {
+            throw new IllegalArgumentException("Remote response timeout expected to be a non-negative number: " + remoteResponseTimeoutMs);
+        }
+        if (componentStateTimeoutMs < 0) {
+            throw new IllegalArgumentException("Component state timeout expected to be a non-negative number: " + componentStateTimeoutMs);
+        }
+    }
+
+    /**
+     * Creates a copy of this configuration with the provided heartbeat interval.
+     * @param heartbeatIntervalMs the rate of heartbeat messages from a browser to server
+     * @return a new configuration object
+     */
+    public AppConfig withHeartbeatIntervalMs(final int heartbeatIntervalMs) {
+        return new AppConfig(heartbeatIntervalMs,
+                             batchDomUpdates,
+                             sessionResumeTimeoutMs,
+                             replayBufferSize,
+                             pagePassivationTimeoutMs,
+                             remoteResponseTimeoutMs,
+                             componentStateTimeoutMs,
+                             packedDom,
+                             detectStaticPages);
+    }
+
+    /**
+     * Creates a copy of this configuration with the DOM updates batching switched on or off.
+     * @param batchDomUpdates if true, a browser applies DOM modifications once per animation frame
+     * @return a new configuration object
+     */
+    public AppConfig withBatchDomUpdates(final boolean batchDomUpdates) {
+        return new AppConfig(heartbeatIntervalMs,
+                             batchDomUpdates,
+                             sessionResumeTimeoutMs,
+                             replayBufferSize,
+                             pagePassivationTimeoutMs,
+                             remoteResponseTimeoutMs,
+                             componentStateTimeoutMs,
+                             packedDom,
+                             detectStaticPages);
+    }
+
+    /**
+     * Creates a copy of this configuration with the provided live pages resume timeout.
+     * @param sessionResumeTimeoutMs the time a live page is retained after its connection is lost, zero disables resuming
+     * @return a new configuration object
+     */
+    public AppConfig withSessionResumeTimeoutMs(final int sessionResumeTimeoutMs) {
+        return new AppConfig(heartbeatIntervalMs,
+                             batchDomUpdates,
+                             sessionResumeTimeoutMs,
+                             replayBufferSize,
+                             pagePassivationTimeoutMs,
+                             remoteResponseTimeoutMs,
+                             componentStateTimeoutMs,
+                             packedDom,
+                             detectStaticPages);
+    }
+
+    /**
+     * Creates a copy of this configuration with the provided replay buffer size.
+     * @param replayBufferSize the maximum number of outbound messages kept to be replayed to a resumed connection
+     * @return a new configuration object
+     */
+    public AppConfig withReplayBufferSize(final int replayBufferSize) {
+        return new AppConfig(heartbeatIntervalMs,
+                             batchDomUpdates,
+                             sessionResumeTimeoutMs,
+                             replayBufferSize,
+                             pagePassivationTimeoutMs,
+                             remoteResponseTimeoutMs,
+                             componentStateTimeoutMs,
+                             packedDom,
+                             detectStaticPages);
+    }
+
+    /**
+     * Creates a copy of this configuration with the provided idle live pages passivation timeout.
+     * @param pagePassivationTimeoutMs the idle time after which a live page is passivated, zero disables passivation
+     * @return a new configuration object
+     */
+    public AppConfig withPagePassivationTimeoutMs(final int pagePassivationTimeoutMs) {
+        return new AppConfig(heartbeatIntervalMs,
+                             batchDomUpdates,
+                             sessionResumeTimeoutMs,
+                             replayBufferSize,
+                             pagePassivationTimeoutMs,
+                             remoteResponseTimeoutMs,
+                             componentStateTimeoutMs,
+                             packedDom,
+                             detectStaticPages);
+    }
+
+    /**
+     * Creates a copy of this configuration with the provided browser's responses timeout.
+     * @param remoteResponseTimeoutMs the time a live page waits for a browser's response, zero disables the timeout
+     * @return a new configuration object
+     */
+    public AppConfig withRemoteResponseTimeoutMs(final int remoteResponseTimeoutMs) {
+        return new AppConfig(heartbeatIntervalMs,
+                             batchDomUpdates,
+                             sessionResumeTimeoutMs,
+                             replayBufferSize,
+                             pagePassivationTimeoutMs,
+                             remoteResponseTimeoutMs,
+                             componentStateTimeoutMs,
+                             packedDom,
+                             detectStaticPages);
+    }
+
+    /**
+     * Creates a copy of this configuration with the provided components initial states timeout.
+     * @param componentStateTimeoutMs the time a component's initial state is awaited, zero disables the timeout
+     * @return a new configuration object
+     */
+    public AppConfig withComponentStateTimeoutMs(final int componentStateTimeoutMs) {
+        return new AppConfig(heartbeatIntervalMs,
+                             batchDomUpdates,
+                             sessionResumeTimeoutMs,
+                             replayBufferSize,
+                             pagePassivationTimeoutMs,
+                             remoteResponseTimeoutMs,
+                             componentStateTimeoutMs,
+                             packedDom,
+                             detectStaticPages);
+    }
+
+    /**
+     * Creates a copy of this configuration with the packed DOM trees switched on or off.
+     * @param packedDom if true, live pages keep their rendered DOM trees in a compact packed form
+     * @return a new configuration object
+     */
+    public AppConfig withPackedDom(final boolean packedDom) {
+        return new AppConfig(heartbeatIntervalMs,
+                             batchDomUpdates,
+                             sessionResumeTimeoutMs,
+                             replayBufferSize,
+                             pagePassivationTimeoutMs,
+                             remoteResponseTimeoutMs,
+                             componentStateTimeoutMs,
+                             packedDom,
+                             detectStaticPages);
+    }
+
+    /**
+     * Creates a copy of this configuration with the static pages detection switched on or off.
+     * @param detectStaticPages if true, the pages without events handlers and elements references are served as static pages
+     * @return a new configuration object
+     */
+    public AppConfig withDetectStaticPages(final boolean detectStaticPages) {
+        return new AppConfig(heartbeatIntervalMs,
+                             batchDomUpdates,
+                             sessionResumeTimeoutMs,
+                             replayBufferSize,
+                             pagePassivationTimeoutMs,
+                             remoteResponseTimeoutMs,
+                             componentStateTimeoutMs,
+                             packedDom,
+                             detectStaticPages);
+    }
+}
@@ -1,6 +1,7 @@
 package rsp.component;
 
 import rsp.dom.*;
+import rsp.html.HtmlDsl;
 import rsp.html.SegmentDefinition;
 import rsp.page.EventContext;
 import rsp.page.RenderContextFactory;
@@ -9,6 +10,7 @@ import rsp.server.RemoteOut;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.*;
 
 import static java.lang.System.Logger.Level.*;
@@ -18,10 +20,12 @@ import static java.lang.System.Logger.Level.*;
  * @param <S> a type for this component's state snapshot, should be an immutable class
  */
 public class Component<S> implements StateUpdate<S> {
+    private static final SegmentDefinition STATE_PLACEHOLDER_VIEW = HtmlDsl.tag("template");
+
     private final System.Logger logger = System.getLogger(getClass().getName());
 
     private final ComponentCompositeKey key;
-    private final Supplier<CompletableFuture<? extends S>> stateResolver;
+    private Supplier<CompletableFuture<? extends S>> stateResolver;
     private final ComponentMountedCallback<S> componentMounted;
     private final ComponentUpdatedCallback<S> componentUpdated;
     private final ComponentUnmountedCallback<S> componentUnmounted;
@@ -29,6 +33,7 @@ public class Component<S> implements StateUpdate<S> {
     private final RenderContextFactory renderContextFactory;
     protected final RemoteOut remotePageMessages;
     private final Object sessionLock;
+    private final FrameRate frameRate;
 
     private final List<Event> events = new ArrayList<>();
     private final Map<Ref, TreePositionPath> refs = new HashMap<>();
@@ -36,6 +41,18 @@ public class Component<S> implements StateUpdate<S> {
     private final List<Node> rootNodes = new ArrayList<>();
     private TreePositionPath startNodeDomPath;
     private S state;
+    private S renderedState;
+    private long lastRenderNanos;
+    private boolean renderScheduled;
+    private boolean isUnmounted;
+    private long skippedUpdatesCount;
+    private int stateTimeoutMs = StatefulComponentDefinition.DEFAULT_STATE_TIMEOUT;
+    private SegmentDefinition stateFallbackView;
+    private Tag fallbackParentTag;
+    private List<Node> fallbackNodes;
+    private PageIndex pageIndex;
+    private boolean packRenderedNodes;
+    private PackedTree packedRootNodes;
 
     public Component(final ComponentCompositeKey key,
                      final Supplier<CompletableFuture<? extends S>> stateResolver,
@@ -44,6 +61,24 @@ public class Component<S> implements StateUpdate<S> {
                      final RenderContextFactory renderContextFactory,
                      final RemoteOut remotePageMessages,
                      final Object sessionLock) {
+        this(key,
+             stateResolver,
+             componentView,
+             componentCallbacks,
+             renderContextFactory,
+             remotePageMessages,
+             sessionLock,
+             FrameRate.UNLIMITED);
+    }
+
+    public Component(final ComponentCompositeKey key,
+                     final Supplier<CompletableFuture<? extends S>> stateResolver,
+                     final ComponentView<S> componentView,
+                     final ComponentCallbacks<S> componentCallbacks,
+                     final RenderContextFactory renderContextFactory,
+                     final RemoteOut remotePageMessages,
+                     final Object sessionLock,
+                     final FrameRate frameRate) {
         this.key = Objects.requireNonNull(key);
         this.stateResolver = Objects.requireNonNull(stateResolver);
         this.componentMounted = Objects.requireNonNull(componentCallbacks.componentMountedCallback());
@@ -53,10 +88,15 @@ public class Component<S> implements StateUpdate<S> {
         this.renderContextFactory = Objects.requireNonNull(renderContextFactory);
         this.remotePageMessages = Objects.requireNonNull(remotePageMessages);
         this.sessionLock = Objects.requireNonNull(sessionLock);
+        this.frameRate = Objects.requireNonNull(frameRate);
 
         logger.log(TRACE, "New component is created with key " + this);
     }
 
+    public ComponentCompositeKey key() {
+        return key;
+    }
+
     public TreePositionPath path() {
         return key.componentPath();
     }
@@ -83,15 +123,67 @@ public class Component<S> implements StateUpdate<S> {
         }
     }
 
+    /**
+     * Registers this component in its page's index, the component keeps its events and references indexed
+     * until it is unmounted.
+     * @param pageIndex the page's index
+     * @param packRenderedNodes if true, the rendered nodes are kept in the packed form between renderings
+     */
+    void attachToPage(final PageIndex pageIndex, final boolean packRenderedNodes) {
+        this.pageIndex = pageIndex;
+        this.packRenderedNodes = packRenderedNodes;
+        pageIndex.addComponent(this);
+    }
+
+    /**
+     * Sets this component's initial state deadline.
+     * @param stateTimeoutMs the time a page's HTML waits for the initial state, zero disables the timeout,
+     *                       {@link StatefulComponentDefinition#DEFAULT_STATE_TIMEOUT} means the render context's default
+     * @param stateFallbackView the view rendered while the state is pending, or null
+     */
+    void setStateDeadline(final int stateTimeoutMs, final SegmentDefinition stateFallbackView) {
+        this.stateTimeoutMs = stateTimeoutMs;
+        this.stateFallbackView = stateFallbackView;
+    }
+
+    /**
+     * Renders this component with its initial state.
+     * If the state is resolved, the component's subtree is rendered in place.
+     * The states of the view's direct children components are resolved ahead and concurrently,
+     * so the waiting time for sibling components is the longest of their states resolutions, not their sum.
+     * The rendering never waits for a state, as it may run under the page's session lock:
+     * if the state is not resolved yet, the fallback view or an empty placeholder element is rendered
+     * and replaced with the component's view when the state arrives.
+     * Before a page's HTML is built, the page's rendering waits for such states up to their deadlines,
+     * see {@link ComponentRenderContext#awaitPendingStates()}.
+     * @param renderContext the render context
+     */
     public void render(final ComponentRenderContext renderContext) {
+        final StateResolution stateResolution = renderContext.stateResolution();
+        final long startNanos = System.nanoTime();
         final CompletableFuture<? extends S> statePromise = stateResolver.get();
+        if (!statePromise.isDone()) {
+            renderFallback(renderContext, statePromise, startNanos);
+            return;
+        }
         statePromise.whenComplete((s, stateEx) -> {
+            recordStateResolution(stateResolution, startNanos, stateEx);
             if (stateEx == null) {
                 synchronized (sessionLock) {
                     state = s;
+                    renderedState = s;
+                    lastRenderNanos = System.nanoTime();
                     try {
                         final SegmentDefinition view = componentView.apply(state).apply(this);
-                        view.render(renderContext);
+                        renderContext.resolveChildrenStatesAhead(this, view);
+                        try {
+                            view.render(renderContext);
+                        } finally {
+                            renderContext.releaseChildrenStatesAhead(this);
+                        }
+                        if (renderContext.isRootComponent(this)) {
+                            packRendered();
+                        }
                         initiallyRendered(key, state, this);
                         componentMounted.apply(key, state, this);
                     } catch (Throwable renderEx) {
@@ -104,10 +196,121 @@ public class Component<S> implements StateUpdate<S> {
         });
     }
 
+    private void renderFallback(final ComponentRenderContext renderContext,
+                                final CompletableFuture<? extends S> statePromise,
+                                final long startNanos) {
+        logger.log(DEBUG, () -> "Component " + this + " state is pending, fallback view: " + (stateFallbackView != null));
+        final StateResolution stateResolution = renderContext.stateResolution();
+        final int timeoutMs = stateTimeoutMs == StatefulComponentDefinition.DEFAULT_STATE_TIMEOUT ?
+                              stateResolution.defaultTimeoutMs() : stateTimeoutMs;
+        final PageIndex pageIndex = renderContext.pageIndex();
+        synchronized (sessionLock) {
+            lastRenderNanos = System.nanoTime();
+            if (stateFallbackView != null) {
+                try {
+                    stateFallbackView.render(renderContext);
+                } catch (Throwable renderEx) {
+                    logger.log(ERROR, "Component " + this + " fallback view rendering exception", renderEx);
+                }
+            }
+            if (rootNodes.isEmpty()) {
+                // the late state's view replaces the placeholder's position
+                STATE_PLACEHOLDER_VIEW.render(renderContext);
+            }
+            fallbackNodes = List.copyOf(rootNodes);
+            fallbackParentTag = renderContext.parentTag();
+            if (renderContext.isRootComponent(this)) {
+                packRendered();
+            }
+
+            final CompletableFuture<? extends S> lateRendering = statePromise.whenComplete((s, stateEx) -> {
+                recordStateResolution(stateResolution, startNanos, stateEx);
+                synchronized (sessionLock) {
+                    pageIndex.removePendingState(this);
+                    if (stateEx != null) {
+                        logger.log(ERROR, "Component " + this + " state exception", stateEx);
+                        return;
+                    }
+                    if (isUnmounted || pageIndex.component(key) != this) {
+                        // removed or replaced by a parent's re-rendering
+                        return;
+                    }
+                    state = s;
+                    try {
+                        renderChanges();
+                        replaceFallbackNodes();
+                        initiallyRendered(key, state, this);
+                        componentMounted.apply(key, state, this);
+                    } catch (Throwable renderEx) {
+                        logger.log(ERROR, "Component " + this + " rendering exception", renderEx);
+                    }
+                }
+            });
+            // registered under the lock, so the state's rendering removes the registration after this
+            if (!lateRendering.isDone()) {
+                pageIndex.addPendingState(new PageIndex.PendingState(this, lateRendering, timeoutMs, startNanos));
+            }
+        }
+    }
+
+    /**
+     * Puts the nodes rendered for the late state in place of the fallback nodes in the parent's tree,
+     * so the page's HTML built after the state's arrival contains the component's view.
+     */
+    private void replaceFallbackNodes() {
+        if (fallbackParentTag != null && !fallbackNodes.isEmpty()) {
+            final List<Node> siblings = fallbackParentTag.children;
+            for (int i = 0; i < siblings.size(); i++) {
+                if (siblings.get(i) == fallbackNodes.get(0)) {
+                    siblings.subList(i, Math.min(i + fallbackNodes.size(), siblings.size())).clear();
+                    siblings.addAll(i, rootNodes());
+                    break;
+                }
+            }
+        }
+        fallbackParentTag = null;
+        fallbackNodes = null;
+    }
+
+    private static void recordStateResolution(final StateResolution stateResolution,
+                                              final long startNanos,
+                                              final Throwable stateEx) {
+        final long latencyNanos = System.nanoTime() - startNanos;
+        if (stateEx == null) {
+            stateResolution.stateResolved(latencyNanos);
+        } else {
+            stateResolution.stateFailed(latencyNanos);
+        }
+    }
+
     public S getState() {
         return state;
     }
 
+    /**
+     * Makes this component to be rendered with a previously saved state instead of resolving its initial state.
+     * @param restoredState the state to render
+     */
+    public void restoreState(final S restoredState) {
+        this.stateResolver = () -> CompletableFuture.completedFuture(restoredState);
+    }
+
+    /**
+     * Makes this component to be rendered with a state which resolving has been started ahead of the rendering.
+     * @param state the state's future
+     */
+    void resolvedAhead(final CompletableFuture<? extends S> state) {
+        this.stateResolver = () -> state;
+    }
+
+    /**
+     * The time of this component's last rendering.
+     * @return the value of {@link System#nanoTime()} at the last rendering
+     */
+    public long lastRenderNanos() {
+        return lastRenderNanos;
+    }
+
     @Override
     public void setState(final S newState) {
         applyStateTransformation(s -> newState);
@@ -128,71 +331,232 @@ public class Component<S> implements StateUpdate<S> {
     @Override
     public void applyStateTransformation(final UnaryOperator<S> newStateFunction) {
         synchronized (sessionLock) {
-            final List<Node> oldRootNodes = new ArrayList<>(rootNodes);
-            rootNodes.clear();
-            final Set<Event> oldEvents = new HashSet<>(recursiveEvents());
-            final Set<Component<?>> oldChildren = new HashSet<>(recursiveChildren());
-            final S oldState = state;
             state = newStateFunction.apply(state);
+            if (frameRate.isUnlimited()) {
+                renderUpdate();
+            } else if (renderScheduled) {
+                skippedUpdatesCount++;
+                logger.log(TRACE, () -> "Component " + this + " coalesced a state update, skipped so far: " + skippedUpdatesCount);
+            } else {
+                final long delayNanos = frameRate.frameIntervalNanos() - (System.nanoTime() - lastRenderNanos);
+                if (delayNanos <= 0) {
+                    renderUpdate();
+                } else {
+                    renderScheduled = true;
+                    CompletableFuture.runAsync(this::renderScheduledUpdate,
+                                               CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS));
+                }
+            }
+        }
+    }
 
-            logger.log(TRACE, () -> "Component " + this + " old state was " + oldState + " applied new state " + state);
+    /**
+     * The number of state updates which have been coalesced with later ones and not rendered separately
+     * because of this component's frame rate limit.
+     * @return the count of skipped renderings
+     */
+    public long skippedUpdatesCount() {
+        synchronized (sessionLock) {
+            return skippedUpdatesCount;
+        }
+    }
 
-            final ComponentRenderContext renderContext = renderContextFactory.newContext(startNodeDomPath);
+    private void renderScheduledUpdate() {
+        synchronized (sessionLock) {
+            renderScheduled = false;
+            if (!isUnmounted) {
+                try {
+                    renderUpdate();
+                } catch (Throwable renderEx) {
+                    logger.log(ERROR, "Component " + this + " rendering exception", renderEx);
+                }
+            }
+        }
+    }
 
-            events.clear();
-            refs.clear();
-            children.clear();
+    private void renderUpdate() {
+        final S oldState = renderChanges();
+        componentUpdated.apply(key, oldState, state, this);
+    }
 
-            renderContext.openComponent(this);
-            final SegmentDefinition view = componentView.apply(state).apply(this);
-            view.render(renderContext);
-            renderContext.closeComponent();
+    /**
+     * Renders the current state, sends the DOM changes and the events changes to the browser.
+     * @return the state of the previous rendering
+     */
+    private S renderChanges() {
+        final List<Node> oldRootNodes = new ArrayList<>(rootNodes);
+        final PackedTree oldPackedRootNodes = packedRootNodes;
+        rootNodes.clear();
+        packedRootNodes = null;
+        final Set<Event> oldEvents = new HashSet<>(recursiveEvents());
+        final List<Component<?>> oldChildrenList = recursiveChildren();
+        final Set<Component<?>> oldChildren = new HashSet<>(oldChildrenList);
+        final S oldState = renderedState;
+        renderedState = state;
+        lastRenderNanos = System.nanoTime();
+
+        logger.log(TRACE, () -> "Component " + this + " old state was " + oldState + " applied new state " + state);
+
+        unindexRendered();
+        for (final Component<?> child : oldChildrenList) {
+            child.unindex();
+        }
+        events.clear();
+        refs.clear();
+        children.clear();
 
-            updateRendered(key, oldState, state, this);
+        final DefaultDomChangesContext domChangePerformer = renderView(oldState, oldRootNodes, oldPackedRootNodes);
 
-            final RemoteOut remoteOut = remotePageMessages;
-            assert remoteOut != null;
+        final RemoteOut remoteOut = remotePageMessages;
+        assert remoteOut != null;
 
-            // Calculate diff between an old and new DOM trees
-            final DefaultDomChangesContext domChangePerformer = new DefaultDomChangesContext();
-            Diff.diffChildren(oldRootNodes, rootNodes, startNodeDomPath, domChangePerformer, new HtmlBuilder(new StringBuilder()));
-            final Set<TreePositionPath> elementsToRemove = domChangePerformer.elementsToRemove;
-            remoteOut.modifyDom(domChangePerformer.commands);
+        final Set<TreePositionPath> elementsToRemove = domChangePerformer.elementsToRemove;
+        remoteOut.modifyDom(domChangePerformer.commands);
+        packRendered();
 
-            // Unregister events
-            final List<Event> eventsToRemove = new ArrayList<>();
-            final Set<Event> newEvents = new HashSet<>(recursiveEvents());
-            for (Event event : oldEvents) {
-                if (!newEvents.contains(event) && !elementsToRemove.contains(event.eventTarget.elementPath)) {
-                    eventsToRemove.add(event);
-                }
+        // Unregister events
+        final List<Event> eventsToRemove = new ArrayList<>();
+        final Set<Event> newEvents = new HashSet<>(recursiveEvents());
+        for (Event event : oldEvents) {
+            if (!newEvents.contains(event) && !elementsToRemove.contains(event.eventTarget.elementPath)) {
+                eventsToRemove.add(event);
             }
-            for (Event event : eventsToRemove) {
-                final Event.Target eventTarget = event.eventTarget;
-                remoteOut.forgetEvent(eventTarget.eventType,
-                                      eventTarget.elementPath);
+        }
+        for (Event event : eventsToRemove) {
+            final Event.Target eventTarget = event.eventTarget;
+            remoteOut.forgetEvent(eventTarget.eventType,
+                                  eventTarget.elementPath);
+        }
+
+        // Register new event types on client
+        final List<Event> eventsToAdd = new ArrayList<>();
+        for (final Event event : newEvents) {
+            if (!oldEvents.contains(event)) {
+                eventsToAdd.add(event);
             }
+        }
+        remoteOut.listenEvents(eventsToAdd);
 
-            // Register new event types on client
-            final List<Event> eventsToAdd = new ArrayList<>();
-            for (final Event event : newEvents) {
-                if (!oldEvents.contains(event)) {
-                    eventsToAdd.add(event);
-                }
+        // Notify unmounted child components
+        final Set<Component<?>> mountedComponents = new HashSet<>(children);
+        for (final Component<?> child : oldChildren) {
+            if (!mountedComponents.contains(child)) {
+                child.unmount();
             }
-            remoteOut.listenEvents(eventsToAdd);
+        }
+        return oldState;
+    }
 
-            // Notify unmounted child components
-            final Set<Component<?>> mountedComponents = new HashSet<>(children);
-            for (final Component<?> child : oldChildren) {
-                if (!mountedComponents.contains(child)) {
-                    child.unmount();
-                }
+    /**
+     * Renders this component's view for the current state and calculates the changes to the previous DOM tree.
+     * @param oldState the state of the previous rendering
+     * @param oldRootNodes the root nodes of the previous rendering
+     * @param oldPackedRootNodes the root nodes of the previous rendering if they were kept packed, otherwise null
+     * @return the DOM changes
+     */
+    protected DefaultDomChangesContext renderView(final S oldState,
+                                                  final List<Node> oldRootNodes,
+                                                  final PackedTree oldPackedRootNodes) {
+        final ComponentRenderContext renderContext = renderContextFactory.newContext(startNodeDomPath);
+        renderContext.openComponent(this);
+        final SegmentDefinition view = componentView.apply(state).apply(this);
+        view.render(renderContext);
+        renderContext.closeComponent();
+
+        updateRendered(key, oldState, state, this);
+
+        // Calculate diff between an old and new DOM trees
+        final DefaultDomChangesContext domChangePerformer = new DefaultDomChangesContext();
+        final HtmlBuilder hb = new HtmlBuilder(new StringBuilder());
+        if (oldPackedRootNodes != null) {
+            Diff.diffChildren(oldPackedRootNodes, rootNodes, startNodeDomPath, domChangePerformer, hb);
+        } else {
+            Diff.diffChildren(oldRootNodes, rootNodes, startNodeDomPath, domChangePerformer, hb);
+        }
+        return domChangePerformer;
+    }
+
+    /**
+     * Packs the nodes of this component's last rendering with its children components subtrees, if enabled.
+     * The children components keep their parts of the same packed tree.
+     * The nodes are not packed while a child component waits for its state behind its fallback nodes.
+     */
+    private void packRendered() {
+        if (!packRenderedNodes || rootNodes.isEmpty()) {
+            return;
+        }
+        for (final Component<?> child : recursiveChildren()) {
+            if (child.fallbackNodes != null) {
+                // the tree stays unpacked until the child's fallback nodes are replaced in it
+                return;
             }
-            componentUpdated.apply(key, oldState, state, this);
+        }
+        final Map<Node, Integer> nodesIndices = new IdentityHashMap<>();
+        final PackedTree tree = PackedTree.pack(rootNodes, nodesIndices);
+        packedRootNodes = tree;
+        rootNodes.clear();
+        for (final Component<?> child : recursiveChildren()) {
+            child.adoptPacked(tree, nodesIndices);
         }
     }
 
+    private void adoptPacked(final PackedTree tree, final Map<Node, Integer> nodesIndices) {
+        if (rootNodes.isEmpty()) {
+            return;
+        }
+        final int[] roots = new int[rootNodes.size()];
+        for (int i = 0; i < roots.length; i++) {
+            final Integer index = nodesIndices.get(rootNodes.get(i));
+            if (index == null) {
+                // not a part of the parent's tree
+                packedRootNodes = PackedTree.pack(rootNodes);
+                rootNodes.clear();
+                return;
+            }
+            roots[i] = index;
+        }
+        packedRootNodes = tree.subtrees(roots);
+        rootNodes.clear();
+    }
+
+    /**
+     * Replaces this component's rendering result with the one made by another component with the same view and state.
+     * @param rootNodes the root nodes of the rendered tree
+     * @param events the events of the rendered tree
+     * @param refs the elements references of the rendered tree
+     */
+    protected void adoptRendered(final List<Node> rootNodes,
+                                 final List<Event> events,
+                                 final Map<Ref, TreePositionPath> refs) {
+        unindexRendered();
+        this.rootNodes.clear();
+        this.rootNodes.addAll(rootNodes);
+        this.events.clear();
+        this.events.addAll(events);
+        this.refs.clear();
+        this.refs.putAll(refs);
+        if (pageIndex != null) {
+            this.events.forEach(pageIndex::addEvent);
+            this.refs.forEach(pageIndex::addRef);
+        }
+    }
+
+    protected List<Node> rootNodes() {
+        return packedRootNodes != null ? packedRootNodes.unpack() : Collections.unmodifiableList(rootNodes);
+    }
+
+    protected List<Event> events() {
+        return Collections.unmodifiableList(events);
+    }
+
+    protected Map<Ref, TreePositionPath> refs() {
+        return Collections.unmodifiableMap(refs);
+    }
+
+    protected TreePositionPath startNodeDomPath() {
+        return startNodeDomPath;
+    }
+
     protected void initiallyRendered(ComponentCompositeKey key, S state, StateUpdate<S> stateUpdate) {}
 
     protected void updateRendered(ComponentCompositeKey key, S oldState, S state, StateUpdate<S> stateUpdate) {}
@@ -204,6 +568,8 @@ public class Component<S> implements StateUpdate<S> {
     }
 
     public void unmount() {
+        isUnmounted = true;
+        unindex();
         recursiveChildren().forEach(c -> c.unmount());
         unmounted(key, state);
         componentUnmounted.apply(key, state);
@@ -240,16 +606,44 @@ public class Component<S> implements StateUpdate<S> {
                          final Consumer<EventContext> eventHandler,
                          final boolean preventDefault,
                          final Event.Modifier modifier) {
-        final Event.Target eventTarget = new Event.Target(eventType, elementPath);
-        events.add(new Event(eventTarget, eventHandler, preventDefault, modifier));
+        final Event.Target eventTarget = new Event.Target(Symbol.intern(eventType), elementPath);
+        final Event event = new Event(eventTarget, eventHandler, preventDefault, modifier);
+        events.add(event);
+        if (pageIndex != null) {
+            pageIndex.addEvent(event);
+        }
     }
 
     public void addRef(final Ref ref, final TreePositionPath path) {
-        refs.put(ref, path);
+        final TreePositionPath previousPath = refs.put(ref, path);
+        if (pageIndex != null) {
+            if (previousPath != null) {
+                pageIndex.removeRef(ref, previousPath);
+            }
+            pageIndex.addRef(ref, path);
+        }
+    }
+
+    private void unindex() {
+        if (pageIndex != null) {
+            unindexRendered();
+            pageIndex.removeComponent(this);
+        }
+    }
+
+    private void unindexRendered() {
+        if (pageIndex != null) {
+            events.forEach(pageIndex::removeEvent);
+            refs.forEach(pageIndex::removeRef);
+        }
     }
 
     public void html(final HtmlBuilder hb) {
-        rootNodes.forEach(node -> hb.buildHtml(node));
+        if (packedRootNodes != null) {
+            hb.buildHtml(packedRootNodes);
+        } else {
+            rootNodes.forEach(node -> hb.buildHtml(node));
+        }
     }
 
     @Override
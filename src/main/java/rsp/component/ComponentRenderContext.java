@@ -1,15 +1,25 @@
 package rsp.component;
 
 import rsp.dom.*;
+import rsp.html.SegmentDefinition;
 import rsp.page.*;
 import rsp.ref.Ref;
 import rsp.server.RemoteOut;
 import rsp.server.http.PageStateOrigin;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.*;
 
+import static java.lang.System.Logger.Level.WARNING;
+
 public class ComponentRenderContext implements RenderContextFactory {
+    private static final System.Logger logger = System.getLogger(ComponentRenderContext.class.getName());
 
     private static final TreePositionPath ROOT_COMPONENT_PATH = TreePositionPath.of("1");
 
@@ -17,6 +27,10 @@ public class ComponentRenderContext implements RenderContextFactory {
     protected final PageStateOrigin pageStateOrigin;
     protected final RemoteOut remotePageMessagesOut;
     protected final Object sessionLock;
+    protected final Map<Object, Runnable> sessionShutdownHooks;
+    protected final StateResolution stateResolution;
+    protected final PageIndex pageIndex;
+    protected final boolean packRenderedNodes;
 
     private final Deque<Tag> tagsStack = new ArrayDeque<>();
     private final List<TreePositionPath> rootNodesPaths = new ArrayList<>();
@@ -25,17 +39,67 @@ public class ComponentRenderContext implements RenderContextFactory {
     private TreePositionPath domPath;
 
     private Component<?> rootComponent;
+    private Map<ComponentCompositeKey, Object> restoredStates = Map.of();
+    private final Map<ComponentCompositeKey, AheadResolvedState> aheadResolvedStates = new HashMap<>();
 
     public ComponentRenderContext(final QualifiedSessionId sessionId,
                                   final TreePositionPath startDomPath,
                                   final PageStateOrigin pageStateOrigin,
                                   final RemoteOut remotePageMessagesOut,
                                   final Object sessionLock) {
+        this(sessionId,
+             startDomPath,
+             pageStateOrigin,
+             remotePageMessagesOut,
+             sessionLock,
+             new LinkedHashMap<>(),
+             new StateResolution(0),
+             new PageIndex(),
+             false);
+    }
+
+    /**
+     * Creates a new context which shares the session shutdown hooks and the index with other contexts of the same page.
+     * If the rendered nodes are packed, the components keep their rendering results in the compact form between renderings.
+     */
+    protected ComponentRenderContext(final QualifiedSessionId sessionId,
+                                     final TreePositionPath startDomPath,
+                                     final PageStateOrigin pageStateOrigin,
+                                     final RemoteOut remotePageMessagesOut,
+                                     final Object sessionLock,
+                                     final Map<Object, Runnable> sessionShutdownHooks,
+                                     final StateResolution stateResolution,
+                                     final PageIndex pageIndex,
+                                     final boolean packRenderedNodes) {
         this.domPath = Objects.requireNonNull(startDomPath);
         this.sessionId = Objects.requireNonNull(sessionId);
         this.pageStateOrigin = Objects.requireNonNull(pageStateOrigin);
         this.remotePageMessagesOut = Objects.requireNonNull(remotePageMessagesOut);
         this.sessionLock = Objects.requireNonNull(sessionLock);
+        this.sessionShutdownHooks = Objects.requireNonNull(sessionShutdownHooks);
+        this.stateResolution = Objects.requireNonNull(stateResolution);
+        this.pageIndex = Objects.requireNonNull(pageIndex);
+        this.packRenderedNodes = packRenderedNodes;
+    }
+
+    public QualifiedSessionId sessionId() {
+        return sessionId;
+    }
+
+    /**
+     * The components initial states resolution settings and metrics.
+     * @return the states resolution object
+     */
+    public StateResolution stateResolution() {
+        return stateResolution;
+    }
+
+    /**
+     * The page's index of the mounted components, their events and elements references.
+     * @return the index shared by the page's render contexts
+     */
+    public PageIndex pageIndex() {
+        return pageIndex;
     }
 
     public void setDocType(final String docType) {
@@ -56,6 +120,18 @@ public class ComponentRenderContext implements RenderContextFactory {
                                                                            this,
                                                                            remotePageMessagesOut,
                                                                            sessionLock);
+        if (restoredStates.containsKey(newComponent.key())) {
+            @SuppressWarnings("unchecked")
+            final S restoredState = (S) restoredStates.remove(newComponent.key());
+            newComponent.restoreState(restoredState);
+        } else {
+            final AheadResolvedState aheadResolvedState = aheadResolvedStates.remove(newComponent.key());
+            if (aheadResolvedState != null && aheadResolvedState.definition() == componentFactory) {
+                @SuppressWarnings("unchecked")
+                final CompletableFuture<? extends S> state = (CompletableFuture<? extends S>) aheadResolvedState.state();
+                newComponent.resolvedAhead(state);
+            }
+        }
         openComponent(newComponent);
         return newComponent;
     }
@@ -68,6 +144,7 @@ public class ComponentRenderContext implements RenderContextFactory {
             assert parentComponent != null;
             parentComponent.addChild(component);
         }
+        component.attachToPage(pageIndex, packRenderedNodes);
         componentsStack.push(component);
     }
 
@@ -75,6 +152,10 @@ public class ComponentRenderContext implements RenderContextFactory {
         componentsStack.pop();
     }
 
+    boolean isRootComponent(final Component<?> component) {
+        return rootComponent == component;
+    }
+
     public void openNode(XmlNs xmlns, String name, boolean isSelfClosing) {
         final Component<?> component = componentsStack.peek();
         assert component != null;
@@ -97,6 +178,30 @@ public class ComponentRenderContext implements RenderContextFactory {
         component.notifyNodeOpened(domPath, tag);
     }
 
+    /**
+     * Adds an immutable prebuilt tag with its subtree, the tag is not copied.
+     * @param tag the tag to add
+     */
+    public void addTag(final Tag tag) {
+        final Component<?> component = componentsStack.peek();
+        assert component != null;
+
+        final Tag parent = tagsStack.peek();
+        if (parent == null) {
+            if (!component.isRootNodesEmpty()) {
+                final TreePositionPath prevTag = rootNodesPaths.get(rootNodesPaths.size() - 1);
+                domPath = prevTag.incSibling();
+            }
+            rootNodesPaths.add(domPath);
+        } else {
+            final int nextChild = parent.children.size() + 1;
+            domPath = domPath.addChild(nextChild);
+            parent.addChild(tag);
+        }
+        component.notifyNodeOpened(domPath, tag);
+        domPath = domPath.parent();
+    }
+
     public void closeNode(final String name, final boolean upgrade) {
         tagsStack.pop();
         domPath = domPath.parent();
@@ -135,6 +240,14 @@ public class ComponentRenderContext implements RenderContextFactory {
         }
     }
 
+    /**
+     * The tag which children are being rendered.
+     * @return the current parent tag or null if the rendered nodes are this context's root nodes
+     */
+    protected Tag parentTag() {
+        return tagsStack.peek();
+    }
+
     public void setAttr(final XmlNs xmlNs, final String name, final String value, final boolean isProperty) {
         tagsStack.peek().addAttribute(name, value, isProperty);
     }
@@ -176,7 +289,11 @@ public class ComponentRenderContext implements RenderContextFactory {
                                           startDomPath,
                                           pageStateOrigin,
                                           remotePageMessagesOut,
-                                          sessionLock);
+                                          sessionLock,
+                                          sessionShutdownHooks,
+                                          stateResolution,
+                                          pageIndex,
+                                          packRenderedNodes);
     }
 
     public String html() {
@@ -191,6 +308,14 @@ public class ComponentRenderContext implements RenderContextFactory {
         return hb.toString();
     }
 
+    public List<Node> rootNodes() {
+        if (rootComponent != null) {
+            return rootComponent.rootNodes();
+        } else {
+            return List.of();
+        }
+    }
+
     public List<Event> recursiveEvents() {
         if (rootComponent != null) {
             return rootComponent.recursiveEvents();
@@ -199,12 +324,153 @@ public class ComponentRenderContext implements RenderContextFactory {
         }
     }
 
+    /**
+     * Starts resolving the initial states of a component's direct children components found in its view,
+     * before the view is rendered, so the sibling components states are resolved concurrently
+     * rather than one after another when the children are rendered in the document order.
+     * @param parent the component which view is about to be rendered
+     * @param view the component's view
+     */
+    void resolveChildrenStatesAhead(final Component<?> parent, final SegmentDefinition view) {
+        final List<StatefulComponentDefinition<?>> definitions = new ArrayList<>();
+        view.forEachComponentDefinition(definitions::add);
+        if (definitions.size() < 2) {
+            return;
+        }
+        final int offset = parent.directChildren().size();
+        for (int i = 0; i < definitions.size(); i++) {
+            final StatefulComponentDefinition<?> definition = definitions.get(i);
+            final ComponentCompositeKey key = new ComponentCompositeKey(sessionId,
+                                                                        definition.componentType,
+                                                                        parent.path().addChild(offset + i + 1));
+            if (!restoredStates.containsKey(key)) {
+                final CompletableFuture<?> state = definition.resolveStateAhead(key, pageStateOrigin);
+                if (state != null) {
+                    aheadResolvedStates.put(key, new AheadResolvedState(definition, state));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the states resolved ahead for a component's direct children, which were not rendered by its view.
+     * @param parent the component which view has been rendered
+     */
+    void releaseChildrenStatesAhead(final Component<?> parent) {
+        if (!aheadResolvedStates.isEmpty()) {
+            aheadResolvedStates.keySet().removeIf(key -> parent.path().equals(key.componentPath().parent()));
+        }
+    }
+
+    private record AheadResolvedState(StatefulComponentDefinition<?> definition, CompletableFuture<?> state) {}
+
+    /**
+     * Waits for the initial states of the page's components which were rendered with their fallback views,
+     * so the states arrived in the meantime are rendered in place, as a part of the page's HTML.
+     * A state is awaited up to its component's deadline, after that the component keeps its fallback view
+     * until the state arrives.
+     * Should be called without holding the session's lock, as the arrived states are rendered under the lock.
+     */
+    public void awaitPendingStates() {
+        while (true) {
+            final PageIndex.PendingState pendingState;
+            synchronized (sessionLock) {
+                pendingState = pageIndex.firstPendingState();
+            }
+            if (pendingState == null) {
+                return;
+            }
+            try {
+                if (pendingState.timeoutMs() > 0) {
+                    final long remainingNanos = TimeUnit.MILLISECONDS.toNanos(pendingState.timeoutMs())
+                                                - (System.nanoTime() - pendingState.startNanos());
+                    pendingState.lateRendering().get(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+                } else {
+                    pendingState.lateRendering().join();
+                }
+            } catch (final TimeoutException ex) {
+                logger.log(WARNING, () -> "Component " + pendingState.component() + " state is not resolved in time");
+                stateResolution.stateTimedOut();
+                synchronized (sessionLock) {
+                    pageIndex.removePendingState(pendingState.component());
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final ExecutionException | CompletionException | CancellationException ex) {
+                // reported by the component
+            }
+        }
+    }
+
+    /**
+     * Provides the saved states for the components to be rendered in this context.
+     * A component with a key found in the map is rendered with the saved state instead of resolving its initial state.
+     * @param states the components states by their keys
+     */
+    public void restoreStates(final Map<ComponentCompositeKey, Object> states) {
+        this.restoredStates = new HashMap<>(states);
+    }
+
+    /**
+     * Collects the current states of all the components rendered in this context.
+     * @return the components states by their keys
+     */
+    public Map<ComponentCompositeKey, Object> componentStates() {
+        final Map<ComponentCompositeKey, Object> states = new HashMap<>();
+        if (rootComponent != null) {
+            states.put(rootComponent.key(), rootComponent.getState());
+            for (final Component<?> component : rootComponent.recursiveChildren()) {
+                states.put(component.key(), component.getState());
+            }
+        }
+        return states;
+    }
+
+    /**
+     * The time of the latest rendering of any component in this context.
+     * @return the value of {@link System#nanoTime()} at the latest rendering or {@link Long#MIN_VALUE} if nothing is rendered
+     */
+    public long lastRenderNanos() {
+        long result = Long.MIN_VALUE;
+        if (rootComponent != null) {
+            result = rootComponent.lastRenderNanos();
+            for (final Component<?> component : rootComponent.recursiveChildren()) {
+                result = Math.max(result, component.lastRenderNanos());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Unmounts the rendered components.
+     */
     public void shutdown() {
         if (rootComponent != null) {
             rootComponent.unmount();
         }
     }
 
+    /**
+     * Registers an action to run when the page's session ends.
+     * Unlike a component's unmount callback, the action does not run when a component is removed from the page
+     * or when an idle page is passivated.
+     * @param hookKey the key identifying the action, an action with the same key is registered only once
+     * @param hook the action
+     */
+    public void addSessionShutdownHook(final Object hookKey, final Runnable hook) {
+        sessionShutdownHooks.putIfAbsent(Objects.requireNonNull(hookKey), Objects.requireNonNull(hook));
+    }
+
+    /**
+     * Runs the registered session shutdown actions.
+     */
+    public void runSessionShutdownHooks() {
+        final List<Runnable> hooks = new ArrayList<>(sessionShutdownHooks.values());
+        sessionShutdownHooks.clear();
+        hooks.forEach(Runnable::run);
+    }
+
     public Map<Ref, TreePositionPath> recursiveRefs() {
         if (rootComponent != null) {
             return rootComponent.recursiveRefs();
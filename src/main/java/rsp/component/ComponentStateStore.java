@@ -0,0 +1,64 @@
+package rsp.component;
+
+import rsp.page.QualifiedSessionId;
+
+import java.util.Optional;
+
+/**
+ * A storage for components states which outlive their components.
+ * Implementations must be thread-safe.
+ * @param <S> the type of the stored states
+ */
+public interface ComponentStateStore<S> {
+
+    /**
+     * Finds a stored state.
+     * @param key the component's key, must not be null
+     * @return the state or an empty result if there is no state for the key
+     */
+    Optional<S> get(ComponentCompositeKey key);
+
+    /**
+     * Saves a state.
+     * @param key the component's key, must not be null
+     * @param state the state, must not be null
+     */
+    void put(ComponentCompositeKey key, S state);
+
+    /**
+     * Removes a stored state.
+     * @param key the component's key, must not be null
+     */
+    void remove(ComponentCompositeKey key);
+
+    /**
+     * Removes all the states of a page's session.
+     * @param sessionId the session's identifier, must not be null
+     */
+    void removeSession(QualifiedSessionId sessionId);
+
+    /**
+     * Provides this store's usage statistics.
+     * @return the statistics snapshot
+     */
+    Stats stats();
+
+    /**
+     * A store's usage statistics.
+     * @param hits the number of found states lookups
+     * @param misses the number of not found states lookups
+     * @param evictions the number of states removed by the store's eviction policy
+     * @param size the current number of stored states
+     */
+    record Stats(long hits, long misses, long evictions, long size) {
+
+        /**
+         * The share of successful lookups.
+         * @return the hits ratio from 0 to 1, or 0 if there were no lookups
+         */
+        public double hitRatio() {
+            final long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
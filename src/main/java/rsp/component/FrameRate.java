@@ -0,0 +1,41 @@
+package rsp.component;
+
+/**
+ * A limit for the rate of a component's re-renderings caused by its state updates.
+ * State updates arriving faster than the limit are coalesced: only the latest state is rendered on the next tick.
+ * @param maxFramesPerSecond the maximum number of re-renderings per second, zero means no limit
+ */
+public record FrameRate(int maxFramesPerSecond) {
+
+    /**
+     * Every state update is rendered immediately.
+     */
+    public static final FrameRate UNLIMITED = new FrameRate(0);
+
+    public FrameRate {
+        if (maxFramesPerSecond < 0) {
+            throw new IllegalArgumentException("Frame rate expected to be a non-negative number: " + maxFramesPerSecond);
+        }
+    }
+
+    /**
+     * Creates a frame rate limit.
+     * @param maxFramesPerSecond the maximum number of re-renderings per second
+     * @return a frame rate limit
+     */
+    public static FrameRate of(final int maxFramesPerSecond) {
+        return new FrameRate(maxFramesPerSecond);
+    }
+
+    public boolean isUnlimited() {
+        return maxFramesPerSecond == 0;
+    }
+
+    /**
+     * The minimum time between two renderings.
+     * @return an interval in nanoseconds
+     */
+    public long frameIntervalNanos() {
+        return isUnlimited() ? 0 : 1_000_000_000L / maxFramesPerSecond;
+    }
+}
@@ -0,0 +1,158 @@
+package rsp.component;
+
+import rsp.page.QualifiedSessionId;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * A concurrent in-memory store which evicts the least recently used states over its maximum size
+ * and the states not accessed longer than its time to live.
+ * The keys are also indexed by their sessions, so a session's states are removed without a scan of all the states.
+ * @param <S> the type of the stored states
+ */
+public final class InMemoryComponentStateStore<S> implements ComponentStateStore<S> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+
+    private final LinkedHashMap<ComponentCompositeKey, Entry<S>> states = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<QualifiedSessionId, Set<ComponentCompositeKey>> sessionsKeys = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    InMemoryComponentStateStore(final int maxSize, final Duration ttl, final LongSupplier nanoTime) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum size expected to be a positive number: " + maxSize);
+        }
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("Time to live expected to be a non-negative duration: " + ttl);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = Objects.requireNonNull(nanoTime);
+    }
+
+    /**
+     * Creates a new store.
+     * @param maxSize the maximum number of stored states
+     * @param ttl the time after the last access when a state expires, zero means no expiration
+     */
+    public InMemoryComponentStateStore(final int maxSize, final Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    /**
+     * Creates a new store without expiration.
+     * @param maxSize the maximum number of stored states
+     */
+    public InMemoryComponentStateStore(final int maxSize) {
+        this(maxSize, Duration.ZERO);
+    }
+
+    @Override
+    public synchronized Optional<S> get(final ComponentCompositeKey key) {
+        Objects.requireNonNull(key);
+        final Entry<S> entry = states.get(key);
+        final long now = nanoTime.getAsLong();
+        if (entry == null || isExpired(entry, now)) {
+            if (entry != null) {
+                states.remove(key);
+                unindex(key);
+                evictions++;
+            }
+            misses++;
+            return Optional.empty();
+        }
+        entry.lastAccessNanos = now;
+        hits++;
+        return Optional.of(entry.state);
+    }
+
+    @Override
+    public synchronized void put(final ComponentCompositeKey key, final S state) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(state);
+        final long now = nanoTime.getAsLong();
+        if (states.put(key, new Entry<>(state, now)) == null) {
+            sessionsKeys.computeIfAbsent(key.sessionId(), sessionId -> new HashSet<>()).add(key);
+        }
+        evict(now);
+    }
+
+    @Override
+    public synchronized void remove(final ComponentCompositeKey key) {
+        if (states.remove(Objects.requireNonNull(key)) != null) {
+            unindex(key);
+        }
+    }
+
+    @Override
+    public synchronized void removeSession(final QualifiedSessionId sessionId) {
+        final Set<ComponentCompositeKey> keys = sessionsKeys.remove(Objects.requireNonNull(sessionId));
+        if (keys != null) {
+            for (final ComponentCompositeKey key : keys) {
+                states.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, states.size());
+    }
+
+    /**
+     * The number of sessions with stored states.
+     * @return the indexed sessions count
+     */
+    synchronized int sessionsCount() {
+        return sessionsKeys.size();
+    }
+
+    private void evict(final long now) {
+        // the entries are in the access order, the least recently accessed first
+        final Iterator<Map.Entry<ComponentCompositeKey, Entry<S>>> entries = states.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<ComponentCompositeKey, Entry<S>> entry = entries.next();
+            if (states.size() > maxSize || isExpired(entry.getValue(), now)) {
+                entries.remove();
+                unindex(entry.getKey());
+                evictions++;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void unindex(final ComponentCompositeKey key) {
+        final Set<ComponentCompositeKey> keys = sessionsKeys.get(key.sessionId());
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            sessionsKeys.remove(key.sessionId());
+        }
+    }
+
+    private boolean isExpired(final Entry<S> entry, final long now) {
+        return ttlNanos > 0 && now - entry.lastAccessNanos >= ttlNanos;
+    }
+
+    private static final class Entry<S> {
+        final S state;
+        long lastAccessNanos;
+
+        Entry(final S state, final long lastAccessNanos) {
+            this.state = state;
+            this.lastAccessNanos = lastAccessNanos;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package rsp.component;
+
+import rsp.page.QualifiedSessionId;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A store backed by a provided map, for example a persistent or an off-heap map implementation.
+ * The store does not evict states by itself.
+ * @param <S> the type of the stored states
+ */
+public final class MapComponentStateStore<S> implements ComponentStateStore<S> {
+
+    private final Map<ComponentCompositeKey, S> states;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new store.
+     * @param states the backing map, must not be null, should be thread-safe if the store is shared between sessions
+     */
+    public MapComponentStateStore(final Map<ComponentCompositeKey, S> states) {
+        this.states = Objects.requireNonNull(states);
+    }
+
+    @Override
+    public Optional<S> get(final ComponentCompositeKey key) {
+        final S state = states.get(Objects.requireNonNull(key));
+        if (state == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(state);
+    }
+
+    @Override
+    public void put(final ComponentCompositeKey key, final S state) {
+        states.put(Objects.requireNonNull(key), Objects.requireNonNull(state));
+    }
+
+    @Override
+    public void remove(final ComponentCompositeKey key) {
+        states.remove(Objects.requireNonNull(key));
+    }
+
+    @Override
+    public void removeSession(final QualifiedSessionId sessionId) {
+        Objects.requireNonNull(sessionId);
+        states.keySet().removeIf(key -> key.sessionId().equals(sessionId));
+    }
+
+    @Override
+    public Stats stats() {
+        return new Stats(hits.get(), misses.get(), 0, states.size());
+    }
+}
@@ -0,0 +1,147 @@
+package rsp.component;
+
+import rsp.dom.Event;
+import rsp.dom.TreePositionPath;
+import rsp.ref.Ref;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An index of a page's mounted components, their events handlers and elements references,
+ * and of the components rendered with their fallback views while their initial states are pending.
+ * The components update their parts of the index when they are rendered, re-rendered and unmounted,
+ * so a lookup does not walk the components tree.
+ * The index is shared by all the render contexts of a page and is expected to be accessed under the page's session lock.
+ */
+public final class PageIndex {
+    private final Map<ComponentCompositeKey, Component<?>> components = new HashMap<>();
+    private final Map<Event.Target, List<Event>> events = new HashMap<>();
+    private final Map<Ref, TreePositionPath> refs = new HashMap<>();
+    private final Map<ComponentCompositeKey, PendingState> pendingStates = new LinkedHashMap<>();
+    private int eventsCount;
+
+    /**
+     * Finds a mounted component.
+     * @param key the component's key, must not be null
+     * @return the component or null if there is no such component mounted
+     */
+    public Component<?> component(final ComponentCompositeKey key) {
+        return components.get(Objects.requireNonNull(key));
+    }
+
+    /**
+     * Finds the events handlers registered for a DOM element and an event type.
+     * @param eventTarget the element's path and the event's type, must not be null
+     * @return a read-only view of the events, empty if there are no events for the target
+     */
+    public List<Event> events(final Event.Target eventTarget) {
+        final List<Event> targetEvents = events.get(Objects.requireNonNull(eventTarget));
+        return targetEvents == null ? List.of() : Collections.unmodifiableList(targetEvents);
+    }
+
+    /**
+     * Collects all the registered events.
+     * @return a new list of the events
+     */
+    public List<Event> allEvents() {
+        final List<Event> result = new ArrayList<>(eventsCount);
+        for (final List<Event> targetEvents : events.values()) {
+            result.addAll(targetEvents);
+        }
+        return result;
+    }
+
+    /**
+     * Finds an element's path by its reference.
+     * @param ref the reference, must not be null
+     * @return the element's path or null if the reference is not found
+     */
+    public TreePositionPath refPath(final Ref ref) {
+        return refs.get(Objects.requireNonNull(ref));
+    }
+
+    public int componentsCount() {
+        return components.size();
+    }
+
+    public int eventsCount() {
+        return eventsCount;
+    }
+
+    public int refsCount() {
+        return refs.size();
+    }
+
+    public int pendingStatesCount() {
+        return pendingStates.size();
+    }
+
+    void addComponent(final Component<?> component) {
+        components.put(component.key(), component);
+    }
+
+    void removeComponent(final Component<?> component) {
+        components.remove(component.key(), component);
+        removePendingState(component);
+    }
+
+    void addEvent(final Event event) {
+        events.computeIfAbsent(event.eventTarget, k -> new ArrayList<>(1)).add(event);
+        eventsCount++;
+    }
+
+    void removeEvent(final Event event) {
+        final List<Event> targetEvents = events.get(event.eventTarget);
+        if (targetEvents == null) {
+            return;
+        }
+        for (int i = 0; i < targetEvents.size(); i++) {
+            if (targetEvents.get(i) == event) {
+                targetEvents.remove(i);
+                eventsCount--;
+                break;
+            }
+        }
+        if (targetEvents.isEmpty()) {
+            events.remove(event.eventTarget);
+        }
+    }
+
+    void addRef(final Ref ref, final TreePositionPath path) {
+        refs.put(ref, path);
+    }
+
+    void removeRef(final Ref ref, final TreePositionPath path) {
+        refs.remove(ref, path);
+    }
+
+    void addPendingState(final PendingState pendingState) {
+        pendingStates.put(pendingState.component().key(), pendingState);
+    }
+
+    void removePendingState(final Component<?> component) {
+        final PendingState pendingState = pendingStates.get(component.key());
+        if (pendingState != null && pendingState.component() == component) {
+            pendingStates.remove(component.key());
+        }
+    }
+
+    /**
+     * Finds the earliest registered pending state.
+     * @return the pending state or null if there are no pending states
+     */
+    PendingState firstPendingState() {
+        final Iterator<PendingState> iterator = pendingStates.values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * A component's initial state not resolved at the component's rendering.
+     * @param component the component rendered with its fallback view
+     * @param lateRendering completes when the state is resolved and the component is rendered with it
+     * @param timeoutMs the time to wait for the state before the page's HTML is built, zero disables the timeout
+     * @param startNanos the value of {@link System#nanoTime()} when the state was requested
+     */
+    record PendingState(Component<?> component, CompletableFuture<?> lateRendering, int timeoutMs, long startNanos) {}
+}
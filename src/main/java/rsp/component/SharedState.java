@@ -0,0 +1,100 @@
+package rsp.component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+
+/**
+ * A state shared between many pages, for example, a leaderboard shown to every user.
+ * The components created by {@link SharedStateComponentDefinition} subscribe to this object and re-render on its changes.
+ * On a change, the pages which show the same view for the same previous state and at the same position in the DOM tree
+ * are updated with the result of one rendering, diff and message encoding.
+ * @param <S> the type of the state, should be an immutable class with proper equals and hashCode methods
+ */
+public final class SharedState<S> {
+
+    private final Map<ComponentCompositeKey, SharedStateComponent<S>> subscribers = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private volatile Snapshot<S> snapshot;
+
+    /**
+     * Creates a new shared state object.
+     * @param initialState the initial state
+     * @param executor the executor for notifying of the subscribers
+     */
+    public SharedState(final S initialState, final Executor executor) {
+        this.snapshot = new Snapshot<>(0, Objects.requireNonNull(initialState));
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Creates a new shared state object, the subscribers are notified in the common fork-join pool.
+     * @param initialState the initial state
+     */
+    public SharedState(final S initialState) {
+        this(initialState, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Gets the current state.
+     * @return the state
+     */
+    public S get() {
+        return snapshot.state();
+    }
+
+    /**
+     * Sets a new state and asynchronously updates all the subscribed components.
+     * @param newState the new state
+     */
+    public void set(final S newState) {
+        Objects.requireNonNull(newState);
+        apply(s -> newState);
+    }
+
+    /**
+     * Applies a transformation to the current state and asynchronously updates all the subscribed components.
+     * @param stateTransformer the state transformation function
+     */
+    public void apply(final UnaryOperator<S> stateTransformer) {
+        final Snapshot<S> newSnapshot;
+        synchronized (this) {
+            newSnapshot = new Snapshot<>(snapshot.version() + 1,
+                                         Objects.requireNonNull(stateTransformer.apply(snapshot.state())));
+            snapshot = newSnapshot;
+        }
+        executor.execute(() -> broadcast(newSnapshot));
+    }
+
+    /**
+     * The number of the currently subscribed components.
+     * @return the subscribers count
+     */
+    public int subscribersCount() {
+        return subscribers.size();
+    }
+
+    Snapshot<S> snapshot() {
+        return snapshot;
+    }
+
+    void subscribe(final SharedStateComponent<S> component) {
+        subscribers.put(component.key(), component);
+    }
+
+    void unsubscribe(final SharedStateComponent<S> component) {
+        subscribers.remove(component.key(), component);
+    }
+
+    private void broadcast(final Snapshot<S> snapshot) {
+        final SharedStateComponent.RenderedFrames frames = new SharedStateComponent.RenderedFrames();
+        for (final SharedStateComponent<S> component : subscribers.values()) {
+            component.sharedStateUpdated(snapshot, frames);
+        }
+    }
+
+    record Snapshot<S>(long version, S state) {}
+}
@@ -0,0 +1,132 @@
+package rsp.component;
+
+import rsp.dom.*;
+import rsp.page.RenderContextFactory;
+import rsp.ref.Ref;
+import rsp.server.RemoteOut;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A component subscribed to a {@link SharedState}.
+ * @param <S> the type of the shared state
+ */
+public class SharedStateComponent<S> extends Component<S> {
+
+    private final SharedState<S> sharedState;
+    private final Object sessionLock;
+    private long version;
+    private RenderedFrames frames;
+
+    public SharedStateComponent(final ComponentCompositeKey key,
+                                final Supplier<CompletableFuture<? extends S>> resolveStateSupplier,
+                                final ComponentView<S> componentView,
+                                final ComponentCallbacks<S> componentCallbacks,
+                                final RenderContextFactory renderContextFactory,
+                                final RemoteOut remotePageMessages,
+                                final Object sessionLock,
+                                final FrameRate frameRate,
+                                final SharedState<S> sharedState,
+                                final long version) {
+        super(key,
+              resolveStateSupplier,
+              componentView,
+              componentCallbacks,
+              renderContextFactory,
+              remotePageMessages,
+              sessionLock,
+              frameRate);
+        this.sharedState = Objects.requireNonNull(sharedState);
+        this.sessionLock = Objects.requireNonNull(sessionLock);
+        this.version = version;
+    }
+
+    @Override
+    protected void initiallyRendered(final ComponentCompositeKey key, final S state, final StateUpdate<S> stateUpdate) {
+        requireNoNestedComponents();
+        sharedState.subscribe(this);
+        // catch up with a change made after the state was resolved but before the subscription
+        sharedStateUpdated(sharedState.snapshot(), new RenderedFrames());
+    }
+
+    @Override
+    protected void updateRendered(final ComponentCompositeKey key, final S oldState, final S state, final StateUpdate<S> stateUpdate) {
+        requireNoNestedComponents();
+    }
+
+    /**
+     * A rendering made for one page is reused for the other pages, but the nested components are mounted only on the first page.
+     */
+    private void requireNoNestedComponents() {
+        if (!directChildren().isEmpty()) {
+            throw new IllegalStateException("A shared state component's view contains nested components: " + this);
+        }
+    }
+
+    @Override
+    protected void unmounted(final ComponentCompositeKey key, final S oldState) {
+        sharedState.unsubscribe(this);
+    }
+
+    void sharedStateUpdated(final SharedState.Snapshot<S> snapshot, final RenderedFrames frames) {
+        synchronized (sessionLock) {
+            if (snapshot.version() <= version) {
+                return;
+            }
+            version = snapshot.version();
+            this.frames = frames;
+            try {
+                setState(snapshot.state());
+            } finally {
+                this.frames = null;
+            }
+        }
+    }
+
+    @Override
+    protected DefaultDomChangesContext renderView(final S oldState,
+                                                  final List<Node> oldRootNodes,
+                                                  final PackedTree oldPackedRootNodes) {
+        if (frames == null) {
+            return super.renderView(oldState, oldRootNodes, oldPackedRootNodes);
+        }
+        final FrameKey frameKey = new FrameKey(startNodeDomPath(), oldState, getState());
+        final RenderedFrame cachedFrame = frames.get(frameKey);
+        if (cachedFrame != null) {
+            adoptRendered(cachedFrame.rootNodes(), cachedFrame.events(), cachedFrame.refs());
+            return cachedFrame.domChanges();
+        }
+        final DefaultDomChangesContext domChanges = super.renderView(oldState, oldRootNodes, oldPackedRootNodes);
+        final DefaultDomChangesContext sharedDomChanges = new DefaultDomChangesContext(new SharedDomChanges(domChanges.commands),
+                                                                                       domChanges.elementsToRemove);
+        frames.put(frameKey, new RenderedFrame(List.copyOf(rootNodes()),
+                                               List.copyOf(events()),
+                                               Map.copyOf(refs()),
+                                               sharedDomChanges));
+        return sharedDomChanges;
+    }
+
+    /**
+     * The results of renderings made during a single change of a shared state.
+     */
+    static final class RenderedFrames {
+        private final Map<FrameKey, RenderedFrame> frames = new HashMap<>();
+
+        RenderedFrame get(final FrameKey key) {
+            return frames.get(key);
+        }
+
+        void put(final FrameKey key, final RenderedFrame frame) {
+            frames.put(key, frame);
+        }
+    }
+
+    private record FrameKey(TreePositionPath startNodeDomPath, Object oldState, Object newState) {}
+
+    private record RenderedFrame(List<Node> rootNodes,
+                                 List<Event> events,
+                                 Map<Ref, TreePositionPath> refs,
+                                 DefaultDomChangesContext domChanges) {}
+}
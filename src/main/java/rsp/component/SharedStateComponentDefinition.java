@@ -0,0 +1,75 @@
+package rsp.component;
+
+import rsp.dom.TreePositionPath;
+import rsp.page.QualifiedSessionId;
+import rsp.page.RenderContextFactory;
+import rsp.server.RemoteOut;
+import rsp.server.http.PageStateOrigin;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A definition of a component showing a {@link SharedState}.
+ * The view is expected to be a pure function of the state and must not contain nested stateful components,
+ * this way the result of its rendering can be reused for all the pages with the same inputs.
+ * A rendering with a nested component fails with an {@link IllegalStateException}.
+ * @param <S> the type of the shared state, should be an immutable class with proper equals and hashCode methods
+ */
+public class SharedStateComponentDefinition<S> extends StatefulComponentDefinition<S> {
+
+    private final SharedState<S> sharedState;
+    private final View<S> view;
+
+    public SharedStateComponentDefinition(final Object componentType,
+                                          final SharedState<S> sharedState,
+                                          final View<S> view) {
+        super(componentType);
+        this.sharedState = Objects.requireNonNull(sharedState);
+        this.view = Objects.requireNonNull(view);
+    }
+
+    public SharedStateComponentDefinition(final SharedState<S> sharedState,
+                                          final View<S> view) {
+        this(SharedStateComponentDefinition.class, sharedState, view);
+    }
+
+    @Override
+    protected ComponentStateSupplier<S> stateSupplier() {
+        return (key, httpStateOrigin) -> CompletableFuture.completedFuture(sharedState.get());
+    }
+
+    @Override
+    protected ComponentView<S> componentView() {
+        return state -> newState -> view.apply(state);
+    }
+
+    @Override
+    CompletableFuture<? extends S> resolveStateAhead(final ComponentCompositeKey key, final PageStateOrigin pageStateOrigin) {
+        // the state is a shared state's snapshot taken on the component's creation
+        return null;
+    }
+
+    @Override
+    public Component<S> createComponent(final QualifiedSessionId sessionId,
+                                        final TreePositionPath componentPath,
+                                        final PageStateOrigin pageStateOrigin,
+                                        final RenderContextFactory renderContextFactory,
+                                        final RemoteOut remotePageMessagesOut,
+                                        final Object sessionLock) {
+        final ComponentCompositeKey key = new ComponentCompositeKey(sessionId, componentType, componentPath);
+        final SharedState.Snapshot<S> snapshot = sharedState.snapshot();
+        return new SharedStateComponent<>(key,
+                                          () -> CompletableFuture.completedFuture(snapshot.state()),
+                                          componentView(),
+                                          new ComponentCallbacks<>(componentDidMount(),
+                                                                   componentDidUpdate(),
+                                                                   componentWillUnmount()),
+                                          renderContextFactory,
+                                          remotePageMessagesOut,
+                                          sessionLock,
+                                          frameRate(),
+                                          sharedState,
+                                          snapshot.version());
+    }
+}
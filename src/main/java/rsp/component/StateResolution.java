@@ -0,0 +1,97 @@
+package rsp.component;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The components initial states resolution settings and metrics shared by an application's pages.
+ * A component which initial state is pending is rendered with its fallback view, which is replaced when the state arrives.
+ * A page's HTML is built after its components pending states are resolved or their deadlines pass.
+ */
+public final class StateResolution {
+    private final int defaultTimeoutMs;
+
+    private final LongAdder resolvedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder timedOutCount = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Creates a new instance of a states resolution object.
+     * @param defaultTimeoutMs the default time to wait for a component's initial state, zero disables the timeout
+     */
+    public StateResolution(final int defaultTimeoutMs) {
+        if (defaultTimeoutMs < 0) {
+            throw new IllegalArgumentException("State timeout expected to be a non-negative number: " + defaultTimeoutMs);
+        }
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    /**
+     * The default time to wait for a component's initial state, used unless the component's definition provides its own.
+     * @return the timeout in milliseconds, zero if disabled
+     */
+    public int defaultTimeoutMs() {
+        return defaultTimeoutMs;
+    }
+
+    /**
+     * The number of successfully resolved initial states.
+     * @return the resolved states count
+     */
+    public long resolvedCount() {
+        return resolvedCount.sum();
+    }
+
+    /**
+     * The number of initial states futures completed exceptionally.
+     * @return the failed states count
+     */
+    public long failedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * The number of initial states not resolved before their deadlines.
+     * @return the timed out states count
+     */
+    public long timedOutCount() {
+        return timedOutCount.sum();
+    }
+
+    /**
+     * The sum of the resolution times of all the resolved and failed initial states.
+     * @return the total latency in nanoseconds
+     */
+    public long totalLatencyNanos() {
+        return totalLatencyNanos.sum();
+    }
+
+    /**
+     * The longest resolution time of an initial state.
+     * @return the maximum latency in nanoseconds
+     */
+    public long maxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    void stateResolved(final long latencyNanos) {
+        resolvedCount.increment();
+        addLatency(latencyNanos);
+    }
+
+    void stateFailed(final long latencyNanos) {
+        failedCount.increment();
+        addLatency(latencyNanos);
+    }
+
+    void stateTimedOut() {
+        timedOutCount.increment();
+    }
+
+    private void addLatency(final long latencyNanos) {
+        totalLatencyNanos.add(latencyNanos);
+        maxLatencyNanos.accumulate(latencyNanos);
+    }
+}
@@ -9,12 +9,21 @@ import rsp.server.http.PageStateOrigin;
 
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
-public abstract class StatefulComponentDefinition<S> implements SegmentDefinition, ComponentFactory<S> {
+public abstract class StatefulComponentDefinition<S> implements SegmentDefinition, ComponentFactory<S>, Cloneable {
+
+    /**
+     * The state timeout value meaning the application's default timeout is used.
+     */
+    public static final int DEFAULT_STATE_TIMEOUT = -1;
 
     protected final Object componentType;
 
+    private int stateTimeoutMs = DEFAULT_STATE_TIMEOUT;
+    private SegmentDefinition stateFallbackView;
+
     protected StatefulComponentDefinition(final Object componentType) {
         this.componentType = Objects.requireNonNull(componentType);
     }
@@ -36,6 +45,73 @@ public abstract class StatefulComponentDefinition<S> implements SegmentDefinitio
         return (key, state) -> {};
     }
 
+    /**
+     * Creates a copy of this definition with a deadline for the component's initial state.
+     * @param stateTimeoutMs the time a page's HTML waits for the initial state, zero disables the timeout,
+     *                       {@link #DEFAULT_STATE_TIMEOUT} means the application's default timeout
+     * @param stateFallbackView the view rendered while the state is pending and replaced when the state arrives,
+     *                          or null to render an empty placeholder element
+     * @return a new definition, this definition is not changed
+     */
+    public StatefulComponentDefinition<S> withStateTimeout(final int stateTimeoutMs,
+                                                           final SegmentDefinition stateFallbackView) {
+        if (stateTimeoutMs < 0 && stateTimeoutMs != DEFAULT_STATE_TIMEOUT) {
+            throw new IllegalArgumentException("State timeout expected to be a non-negative number or "
+                                               + DEFAULT_STATE_TIMEOUT + " for the default timeout: " + stateTimeoutMs);
+        }
+        final StatefulComponentDefinition<S> definition = copy();
+        definition.stateTimeoutMs = stateTimeoutMs;
+        definition.stateFallbackView = stateFallbackView;
+        return definition;
+    }
+
+    @SuppressWarnings("unchecked")
+    private StatefulComponentDefinition<S> copy() {
+        try {
+            return (StatefulComponentDefinition<S>) clone();
+        } catch (final CloneNotSupportedException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    /**
+     * Override this method to provide this component's initial state deadline.
+     * @return the time a page's HTML waits for the initial state in milliseconds, zero disables the timeout,
+     *         {@link #DEFAULT_STATE_TIMEOUT} means the application's default timeout
+     */
+    protected int stateTimeoutMs() {
+        return stateTimeoutMs;
+    }
+
+    /**
+     * Override this method to provide the view rendered while this component's initial state is pending,
+     * for example a loading indicator. A page's HTML contains the view if the state is not resolved before its deadline.
+     * The view is replaced live when the state arrives.
+     * @return the fallback view, or null to render an empty placeholder element
+     */
+    protected SegmentDefinition stateFallbackView() {
+        return stateFallbackView;
+    }
+
+    /**
+     * Override this method to limit the rate of the component's re-renderings on frequent state updates.
+     * @return the component's frame rate limit
+     */
+    protected FrameRate frameRate() {
+        return FrameRate.UNLIMITED;
+    }
+
+    /**
+     * Starts resolving a component's initial state ahead of its rendering,
+     * so the states of sibling components are resolved concurrently.
+     * @param key the component's key
+     * @param pageStateOrigin the page's state origin
+     * @return the state's future or null if this definition's state cannot be resolved ahead of creating its component
+     */
+    CompletableFuture<? extends S> resolveStateAhead(final ComponentCompositeKey key, final PageStateOrigin pageStateOrigin) {
+        return stateSupplier().getState(key, pageStateOrigin.httpStateOrigin());
+    }
+
     @Override
     public Component<S> createComponent(final QualifiedSessionId sessionId,
                                         final TreePositionPath componentPath,
@@ -54,14 +130,21 @@ public abstract class StatefulComponentDefinition<S> implements SegmentDefinitio
                                                         componentWillUnmount()),
                                renderContextFactory,
                                remotePageMessagesOut,
-                               sessionLock);
+                               sessionLock,
+                               frameRate());
     }
 
     @Override
     public boolean render(final ComponentRenderContext renderContext) {
         final Component<S> component = renderContext.openComponent(this);
+        component.setStateDeadline(stateTimeoutMs(), stateFallbackView());
         component.render(renderContext);
         renderContext.closeComponent();
         return true;
     }
+
+    @Override
+    public void forEachComponentDefinition(final Consumer<StatefulComponentDefinition<?>> consumer) {
+        consumer.accept(this);
+    }
 }
@@ -1,43 +1,60 @@
 package rsp.component;
 
+import rsp.page.QualifiedSessionId;
+
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
+/**
+ * A definition of a component which keeps its state in a store, so the state outlives the component.
+ * For example, a component removed from the page and added back later gets its previous state.
+ * The session's states are removed from the store when the page's session ends.
+ * @param <S> the type of the component's state
+ */
 public class StoredStateComponentDefinition<S> extends StatefulComponentDefinition<S> {
 
     private final ComponentView<S> view;
     private final S initialState;
-    private final Map<ComponentCompositeKey, S> stateStore;
+    private final ComponentStateStore<S> stateStore;
 
-    public StoredStateComponentDefinition(final S initialState,
+    public StoredStateComponentDefinition(final Object componentType,
+                                          final S initialState,
                                           final ComponentView<S> view,
-                                          final Map<ComponentCompositeKey, S> stateStore) {
-        super(StoredStateComponentDefinition.class);
+                                          final ComponentStateStore<S> stateStore) {
+        super(componentType);
         this.view = Objects.requireNonNull(view);
         this.initialState = Objects.requireNonNull(initialState);
         this.stateStore = Objects.requireNonNull(stateStore);
     }
 
+    public StoredStateComponentDefinition(final S initialState,
+                                          final ComponentView<S> view,
+                                          final ComponentStateStore<S> stateStore) {
+        this(StoredStateComponentDefinition.class, initialState, view, stateStore);
+    }
+
+    public StoredStateComponentDefinition(final S initialState,
+                                          final ComponentView<S> view,
+                                          final Map<ComponentCompositeKey, S> stateStore) {
+        this(initialState, view, new MapComponentStateStore<>(stateStore));
+    }
+
     public StoredStateComponentDefinition(final Object componentType,
                                           final S initialState,
                                           final ComponentView<S> view,
                                           final Map<ComponentCompositeKey, S> stateStore) {
-        super(componentType);
-        this.view = Objects.requireNonNull(view);
-        this.initialState = Objects.requireNonNull(initialState);
-        this.stateStore = Objects.requireNonNull(stateStore);
+        this(componentType, initialState, view, new MapComponentStateStore<>(stateStore));
     }
 
     @Override
     protected ComponentStateSupplier<S> stateSupplier() {
         return (key, httpStateOrigin) -> {
-            if (stateStore.containsKey(key)) {
-                return CompletableFuture.completedFuture(stateStore.get(key));
-            } else {
+            final S state = stateStore.get(key).orElseGet(() -> {
                 stateStore.put(key, initialState);
-                return CompletableFuture.completedFuture(initialState);
-            }
+                return initialState;
+            });
+            return CompletableFuture.completedFuture(state);
         };
     }
 
@@ -50,4 +67,11 @@ public class StoredStateComponentDefinition<S> extends StatefulComponentDefiniti
     protected ComponentView<S> componentView() {
         return view;
     }
+
+    @Override
+    public boolean render(final ComponentRenderContext renderContext) {
+        final QualifiedSessionId sessionId = renderContext.sessionId();
+        renderContext.addSessionShutdownHook(stateStore, () -> stateStore.removeSession(sessionId));
+        return super.render(renderContext);
+    }
 }
@@ -0,0 +1,149 @@
+package rsp.component;
+
+import rsp.html.SegmentDefinition;
+import rsp.page.EventContext;
+import rsp.util.json.JsonDataType;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static rsp.html.HtmlDsl.*;
+
+/**
+ * A definition of a virtualized list which renders only the items in its scroll viewport.
+ * The list is a scrollable container of fixed height with rows of fixed height.
+ * The browser reports the container's scroll position by a throttled event and the server renders
+ * the visible window of the items plus an overscan margin, the rest of the list is replaced by two spacers.
+ * The size of the virtual DOM and diffs depends on the viewport's height, not on the size of the data.
+ * @param <T> the type of the list's items
+ */
+public class VirtualListComponentDefinition<T> extends StatefulComponentDefinition<VirtualListComponentDefinition.Viewport> {
+
+    /**
+     * The default number of items rendered before and after the visible window.
+     */
+    public static final int DEFAULT_OVERSCAN = 10;
+
+    /**
+     * The default interval of the scroll position reports from the browser.
+     */
+    public static final int DEFAULT_SCROLL_THROTTLE_MS = 100;
+
+    private final List<? extends T> items;
+    private final View<T> itemView;
+    private final int rowHeightPx;
+    private final int viewportHeightPx;
+    private final int overscan;
+    private final int scrollThrottleMs;
+
+    /**
+     * Creates a new virtualized list definition.
+     * @param componentType the type of the component
+     * @param items the list's items, a random access list is expected, for example, a lazy view of a data source
+     * @param itemView the view of an item, rendered into a row
+     * @param rowHeightPx the height of a row in pixels
+     * @param viewportHeightPx the height of the list's scrollable container in pixels
+     * @param overscan the number of items rendered before and after the visible window
+     * @param scrollThrottleMs the interval of the scroll position reports from the browser
+     */
+    public VirtualListComponentDefinition(final Object componentType,
+                                          final List<? extends T> items,
+                                          final View<T> itemView,
+                                          final int rowHeightPx,
+                                          final int viewportHeightPx,
+                                          final int overscan,
+                                          final int scrollThrottleMs) {
+        super(componentType);
+        this.items = Objects.requireNonNull(items);
+        this.itemView = Objects.requireNonNull(itemView);
+        if (rowHeightPx <= 0 || viewportHeightPx <= 0 || overscan < 0) {
+            throw new IllegalArgumentException("Positive row and viewport heights and a non-negative overscan are expected");
+        }
+        this.rowHeightPx = rowHeightPx;
+        this.viewportHeightPx = viewportHeightPx;
+        this.overscan = overscan;
+        this.scrollThrottleMs = scrollThrottleMs;
+    }
+
+    /**
+     * Creates a new virtualized list definition with the default overscan and scroll events throttling.
+     * @param items the list's items, a random access list is expected
+     * @param itemView the view of an item
+     * @param rowHeightPx the height of a row in pixels
+     * @param viewportHeightPx the height of the list's scrollable container in pixels
+     */
+    public VirtualListComponentDefinition(final List<? extends T> items,
+                                          final View<T> itemView,
+                                          final int rowHeightPx,
+                                          final int viewportHeightPx) {
+        this(VirtualListComponentDefinition.class,
+             items,
+             itemView,
+             rowHeightPx,
+             viewportHeightPx,
+             DEFAULT_OVERSCAN,
+             DEFAULT_SCROLL_THROTTLE_MS);
+    }
+
+    @Override
+    protected ComponentStateSupplier<Viewport> stateSupplier() {
+        return (key, httpStateOrigin) -> CompletableFuture.completedFuture(new Viewport(0, viewportHeightPx));
+    }
+
+    @Override
+    protected ComponentView<Viewport> componentView() {
+        return viewport -> newViewport -> {
+            final Window window = window(viewport);
+            return div(style("overflow-y", "auto"),
+                       style("height", viewportHeightPx + "px"),
+                       on("scroll", false, eventContext -> onScroll(eventContext, newViewport)).throttle(scrollThrottleMs),
+                       div(style("height", window.from() * rowHeightPx + "px")),
+                       of(items.subList(window.from(), window.to()).stream().map(this::row)),
+                       div(style("height", (items.size() - window.to()) * rowHeightPx + "px")));
+        };
+    }
+
+    private SegmentDefinition row(final T item) {
+        return div(style("height", rowHeightPx + "px"),
+                   style("overflow", "hidden"),
+                   itemView.apply(item));
+    }
+
+    private void onScroll(final EventContext eventContext, final StateUpdate<Viewport> newViewport) {
+        final JsonDataType.Object eventObject = eventContext.eventObject();
+        final int scrollTopPx = intValue(eventObject, "scrollTop").orElse(0);
+        final int heightPx = intValue(eventObject, "clientHeight").orElse(viewportHeightPx);
+        final Viewport viewport = new Viewport(scrollTopPx, heightPx);
+        newViewport.applyStateTransformationIfPresent(currentViewport ->
+                window(currentViewport).equals(window(viewport)) ? Optional.empty() : Optional.of(viewport));
+    }
+
+    private static Optional<Integer> intValue(final JsonDataType.Object eventObject, final String name) {
+        return eventObject.value(name).flatMap(value -> value instanceof JsonDataType.Number number ?
+                                                        Optional.of((int) number.asLong()) : Optional.empty());
+    }
+
+    /**
+     * Calculates the range of the items to render for a viewport.
+     * @param viewport the scroll viewport
+     * @return the range of items indices
+     */
+    Window window(final Viewport viewport) {
+        final int firstVisible = Math.max(0, viewport.scrollTopPx() / rowHeightPx);
+        final int lastVisible = (viewport.scrollTopPx() + viewport.heightPx() + rowHeightPx - 1) / rowHeightPx;
+        final int from = Math.min(items.size(), Math.max(0, firstVisible - overscan));
+        final int to = Math.min(items.size(), lastVisible + overscan);
+        return new Window(from, Math.max(from, to));
+    }
+
+    /**
+     * The scroll viewport of a list's container as reported by the browser.
+     * @param scrollTopPx the vertical scroll position in pixels
+     * @param heightPx the visible height of the container in pixels
+     */
+    public record Viewport(int scrollTopPx, int heightPx) {}
+
+    record Window(int from, int to) {}
+}
@@ -8,7 +8,7 @@ public final class Attribute {
     public final boolean isProperty;
 
     public Attribute(final String name, final String value, final boolean isProperty) {
-        this.name = name;
+        this.name = Symbol.intern(name);
         this.value = value;
         this.isProperty = isProperty;
     }
@@ -3,8 +3,17 @@ package rsp.dom;
 import java.util.*;
 
 public final class DefaultDomChangesContext implements DomChangesContext {
-    public final Set<TreePositionPath> elementsToRemove = new HashSet<>();
-    public final List<DomChange> commands = new ArrayList<>();
+    public final Set<TreePositionPath> elementsToRemove;
+    public final List<DomChange> commands;
+
+    public DefaultDomChangesContext() {
+        this(new ArrayList<>(), new HashSet<>());
+    }
+
+    public DefaultDomChangesContext(final List<DomChange> commands, final Set<TreePositionPath> elementsToRemove) {
+        this.commands = Objects.requireNonNull(commands);
+        this.elementsToRemove = Objects.requireNonNull(elementsToRemove);
+    }
 
     @Override
     public void removeAttr(final TreePositionPath path, final XmlNs xmlNs, final String name, final boolean isProperty) {
@@ -42,6 +51,31 @@ public final class DefaultDomChangesContext implements DomChangesContext {
         commands.add(new Create(path, xmlNs, tag));
     }
 
+    @Override
+    public void insertHtml(final TreePositionPath parentPath, final TreePositionPath path, final String html) {
+        commands.add(new InsertHtml(parentPath, path, html));
+    }
+
+    @Override
+    public void removeNodes(final TreePositionPath parentPath, final TreePositionPath fromPath, final int count) {
+        commands.add(new RemoveNodes(parentPath, fromPath, count));
+        TreePositionPath path = fromPath;
+        for (int i = 0; i < count; i++) {
+            elementsToRemove.add(path);
+            path = path.incSibling();
+        }
+    }
+
+    @Override
+    public void setText(final TreePositionPath path, final String text) {
+        commands.add(new SetText(path, text));
+    }
+
+    @Override
+    public void setAttrs(final TreePositionPath path, final List<Attribute> attributes) {
+        commands.add(new SetAttrs(path, attributes));
+    }
+
     public interface DomChange {}
 
     public static final class RemoveAttr implements DomChange {
@@ -294,4 +328,136 @@ public final class DefaultDomChangesContext implements DomChangesContext {
                     '}';
         }
     }
+
+    public static final class InsertHtml implements DomChange {
+        public final TreePositionPath parentPath;
+        public final TreePositionPath path;
+        public final String html;
+        public InsertHtml(final TreePositionPath parentPath, final TreePositionPath path, final String html) {
+            this.parentPath = parentPath;
+            this.path = path;
+            this.html = html;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final InsertHtml that = (InsertHtml) o;
+            return Objects.equals(parentPath, that.parentPath) &&
+                    Objects.equals(path, that.path) &&
+                    Objects.equals(html, that.html);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(parentPath, path, html);
+        }
+
+        @Override
+        public String toString() {
+            return "InsertHtml{" +
+                    "parentPath=" + parentPath +
+                    ", componentPath=" + path +
+                    ", html='" + html + '\'' +
+                    '}';
+        }
+    }
+
+    public static final class RemoveNodes implements DomChange {
+        public final TreePositionPath parentPath;
+        public final TreePositionPath fromPath;
+        public final int count;
+        public RemoveNodes(final TreePositionPath parentPath, final TreePositionPath fromPath, final int count) {
+            this.parentPath = parentPath;
+            this.fromPath = fromPath;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final RemoveNodes that = (RemoveNodes) o;
+            return count == that.count &&
+                    Objects.equals(parentPath, that.parentPath) &&
+                    Objects.equals(fromPath, that.fromPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(parentPath, fromPath, count);
+        }
+
+        @Override
+        public String toString() {
+            return "RemoveNodes{" +
+                    "parentPath=" + parentPath +
+                    ", fromPath=" + fromPath +
+                    ", count=" + count +
+                    '}';
+        }
+    }
+
+    public static final class SetText implements DomChange {
+        public final TreePositionPath path;
+        public final String text;
+        public SetText(final TreePositionPath path, final String text) {
+            this.path = path;
+            this.text = text;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final SetText that = (SetText) o;
+            return Objects.equals(path, that.path) &&
+                    Objects.equals(text, that.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, text);
+        }
+
+        @Override
+        public String toString() {
+            return "SetText{" +
+                    "componentPath=" + path +
+                    ", text='" + text + '\'' +
+                    '}';
+        }
+    }
+
+    public static final class SetAttrs implements DomChange {
+        public final TreePositionPath path;
+        public final List<Attribute> attributes;
+        public SetAttrs(final TreePositionPath path, final List<Attribute> attributes) {
+            this.path = path;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final SetAttrs that = (SetAttrs) o;
+            return Objects.equals(path, that.path) &&
+                    Objects.equals(attributes, that.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, attributes);
+        }
+
+        @Override
+        public String toString() {
+            return "SetAttrs{" +
+                    "componentPath=" + path +
+                    ", attributes=" + attributes +
+                    '}';
+        }
+    }
 }
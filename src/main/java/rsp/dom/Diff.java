@@ -5,6 +5,33 @@ import java.util.concurrent.CopyOnWriteArraySet;
 
 public final class Diff {
 
+    /**
+     * The minimal number of nodes in a new subtree to send it as an HTML fragment rather than node by node.
+     */
+    static final int INSERT_HTML_MIN_NODES = 16;
+
+    /**
+     * The elements which the HTML parser does not create exactly as written:
+     * the tables and select lists elements, paragraphs, links, forms, preformatted, raw text and document elements.
+     */
+    private static final Set<String> NOT_INSERTABLE_TAGS = Set.of("table", "caption", "colgroup", "col", "thead", "tbody",
+                                                                  "tfoot", "tr", "td", "th", "p", "a", "form",
+                                                                  "select", "option", "optgroup", "datalist",
+                                                                  "pre", "listing", "textarea", "plaintext", "xmp",
+                                                                  "script", "style", "title", "template", "noscript",
+                                                                  "iframe", "noembed", "noframes", "html", "head",
+                                                                  "body", "frameset", "frame", "svg", "math");
+
+    private static final Set<String> VOID_TAGS = Set.of("area", "base", "br", "col", "embed", "hr", "img", "input",
+                                                        "link", "meta", "source", "track", "wbr");
+
+    private static final Set<String> HEADING_TAGS = Set.of("h1", "h2", "h3", "h4", "h5", "h6");
+
+    private static final int LI_SCOPE = 1;
+    private static final int DD_DT_SCOPE = 2;
+    private static final int BUTTON_SCOPE = 4;
+    private static final int NOBR_SCOPE = 8;
+
     public static void diff(final Tag ct,
                             final Tag wt,
                             final TreePositionPath path,
@@ -13,6 +40,10 @@ public final class Diff {
         Objects.requireNonNull(ct);
         Objects.requireNonNull(wt);
         Objects.requireNonNull(changesPerformer);
+        if (ct == wt) {
+            // the same immutable subtree, e.g. a constant fragment
+            return;
+        }
         if (!ct.name.equals(wt.name)) {
             changesPerformer.removeNode(path.parent(), path);
             createTag(wt, path, changesPerformer, hb);
@@ -33,46 +64,147 @@ public final class Diff {
         TreePositionPath p = parentTagPath;
         while(cci.hasNext() || wci.hasNext()) {
             if (cci.hasNext() && wci.hasNext()) {
-                final Node cn = cci.next();
+                diffNode(cci.next(), wci.next(), p, parentTagPath, performer, hb);
+            } else if (cci.hasNext()) {
+                removeNodes(cc.size() - cci.nextIndex(), p, performer);
+                break;
+            } else {
+                createNode(wci.next(), p, performer, hb);
+            }
+            if (p.level() > 0) p = p.incSibling();
+        }
+    }
+
+    /**
+     * Calculates the changes between the previous rendering kept in the packed form and a new rendering.
+     * @param cc the previous rendering's tree, its roots are compared with the new nodes
+     * @param wc the new nodes
+     * @param parentTagPath the path of the first node
+     * @param performer the changes consumer
+     * @param hb a reusable HTML builder
+     */
+    public static void diffChildren(final PackedTree cc,
+                                    final List<? extends Node> wc,
+                                    final TreePositionPath parentTagPath,
+                                    final DomChangesContext performer,
+                                    final HtmlBuilder hb) {
+        diffChildren(cc, cc.roots(), wc, parentTagPath, performer, hb);
+    }
+
+    private static void diffChildren(final PackedTree ct,
+                                     final int[] cc,
+                                     final List<? extends Node> wc,
+                                     final TreePositionPath parentTagPath,
+                                     final DomChangesContext performer,
+                                     final HtmlBuilder hb) {
+        final Iterator<? extends Node> wci = wc.iterator();
+        int ci = 0;
+        TreePositionPath p = parentTagPath;
+        while(ci < cc.length || wci.hasNext()) {
+            if (ci < cc.length && wci.hasNext()) {
+                final int cn = cc[ci++];
                 final Node wn = wci.next();
-                if (cn instanceof Tag ct && wn instanceof Tag wt) {
-                    diff(ct, wt, p, performer, hb);
+                final Tag prerenderedTag = ct.prerenderedTag(cn);
+                if (prerenderedTag != null) {
+                    diffNode(prerenderedTag, wn, p, parentTagPath, performer, hb);
+                } else if (!ct.isText(cn) && wn instanceof Tag wt) {
+                    diff(ct, cn, wt, p, performer, hb);
                 } else if (wn instanceof Tag t) {
                     performer.removeNode(p.parent(), p);
                     createTag(t, parentTagPath, performer, hb);
-                } else if (cn instanceof Tag) {
+                } else if (!ct.isText(cn)) {
                     performer.removeNode(p.parent(), p);
                     hb.reset();
                     hb.buildHtml(wn);
                     performer.createText(parentTagPath.parent(), parentTagPath, hb.toString());
                 } else {
-                    hb.reset();
-                    hb.buildHtml(cn);
-                    final String ncText = hb.toString();
                     hb.reset();
                     hb.buildHtml(wn);
                     final String nwText = hb.toString();
-                    if (!ncText.equals(nwText)) {
-                        performer.createText(p.parent(), p, nwText);
+                    if (!ct.text(cn).equals(nwText)) {
+                        performer.setText(p, nwText);
                     }
                 }
-            } else if (cci.hasNext()) {
-                cci.next();
-                performer.removeNode(p.parent(), p);
+            } else if (ci < cc.length) {
+                removeNodes(cc.length - ci, p, performer);
+                break;
             } else {
-                final Node wn = wci.next();
-                if (wn instanceof Tag t) {
-                    createTag(t, p, performer, hb);
-                } else {
-                    hb.reset();
-                    hb.buildHtml(wn);
-                    performer.createText(p.parent(), p, hb.toString());
-                }
+                createNode(wci.next(), p, performer, hb);
             }
             if (p.level() > 0) p = p.incSibling();
         }
     }
 
+    private static void diff(final PackedTree ct,
+                             final int c,
+                             final Tag wt,
+                             final TreePositionPath path,
+                             final DomChangesContext changesPerformer,
+                             final HtmlBuilder hb) {
+        if (!ct.tagName(c).equals(wt.name)) {
+            changesPerformer.removeNode(path.parent(), path);
+            createTag(wt, path, changesPerformer, hb);
+        } else {
+            diffStyles(ct, c, wt.styles, path, changesPerformer);
+            diffAttributes(ct, c, wt.attributes, path, changesPerformer);
+            diffChildren(ct, ct.children(c), wt.children, path.incLevel(), changesPerformer, hb);
+        }
+    }
+
+    private static void diffNode(final Node cn,
+                                 final Node wn,
+                                 final TreePositionPath p,
+                                 final TreePositionPath parentTagPath,
+                                 final DomChangesContext performer,
+                                 final HtmlBuilder hb) {
+        if (cn == wn) {
+            // skip the same immutable subtree
+        } else if (cn instanceof Tag ct && wn instanceof Tag wt) {
+            diff(ct, wt, p, performer, hb);
+        } else if (wn instanceof Tag t) {
+            performer.removeNode(p.parent(), p);
+            createTag(t, parentTagPath, performer, hb);
+        } else if (cn instanceof Tag) {
+            performer.removeNode(p.parent(), p);
+            hb.reset();
+            hb.buildHtml(wn);
+            performer.createText(parentTagPath.parent(), parentTagPath, hb.toString());
+        } else {
+            hb.reset();
+            hb.buildHtml(cn);
+            final String ncText = hb.toString();
+            hb.reset();
+            hb.buildHtml(wn);
+            final String nwText = hb.toString();
+            if (!ncText.equals(nwText)) {
+                performer.setText(p, nwText);
+            }
+        }
+    }
+
+    private static void removeNodes(final int count,
+                                    final TreePositionPath p,
+                                    final DomChangesContext performer) {
+        if (count == 1) {
+            performer.removeNode(p.parent(), p);
+        } else {
+            performer.removeNodes(p.parent(), p, count);
+        }
+    }
+
+    private static void createNode(final Node wn,
+                                   final TreePositionPath p,
+                                   final DomChangesContext performer,
+                                   final HtmlBuilder hb) {
+        if (wn instanceof Tag t) {
+            createTag(t, p, performer, hb);
+        } else {
+            hb.reset();
+            hb.buildHtml(wn);
+            performer.createText(p.parent(), p, hb.toString());
+        }
+    }
+
     private static void diffAttributes(final CopyOnWriteArraySet<Attribute> ca,
                                        final CopyOnWriteArraySet<Attribute> wa,
                                        final TreePositionPath path,
@@ -82,7 +214,64 @@ public final class Diff {
         c.removeAll(wa);
         c.forEach(attribute -> performer.removeAttr(path, XmlNs.html, attribute.name, attribute.isProperty));
         w.removeAll(ca);
-        w.forEach(attribute -> performer.setAttr(path, XmlNs.html, attribute.name, attribute.value, attribute.isProperty));
+        setAttributes(path, w, performer);
+    }
+
+    private static void diffAttributes(final PackedTree ct,
+                                       final int c,
+                                       final CopyOnWriteArraySet<Attribute> wa,
+                                       final TreePositionPath path,
+                                       final DomChangesContext performer) {
+        final int start = ct.attrsStart(c);
+        final int end = ct.attrsEnd(c);
+        for (int i = start; i < end; i += 2) {
+            if (!containsAttribute(wa, ct.attrName(i), ct.attrValue(i), ct.isProperty(i))) {
+                performer.removeAttr(path, XmlNs.html, ct.attrName(i), ct.isProperty(i));
+            }
+        }
+        final List<Attribute> w = new ArrayList<>();
+        for (final Attribute attribute : wa) {
+            if (!containsAttribute(ct, start, end, attribute)) {
+                w.add(attribute);
+            }
+        }
+        setAttributes(path, w, performer);
+    }
+
+    private static boolean containsAttribute(final Set<Attribute> attributes,
+                                             final String name,
+                                             final String value,
+                                             final boolean isProperty) {
+        for (final Attribute attribute : attributes) {
+            if (attribute.isProperty == isProperty && attribute.name.equals(name) && Objects.equals(attribute.value, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAttribute(final PackedTree ct,
+                                             final int start,
+                                             final int end,
+                                             final Attribute attribute) {
+        for (int i = start; i < end; i += 2) {
+            if (ct.isProperty(i) == attribute.isProperty
+                && ct.attrName(i).equals(attribute.name)
+                && Objects.equals(ct.attrValue(i), attribute.value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void setAttributes(final TreePositionPath path,
+                                      final Collection<Attribute> attributes,
+                                      final DomChangesContext performer) {
+        if (attributes.size() > 1) {
+            performer.setAttrs(path, List.copyOf(attributes));
+        } else {
+            attributes.forEach(attribute -> performer.setAttr(path, XmlNs.html, attribute.name, attribute.value, attribute.isProperty));
+        }
     }
 
     private static void diffStyles(final CopyOnWriteArraySet<Style> ca,
@@ -97,17 +286,59 @@ public final class Diff {
         w.forEach(attribute -> performer.setStyle(path, attribute.name, attribute.value));
     }
 
+    private static void diffStyles(final PackedTree ct,
+                                   final int c,
+                                   final CopyOnWriteArraySet<Style> wa,
+                                   final TreePositionPath path,
+                                   final DomChangesContext performer) {
+        final int start = ct.stylesStart(c);
+        final int end = ct.stylesEnd(c);
+        for (int i = start; i < end; i += 2) {
+            if (!containsStyle(wa, ct.styleName(i), ct.styleValue(i))) {
+                performer.removeStyle(path, ct.styleName(i));
+            }
+        }
+        for (final Style style : wa) {
+            if (!containsStyle(ct, start, end, style)) {
+                performer.setStyle(path, style.name, style.value);
+            }
+        }
+    }
+
+    private static boolean containsStyle(final Set<Style> styles, final String name, final String value) {
+        for (final Style style : styles) {
+            if (style.name.equals(name) && Objects.equals(style.value, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsStyle(final PackedTree ct, final int start, final int end, final Style style) {
+        for (int i = start; i < end; i += 2) {
+            if (ct.styleName(i).equals(style.name) && Objects.equals(ct.styleValue(i), style.value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static void createTag(final Tag tag,
                                   final TreePositionPath path,
                                   final DomChangesContext changesPerformer,
                                   final HtmlBuilder hb) {
+        if (XmlNs.html.equals(tag.xmlns) && insertableNodesCount(tag) >= INSERT_HTML_MIN_NODES) {
+            hb.reset();
+            hb.buildEscapedHtml(tag);
+            changesPerformer.insertHtml(path.parent(), path, hb.toString());
+            setProperties(tag, path, changesPerformer);
+            return;
+        }
         changesPerformer.createTag(path, tag.xmlns, tag.name);
         for (final Style style: tag.styles) {
             changesPerformer.setStyle(path, style.name, style.value);
         }
-        for (final Attribute attribute: tag.attributes) {
-            changesPerformer.setAttr(path, XmlNs.html, attribute.name, attribute.value, attribute.isProperty);
-        }
+        setAttributes(path, tag.attributes, changesPerformer);
         TreePositionPath p = path.incLevel();
         for (final Node child:tag.children) {
             if (child instanceof Tag t) {
@@ -116,7 +347,97 @@ public final class Diff {
                 hb.reset();
                 hb.buildHtml(child);
                 changesPerformer.createText(path, p, hb.toString());
-                p = p.incSibling();
+            }
+            p = p.incSibling();
+        }
+    }
+
+    /**
+     * Counts the nodes of a subtree which can be parsed by a browser from its HTML to exactly the same DOM nodes
+     * as created one by one, so the paths of the nodes match.
+     * The HTML parser adds implicit elements to tables, closes paragraphs, list items and some other elements on nested
+     * elements, rewrites nested links and forms, drops a leading new line of a preformatted text
+     * and does not decode the text of raw text elements, so the subtrees with such elements are created node by node.
+     * @param tag the subtree's root
+     * @return the number of nodes or -1 if the subtree cannot be inserted as HTML
+     */
+    private static int insertableNodesCount(final Tag tag) {
+        return insertableNodesCount(tag, 0);
+    }
+
+    private static int insertableNodesCount(final Tag tag, final int openScopes) {
+        if (!XmlNs.html.equals(tag.xmlns)) {
+            return -1;
+        }
+        final String name = tag.name.toLowerCase(Locale.ROOT);
+        if (NOT_INSERTABLE_TAGS.contains(name) || tag.isSelfClosing && !VOID_TAGS.contains(name)) {
+            return -1;
+        }
+        final int scope = parserClosingScope(name);
+        if ((openScopes & scope) != 0) {
+            return -1;
+        }
+        final int childrenScopes = switch (name) {
+            case "ul", "ol" -> openScopes & ~LI_SCOPE;
+            case "dl" -> openScopes & ~DD_DT_SCOPE;
+            default -> openScopes | scope;
+        };
+        int count = 1;
+        Node previous = null;
+        for (final Node child: tag.children) {
+            if (child instanceof Tag t) {
+                if (HEADING_TAGS.contains(name) && HEADING_TAGS.contains(t.name.toLowerCase(Locale.ROOT))) {
+                    return -1;
+                }
+                final int childCount = insertableNodesCount(t, childrenScopes);
+                if (childCount < 0) {
+                    return -1;
+                }
+                count += childCount;
+            } else if (child instanceof Text text) {
+                // adjacent or empty text nodes would be merged or skipped by the HTML parser
+                if (previous instanceof Text) {
+                    return -1;
+                }
+                boolean isEmpty = true;
+                for (final String part: text.parts) {
+                    isEmpty &= part.isEmpty();
+                }
+                if (isEmpty) {
+                    return -1;
+                }
+                count++;
+            }
+            previous = child;
+        }
+        return count;
+    }
+
+    /**
+     * Provides the scope of the elements which the HTML parser closes when a nested element of the same kind is opened.
+     */
+    private static int parserClosingScope(final String name) {
+        return switch (name) {
+            case "li" -> LI_SCOPE;
+            case "dd", "dt" -> DD_DT_SCOPE;
+            case "button" -> BUTTON_SCOPE;
+            case "nobr" -> NOBR_SCOPE;
+            default -> 0;
+        };
+    }
+
+    private static void setProperties(final Tag tag,
+                                      final TreePositionPath path,
+                                      final DomChangesContext changesPerformer) {
+        for (final Attribute attribute: tag.attributes) {
+            if (attribute.isProperty) {
+                changesPerformer.setAttr(path, XmlNs.html, attribute.name, attribute.value, true);
+            }
+        }
+        TreePositionPath p = path.incLevel();
+        for (final Node child:tag.children) {
+            if (child instanceof Tag t) {
+                setProperties(t, p, changesPerformer);
             }
             p = p.incSibling();
         }
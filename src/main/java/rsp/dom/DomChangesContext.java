@@ -1,5 +1,7 @@
 package rsp.dom;
 
+import java.util.List;
+
 public interface DomChangesContext {
     void removeAttr(TreePositionPath path, XmlNs xmlNs, String name, boolean isProperty);
     void removeStyle(TreePositionPath path, String name);
@@ -8,4 +10,8 @@ public interface DomChangesContext {
     void setStyle(TreePositionPath path, String name, String value);
     void createTag(TreePositionPath path, XmlNs xmlNs, String tag);
     void createText(TreePositionPath parentPath, TreePositionPath path, String text);
+    void insertHtml(TreePositionPath parentPath, TreePositionPath path, String html);
+    void removeNodes(TreePositionPath parentPath, TreePositionPath fromPath, int count);
+    void setText(TreePositionPath path, String text);
+    void setAttrs(TreePositionPath path, List<Attribute> attributes);
 }
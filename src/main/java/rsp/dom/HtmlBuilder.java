@@ -19,7 +19,30 @@ public class HtmlBuilder {
         }
      }
 
+    /**
+     * Appends the HTML of a node with its subtree, with the text, attributes and styles values escaped,
+     * so a browser parses the text to the same values as the nodes have.
+     * The prerendered tags are built from their nodes.
+     * @param node the node
+     */
+    public void buildEscapedHtml(final Node node) {
+        if (node instanceof Tag tagNode) {
+            buildHtml(tagNode, true);
+        } else if (node instanceof Text textNode) {
+            buildHtml(textNode, true);
+        }
+    }
+
     private void buildHtml(final Tag tag) {
+        buildHtml(tag, false);
+    }
+
+    private void buildHtml(final Tag tag, final boolean escape) {
+        final String prerenderedHtml = tag.prerenderedHtml();
+        if (prerenderedHtml != null && !escape) {
+            sb.append(prerenderedHtml);
+            return;
+        }
         sb.append('<');
         sb.append(tag.name);
         if (tag.styles.size() > 0) {
@@ -27,7 +50,7 @@ public class HtmlBuilder {
             for (final Style style: tag.styles) {
                 sb.append(style.name);
                 sb.append(":");
-                sb.append(style.value);
+                appendAttributeValue(style.value, escape);
                 sb.append(";");
             }
             sb.append('"');
@@ -38,7 +61,7 @@ public class HtmlBuilder {
                 sb.append(attribute.name);
                 sb.append('=');
                 sb.append('"');
-                sb.append(attribute.value);
+                appendAttributeValue(attribute.value, escape);
                 sb.append('"');
             }
         }
@@ -50,9 +73,9 @@ public class HtmlBuilder {
             if (tag.children.size() > 0) {
                 for (final Node childNode: tag.children) {
                     if (childNode instanceof Tag childTag) {
-                        buildHtml(childTag);
+                        buildHtml(childTag, escape);
                     } else if (childNode instanceof Text childTextNode) {
-                        buildHtml(childTextNode);
+                        buildHtml(childTextNode, escape);
                     }
                 }
             }
@@ -63,8 +86,104 @@ public class HtmlBuilder {
         }
     }
 
-    private void buildHtml(Text textNode) {
-        textNode.parts.forEach(part -> sb.append(part));
+    private void appendAttributeValue(final String value, final boolean escape) {
+        if (!escape) {
+            sb.append(value);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '&' -> sb.append("&amp;");
+                case '"' -> sb.append("&quot;");
+                case '\r' -> sb.append("&#13;");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    private void appendText(final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '&' -> sb.append("&amp;");
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '\r' -> sb.append("&#13;");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * Appends the HTML of a packed tree's root nodes with their subtrees.
+     * @param tree the tree
+     */
+    public void buildHtml(final PackedTree tree) {
+        for (final int root : tree.roots()) {
+            buildHtml(tree, root);
+        }
+    }
+
+    private void buildHtml(final PackedTree tree, final int node) {
+        final Tag prerenderedTag = tree.prerenderedTag(node);
+        if (prerenderedTag != null) {
+            buildHtml(prerenderedTag);
+            return;
+        }
+        if (tree.isText(node)) {
+            sb.append(tree.text(node));
+            return;
+        }
+        final String name = tree.tagName(node);
+        sb.append('<');
+        sb.append(name);
+        final int stylesEnd = tree.stylesEnd(node);
+        if (tree.stylesStart(node) < stylesEnd) {
+            sb.append(" style=\"");
+            for (int i = tree.stylesStart(node); i < stylesEnd; i += 2) {
+                sb.append(tree.styleName(i));
+                sb.append(":");
+                sb.append(tree.styleValue(i));
+                sb.append(";");
+            }
+            sb.append('"');
+        }
+        final int attrsEnd = tree.attrsEnd(node);
+        for (int i = tree.attrsStart(node); i < attrsEnd; i += 2) {
+            sb.append(' ');
+            sb.append(tree.attrName(i));
+            sb.append('=');
+            sb.append('"');
+            sb.append(tree.attrValue(i));
+            sb.append('"');
+        }
+        if (tree.isSelfClosing(node)) {
+            sb.append(" />");
+        } else {
+            sb.append('>');
+            final int end = tree.subtreeEnd(node);
+            for (int child = node + 1; child < end; child = tree.subtreeEnd(child)) {
+                buildHtml(tree, child);
+            }
+            sb.append("</");
+            sb.append(name);
+            sb.append('>');
+        }
+    }
+
+    private void buildHtml(final Text textNode) {
+        buildHtml(textNode, false);
+    }
+
+    private void buildHtml(final Text textNode, final boolean escape) {
+        for (final String part : textNode.parts) {
+            if (escape) {
+                appendText(part);
+            } else {
+                sb.append(part);
+            }
+        }
     }
 
     @Override
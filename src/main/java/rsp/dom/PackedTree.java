@@ -0,0 +1,382 @@
+package rsp.dom;
+
+import java.util.*;
+
+/**
+ * A compact immutable form of a DOM tree kept between renderings.
+ * The nodes are stored in the depth-first order in primitive arrays, a node's subtree is the range of the nodes
+ * following it, so no per-node objects are allocated.
+ * The tags, attributes and styles names are referenced by their {@link Symbol} identifiers, the names without
+ * registered symbols and the attributes, styles and text values are kept in the tree's strings pool,
+ * every distinct value once.
+ * A prerendered tag is not copied, the tree references the shared tag object instead.
+ */
+public final class PackedTree {
+    private static final byte TAG = 0;
+    private static final byte TEXT = 1;
+    private static final byte PRERENDERED = 2;
+
+    private final byte[] kinds;
+    private final int[] data;
+    private final byte[] flags;
+    private final int[] subtreeSizes;
+    private final int[] attrsStarts;
+    private final int[] attrs;
+    private final int[] stylesStarts;
+    private final int[] styles;
+    private final String[] values;
+    private final XmlNs[] namespaces;
+    private final Tag[] prerenderedTags;
+    private final int[] roots;
+
+    private PackedTree(final byte[] kinds,
+                       final int[] data,
+                       final byte[] flags,
+                       final int[] subtreeSizes,
+                       final int[] attrsStarts,
+                       final int[] attrs,
+                       final int[] stylesStarts,
+                       final int[] styles,
+                       final String[] values,
+                       final XmlNs[] namespaces,
+                       final Tag[] prerenderedTags,
+                       final int[] roots) {
+        this.kinds = kinds;
+        this.data = data;
+        this.flags = flags;
+        this.subtreeSizes = subtreeSizes;
+        this.attrsStarts = attrsStarts;
+        this.attrs = attrs;
+        this.stylesStarts = stylesStarts;
+        this.styles = styles;
+        this.values = values;
+        this.namespaces = namespaces;
+        this.prerenderedTags = prerenderedTags;
+        this.roots = roots;
+    }
+
+    /**
+     * Packs a list of sibling nodes with their subtrees.
+     * @param nodes the nodes to pack, must not be null
+     * @return the packed tree with the nodes as its roots
+     */
+    public static PackedTree pack(final List<? extends Node> nodes) {
+        return pack(nodes, null);
+    }
+
+    /**
+     * Packs a list of sibling nodes with their subtrees and provides the indices of the packed nodes,
+     * so a part of the tree can be selected with {@link #subtrees(int[])}.
+     * @param nodes the nodes to pack, must not be null
+     * @param nodesIndices if not null, receives the index of every packed node, expected to compare the nodes by identity
+     * @return the packed tree with the nodes as its roots
+     */
+    public static PackedTree pack(final List<? extends Node> nodes, final Map<Node, Integer> nodesIndices) {
+        final Packer packer = new Packer(nodes, nodesIndices);
+        return packer.tree();
+    }
+
+    /**
+     * Selects a part of this tree, the new tree shares this tree's storage.
+     * @param roots the indices of the new tree's root nodes, must not be null
+     * @return the tree of the provided nodes subtrees
+     */
+    public PackedTree subtrees(final int[] roots) {
+        for (final int root : roots) {
+            Objects.checkIndex(root, kinds.length);
+        }
+        return new PackedTree(kinds,
+                              data,
+                              flags,
+                              subtreeSizes,
+                              attrsStarts,
+                              attrs,
+                              stylesStarts,
+                              styles,
+                              values,
+                              namespaces,
+                              prerenderedTags,
+                              roots.clone());
+    }
+
+    /**
+     * The number of the nodes in the storage of this tree, including the nodes of prerendered tags as one node each.
+     * @return the nodes count
+     */
+    public int nodesCount() {
+        return kinds.length;
+    }
+
+    public int rootsCount() {
+        return roots.length;
+    }
+
+    /**
+     * Re-creates the tree's root nodes with their subtrees, the prerendered tags are not copied.
+     * @return the new nodes
+     */
+    public List<Node> unpack() {
+        final List<Node> result = new ArrayList<>(roots.length);
+        for (final int root : roots) {
+            result.add(unpack(root));
+        }
+        return result;
+    }
+
+    private Node unpack(final int node) {
+        if (kinds[node] == PRERENDERED) {
+            return prerenderedTags[data[node]];
+        } else if (kinds[node] == TEXT) {
+            return new Text(values[data[node]]);
+        }
+        final Tag tag = new Tag(xmlns(node), tagName(node), isSelfClosing(node));
+        for (int i = stylesStarts[node]; i < stylesStarts[node + 1]; i += 2) {
+            tag.addStyle(name(styles[i]), values[styles[i + 1]]);
+        }
+        for (int i = attrsStarts[node]; i < attrsStarts[node + 1]; i += 2) {
+            tag.addAttribute(attrName(i), values[attrs[i + 1]], isProperty(i));
+        }
+        for (final int child : children(node)) {
+            tag.addChild(unpack(child));
+        }
+        return tag;
+    }
+
+    private String name(final int id) {
+        return id >= 0 ? Symbol.byId(id).name : values[~id];
+    }
+
+    int[] roots() {
+        return roots;
+    }
+
+    boolean isText(final int node) {
+        return kinds[node] == TEXT;
+    }
+
+    /**
+     * Provides a prerendered tag referenced by this tree.
+     * @param node the node's index
+     * @return the tag or null if the node is not a prerendered tag
+     */
+    Tag prerenderedTag(final int node) {
+        return kinds[node] == PRERENDERED ? prerenderedTags[data[node]] : null;
+    }
+
+    String text(final int node) {
+        return values[data[node]];
+    }
+
+    String tagName(final int node) {
+        return name(data[node]);
+    }
+
+    XmlNs xmlns(final int node) {
+        return namespaces[flags[node] >> 1];
+    }
+
+    boolean isSelfClosing(final int node) {
+        return (flags[node] & 1) != 0;
+    }
+
+    /**
+     * The index following a node's subtree, the node's first child, if any, follows the node
+     * and every next sibling follows the subtree of the previous one.
+     * @param node the node's index
+     * @return the index after the node's last descendant
+     */
+    int subtreeEnd(final int node) {
+        return node + subtreeSizes[node];
+    }
+
+    int[] children(final int node) {
+        final int end = node + subtreeSizes[node];
+        int count = 0;
+        for (int child = node + 1; child < end; child += subtreeSizes[child]) {
+            count++;
+        }
+        final int[] result = new int[count];
+        int i = 0;
+        for (int child = node + 1; child < end; child += subtreeSizes[child]) {
+            result[i++] = child;
+        }
+        return result;
+    }
+
+    int attrsStart(final int node) {
+        return attrsStarts[node];
+    }
+
+    int attrsEnd(final int node) {
+        return attrsStarts[node + 1];
+    }
+
+    String attrName(final int attr) {
+        return name(attrs[attr] >> 1);
+    }
+
+    String attrValue(final int attr) {
+        return values[attrs[attr + 1]];
+    }
+
+    boolean isProperty(final int attr) {
+        return (attrs[attr] & 1) != 0;
+    }
+
+    int stylesStart(final int node) {
+        return stylesStarts[node];
+    }
+
+    int stylesEnd(final int node) {
+        return stylesStarts[node + 1];
+    }
+
+    String styleName(final int style) {
+        return name(styles[style]);
+    }
+
+    String styleValue(final int style) {
+        return values[styles[style + 1]];
+    }
+
+    private static final class Packer {
+        private final Map<Node, Integer> nodesIndices;
+        private final Map<String, Integer> valuesIndices = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<XmlNs> namespaces = new ArrayList<>();
+        private final List<Tag> prerenderedTags = new ArrayList<>();
+
+        private final byte[] kinds;
+        private final int[] data;
+        private final byte[] flags;
+        private final int[] subtreeSizes;
+        private final int[] attrsStarts;
+        private final int[] attrs;
+        private final int[] stylesStarts;
+        private final int[] styles;
+        private final int[] roots;
+
+        private int nodesCount;
+        private int attrsCount;
+        private int stylesCount;
+
+        Packer(final List<? extends Node> nodes, final Map<Node, Integer> nodesIndices) {
+            this.nodesIndices = nodesIndices;
+            for (final Node node : nodes) {
+                count(node);
+            }
+            kinds = new byte[nodesCount];
+            data = new int[nodesCount];
+            flags = new byte[nodesCount];
+            subtreeSizes = new int[nodesCount];
+            attrsStarts = new int[nodesCount + 1];
+            attrs = new int[attrsCount * 2];
+            stylesStarts = new int[nodesCount + 1];
+            styles = new int[stylesCount * 2];
+            roots = new int[nodes.size()];
+
+            nodesCount = 0;
+            attrsCount = 0;
+            stylesCount = 0;
+            for (int i = 0; i < roots.length; i++) {
+                roots[i] = add(nodes.get(i));
+            }
+            attrsStarts[nodesCount] = attrsCount * 2;
+            stylesStarts[nodesCount] = stylesCount * 2;
+        }
+
+        private void count(final Node node) {
+            nodesCount++;
+            if (node instanceof Tag tag && tag.prerenderedHtml() == null) {
+                attrsCount += tag.attributes.size();
+                stylesCount += tag.styles.size();
+                for (final Node child : tag.children) {
+                    count(child);
+                }
+            }
+        }
+
+        private int add(final Node node) {
+            final int index = nodesCount++;
+            if (nodesIndices != null) {
+                nodesIndices.put(node, index);
+            }
+            attrsStarts[index] = attrsCount * 2;
+            stylesStarts[index] = stylesCount * 2;
+            if (node instanceof Text text) {
+                kinds[index] = TEXT;
+                data[index] = value(text.parts.size() == 1 ? text.parts.get(0) : String.join("", text.parts));
+            } else if (node instanceof Tag tag && tag.prerenderedHtml() != null) {
+                kinds[index] = PRERENDERED;
+                data[index] = prerenderedTags.size();
+                prerenderedTags.add(tag);
+            } else if (node instanceof Tag tag) {
+                kinds[index] = TAG;
+                data[index] = name(tag.name);
+                flags[index] = (byte) (namespace(tag.xmlns) << 1 | (tag.isSelfClosing ? 1 : 0));
+                for (final Style style : tag.styles) {
+                    styles[stylesCount * 2] = name(style.name);
+                    styles[stylesCount * 2 + 1] = value(style.value);
+                    stylesCount++;
+                }
+                for (final Attribute attribute : tag.attributes) {
+                    attrs[attrsCount * 2] = name(attribute.name) << 1 | (attribute.isProperty ? 1 : 0);
+                    attrs[attrsCount * 2 + 1] = value(attribute.value);
+                    attrsCount++;
+                }
+                for (final Node child : tag.children) {
+                    add(child);
+                }
+            }
+            subtreeSizes[index] = nodesCount - index;
+            return index;
+        }
+
+        /**
+         * Provides a name's symbol identifier, or if the name is not registered as a symbol,
+         * its negated index in the values pool.
+         */
+        private int name(final String name) {
+            final Symbol symbol = Symbol.of(name);
+            return symbol.id != Symbol.UNREGISTERED ? symbol.id : ~value(name);
+        }
+
+        private int value(final String value) {
+            final Integer index = valuesIndices.get(value);
+            if (index != null) {
+                return index;
+            }
+            final int newIndex = values.size();
+            values.add(value);
+            valuesIndices.put(value, newIndex);
+            return newIndex;
+        }
+
+        private int namespace(final XmlNs xmlNs) {
+            final int index = namespaces.indexOf(xmlNs);
+            if (index >= 0) {
+                return index;
+            }
+            if (namespaces.size() == Byte.MAX_VALUE >> 1) {
+                throw new IllegalStateException("Too many XML namespaces in a tree");
+            }
+            namespaces.add(xmlNs);
+            return namespaces.size() - 1;
+        }
+
+        PackedTree tree() {
+            return new PackedTree(kinds,
+                                  data,
+                                  flags,
+                                  subtreeSizes,
+                                  attrsStarts,
+                                  attrs,
+                                  stylesStarts,
+                                  styles,
+                                  values.toArray(String[]::new),
+                                  namespaces.toArray(XmlNs[]::new),
+                                  prerenderedTags.toArray(Tag[]::new),
+                                  roots);
+        }
+    }
+}
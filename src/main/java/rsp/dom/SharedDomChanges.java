@@ -0,0 +1,45 @@
+package rsp.dom;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * An immutable list of DOM changes to be sent to many pages at once.
+ * The result of the list's encoding to a protocol message is calculated once and reused for every page.
+ */
+public final class SharedDomChanges extends AbstractList<DefaultDomChangesContext.DomChange> implements RandomAccess {
+
+    private final List<DefaultDomChangesContext.DomChange> domChanges;
+    private volatile String encoded;
+
+    public SharedDomChanges(final List<DefaultDomChangesContext.DomChange> domChanges) {
+        this.domChanges = List.copyOf(Objects.requireNonNull(domChanges));
+    }
+
+    /**
+     * Provides the encoded representation of these changes.
+     * @param encoder the function to encode the changes, invoked only on the first call
+     * @return the encoded message
+     */
+    public String encoded(final Function<List<DefaultDomChangesContext.DomChange>, String> encoder) {
+        String result = encoded;
+        if (result == null) {
+            result = encoder.apply(domChanges);
+            encoded = result;
+        }
+        return result;
+    }
+
+    @Override
+    public DefaultDomChangesContext.DomChange get(final int index) {
+        return domChanges.get(index);
+    }
+
+    @Override
+    public int size() {
+        return domChanges.size();
+    }
+}
@@ -6,7 +6,7 @@ public final class Style {
     public final String name;
     public final String value;
     public Style(final String name, final String value) {
-        this.name = name;
+        this.name = Symbol.intern(name);
         this.value = value;
     }
 
@@ -0,0 +1,113 @@
+package rsp.dom;
+
+import rsp.util.json.JsonUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A name of an HTML tag, attribute, style or event type shared by all the pages of the process.
+ * A symbol keeps the name's canonical string instance and its escaped JSON string literal,
+ * so the nodes of different pages reference the same strings and a name is escaped once.
+ * Only the known HTML tags, attributes and DOM events names are registered, the table is fixed when the class is loaded,
+ * so a lookup never locks and the application's dynamic names, like data attributes with generated suffixes,
+ * do not fill the table. A symbol of any other name is created on every call and is not registered,
+ * a packed tree keeps such a name in its own strings pool.
+ */
+public final class Symbol {
+    /**
+     * The identifier of a symbol which is not registered in the table.
+     */
+    public static final int UNREGISTERED = -1;
+
+    private static final String[] KNOWN_NAMES = {
+        // tags
+        "a", "abbr", "address", "area", "article", "aside", "audio", "b", "base", "bdi", "bdo", "blockquote", "body",
+        "br", "button", "canvas", "caption", "cite", "code", "col", "colgroup", "data", "datalist", "dd", "del",
+        "details", "dfn", "dialog", "div", "dl", "dt", "em", "embed", "fieldset", "figcaption", "figure", "footer",
+        "form", "h1", "h2", "h3", "h4", "h5", "h6", "head", "header", "hgroup", "hr", "html", "i", "iframe", "img",
+        "input", "ins", "kbd", "label", "legend", "li", "link", "main", "map", "mark", "math", "menu", "meta", "meter",
+        "nav", "noscript", "object", "ol", "optgroup", "option", "output", "p", "picture", "pre", "progress", "q",
+        "rp", "rt", "ruby", "s", "samp", "script", "search", "section", "select", "slot", "small", "source", "span",
+        "strong", "style", "sub", "summary", "sup", "svg", "table", "tbody", "td", "template", "textarea", "tfoot",
+        "th", "thead", "time", "title", "tr", "track", "u", "ul", "var", "video", "wbr",
+        // attributes
+        "accept", "accept-charset", "accesskey", "action", "alt", "aria-checked", "aria-controls", "aria-current",
+        "aria-describedby", "aria-disabled", "aria-expanded", "aria-hidden", "aria-label", "aria-labelledby",
+        "aria-live", "aria-selected", "async", "autocomplete", "autofocus", "autoplay", "charset", "checked", "class",
+        "cols", "colspan", "content", "contenteditable", "controls", "crossorigin", "datetime", "decoding", "defer",
+        "dir", "disabled", "download", "draggable", "enctype", "enterkeyhint", "for", "formaction", "headers",
+        "height", "hidden", "high", "href", "hreflang", "http-equiv", "id", "inert", "inputmode", "integrity", "is",
+        "itemprop", "kind", "lang", "list", "loading", "loop", "low", "max", "maxlength", "media", "method", "min",
+        "minlength", "multiple", "muted", "name", "nonce", "novalidate", "open", "optimum", "pattern", "placeholder",
+        "playsinline", "popover", "poster", "preload", "readonly", "referrerpolicy", "rel", "required", "reversed",
+        "role", "rows", "rowspan", "sandbox", "scope", "selected", "shape", "size", "sizes", "spellcheck", "src",
+        "srcdoc", "srclang", "srcset", "start", "step", "tabindex", "target", "translate", "type", "usemap", "value",
+        "width", "wrap",
+        // events
+        "abort", "beforeunload", "blur", "cancel", "change", "click", "close", "contextmenu", "copy", "cut",
+        "dblclick", "drag", "dragend", "dragenter", "dragleave", "dragover", "dragstart", "drop", "error", "focus",
+        "focusin", "focusout", "hashchange", "invalid", "keydown", "keypress", "keyup", "load", "mousedown",
+        "mouseenter", "mouseleave", "mousemove", "mouseout", "mouseover", "mouseup", "paste", "pointercancel",
+        "pointerdown", "pointermove", "pointerup", "popstate", "reset", "resize", "scroll", "submit", "toggle",
+        "touchcancel", "touchend", "touchmove", "touchstart", "wheel"
+    };
+
+    private static final Symbol[] BY_ID = new Symbol[KNOWN_NAMES.length];
+    private static final Map<String, Symbol> SYMBOLS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KNOWN_NAMES.length; i++) {
+            final Symbol symbol = new Symbol(i, KNOWN_NAMES[i]);
+            BY_ID[i] = symbol;
+            if (SYMBOLS.put(symbol.name, symbol) != null) {
+                throw new ExceptionInInitializerError("Duplicate symbol name: " + symbol.name);
+            }
+        }
+    }
+
+    public final int id;
+    public final String name;
+    public final String quotedName;
+
+    private Symbol(final int id, final String name) {
+        this.id = id;
+        this.name = name;
+        this.quotedName = "\"" + JsonUtils.escape(name) + "\"";
+    }
+
+    /**
+     * Provides the symbol of a name.
+     * @param name the name, must not be null
+     * @return the registered symbol, or a new unregistered one if the name is not a known name
+     */
+    public static Symbol of(final String name) {
+        final Symbol symbol = SYMBOLS.get(Objects.requireNonNull(name));
+        return symbol != null ? symbol : new Symbol(UNREGISTERED, name);
+    }
+
+    /**
+     * Provides the canonical instance of a name.
+     * @param name the name, must not be null
+     * @return the registered symbol's name, or the provided string if the name is not a known name
+     */
+    public static String intern(final String name) {
+        final Symbol symbol = SYMBOLS.get(Objects.requireNonNull(name));
+        return symbol != null ? symbol.name : name;
+    }
+
+    /**
+     * Provides a registered symbol by its identifier.
+     * @param id the symbol's identifier
+     * @return the symbol
+     */
+    public static Symbol byId(final int id) {
+        return BY_ID[id];
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -14,9 +14,11 @@ public final class Tag implements Node {
     public final CopyOnWriteArraySet<Style> styles = new CopyOnWriteArraySet<>();
     public final List<Node> children = new ArrayList<>();
 
+    private volatile String prerenderedHtml;
+
     public Tag(final XmlNs xmlns, final String name, boolean isSelfClosing) {
         this.xmlns = xmlns;
-        this.name = name;
+        this.name = Symbol.intern(name);
         this.isSelfClosing = isSelfClosing;
     }
 
@@ -32,6 +34,22 @@ public final class Tag implements Node {
         styles.add(new Style(name, value));
     }
 
+    /**
+     * Serialises this tag's subtree to HTML once and marks it as immutable.
+     * A prerendered tag can be shared between many DOM trees and must not be changed afterwards.
+     */
+    public void prerender() {
+        prerenderedHtml = toString();
+    }
+
+    /**
+     * Provides the result of {@link #prerender()}.
+     * @return the tag's HTML or null if this tag is not prerendered
+     */
+    public String prerenderedHtml() {
+        return prerenderedHtml;
+    }
+
     @Override
     public String toString() {
         final HtmlBuilder htmlBuilder = new HtmlBuilder(new StringBuilder());
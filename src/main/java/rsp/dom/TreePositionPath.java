@@ -49,6 +49,16 @@ public final class TreePositionPath {
         return childPath;
     }
 
+    /**
+     * Checks if this path is the provided path or one of its descendants.
+     * @param prefix the path to check against, must not be null
+     * @return true if all the provided path's positions are the first positions of this path
+     */
+    public boolean startsWith(final TreePositionPath prefix) {
+        return prefix.array.length <= array.length
+               && Arrays.equals(array, 0, prefix.array.length, prefix.array, 0, prefix.array.length);
+    }
+
     private TreePositionPath take(final int level) {
         final int[] na = new int[level];
         System.arraycopy(array, 0, na, 0, level);
@@ -0,0 +1,80 @@
+package rsp.html;
+
+import rsp.component.ComponentDsl;
+import rsp.component.ComponentRenderContext;
+import rsp.dom.Node;
+import rsp.dom.Tag;
+import rsp.dom.Text;
+import rsp.page.PageRendering;
+import rsp.page.QualifiedSessionId;
+import rsp.page.TemporaryBufferedPageCommands;
+import rsp.server.Path;
+import rsp.server.http.HttpRequest;
+import rsp.server.http.PageStateOrigin;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A definition of a static part of a document which never changes.
+ * The nodes of the part are built once on this object's creation and shared between all the renderings,
+ * the HTML of the tags is pre-serialised, a DOM diff skips them by identity.
+ * A constant definition cannot contain events, elements references and stateful components.
+ */
+public final class ConstantDefinition implements SegmentDefinition {
+
+    private final List<Node> nodes;
+
+    /**
+     * Creates a new instance of a constant definition.
+     * @param definition the static part's definition
+     */
+    public ConstantDefinition(final SegmentDefinition definition) {
+        this.nodes = build(Objects.requireNonNull(definition));
+    }
+
+    private static List<Node> build(final SegmentDefinition definition) {
+        definition.forEachComponentDefinition(c -> {
+            throw new IllegalArgumentException("A constant definition cannot contain stateful components");
+        });
+        final URI uri = URI.create("http://localhost");
+        final HttpRequest httpRequest = new HttpRequest(HttpRequest.HttpMethod.GET,
+                                                        uri,
+                                                        uri.toString(),
+                                                        Path.ROOT);
+        final ComponentRenderContext rc = new ComponentRenderContext(new QualifiedSessionId("0", "0"),
+                                                                     PageRendering.DOCUMENT_DOM_PATH,
+                                                                     new PageStateOrigin(httpRequest),
+                                                                     new TemporaryBufferedPageCommands(),
+                                                                     new Object());
+        ComponentDsl.component("", __ -> ___ -> definition).render(rc);
+        if (rc.componentStates().size() > 1) {
+            // a component rendered by a custom definition, not found before the rendering
+            rc.shutdown();
+            throw new IllegalArgumentException("A constant definition cannot contain stateful components");
+        }
+        if (!rc.recursiveEvents().isEmpty() || !rc.recursiveRefs().isEmpty()) {
+            throw new IllegalArgumentException("A constant definition cannot contain events or elements references");
+        }
+        final List<Node> nodes = List.copyOf(rc.rootNodes());
+        for (final Node node : nodes) {
+            if (node instanceof Tag tag) {
+                tag.prerender();
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    public boolean render(final ComponentRenderContext renderContext) {
+        for (final Node node : nodes) {
+            if (node instanceof Tag tag) {
+                renderContext.addTag(tag);
+            } else if (node instanceof Text text) {
+                renderContext.addTextNode(String.join("", text.parts));
+            }
+        }
+        return true;
+    }
+}
@@ -630,6 +630,17 @@ public final class HtmlDsl {
         return condition ? then.get() : EmptyDefinition.INSTANCE;
     }
 
+    /**
+     * Marks a static part of a document which never changes.
+     * The part is built and serialised to HTML once, so a constant definition is expected to be created once
+     * and kept, for example, in a static field and then used in views.
+     * @param definition the static part's definition, cannot contain events, elements references and stateful components
+     * @return a constant definition
+     */
+    public static ConstantDefinition constant(final SegmentDefinition definition) {
+        return new ConstantDefinition(definition);
+    }
+
     /**
      * Provides a definition of a browsers' window object.
      * @return a window object definition
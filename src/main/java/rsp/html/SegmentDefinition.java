@@ -2,6 +2,9 @@ package rsp.html;
 
 
 import rsp.component.ComponentRenderContext;
+import rsp.component.StatefulComponentDefinition;
+
+import java.util.function.Consumer;
 
 /**
  * Represents a building block in the domain-specific language definition.
@@ -16,4 +19,12 @@ public interface SegmentDefinition {
      */
     boolean render(ComponentRenderContext renderContext);
 
+    /**
+     * Provides the stateful components definitions which are rendered directly as parts of this definition,
+     * in their rendering order. The components nested in other components views are not provided.
+     * @param consumer the components definitions consumer
+     */
+    default void forEachComponentDefinition(Consumer<StatefulComponentDefinition<?>> consumer) {
+    }
+
 }
@@ -1,8 +1,10 @@
 package rsp.html;
 
 import rsp.component.ComponentRenderContext;
+import rsp.component.StatefulComponentDefinition;
 
 import java.util.Arrays;
+import java.util.function.Consumer;
 
 /**
  * A sequence of definitions.
@@ -24,4 +26,9 @@ public final class SequenceDefinition implements SegmentDefinition {
         Arrays.stream(items).forEach(c -> c.render(renderContext));
         return true;
     }
+
+    @Override
+    public void forEachComponentDefinition(final Consumer<StatefulComponentDefinition<?>> consumer) {
+        Arrays.stream(items).forEach(c -> c.forEachComponentDefinition(consumer));
+    }
 }
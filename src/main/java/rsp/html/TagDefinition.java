@@ -1,9 +1,11 @@
 package rsp.html;
 import rsp.component.ComponentRenderContext;
+import rsp.component.StatefulComponentDefinition;
 import rsp.dom.XmlNs;
 
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * A definition of an XML tag.
@@ -31,4 +33,9 @@ public class TagDefinition implements SegmentDefinition {
         renderContext.closeNode(name, true);
         return true;
     }
+
+    @Override
+    public void forEachComponentDefinition(final Consumer<StatefulComponentDefinition<?>> consumer) {
+        Arrays.stream(children).forEach(c -> c.forEachComponentDefinition(consumer));
+    }
 }
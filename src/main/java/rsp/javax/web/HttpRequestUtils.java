@@ -7,38 +7,93 @@ import javax.servlet.http.HttpServletRequest;
 import javax.websocket.server.HandshakeRequest;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class HttpRequestUtils {
 
+    /**
+     * The headers copied to a WebSocket handshake request's snapshot by default.
+     */
+    public static final Set<String> SNAPSHOT_HEADER_NAMES = Set.of("Cookie", "Host", "Origin", "User-Agent", "Accept-Language");
+
     private HttpRequestUtils() {}
 
     /**
-     * Creates a new instance of {@link HttpRequest} given a Servlet API HttpServletRequest
+     * Creates a new instance of {@link HttpRequest} given a Servlet API HttpServletRequest.
+     * A header is read from the servlet request on its first access, the result is reused.
      * @param request a HTTP Servlet request
      * @return a HTTP request
      */
     public static HttpRequest httpRequest(final HttpServletRequest request) {
+        final Map<String, Optional<String>> headers = new ConcurrentHashMap<>();
         return new HttpRequest(httpMethod(request.getMethod()),
                                stringToURI(request.getRequestURI()),
                                request.getRequestURL().toString(),
                                Path.of(request.getPathInfo()),
                                s -> Optional.ofNullable(request.getParameter(s)),
-                               h -> Optional.ofNullable(request.getHeader(h)));
+                               h -> headers.computeIfAbsent(h, name -> Optional.ofNullable(request.getHeader(name))));
     }
 
     /**
-     * Creates a new instance of {@link HttpRequest} given a JSR 356 WebSocket handshake request
+     * Creates a new instance of {@link HttpRequest} given a JSR 356 WebSocket handshake request.
+     * The result is a snapshot with the query parameters and the {@link #SNAPSHOT_HEADER_NAMES} headers copied,
+     * it does not keep a reference to the handshake request.
      * @param handshakeRequest a WebSocket handshake request
      * @return a HTTP request
      */
     public static HttpRequest httpRequest(final HandshakeRequest handshakeRequest) {
+        return httpRequest(handshakeRequest, SNAPSHOT_HEADER_NAMES);
+    }
+
+    /**
+     * Creates a snapshot {@link HttpRequest} given a JSR 356 WebSocket handshake request.
+     * Only the query parameters and the provided headers are copied, headers names are case-insensitive.
+     * The provided headers are looked up by their names, the other handshake headers are not read.
+     * @param handshakeRequest a WebSocket handshake request
+     * @param headerNames the names of the headers to copy
+     * @return a HTTP request
+     */
+    public static HttpRequest httpRequest(final HandshakeRequest handshakeRequest, final Set<String> headerNames) {
+        final URI uri = handshakeRequest.getRequestURI();
+        final Map<String, String> queryParams = firstValues(handshakeRequest.getParameterMap(), new HashMap<>());
+        final Map<String, List<String>> handshakeHeaders = handshakeRequest.getHeaders();
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (final String headerName : headerNames) {
+            final String value = headerValue(handshakeHeaders, headerName);
+            if (value != null) {
+                headers.put(headerName, value);
+            }
+        }
         return new HttpRequest(HttpRequest.HttpMethod.GET,
-                               handshakeRequest.getRequestURI(),
-                               handshakeRequest.getRequestURI().toString(),
-                               Path.of(handshakeRequest.getRequestURI().getPath()),
-                               name ->  Optional.ofNullable(handshakeRequest.getParameterMap().get(name)).map(val -> val.get(0)),
-                               name -> Optional.ofNullable(handshakeRequest.getHeaders().get(name)).map(val -> val.get(0)));
+                               uri,
+                               uri.toString(),
+                               Path.of(uri.getPath()),
+                               name -> Optional.ofNullable(queryParams.get(name)),
+                               name -> Optional.ofNullable(headers.get(name)));
+    }
+
+    private static Map<String, String> firstValues(final Map<String, List<String>> multiMap, final Map<String, String> result) {
+        for (final Map.Entry<String, List<String>> entry : multiMap.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                result.putIfAbsent(entry.getKey(), entry.getValue().get(0));
+            }
+        }
+        return result;
+    }
+
+    private static String headerValue(final Map<String, List<String>> headers, final String headerName) {
+        List<String> values = headers.get(headerName);
+        if (values == null) {
+            // the container's headers map is not required to be case-insensitive
+            for (final String name : headers.keySet()) {
+                if (headerName.equalsIgnoreCase(name)) {
+                    values = headers.get(name);
+                    break;
+                }
+            }
+        }
+        return values == null || values.isEmpty() ? null : values.get(0);
     }
 
     private static URI stringToURI(final String str) {
@@ -1,18 +1,25 @@
 package rsp.javax.web;
 
+import rsp.AppConfig;
+import rsp.page.InMemoryPassivatedPagesStore;
 import rsp.page.LivePageSession;
+import rsp.page.PassivatedPagesStore;
 import rsp.page.QualifiedSessionId;
 import rsp.page.RenderedPage;
 import rsp.server.RemoteOut;
 import rsp.server.http.HttpRequest;
 import rsp.server.protocol.RemotePageMessageDecoder;
 import rsp.server.protocol.RemotePageMessageEncoder;
+import rsp.server.protocol.ResumableMessagesOut;
 import rsp.util.json.JsonParser;
 import rsp.util.json.JsonSimpleUtils;
 
 import javax.websocket.*;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.System.Logger.Level.*;
 
@@ -21,57 +28,114 @@ public final class MainWebSocketEndpoint<S> extends Endpoint {
 
     public static final String WS_ENDPOINT_PATH = "/bridge/web-socket/{pid}/{sid}";
     public static final String HANDSHAKE_REQUEST_PROPERTY_NAME = "handshakereq";
-    private static final String LIVE_PAGE_SESSION_USER_PROPERTY_NAME = "livePage";
+    public static final String RECEIVED_MESSAGES_COUNT_PARAMETER_NAME = "seq";
+    private static final String LIVE_PAGE_USER_PROPERTY_NAME = "livePage";
 
     private final Map<QualifiedSessionId, RenderedPage> renderedPages;
+    private final AppConfig config;
+    private final PassivatedPagesStore passivatedPagesStore;
+    private final Map<QualifiedSessionId, LivePage> livePages = new ConcurrentHashMap<>();
 
     private final JsonParser jsonParser = JsonSimpleUtils.createParser();
 
     private static final Set<QualifiedSessionId> lostSessionsIds = Collections.newSetFromMap(new WeakHashMap<>());
 
-    public MainWebSocketEndpoint(final Map<QualifiedSessionId, RenderedPage> renderedPages) {
+    public MainWebSocketEndpoint(final Map<QualifiedSessionId, RenderedPage> renderedPages,
+                                 final AppConfig config,
+                                 final PassivatedPagesStore passivatedPagesStore) {
         this.renderedPages = Objects.requireNonNull(renderedPages);
+        this.config = Objects.requireNonNull(config);
+        this.passivatedPagesStore = Objects.requireNonNull(passivatedPagesStore);
+    }
+
+    public MainWebSocketEndpoint(final Map<QualifiedSessionId, RenderedPage> renderedPages) {
+        this(renderedPages, AppConfig.DEFAULT, new InMemoryPassivatedPagesStore());
     }
 
     @Override
     public void onOpen(final Session session, final EndpointConfig endpointConfig) {
         logger.log(DEBUG, () -> "Websocket endpoint opened, session: " + session.getId());
-        final RemoteOut remoteOut = new RemotePageMessageEncoder(msg -> sendText(session, msg));
         final HttpRequest handshakeRequest = (HttpRequest) endpointConfig.getUserProperties().get(HANDSHAKE_REQUEST_PROPERTY_NAME);
         final QualifiedSessionId qsid = new QualifiedSessionId(session.getPathParameters().get("pid"),
                                                                session.getPathParameters().get("sid"));
 
         final RenderedPage renderedPage = renderedPages.remove(qsid);
+        if (renderedPage != null) {
+            start(qsid, renderedPage, session);
+            return;
+        }
 
-        if (renderedPage == null) {
-            logger.log(TRACE, () -> "Pre-rendered page not found for SID: " + qsid);
-            if (!isKnownLostSession(qsid)) {
-                logger.log(WARNING, () -> "Reload a remote on: " + handshakeRequest.uri.getHost() + ":" + handshakeRequest.uri.getPort());
-                remoteOut.evalJs(-1, "RSP.reload()");
-            }
-        } else {
+        final LivePage livePage = livePages.get(qsid);
+        if (livePage != null && livePage.resume(session, receivedMessagesCount(session))) {
+            session.getUserProperties().put(LIVE_PAGE_USER_PROPERTY_NAME, livePage);
+            addMessageHandler(session, livePage);
+            logger.log(DEBUG, () -> "Live page resumed: " + qsid);
+            return;
+        } else if (livePage != null) {
+            logger.log(DEBUG, () -> "Live page could not be resumed: " + qsid);
+            shutdown(qsid, livePage);
+        }
+
+        logger.log(TRACE, () -> "Pre-rendered page not found for SID: " + qsid);
+        if (!isKnownLostSession(qsid)) {
+            logger.log(WARNING, () -> "Reload a remote on: " + handshakeRequest.uri.getHost() + ":" + handshakeRequest.uri.getPort());
+            new RemotePageMessageEncoder(msg -> sendText(session, msg)).evalJs(-1, "RSP.reload()");
+        }
+    }
 
-            final LivePageSession livePage = new LivePageSession(renderedPage.pageRenderContext,
-                                                                 remoteOut,
-                                                                 renderedPage.sessionLock);
-            session.getUserProperties().put(LIVE_PAGE_SESSION_USER_PROPERTY_NAME, livePage);
-
-            final RemotePageMessageDecoder in = new RemotePageMessageDecoder(jsonParser, livePage);
-            session.addMessageHandler(new MessageHandler.Whole<String>() {
-                @Override
-                public void onMessage(final String s) {
-                    logger.log(TRACE, () -> session.getId() + " -> " + s);
-                    in.decode(s);
+    private void start(final QualifiedSessionId qsid, final RenderedPage renderedPage, final Session session) {
+        final ResumableMessagesOut messagesOut = new ResumableMessagesOut(config.replayBufferSize());
+        final RemoteOut remoteOut = new RemotePageMessageEncoder(messagesOut);
+        final LivePageSession livePageSession = new LivePageSession(renderedPage.pageRenderContext,
+                                                                    renderedPage.rootDefinition,
+                                                                    remoteOut,
+                                                                    renderedPage.sessionLock,
+                                                                    config.pagePassivationTimeoutMs(),
+                                                                    passivatedPagesStore,
+                                                                    renderedPage.commandsBuffer.renderFence(),
+                                                                    config.remoteResponseTimeoutMs());
+        final LivePage livePage = new LivePage(livePageSession, messagesOut);
+        livePage.resume(session, 0);
+        session.getUserProperties().put(LIVE_PAGE_USER_PROPERTY_NAME, livePage);
+        if (config.sessionResumeTimeoutMs() > 0) {
+            livePages.put(qsid, livePage);
+        }
+
+        addMessageHandler(session, livePage);
+        remoteOut.setRenderNum(0);
+        livePageSession.init();
+        renderedPage.commandsBuffer.redirectMessagesOut(new RemotePageMessageEncoder(messagesOut));
+        logger.log(DEBUG, () -> "Live page started: " + qsid);
+    }
+
+    private void addMessageHandler(final Session session, final LivePage livePage) {
+        final RemotePageMessageDecoder in = new RemotePageMessageDecoder(jsonParser, livePage.session);
+        session.addMessageHandler(new MessageHandler.Whole<String>() {
+            @Override
+            public void onMessage(final String s) {
+                if (!livePage.isAttachedTo(session)) {
+                    logger.log(TRACE, () -> session.getId() + " -> " + s + " dropped, the connection is superseded");
+                    return;
                 }
-            });
-            remoteOut.setRenderNum(0);
-            livePage.init();
-            renderedPage.commandsBuffer.redirectMessagesOut(new RemotePageMessageEncoder(msg -> sendText(session, msg)));
-            logger.log(DEBUG, () -> "Live page started: " + this);
+                logger.log(TRACE, () -> session.getId() + " -> " + s);
+                in.decode(s);
+            }
+        });
+    }
+
+    private static long receivedMessagesCount(final Session session) {
+        final List<String> values = session.getRequestParameterMap().get(RECEIVED_MESSAGES_COUNT_PARAMETER_NAME);
+        if (values == null || values.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(values.get(0));
+        } catch (final NumberFormatException e) {
+            return -1;
         }
     }
 
-    private void sendText(final Session session, final String text) {
+    private static void sendText(final Session session, final String text) {
         try {
             logger.log(TRACE, () -> session.getId() + " <- " + text);
             session.getBasicRemote().sendText(text);
@@ -82,21 +146,45 @@ public final class MainWebSocketEndpoint<S> extends Endpoint {
 
     @Override
     public void onClose(final Session session, final CloseReason closeReason) {
-        shutdown(session);
+        detach(session);
         logger.log(DEBUG, () -> "WebSocket closed " + closeReason.getReasonPhrase());
     }
 
     @Override
     public void onError(final Session session, final Throwable thr) {
-        shutdown(session);
+        detach(session);
         logger.log(ERROR, () -> "WebSocket error: " + thr.getMessage(), thr);
     }
 
-    private void shutdown(final Session session) {
-        final LivePageSession livePage = (LivePageSession) session.getUserProperties().get(LIVE_PAGE_SESSION_USER_PROPERTY_NAME);
-        if (livePage != null) {
-            livePage.shutdown();
-            logger.log(DEBUG, () -> "Shutdown session: " + session.getId());
+    private void detach(final Session session) {
+        final LivePage livePage = (LivePage) session.getUserProperties().remove(LIVE_PAGE_USER_PROPERTY_NAME);
+        if (livePage == null) {
+            return;
+        }
+        final QualifiedSessionId qsid = new QualifiedSessionId(session.getPathParameters().get("pid"),
+                                                               session.getPathParameters().get("sid"));
+        final int generation = livePage.detach(session);
+        if (generation < 0) {
+            // the page has been already resumed on another connection
+            return;
+        }
+        if (config.sessionResumeTimeoutMs() > 0) {
+            logger.log(DEBUG, () -> "Live page detached: " + qsid);
+            CompletableFuture.runAsync(() -> {
+                if (livePage.isDetached(generation)) {
+                    shutdown(qsid, livePage);
+                }
+            }, CompletableFuture.delayedExecutor(config.sessionResumeTimeoutMs(), TimeUnit.MILLISECONDS));
+        } else {
+            shutdown(qsid, livePage);
+        }
+    }
+
+    private void shutdown(final QualifiedSessionId qsid, final LivePage livePage) {
+        if (livePage.close()) {
+            livePages.remove(qsid, livePage);
+            livePage.session.shutdown();
+            logger.log(DEBUG, () -> "Shutdown live page: " + qsid);
         }
     }
 
@@ -109,4 +197,83 @@ public final class MainWebSocketEndpoint<S> extends Endpoint {
             return false;
         }
     }
+
+    /**
+     * A live page with the WebSocket session it is currently attached to.
+     */
+    private static final class LivePage {
+        final LivePageSession session;
+        final ResumableMessagesOut messagesOut;
+
+        private Session webSocketSession;
+        private int generation;
+        private boolean isClosed;
+
+        LivePage(final LivePageSession session, final ResumableMessagesOut messagesOut) {
+            this.session = Objects.requireNonNull(session);
+            this.messagesOut = Objects.requireNonNull(messagesOut);
+        }
+
+        synchronized boolean resume(final Session newWebSocketSession, final long receivedMessagesCount) {
+            if (isClosed || receivedMessagesCount < 0) {
+                return false;
+            }
+            if (webSocketSession != null) {
+                // the previous connection is not closed yet, the new one takes it over
+                messagesOut.detach();
+                supersede(webSocketSession);
+                webSocketSession = null;
+            }
+            if (!messagesOut.attach(msg -> sendText(newWebSocketSession, msg), receivedMessagesCount)) {
+                return false;
+            }
+            webSocketSession = newWebSocketSession;
+            generation++;
+            return true;
+        }
+
+        /**
+         * @return the detached connection's generation or -1 if the page is attached to another connection
+         */
+        synchronized int detach(final Session closedWebSocketSession) {
+            if (webSocketSession != closedWebSocketSession) {
+                return -1;
+            }
+            messagesOut.detach();
+            webSocketSession = null;
+            return generation;
+        }
+
+        synchronized boolean isAttachedTo(final Session webSocketSession) {
+            return this.webSocketSession == webSocketSession;
+        }
+
+        synchronized boolean isDetached(final int detachedGeneration) {
+            return webSocketSession == null && generation == detachedGeneration;
+        }
+
+        synchronized boolean close() {
+            if (isClosed) {
+                return false;
+            }
+            isClosed = true;
+            messagesOut.detach();
+            return true;
+        }
+
+        /**
+         * Stops the delivery of a superseded connection's messages to the page and closes the connection.
+         */
+        private static void supersede(final Session oldWebSocketSession) {
+            oldWebSocketSession.getUserProperties().remove(LIVE_PAGE_USER_PROPERTY_NAME);
+            for (final MessageHandler messageHandler : Set.copyOf(oldWebSocketSession.getMessageHandlers())) {
+                oldWebSocketSession.removeMessageHandler(messageHandler);
+            }
+            try {
+                oldWebSocketSession.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "Superseded by a new connection"));
+            } catch (final IOException | RuntimeException e) {
+                logger.log(DEBUG, () -> "Superseded WebSocket close failed: " + e.getMessage());
+            }
+        }
+    }
 }
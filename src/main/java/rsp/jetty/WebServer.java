@@ -97,9 +97,13 @@ public final class WebServer {
         context.setContextPath("/");
         context.addServlet(new ServletHolder(new MainHttpServlet<>(new PageRendering<>(app.pagesStorage,
                                                                                        app.rootComponentDefinition,
-                                                                                       app.heartbeatIntervalMs))),
+                                                                                       app.config,
+                                                                                       app.sessionIdGenerator,
+                                                                                       app.stateResolution))),
                           "/*");
-        final MainWebSocketEndpoint<S> webSocketEndpoint = new MainWebSocketEndpoint<>(app.pagesStorage);
+        final MainWebSocketEndpoint<S> webSocketEndpoint = new MainWebSocketEndpoint<>(app.pagesStorage,
+                                                                                         app.config,
+                                                                                         app.passivatedPagesStore);
         WebSocketServerContainerInitializer.configure(context, (servletContext, serverContainer) -> {
             final ServerEndpointConfig config =
                     ServerEndpointConfig.Builder.create(webSocketEndpoint.getClass(), MainWebSocketEndpoint.WS_ENDPOINT_PATH)
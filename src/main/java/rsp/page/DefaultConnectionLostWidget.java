@@ -7,6 +7,7 @@ import rsp.dom.DefaultDomChangesContext;
 import rsp.dom.Event;
 import rsp.dom.TreePositionPath;
 import rsp.html.TagDefinition;
+import rsp.server.ExtractPropertyRequest;
 import rsp.server.Path;
 import rsp.server.RemoteOut;
 import rsp.server.http.HttpRequest;
@@ -77,6 +78,11 @@ public final class DefaultConnectionLostWidget {
             // no-op
         }
 
+        @Override
+        public void extractProperties(int descriptor, List<ExtractPropertyRequest> requests) {
+            // no-op
+        }
+
         @Override
         public void modifyDom(List<DefaultDomChangesContext.DomChange> domChange) {
             // no-op
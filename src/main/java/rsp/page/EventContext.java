@@ -8,6 +8,7 @@ import rsp.util.json.JsonDataType;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * An object representing an event's context. Provided as a parameter in an event's handler.
@@ -20,6 +21,7 @@ public final class EventContext {
     private final JsonDataType.Object eventObject;
     private final EventDispatcher eventsDispatcher;
     private final Consumer<String> setHref;
+    private final Supplier<PropertiesBatch> propertiesBatchFactory;
 
     /**
      * Creates a new instance of an event's context.
@@ -27,19 +29,22 @@ public final class EventContext {
      * @param propertiesHandleLookup the proxy function for reading properties values
      * @param eventObject the event's object
      * @param setHref the proxy object for setting browser's URL
+     * @param propertiesBatchFactory the proxy function for batched reading of properties values
      */
     public EventContext(final TreePositionPath eventElementPath,
                         final Function<String, CompletableFuture<JsonDataType>> jsEvaluation,
                         final Function<Ref, PropertiesHandle> propertiesHandleLookup,
                         final JsonDataType.Object eventObject,
                         final EventDispatcher eventsDispatcher,
-                        final Consumer<String> setHref) {
+                        final Consumer<String> setHref,
+                        final Supplier<PropertiesBatch> propertiesBatchFactory) {
         this.eventElementPath = eventElementPath;
         this.propertiesHandleLookup = propertiesHandleLookup;
         this.jsEvaluation = jsEvaluation;
         this.eventObject = eventObject;
         this.eventsDispatcher = eventsDispatcher;
         this.setHref = setHref;
+        this.propertiesBatchFactory = propertiesBatchFactory;
     }
 
     /**
@@ -51,6 +56,15 @@ public final class EventContext {
         return propertiesHandleLookup.apply(ref);
     }
 
+    /**
+     * Starts a batched read of properties values in the client's browser,
+     * the properties of a number of elements are read in one round trip.
+     * @return a new properties batch
+     */
+    public PropertiesBatch propertiesBatch() {
+        return propertiesBatchFactory.get();
+    }
+
     /**
      * Evaluates a provided JavaScript expression in the browser returning the evaluation's result.
      * @param js code to execute
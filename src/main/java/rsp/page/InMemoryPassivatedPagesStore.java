@@ -0,0 +1,28 @@
+package rsp.page;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps passivated pages data on the heap as references.
+ */
+public final class InMemoryPassivatedPagesStore implements PassivatedPagesStore {
+
+    private final Map<QualifiedSessionId, PassivatedPage> pages = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(final QualifiedSessionId sessionId, final PassivatedPage page) {
+        pages.put(Objects.requireNonNull(sessionId), Objects.requireNonNull(page));
+    }
+
+    @Override
+    public Optional<PassivatedPage> remove(final QualifiedSessionId sessionId) {
+        return Optional.ofNullable(pages.remove(Objects.requireNonNull(sessionId)));
+    }
+
+    public int size() {
+        return pages.size();
+    }
+}
@@ -1,59 +1,273 @@
 package rsp.page;
 
+import rsp.AppConfig;
+import rsp.component.ComponentCompositeKey;
+import rsp.component.PageIndex;
 import rsp.dom.Event;
 import rsp.dom.TreePositionPath;
+import rsp.html.SegmentDefinition;
 import rsp.html.WindowDefinition;
 import rsp.ref.Ref;
+import rsp.server.ExtractPropertyRequest;
 import rsp.server.ExtractPropertyResponse;
 import rsp.server.RemoteIn;
 import rsp.server.RemoteOut;
 import rsp.util.json.JsonDataType;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.*;
 import static rsp.page.PageRendering.DOCUMENT_DOM_PATH;
 
 /**
  * A server-side session object representing an open browser's page.
+ * An idle page can be passivated: it keeps only its components states and drops the rendered tree with its
+ * events handlers and refs. The components are unmounted on passivation.
+ * The next incoming message transparently re-renders the page with the saved states.
+ * A DOM event tagged with an older render number is discarded if its target element has been removed or replaced
+ * by one of the later renders.
+ * The browser's responses are awaited with a deadline, an abandoned request's descriptor is released on its timeout.
+ * The requests still waiting for their responses fail when the page is shut down.
  */
 public final class LivePageSession implements RemoteIn {
     private static final System.Logger logger = System.getLogger(LivePageSession.class.getName());
 
-    private final PageRenderContext pageRenderContext;
+    private final SegmentDefinition rootDefinition;
     private final RemoteOut remoteOut;
     private final Object sessionLock;
+    private final long passivationTimeoutNanos;
+    private final PassivatedPagesStore passivatedPagesStore;
+    private final RenderFence renderFence;
+    private final int responseTimeoutMs;
 
     private final Map<Integer, CompletableFuture<JsonDataType>> registeredEventHandlers = new HashMap<>();
 
+    private PageRenderContext pageRenderContext;
     private int descriptorsCounter;
+    private long lastActivityNanos = System.nanoTime();
+    private boolean isPassivated;
+    private boolean isShutdown;
 
+    /**
+     * Creates a new live page session.
+     * @param pageRenderContext the page's rendered tree, must not be null
+     * @param rootDefinition the page's root definition used to re-render a passivated page, must not be null
+     * @param remoteOut the page's outbound messages channel, must not be null
+     * @param sessionLock the page's lock, must not be null
+     * @param passivationTimeoutMs the idle time after which the page is passivated, zero disables passivation
+     * @param passivatedPagesStore the storage for the page's data while it is passivated, must not be null
+     * @param renderFence the page's render numbers counter, must not be null
+     * @param responseTimeoutMs the default time to wait for a browser's response, zero disables the timeout
+     */
     public LivePageSession(final PageRenderContext pageRenderContext,
+                           final SegmentDefinition rootDefinition,
                            final RemoteOut remoteOut,
-                           final Object sessionLock) {
+                           final Object sessionLock,
+                           final int passivationTimeoutMs,
+                           final PassivatedPagesStore passivatedPagesStore,
+                           final RenderFence renderFence,
+                           final int responseTimeoutMs) {
         this.pageRenderContext = Objects.requireNonNull(pageRenderContext);
+        this.rootDefinition = Objects.requireNonNull(rootDefinition);
         this.remoteOut = Objects.requireNonNull(remoteOut);
         this.sessionLock = Objects.requireNonNull(sessionLock);
+        this.passivationTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(passivationTimeoutMs);
+        this.passivatedPagesStore = Objects.requireNonNull(passivatedPagesStore);
+        this.renderFence = Objects.requireNonNull(renderFence);
+        this.responseTimeoutMs = responseTimeoutMs;
+    }
+
+    public LivePageSession(final PageRenderContext pageRenderContext,
+                           final SegmentDefinition rootDefinition,
+                           final RemoteOut remoteOut,
+                           final Object sessionLock,
+                           final int passivationTimeoutMs,
+                           final PassivatedPagesStore passivatedPagesStore) {
+        this(pageRenderContext,
+             rootDefinition,
+             remoteOut,
+             sessionLock,
+             passivationTimeoutMs,
+             passivatedPagesStore,
+             new RenderFence(),
+             AppConfig.DEFAULT_REMOTE_RESPONSE_TIMEOUT_MS);
+    }
+
+    public LivePageSession(final PageRenderContext pageRenderContext,
+                           final SegmentDefinition rootDefinition,
+                           final RemoteOut remoteOut,
+                           final Object sessionLock,
+                           final int passivationTimeoutMs) {
+        this(pageRenderContext,
+             rootDefinition,
+             remoteOut,
+             sessionLock,
+             passivationTimeoutMs,
+             new InMemoryPassivatedPagesStore());
+    }
+
+    public LivePageSession(final PageRenderContext pageRenderContext,
+                           final RemoteOut remoteOut,
+                           final Object sessionLock) {
+        this(pageRenderContext, renderContext -> false, remoteOut, sessionLock, 0);
     }
 
     public void init() {
         synchronized (sessionLock) {
-            remoteOut.listenEvents(pageRenderContext.recursiveEvents());
+            remoteOut.listenEvents(pageRenderContext.pageIndex().allEvents());
         }
-  }
+        scheduleIdleCheck(passivationTimeoutNanos);
+    }
 
     public void shutdown() {
         logger.log(DEBUG, () -> "Live Page shutdown: " + this);
         synchronized (sessionLock) {
+            isShutdown = true;
+            if (isPassivated) {
+                passivatedPagesStore.remove(pageRenderContext.sessionId());
+            } else {
+                pageRenderContext.shutdown();
+            }
+            pageRenderContext.runSessionShutdownHooks();
+            failPendingResponses();
+        }
+    }
+
+    private void failPendingResponses() {
+        final List<CompletableFuture<JsonDataType>> pendingResponses = List.copyOf(registeredEventHandlers.values());
+        registeredEventHandlers.clear();
+        for (final CompletableFuture<JsonDataType> pendingResponse : pendingResponses) {
+            pendingResponse.completeExceptionally(new IllegalStateException("Live page is shut down: " + this));
+        }
+    }
+
+    /**
+     * The number of the DOM events discarded because they were targeting the elements removed or replaced
+     * after the events occurred.
+     * @return the dropped stale events count
+     */
+    public long droppedStaleEventsCount() {
+        return renderFence.droppedEventsCount();
+    }
+
+    /**
+     * The number of the requests to the browser waiting for their responses.
+     * @return the pending responses count
+     */
+    public int pendingResponsesCount() {
+        synchronized (sessionLock) {
+            return registeredEventHandlers.size();
+        }
+    }
+
+    /**
+     * Checks if the page is passivated.
+     * @return true if the page keeps only its components states
+     */
+    public boolean isPassivated() {
+        synchronized (sessionLock) {
+            return isPassivated;
+        }
+    }
+
+    /**
+     * Keeps only the page's components states, unmounts the components and drops the rendered tree.
+     */
+    public void passivate() {
+        synchronized (sessionLock) {
+            if (isShutdown || isPassivated) {
+                return;
+            }
+            final Map<ComponentCompositeKey, Object> states = pageRenderContext.componentStates();
+            final String htmlDigest = PassivatedPage.htmlDigest(pageRenderContext.html());
+            // the page is kept live if its data is not stored
+            passivatedPagesStore.put(pageRenderContext.sessionId(), new PassivatedPage(states, htmlDigest));
+            final PageRenderContext emptyRenderContext = (PageRenderContext) pageRenderContext.newContext(DOCUMENT_DOM_PATH);
             pageRenderContext.shutdown();
+            pageRenderContext = emptyRenderContext;
+            isPassivated = true;
+            logger.log(DEBUG, () -> "Live page passivated: " + this + ", components: " + states.size());
+        }
+    }
+
+    /**
+     * Re-renders a passivated page with its saved components states.
+     * If the new rendering differs from the passivated one, the browser is requested to reload the page.
+     * If the page's data cannot be restored, the page stays passivated and the browser is requested to reload the page.
+     */
+    public void activate() {
+        synchronized (sessionLock) {
+            lastActivityNanos = System.nanoTime();
+            if (isShutdown || !isPassivated) {
+                return;
+            }
+            final PageRenderContext emptyRenderContext = (PageRenderContext) pageRenderContext.newContext(DOCUMENT_DOM_PATH);
+            final PassivatedPage passivated;
+            try {
+                final Optional<PassivatedPage> stored = passivatedPagesStore.remove(pageRenderContext.sessionId());
+                if (stored.isEmpty()) {
+                    logger.log(WARNING, () -> "Passivated live page data not found, reloading: " + this);
+                    remoteOut.evalJs(-1, "RSP.reload()");
+                    return;
+                }
+                passivated = stored.get();
+                pageRenderContext.restoreStates(passivated.states());
+                rootDefinition.render(pageRenderContext);
+            } catch (final RuntimeException ex) {
+                logger.log(ERROR, "Live page activation failed, reloading: " + this, ex);
+                pageRenderContext.shutdown();
+                pageRenderContext = emptyRenderContext;
+                remoteOut.evalJs(-1, "RSP.reload()");
+                return;
+            }
+            isPassivated = false;
+            if (!passivated.isSameHtml(pageRenderContext.html())) {
+                logger.log(WARNING, () -> "Live page re-rendered after passivation differs from the original, reloading: " + this);
+                remoteOut.evalJs(-1, "RSP.reload()");
+            } else {
+                logger.log(DEBUG, () -> "Live page activated: " + this);
+            }
+            scheduleIdleCheck(passivationTimeoutNanos);
+        }
+    }
+
+    private void scheduleIdleCheck(final long delayNanos) {
+        if (passivationTimeoutNanos > 0) {
+            CompletableFuture.runAsync(this::checkIdle,
+                                       CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private void checkIdle() {
+        final long remainingNanos;
+        synchronized (sessionLock) {
+            if (isShutdown || isPassivated) {
+                return;
+            }
+            final long lastActiveNanos = Math.max(lastActivityNanos, pageRenderContext.lastRenderNanos());
+            remainingNanos = passivationTimeoutNanos - (System.nanoTime() - lastActiveNanos);
+            if (remainingNanos <= 0) {
+                try {
+                    passivate();
+                } catch (final Throwable ex) {
+                    logger.log(ERROR, "Live page passivation exception", ex);
+                }
+                return;
+            }
         }
+        scheduleIdleCheck(remainingNanos);
     }
 
     @Override
     public void handleExtractPropertyResponse(final int descriptorId, final ExtractPropertyResponse result) {
+        activate();
         if (result instanceof ExtractPropertyResponse.NotFound) {
             logger.log(DEBUG, () -> "extractProperty: " + descriptorId + " failed");
             synchronized (sessionLock) {
@@ -77,6 +291,7 @@ public final class LivePageSession implements RemoteIn {
 
     @Override
     public void handleEvalJsResponse(final int descriptorId, final JsonDataType value) {
+        activate();
         logger.log(DEBUG, () -> "evalJsResponse: " + descriptorId + " value: " + value.toString());
         synchronized (sessionLock) {
             final CompletableFuture<JsonDataType> cf = registeredEventHandlers.get(descriptorId);
@@ -93,11 +308,25 @@ public final class LivePageSession implements RemoteIn {
                                final String eventType,
                                final JsonDataType.Object eventObject) {
         logger.log(DEBUG, () -> "DOM event " + renderNumber + ", componentPath: " + eventPath + ", type: " + eventType + ", event data: " + eventObject);
+        if (renderFence.isStale(renderNumber, eventPath)) {
+            logger.log(DEBUG, () -> "Stale DOM event dropped, render: " + renderNumber + ", componentPath: " + eventPath + ", type: " + eventType);
+            return;
+        }
+        dispatchDomEvent(eventPath, eventType, eventObject);
+    }
+
+    private void dispatchDomEvent(final TreePositionPath eventPath,
+                                  final String eventType,
+                                  final JsonDataType.Object eventObject) {
+        activate();
         synchronized (sessionLock) {
+            final PageIndex pageIndex = pageRenderContext.pageIndex();
             TreePositionPath eventElementPath = eventPath;
             while (eventElementPath.level() >= 0) {
-                for (final Event event: pageRenderContext.recursiveEvents()) {
-                    if (event.eventTarget.elementPath.equals(eventElementPath) && event.eventTarget.eventType.equals(eventType)) {
+                final List<Event> targetEvents = pageIndex.events(new Event.Target(eventType, eventElementPath));
+                if (!targetEvents.isEmpty()) {
+                    // a handler may re-render components and so change the index
+                    for (final Event event: List.copyOf(targetEvents)) {
                         event.eventHandler.accept(createEventContext(eventElementPath, eventObject));
                     }
                 }
@@ -117,7 +346,8 @@ public final class LivePageSession implements RemoteIn {
                                 this::createPropertiesHandle,
                                 eventObject,
                                 this::dispatchEvent,
-                                this::setHref);
+                                this::setHref,
+                                () -> new PropertiesBatch(this::resolveRef, this::extractProperties, responseTimeoutMs));
     }
 
     private PropertiesHandle createPropertiesHandle(final Ref ref) {
@@ -125,23 +355,87 @@ public final class LivePageSession implements RemoteIn {
         if (path == null) {
             throw new IllegalStateException("Ref not found: " + ref);
         }
-        return new PropertiesHandle(path, () -> ++descriptorsCounter, registeredEventHandlers, remoteOut);
+        return new PropertiesHandle(path,
+                                    (propertyName, timeoutMs) -> extractProperty(path, propertyName, timeoutMs),
+                                    responseTimeoutMs,
+                                    remoteOut);
+    }
+
+    private CompletableFuture<JsonDataType> extractProperty(final TreePositionPath path,
+                                                            final String propertyName,
+                                                            final int timeoutMs) {
+        synchronized (sessionLock) {
+            final int newDescriptor = ++descriptorsCounter;
+            final CompletableFuture<JsonDataType> resultHandler = registerResponseHandler(newDescriptor, timeoutMs);
+            remoteOut.extractProperty(newDescriptor, path, propertyName);
+            return resultHandler;
+        }
+    }
+
+    private CompletableFuture<JsonDataType> extractProperties(final List<ExtractPropertyRequest> requests,
+                                                              final int timeoutMs) {
+        synchronized (sessionLock) {
+            final int newDescriptor = ++descriptorsCounter;
+            final CompletableFuture<JsonDataType> resultHandler = registerResponseHandler(newDescriptor, timeoutMs);
+            remoteOut.extractProperties(newDescriptor, requests);
+            return resultHandler;
+        }
+    }
+
+    /**
+     * Registers a future for a browser's response, should be called under the session's lock.
+     * On the deadline the future completes with a {@link TimeoutException},
+     * its descriptor is released when the future completes either way.
+     * The pending futures fail with an {@link IllegalStateException} when the page is shut down.
+     */
+    private CompletableFuture<JsonDataType> registerResponseHandler(final int descriptor, final int timeoutMs) {
+        if (isShutdown) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Live page is shut down: " + this));
+        }
+        final CompletableFuture<JsonDataType> resultHandler = new CompletableFuture<>();
+        registeredEventHandlers.put(descriptor, resultHandler);
+        if (timeoutMs > 0) {
+            resultHandler.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((result, ex) -> {
+                if (ex instanceof TimeoutException) {
+                    logger.log(DEBUG, () -> "Response timeout, descriptor: " + descriptor);
+                }
+                synchronized (sessionLock) {
+                    registeredEventHandlers.remove(descriptor, resultHandler);
+                }
+            });
+        }
+        return resultHandler;
     }
 
     private void dispatchEvent(TreePositionPath eventElementPath, CustomEvent customEvent) {
-        handleDomEvent(0, eventElementPath, customEvent.eventName(), customEvent.eventData());
+        dispatchDomEvent(eventElementPath, customEvent.eventName(), customEvent.eventData());
     }
 
     private TreePositionPath resolveRef(final Ref ref) {
-        return ref instanceof WindowDefinition.WindowRef ? DOCUMENT_DOM_PATH : pageRenderContext.recursiveRefs().get(ref); //TODO check for null
+        if (ref instanceof WindowDefinition.WindowRef) {
+            return DOCUMENT_DOM_PATH;
+        }
+        synchronized (sessionLock) {
+            return pageRenderContext.pageIndex().refPath(ref);
+        }
     }
 
     public CompletableFuture<JsonDataType> evalJs(final String js) {
+        return evalJs(js, responseTimeoutMs);
+    }
+
+    /**
+     * Evaluates a JavaScript expression in the browser with the provided response deadline.
+     * @param js code to execute
+     * @param timeoutMs the response timeout, zero disables the timeout
+     * @return a CompletableFuture of the evaluation's result
+     */
+    public CompletableFuture<JsonDataType> evalJs(final String js, final int timeoutMs) {
         logger.log(DEBUG, () -> "Called an JS evaluation: " + js);
+        activate();
         synchronized (sessionLock) {
             final int newDescriptor = ++descriptorsCounter;
-            final CompletableFuture<JsonDataType> resultHandler = new CompletableFuture<>();
-            registeredEventHandlers.put(newDescriptor, resultHandler);
+            final CompletableFuture<JsonDataType> resultHandler = registerResponseHandler(newDescriptor, timeoutMs);
             remoteOut.evalJs(newDescriptor, js);
             return resultHandler;
         }
@@ -150,4 +444,4 @@ public final class LivePageSession implements RemoteIn {
     private void setHref(final String path) {
         remoteOut.setHref(path);
     }
-}
\ No newline at end of file
+}
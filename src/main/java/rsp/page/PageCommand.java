@@ -3,6 +3,7 @@ package rsp.page;
 import rsp.dom.DefaultDomChangesContext;
 import rsp.dom.Event;
 import rsp.dom.TreePositionPath;
+import rsp.server.ExtractPropertyRequest;
 import rsp.server.RemoteOut;
 
 import java.util.List;
@@ -39,6 +40,13 @@ public sealed interface PageCommand {
         }
     }
 
+    record ExtractProperties(int descriptor, List<ExtractPropertyRequest> requests) implements PageCommand {
+        @Override
+        public void accept(RemoteOut remoteOut) {
+            remoteOut.extractProperties(descriptor, requests);
+        }
+    }
+
     record ModifyDom(List<DefaultDomChangesContext.DomChange> domChanges) implements PageCommand {
         @Override
         public void accept(RemoteOut remoteOut) {
@@ -1,16 +1,34 @@
 package rsp.page;
 
+/**
+ * The client's configuration script of a live page.
+ * @param renderHistorySize the number of the last renders which events are still dispatched by the page's render fence,
+ *                          the client keeps the data of the events of these renders
+ */
 public record PageConfigScript(String sessionId,
                                String path,
                                String connectionLostWidgetHtml,
-                               int heartBeatInterval) {
+                               int heartBeatInterval,
+                               boolean batchDomUpdates,
+                               int renderHistorySize) {
+
+    public PageConfigScript(final String sessionId,
+                            final String path,
+                            final String connectionLostWidgetHtml,
+                            final int heartBeatInterval,
+                            final boolean batchDomUpdates) {
+        this(sessionId, path, connectionLostWidgetHtml, heartBeatInterval, batchDomUpdates, RenderFence.DEFAULT_HISTORY_SIZE);
+    }
+
     @Override
     public String toString() {
         return "window['kfg']={"
                 + "sid:'" + sessionId + "',"
                 + "r:'" + path + "',"
                 + "clw:'" + connectionLostWidgetHtml + "',"
-                + "heartbeatInterval:" + heartBeatInterval
+                + "heartbeatInterval:" + heartBeatInterval + ","
+                + "batchDomUpdates:" + batchDomUpdates + ","
+                + "renderHistorySize:" + renderHistorySize
                 + "}";
     }
 }
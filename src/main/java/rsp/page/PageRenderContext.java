@@ -1,21 +1,30 @@
 package rsp.page;
 
 import rsp.component.ComponentRenderContext;
+import rsp.component.PageIndex;
+import rsp.component.StateResolution;
+import rsp.dom.HtmlBuilder;
+import rsp.dom.Node;
+import rsp.dom.Tag;
 import rsp.dom.TreePositionPath;
 import rsp.dom.XmlNs;
 import rsp.server.RemoteOut;
 import rsp.server.http.PageStateOrigin;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
 public final class PageRenderContext extends ComponentRenderContext {
 
     private final String pageConfigScript;
+    private final String clientScriptUrl;
 
     private int statusCode;
     private Map<String, String> headers;
     private boolean headWasOpened;
+    private boolean isStaticPage;
+    private int clientScriptsIndex = -1;
 
     public PageRenderContext(final QualifiedSessionId sessionId,
                              final String pageConfigScript,
@@ -23,12 +32,95 @@ public final class PageRenderContext extends ComponentRenderContext {
                              final PageStateOrigin httpStateOriginSupplier,
                              final RemoteOut remotePageMessagesOut,
                              final Object sessionLock) {
+        this(sessionId,
+             pageConfigScript,
+             PageRendering.CLIENT_SCRIPT_PATH.toString(),
+             rootDomPath,
+             httpStateOriginSupplier,
+             remotePageMessagesOut,
+             sessionLock);
+    }
+
+    public PageRenderContext(final QualifiedSessionId sessionId,
+                             final String pageConfigScript,
+                             final String clientScriptUrl,
+                             final TreePositionPath rootDomPath,
+                             final PageStateOrigin httpStateOriginSupplier,
+                             final RemoteOut remotePageMessagesOut,
+                             final Object sessionLock) {
+        this(sessionId,
+             pageConfigScript,
+             clientScriptUrl,
+             rootDomPath,
+             httpStateOriginSupplier,
+             remotePageMessagesOut,
+             sessionLock,
+             new StateResolution(0));
+    }
+
+    public PageRenderContext(final QualifiedSessionId sessionId,
+                             final String pageConfigScript,
+                             final String clientScriptUrl,
+                             final TreePositionPath rootDomPath,
+                             final PageStateOrigin httpStateOriginSupplier,
+                             final RemoteOut remotePageMessagesOut,
+                             final Object sessionLock,
+                             final StateResolution stateResolution) {
+        this(sessionId,
+             pageConfigScript,
+             clientScriptUrl,
+             rootDomPath,
+             httpStateOriginSupplier,
+             remotePageMessagesOut,
+             sessionLock,
+             stateResolution,
+             false);
+    }
+
+    public PageRenderContext(final QualifiedSessionId sessionId,
+                             final String pageConfigScript,
+                             final String clientScriptUrl,
+                             final TreePositionPath rootDomPath,
+                             final PageStateOrigin httpStateOriginSupplier,
+                             final RemoteOut remotePageMessagesOut,
+                             final Object sessionLock,
+                             final StateResolution stateResolution,
+                             final boolean packRenderedNodes) {
+        this(sessionId,
+             pageConfigScript,
+             clientScriptUrl,
+             rootDomPath,
+             httpStateOriginSupplier,
+             remotePageMessagesOut,
+             sessionLock,
+             new LinkedHashMap<>(),
+             stateResolution,
+             new PageIndex(),
+             packRenderedNodes);
+    }
+
+    private PageRenderContext(final QualifiedSessionId sessionId,
+                              final String pageConfigScript,
+                              final String clientScriptUrl,
+                              final TreePositionPath rootDomPath,
+                              final PageStateOrigin httpStateOriginSupplier,
+                              final RemoteOut remotePageMessagesOut,
+                              final Object sessionLock,
+                              final Map<Object, Runnable> sessionShutdownHooks,
+                              final StateResolution stateResolution,
+                              final PageIndex pageIndex,
+                              final boolean packRenderedNodes) {
         super(sessionId,
               rootDomPath,
               httpStateOriginSupplier,
               remotePageMessagesOut,
-              sessionLock);
+              sessionLock,
+              sessionShutdownHooks,
+              stateResolution,
+              pageIndex,
+              packRenderedNodes);
         this.pageConfigScript = Objects.requireNonNull(pageConfigScript);
+        this.clientScriptUrl = Objects.requireNonNull(clientScriptUrl);
     }
 
     public int statusCode() {
@@ -47,6 +139,71 @@ public final class PageRenderContext extends ComponentRenderContext {
         this.headers = headers;
     }
 
+    /**
+     * Checks if the page is a static page, which is served as plain HTML without a live session.
+     * A page with a plain head, i.e. rendered without the client script, is a static page.
+     * @return true for a static page
+     */
+    public boolean isStaticPage() {
+        return isStaticPage;
+    }
+
+    /**
+     * Checks if the rendered page has no events handlers and no elements references,
+     * so no browser's input can reach the page's components.
+     * @return true if the page does not need to be connected
+     */
+    public boolean hasNoLiveElements() {
+        return pageIndex.eventsCount() == 0 && pageIndex.refsCount() == 0;
+    }
+
+    /**
+     * Provides the page's HTML without the client script, for serving the page as a static page.
+     * The client script tags are left out of the head tag's children when the HTML is built.
+     * @return the HTML
+     */
+    public String staticHtml() {
+        if (clientScriptsIndex < 0) {
+            return html();
+        }
+        final StringBuilder sb = new StringBuilder();
+        if (docType() != null) {
+            sb.append(docType());
+        }
+        final HtmlBuilder hb = new HtmlBuilder(sb);
+        for (final Node node : rootNodes()) {
+            hb.buildHtml(node instanceof Tag tag && tag.name.equals("html") ? withoutClientScripts(tag) : node);
+        }
+        return hb.toString();
+    }
+
+    private Tag withoutClientScripts(final Tag htmlTag) {
+        final Tag htmlTagCopy = shallowCopy(htmlTag);
+        boolean headFound = false;
+        for (final Node child : htmlTag.children) {
+            if (!headFound && child instanceof Tag headTag && headTag.name.equals("head")) {
+                headFound = true;
+                final Tag headTagCopy = shallowCopy(headTag);
+                for (int i = 0; i < headTag.children.size(); i++) {
+                    if (i != clientScriptsIndex && i != clientScriptsIndex + 1) {
+                        headTagCopy.addChild(headTag.children.get(i));
+                    }
+                }
+                htmlTagCopy.addChild(headTagCopy);
+            } else {
+                htmlTagCopy.addChild(child);
+            }
+        }
+        return htmlTagCopy;
+    }
+
+    private static Tag shallowCopy(final Tag tag) {
+        final Tag copy = new Tag(tag.xmlns, tag.name, tag.isSelfClosing);
+        copy.attributes.addAll(tag.attributes);
+        copy.styles.addAll(tag.styles);
+        return copy;
+    }
+
     @Override
     public void openNode(final XmlNs xmlNs, final String name, boolean isSelfClosing) {
         if (!headWasOpened && xmlNs.equals(XmlNs.html) && name.equals("body")) {
@@ -63,19 +220,25 @@ public final class PageRenderContext extends ComponentRenderContext {
 
     @Override
     public void closeNode(final String name, final boolean upgrade) {
-        if (headWasOpened && upgrade && name.equals("head")) {
-            upgradeHeadTag();
+        if (headWasOpened && name.equals("head")) {
+            if (upgrade) {
+                upgradeHeadTag();
+            } else {
+                isStaticPage = true;
+            }
         }
         super.closeNode(name, upgrade);
     }
 
     private void upgradeHeadTag() {
+        // the client scripts are the head's two next children
+        clientScriptsIndex = parentTag().children.size();
         super.openNode(XmlNs.html, "script", false);
         super.addTextNode(pageConfigScript);
         super.closeNode("script", false);
 
         super.openNode(XmlNs.html, "script", false);
-        super.setAttr(XmlNs.html, "src", "/static/rsp-client.min.js", false);
+        super.setAttr(XmlNs.html, "src", clientScriptUrl, false);
         super.setAttr(XmlNs.html, "defer", "defer", true);
         super.closeNode("script", true);
     }
@@ -84,10 +247,15 @@ public final class PageRenderContext extends ComponentRenderContext {
     public ComponentRenderContext newContext(final TreePositionPath startDomPath) {
         return startDomPath.equals(PageRendering.DOCUMENT_DOM_PATH) ? new PageRenderContext(sessionId,
                                                                                             pageConfigScript,
+                                                                                            clientScriptUrl,
                                                                                             startDomPath,
                                                                                             pageStateOrigin,
                                                                                             remotePageMessagesOut,
-                                                                                            sessionLock)
+                                                                                            sessionLock,
+                                                                                            sessionShutdownHooks,
+                                                                                            stateResolution,
+                                                                                            pageIndex,
+                                                                                            packRenderedNodes)
                                                              : super.newContext(startDomPath);
     }
 }
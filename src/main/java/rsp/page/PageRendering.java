@@ -1,13 +1,12 @@
 package rsp.page;
 
+import rsp.AppConfig;
+import rsp.component.StateResolution;
 import rsp.component.StatefulComponentDefinition;
 import rsp.dom.TreePositionPath;
 import rsp.server.http.*;
 import rsp.server.Path;
-import rsp.util.RandomString;
 
-import java.io.IOException;
-import java.net.URL;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -21,83 +20,102 @@ public final class PageRendering<S> {
 
     public static final int KEY_LENGTH = 64;
     public static final String DEVICE_ID_COOKIE_NAME = "deviceId";
-
-    private final RandomString randomStringGenerator = new RandomString(KEY_LENGTH);
+    public static final Path CLIENT_SCRIPT_PATH = Path.of("/static/rsp-client.min.js");
 
     private final Map<QualifiedSessionId, RenderedPage> renderedPages;
     private final StatefulComponentDefinition<S> rootComponentDefinition;
-    private final int heartBeatIntervalMs;
+    private final AppConfig config;
+    private final SessionIdGenerator sessionIdGenerator;
+    private final StateResolution stateResolution;
+    private final StaticResourcesCache staticResources = new StaticResourcesCache(PageRendering.class);
+    private volatile String clientScriptUrl;
 
     public PageRendering(final Map<QualifiedSessionId, RenderedPage> pagesStorage,
                          final StatefulComponentDefinition<S> rootComponentDefinition,
-                         final int heartBeatIntervalMs) {
+                         final AppConfig config,
+                         final SessionIdGenerator sessionIdGenerator,
+                         final StateResolution stateResolution) {
 
         this.renderedPages = Objects.requireNonNull(pagesStorage);
         this.rootComponentDefinition = Objects.requireNonNull(rootComponentDefinition);
-        this.heartBeatIntervalMs = heartBeatIntervalMs;
+        this.config = Objects.requireNonNull(config);
+        this.sessionIdGenerator = Objects.requireNonNull(sessionIdGenerator);
+        this.stateResolution = Objects.requireNonNull(stateResolution);
+    }
+
+    public PageRendering(final Map<QualifiedSessionId, RenderedPage> pagesStorage,
+                         final StatefulComponentDefinition<S> rootComponentDefinition,
+                         final AppConfig config,
+                         final SessionIdGenerator sessionIdGenerator) {
+        this(pagesStorage,
+             rootComponentDefinition,
+             config,
+             sessionIdGenerator,
+             new StateResolution(config.componentStateTimeoutMs()));
+    }
+
+    public PageRendering(final Map<QualifiedSessionId, RenderedPage> pagesStorage,
+                         final StatefulComponentDefinition<S> rootComponentDefinition,
+                         final AppConfig config) {
+        this(pagesStorage, rootComponentDefinition, config, new SessionIdGenerator(KEY_LENGTH));
     }
 
     public CompletableFuture<HttpResponse> httpResponse(final HttpRequest request) {
         if (request.path.endsWith("favicon.ico")) {
             return CompletableFuture.completedFuture(new HttpResponse(404, Collections.emptyList(), "No favicon.ico"));
         } else if (request.path.startsWith("static")) {
-            return CompletableFuture.completedFuture(staticFileResponse(request.path));
+            return CompletableFuture.completedFuture(staticResources.response(request));
         } else {
             return rspResponse(request);
         }
     }
 
-    private HttpResponse staticFileResponse(final Path path) {
-        if (!path.contains("..")) {
-            final URL fileUrl =  this.getClass().getResource(path.toString());
-            if (fileUrl != null) {
-                try {
-                    return new HttpResponse(200,
-                                            Collections.emptyList(),
-                                            fileUrl.openStream());
-                } catch (final IOException e) {
-                    return new HttpResponse(500,
-                                            Collections.emptyList(),
-                                            "Exception on loading a static resource: "
-                                                    + path
-                                                    + " " + e.getMessage());
-                }
-            }
-        }
-        return new HttpResponse(404,
-                                Collections.emptyList(),
-                                "Resource not found: " + path);
-
-    }
-
     private CompletableFuture<HttpResponse> rspResponse(final HttpRequest request) {
         try {
-            final String deviceId = request.cookie(DEVICE_ID_COOKIE_NAME).orElse(randomStringGenerator.newString());
-            final String sessionId = randomStringGenerator.newString();
+            final String deviceId = request.cookie(DEVICE_ID_COOKIE_NAME).orElseGet(sessionIdGenerator::newId);
+            final String sessionId = sessionIdGenerator.newId();
             final QualifiedSessionId pageId = new QualifiedSessionId(deviceId, sessionId);
 
             final PageStateOrigin httpStateOrigin = new PageStateOrigin(request);
+            final TemporaryBufferedPageCommands commandsBuffer = new TemporaryBufferedPageCommands();
             final PageConfigScript pageConfigScript = new PageConfigScript(sessionId,
                                                                           "/",
                                                                            DefaultConnectionLostWidget.HTML,
-                                                                           heartBeatIntervalMs);
+                                                                           config.heartbeatIntervalMs(),
+                                                                           config.batchDomUpdates(),
+                                                                           commandsBuffer.renderFence().historySize());
 
-            final TemporaryBufferedPageCommands commandsBuffer = new TemporaryBufferedPageCommands();
             final Object sessionLock = new Object();
             final PageRenderContext pageRenderContext = new PageRenderContext(pageId,
                                                                               pageConfigScript.toString(),
+                                                                              clientScriptUrl(),
                                                                               DOCUMENT_DOM_PATH,
                                                                               httpStateOrigin,
                                                                               commandsBuffer,
-                                                                              sessionLock);
+                                                                              sessionLock,
+                                                                              stateResolution,
+                                                                              config.packedDom());
 
             rootComponentDefinition.render(pageRenderContext);
+            pageRenderContext.awaitPendingStates();
+
+            if (pageRenderContext.isStaticPage()
+                || config.detectStaticPages() && pageRenderContext.hasNoLiveElements()) {
+                return CompletableFuture.completedFuture(staticPageResponse(pageRenderContext, sessionLock));
+            }
 
             final RenderedPage pageSnapshot = new RenderedPage(pageRenderContext,
                                                                commandsBuffer,
-                                                               sessionLock);
+                                                               sessionLock,
+                                                               rootComponentDefinition);
             renderedPages.put(pageId, pageSnapshot);
-            final String responseBody = pageRenderContext.html();
+            final String responseBody;
+            synchronized (sessionLock) {
+                // a component rendered with its fallback view may be updated concurrently when its state arrives,
+                // until the HTML is built the updates are applied only to the page's tree
+                responseBody = pageRenderContext.html();
+                commandsBuffer.markHtmlSent();
+            }
 
             logger.log(TRACE, () -> "Page body: " + responseBody);
 
@@ -110,6 +128,38 @@ public final class PageRendering<S> {
         }
     }
 
+    /**
+     * Serves a page as plain HTML without retaining it, the page's components are unmounted after its HTML is built.
+     */
+    private HttpResponse staticPageResponse(final PageRenderContext pageRenderContext, final Object sessionLock) {
+        final String responseBody;
+        synchronized (sessionLock) {
+            responseBody = pageRenderContext.staticHtml();
+            pageRenderContext.shutdown();
+            pageRenderContext.runSessionShutdownHooks();
+        }
+        logger.log(TRACE, () -> "Static page body: " + responseBody);
+        return new HttpResponse(pageRenderContext.statusCode(),
+                                staticPageHeaders(pageRenderContext.headers()),
+                                responseBody);
+    }
+
+    private String clientScriptUrl() {
+        if (clientScriptUrl == null) {
+            clientScriptUrl = staticResources.versionedUrl(CLIENT_SCRIPT_PATH);
+        }
+        return clientScriptUrl;
+    }
+
+    private List<Header> staticPageHeaders(final Map<String, String> headers) {
+        final List<Header> resultHeaders = new ArrayList<>();
+        for (final Map.Entry<String, String> entry : headers.entrySet() ) {
+            resultHeaders.add(new Header(entry.getKey(), entry.getValue()));
+        }
+        resultHeaders.add(new Header("content-type", "text/html; charset=utf-8"));
+        return resultHeaders;
+    }
+
     private List<Header> headers(final Map<String, String> headers, final String deviceId) {
         final List<Header> resultHeaders = new ArrayList<>();
         for (final Map.Entry<String, String> entry : headers.entrySet() ) {
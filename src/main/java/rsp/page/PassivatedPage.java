@@ -0,0 +1,45 @@
+package rsp.page;
+
+import rsp.component.ComponentCompositeKey;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A passivated live page's data.
+ * @param states the components states by their keys
+ * @param htmlDigest the hex encoded SHA-256 digest of the page's HTML at the moment of passivation
+ */
+public record PassivatedPage(Map<ComponentCompositeKey, Object> states, String htmlDigest) {
+    public PassivatedPage {
+        Objects.requireNonNull(states);
+        Objects.requireNonNull(htmlDigest);
+    }
+
+    /**
+     * Calculates the digest of a page's HTML.
+     * @param html the page's HTML, must not be null
+     * @return the hex encoded SHA-256 digest of the HTML's UTF-8 bytes
+     */
+    public static String htmlDigest(final String html) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(html.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Checks if a page's HTML is the same as the passivated page's one.
+     * @param html the HTML to check, must not be null
+     * @return true if the HTML's digest equals to the passivated page's HTML digest
+     */
+    public boolean isSameHtml(final String html) {
+        return htmlDigest.equals(htmlDigest(html));
+    }
+}
@@ -0,0 +1,28 @@
+package rsp.page;
+
+import java.util.Optional;
+
+/**
+ * A storage for the data of passivated live pages.
+ * Implementations must be thread-safe.
+ * The methods are called while the page's lock is held, so a blocking call, like a disk write or read,
+ * blocks the page's events and renders for its duration.
+ * An implementation should not hold a lock shared by all the pages during slow I/O,
+ * otherwise one slow call stalls the passivation and activation of every page.
+ */
+public interface PassivatedPagesStore {
+
+    /**
+     * Saves a passivated page's data.
+     * @param sessionId the page's session identifier, must not be null
+     * @param page the page's data, must not be null
+     */
+    void put(QualifiedSessionId sessionId, PassivatedPage page);
+
+    /**
+     * Removes a passivated page's data from the store.
+     * @param sessionId the page's session identifier, must not be null
+     * @return the page's data or an empty result if there is no data for the page
+     */
+    Optional<PassivatedPage> remove(QualifiedSessionId sessionId);
+}
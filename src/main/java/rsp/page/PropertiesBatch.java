@@ -0,0 +1,90 @@
+package rsp.page;
+
+import rsp.dom.TreePositionPath;
+import rsp.ref.ElementRef;
+import rsp.ref.Ref;
+import rsp.server.ExtractPropertyRequest;
+import rsp.util.json.JsonDataType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A builder of a batched read of a number of DOM elements properties.
+ * All the properties are requested in one message and the browser responds with all their values in one message.
+ */
+public final class PropertiesBatch {
+    private final Function<Ref, TreePositionPath> refResolver;
+    private final BiFunction<List<ExtractPropertyRequest>, Integer, CompletableFuture<JsonDataType>> propertiesExtraction;
+    private final int defaultTimeoutMs;
+    private final List<ExtractPropertyRequest> requests = new ArrayList<>();
+
+    /**
+     * Creates a new instance of a properties batch.
+     * @param refResolver the function resolving an element's reference to its path, returning null for an unknown reference,
+     *                    must not be null
+     * @param propertiesExtraction the function sending the batch's requests with the provided timeout in milliseconds
+     *                             and returning the future of the values array, must not be null
+     * @param defaultTimeoutMs the default response timeout, zero disables the timeout
+     */
+    public PropertiesBatch(final Function<Ref, TreePositionPath> refResolver,
+                           final BiFunction<List<ExtractPropertyRequest>, Integer, CompletableFuture<JsonDataType>> propertiesExtraction,
+                           final int defaultTimeoutMs) {
+        this.refResolver = Objects.requireNonNull(refResolver);
+        this.propertiesExtraction = Objects.requireNonNull(propertiesExtraction);
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    /**
+     * Adds a property to read.
+     * @param ref a reference to an element, must not be null
+     * @param propertyName a property name, must not be null
+     * @return this batch
+     */
+    public PropertiesBatch add(final ElementRef ref, final String propertyName) {
+        final TreePositionPath path = refResolver.apply(Objects.requireNonNull(ref));
+        if (path == null) {
+            throw new IllegalStateException("Ref not found: " + ref);
+        }
+        requests.add(new ExtractPropertyRequest(path, propertyName));
+        return this;
+    }
+
+    /**
+     * Reads all the added properties.
+     * @return the future of the properties values in the order they were added,
+     *         a missing property's value is {@link JsonDataType.Null}
+     */
+    public CompletableFuture<List<JsonDataType>> get() {
+        return get(defaultTimeoutMs);
+    }
+
+    /**
+     * Reads all the added properties with the provided response deadline.
+     * @param timeoutMs the response timeout, the result completes with a {@link java.util.concurrent.TimeoutException}
+     *                  if the browser does not respond in time, zero disables the timeout
+     * @return the future of the properties values in the order they were added,
+     *         a missing property's value is {@link JsonDataType.Null}
+     */
+    public CompletableFuture<List<JsonDataType>> get(final int timeoutMs) {
+        if (requests.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        final int size = requests.size();
+        return propertiesExtraction.apply(List.copyOf(requests), timeoutMs).thenApply(values -> {
+            final JsonDataType.Array array = values.asJsonArray();
+            if (array.size() != size) {
+                throw new IllegalStateException("Expected " + size + " properties values, received: " + array.size());
+            }
+            final List<JsonDataType> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(array.get(i));
+            }
+            return result;
+        });
+    }
+}
@@ -7,25 +7,32 @@ import rsp.server.RemoteOut;
 import rsp.util.json.JsonDataType;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
-import java.util.function.Supplier;
+import java.util.function.BiFunction;
 
 public final class PropertiesHandle {
     private final TreePositionPath path;
-    private final Supplier<Integer> descriptorSupplier;
-    private final Map<Integer, CompletableFuture<JsonDataType>> registeredEventHandlers;
+    private final BiFunction<String, Integer, CompletableFuture<JsonDataType>> propertyExtraction;
+    private final int defaultTimeoutMs;
     private final RemoteOut remoteOut;
 
+    /**
+     * Creates a new instance of an element's properties handle.
+     * @param path the element's path, must not be null
+     * @param propertyExtraction the function sending a property read request with the provided timeout in milliseconds
+     *                           and returning the response's future, must not be null
+     * @param defaultTimeoutMs the default response timeout, zero disables the timeout
+     * @param remoteOut the page's outbound messages channel, must not be null
+     */
     public PropertiesHandle(final TreePositionPath path,
-                            final Supplier<Integer> descriptorSupplier,
-                            final Map<Integer, CompletableFuture<JsonDataType>> registeredEventHandlers,
+                            final BiFunction<String, Integer, CompletableFuture<JsonDataType>> propertyExtraction,
+                            final int defaultTimeoutMs,
                             final RemoteOut remoteOut) {
         this.path = Objects.requireNonNull(path);
-        this.descriptorSupplier = Objects.requireNonNull(descriptorSupplier);
-        this.registeredEventHandlers = Objects.requireNonNull(registeredEventHandlers);
+        this.propertyExtraction = Objects.requireNonNull(propertyExtraction);
+        this.defaultTimeoutMs = defaultTimeoutMs;
         this.remoteOut = Objects.requireNonNull(remoteOut);
     }
 
@@ -35,11 +42,18 @@ public final class PropertiesHandle {
      * @return CompletableFuture of the JSON data type
      */
     public CompletableFuture<JsonDataType> get(final String propertyName) {
-        final Integer newDescriptor = descriptorSupplier.get();
-        final CompletableFuture<JsonDataType> valueFuture = new CompletableFuture<>();
-        registeredEventHandlers.put(newDescriptor, valueFuture);
-        remoteOut.extractProperty(newDescriptor, path, propertyName);
-        return valueFuture;
+        return get(propertyName, defaultTimeoutMs);
+    }
+
+    /**
+     * Reads a property of a DOM element with the provided response deadline.
+     * @param propertyName a property name
+     * @param timeoutMs the response timeout, the result completes with a {@link java.util.concurrent.TimeoutException}
+     *                  if the browser does not respond in time, zero disables the timeout
+     * @return CompletableFuture of the JSON data type
+     */
+    public CompletableFuture<JsonDataType> get(final String propertyName, final int timeoutMs) {
+        return propertyExtraction.apply(propertyName, timeoutMs);
     }
 
     public CompletionStage<String> getString(final String propertyName) {
@@ -0,0 +1,130 @@
+package rsp.page;
+
+import rsp.dom.DefaultDomChangesContext;
+import rsp.dom.TreePositionPath;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A page's render numbers counter.
+ * Every DOM modification batch sent to a browser starts a new render, the browser tags its DOM events
+ * with the number of the last render it has applied.
+ * The fence keeps the paths of the elements removed or replaced during the last renders,
+ * so an event from an element which is no longer in the page is recognized as stale before it is dispatched.
+ */
+public final class RenderFence {
+    /**
+     * The default number of the last renders with their structural changes kept.
+     */
+    public static final int DEFAULT_HISTORY_SIZE = 32;
+
+    private final int historySize;
+    private final Deque<TreePositionPath[]> history = new ArrayDeque<>();
+
+    private int renderNumber;
+    private long droppedEventsCount;
+
+    /**
+     * Creates a new instance of a render fence.
+     * @param historySize the maximum number of the last renders kept, an event older than that is considered stale
+     */
+    public RenderFence(final int historySize) {
+        if (historySize < 1) {
+            throw new IllegalArgumentException("History size expected to be a positive number: " + historySize);
+        }
+        this.historySize = historySize;
+    }
+
+    public RenderFence() {
+        this(DEFAULT_HISTORY_SIZE);
+    }
+
+    /**
+     * Starts a new render.
+     * @param domChanges the render's DOM modifications, must not be null
+     * @return the new render's number
+     */
+    public synchronized int advance(final List<DefaultDomChangesContext.DomChange> domChanges) {
+        history.addLast(structuralChangesPaths(domChanges));
+        if (history.size() > historySize) {
+            history.removeFirst();
+        }
+        return ++renderNumber;
+    }
+
+    /**
+     * The number of the last renders kept, an event of an older render is stale.
+     * @return the history size
+     */
+    public int historySize() {
+        return historySize;
+    }
+
+    /**
+     * The number of the last render.
+     * @return the current render number, zero for the initial page's HTML
+     */
+    public synchronized int renderNumber() {
+        return renderNumber;
+    }
+
+    /**
+     * Checks an incoming event against the renders happened after the event's render.
+     * The event is stale if its target element or one of the element's ancestors was removed or replaced since then.
+     * A stale event is counted as dropped.
+     * @param eventRenderNumber the number of the render the browser had applied when the event occurred
+     * @param eventPath the event's target element path, must not be null
+     * @return true if the event should be discarded
+     */
+    public synchronized boolean isStale(final int eventRenderNumber, final TreePositionPath eventPath) {
+        if (eventRenderNumber >= renderNumber) {
+            return false;
+        }
+        final int laterRenders = renderNumber - eventRenderNumber;
+        if (laterRenders > history.size()) {
+            droppedEventsCount++;
+            return true;
+        }
+        final var renders = history.descendingIterator();
+        for (int i = 0; i < laterRenders; i++) {
+            for (final TreePositionPath changedPath : renders.next()) {
+                if (eventPath.startsWith(changedPath)) {
+                    droppedEventsCount++;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The number of the events discarded as stale.
+     * @return the dropped events count
+     */
+    public synchronized long droppedEventsCount() {
+        return droppedEventsCount;
+    }
+
+    private static TreePositionPath[] structuralChangesPaths(final List<DefaultDomChangesContext.DomChange> domChanges) {
+        final List<TreePositionPath> paths = new ArrayList<>();
+        for (final DefaultDomChangesContext.DomChange domChange : domChanges) {
+            if (domChange instanceof DefaultDomChangesContext.Remove remove) {
+                paths.add(remove.path);
+            } else if (domChange instanceof DefaultDomChangesContext.Create create) {
+                paths.add(create.path);
+            } else if (domChange instanceof DefaultDomChangesContext.InsertHtml insertHtml) {
+                paths.add(insertHtml.path);
+            } else if (domChange instanceof DefaultDomChangesContext.RemoveNodes removeNodes) {
+                TreePositionPath path = removeNodes.fromPath;
+                for (int i = 0; i < removeNodes.count; i++) {
+                    paths.add(path);
+                    path = path.incSibling();
+                }
+            }
+        }
+        return paths.toArray(TreePositionPath[]::new);
+    }
+}
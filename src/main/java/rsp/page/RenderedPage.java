@@ -1,18 +1,23 @@
 package rsp.page;
 
+import rsp.html.SegmentDefinition;
+
 import java.util.Objects;
 
 public final class RenderedPage {  // TODO
     public final PageRenderContext pageRenderContext;
     public final TemporaryBufferedPageCommands commandsBuffer;
     public final Object sessionLock;
+    public final SegmentDefinition rootDefinition;
 
     public RenderedPage(final PageRenderContext pageRenderContext,
                         final TemporaryBufferedPageCommands commandsBuffer,
-                        final Object sessionLock) {
+                        final Object sessionLock,
+                        final SegmentDefinition rootDefinition) {
 
         this.pageRenderContext = Objects.requireNonNull(pageRenderContext);
         this.commandsBuffer = Objects.requireNonNull(commandsBuffer);
         this.sessionLock = Objects.requireNonNull(sessionLock);
+        this.rootDefinition = Objects.requireNonNull(rootDefinition);
     }
 }
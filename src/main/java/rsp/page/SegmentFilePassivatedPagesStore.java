@@ -0,0 +1,390 @@
+package rsp.page;
+
+import rsp.component.ComponentCompositeKey;
+import rsp.dom.TreePositionPath;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.lang.System.Logger.Level.*;
+
+/**
+ * A store which keeps passivated pages on the heap within a budget and spills the oldest ones to local disk.
+ * Pages are kept in a compact binary form: the components types and states are serialized
+ * with Java serialization, a page with a not serializable component type or state stays on the heap.
+ * Spilled pages are appended to segment files, an in-memory index points to their positions.
+ * A segment with a small share of live records is compacted in background.
+ * The files are kept in a new private directory of the store, which is deleted on {@link #close()}.
+ * A page is serialized, read from its segment and deserialized outside of the store's lock,
+ * only the spilling of the pages over the heap budget writes to disk under the lock.
+ */
+public final class SegmentFilePassivatedPagesStore implements PassivatedPagesStore, AutoCloseable {
+    private static final System.Logger logger = System.getLogger(SegmentFilePassivatedPagesStore.class.getName());
+
+    public static final long DEFAULT_SEGMENT_SIZE_BYTES = 64L * 1024 * 1024;
+
+    private static final String DIRECTORY_PREFIX = "rsp-pages-";
+    private static final String SEGMENT_FILE_PREFIX = "pages-";
+    private static final String SEGMENT_FILE_SUFFIX = ".seg";
+    private static final double COMPACTION_LIVE_RATIO = 0.5;
+
+    private final Path directory;
+    private final long heapBudgetBytes;
+    private final long segmentSizeBytes;
+    private final Executor compactionExecutor;
+
+    private final LinkedHashMap<QualifiedSessionId, HeapEntry> heap = new LinkedHashMap<>();
+    private final Map<QualifiedSessionId, Location> index = new HashMap<>();
+    private final Map<Integer, Segment> segments = new HashMap<>();
+    private long heapBytes;
+    private Segment activeSegment;
+    private int nextSegmentId;
+    private boolean isCompactionScheduled;
+
+    /**
+     * Creates a new store.
+     * @param parentDirectory the directory where the store's directory for the segment files is created,
+     *                        created if not exists, must not be null
+     * @param heapBudgetBytes the maximum size of the serialized pages kept on the heap
+     * @param segmentSizeBytes the size of a segment file after which a new segment is started
+     * @param compactionExecutor the executor for the background compaction, must not be null
+     */
+    public SegmentFilePassivatedPagesStore(final Path parentDirectory,
+                                           final long heapBudgetBytes,
+                                           final long segmentSizeBytes,
+                                           final Executor compactionExecutor) {
+        Objects.requireNonNull(parentDirectory);
+        if (heapBudgetBytes < 0) {
+            throw new IllegalArgumentException("Heap budget expected to be a non-negative number: " + heapBudgetBytes);
+        }
+        if (segmentSizeBytes <= 0) {
+            throw new IllegalArgumentException("Segment size expected to be a positive number: " + segmentSizeBytes);
+        }
+        this.heapBudgetBytes = heapBudgetBytes;
+        this.segmentSizeBytes = segmentSizeBytes;
+        this.compactionExecutor = Objects.requireNonNull(compactionExecutor);
+        try {
+            Files.createDirectories(parentDirectory);
+            this.directory = Files.createTempDirectory(parentDirectory, DIRECTORY_PREFIX);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a new store with the default segment size and compaction in the common pool.
+     * @param parentDirectory the directory where the store's directory for the segment files is created,
+     *                        created if not exists, must not be null
+     * @param heapBudgetBytes the maximum size of the serialized pages kept on the heap
+     */
+    public SegmentFilePassivatedPagesStore(final Path parentDirectory, final long heapBudgetBytes) {
+        this(parentDirectory, heapBudgetBytes, DEFAULT_SEGMENT_SIZE_BYTES, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public void put(final QualifiedSessionId sessionId, final PassivatedPage page) {
+        Objects.requireNonNull(sessionId);
+        Objects.requireNonNull(page);
+        final byte[] data = serialize(page);
+        synchronized (this) {
+            discard(sessionId);
+            if (data == null) {
+                heap.put(sessionId, new HeapEntry(page, null));
+            } else {
+                heap.put(sessionId, new HeapEntry(null, data));
+                heapBytes += data.length;
+                spill();
+            }
+        }
+    }
+
+    @Override
+    public Optional<PassivatedPage> remove(final QualifiedSessionId sessionId) {
+        Objects.requireNonNull(sessionId);
+        final HeapEntry heapEntry;
+        final Segment segment;
+        final Location location;
+        synchronized (this) {
+            heapEntry = heap.remove(sessionId);
+            if (heapEntry != null) {
+                if (heapEntry.data == null) {
+                    return Optional.of(heapEntry.page);
+                }
+                heapBytes -= heapEntry.data.length;
+                segment = null;
+                location = null;
+            } else {
+                location = index.remove(sessionId);
+                if (location == null) {
+                    return Optional.empty();
+                }
+                segment = segments.get(location.segmentId);
+                // the segment is kept until the read is done
+                segment.pendingReads++;
+            }
+        }
+        if (heapEntry != null) {
+            return Optional.of(deserialize(sessionId, heapEntry.data));
+        }
+        try {
+            return Optional.of(deserialize(sessionId, segment.read(location)));
+        } catch (final IOException e) {
+            logger.log(ERROR, "Passivated page read failed: " + sessionId, e);
+            return Optional.empty();
+        } finally {
+            synchronized (this) {
+                segment.pendingReads--;
+                release(segment, location);
+            }
+        }
+    }
+
+    /**
+     * The number of pages kept on the heap.
+     * @return the count of pages on the heap
+     */
+    public synchronized int heapPagesCount() {
+        return heap.size();
+    }
+
+    /**
+     * The number of pages spilled to disk.
+     * @return the count of pages on disk
+     */
+    public synchronized int diskPagesCount() {
+        return index.size();
+    }
+
+    /**
+     * The number of segment files.
+     * @return the count of segments
+     */
+    public synchronized int segmentsCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        for (final Segment segment : segments.values()) {
+            segment.delete();
+        }
+        segments.clear();
+        index.clear();
+        heap.clear();
+        heapBytes = 0;
+        activeSegment = null;
+        try {
+            Files.deleteIfExists(directory);
+        } catch (final IOException e) {
+            logger.log(WARNING, "Segments directory delete failed: " + directory, e);
+        }
+    }
+
+    /**
+     * The store's directory for the segment files.
+     * @return the directory path
+     */
+    public Path directory() {
+        return directory;
+    }
+
+    private void discard(final QualifiedSessionId sessionId) {
+        final HeapEntry heapEntry = heap.remove(sessionId);
+        if (heapEntry != null && heapEntry.data != null) {
+            heapBytes -= heapEntry.data.length;
+        }
+        final Location location = index.remove(sessionId);
+        if (location != null) {
+            release(segments.get(location.segmentId), location);
+        }
+    }
+
+    private void spill() {
+        final Iterator<Map.Entry<QualifiedSessionId, HeapEntry>> entries = heap.entrySet().iterator();
+        while (heapBytes > heapBudgetBytes && entries.hasNext()) {
+            final Map.Entry<QualifiedSessionId, HeapEntry> entry = entries.next();
+            final byte[] data = entry.getValue().data;
+            if (data == null) {
+                continue;
+            }
+            try {
+                index.put(entry.getKey(), append(data));
+                entries.remove();
+                heapBytes -= data.length;
+            } catch (final IOException e) {
+                logger.log(ERROR, "Passivated page spill failed: " + entry.getKey(), e);
+                return;
+            }
+        }
+    }
+
+    private Location append(final byte[] data) throws IOException {
+        if (activeSegment == null || activeSegment.size >= segmentSizeBytes) {
+            final Segment retiredSegment = activeSegment;
+            activeSegment = new Segment(nextSegmentId++, directory);
+            segments.put(activeSegment.id, activeSegment);
+            if (retiredSegment != null) {
+                // the records of a segment could be released while it was active
+                reclaim(retiredSegment);
+            }
+        }
+        return activeSegment.append(data);
+    }
+
+    private void release(final Segment segment, final Location location) {
+        segment.liveBytes -= location.length;
+        reclaim(segment);
+    }
+
+    private void reclaim(final Segment segment) {
+        if (segment == activeSegment || segment.pendingReads > 0) {
+            return;
+        }
+        if (segment.liveBytes == 0) {
+            segments.remove(segment.id);
+            segment.delete();
+        } else if (segment.liveBytes < segment.size * COMPACTION_LIVE_RATIO && !isCompactionScheduled) {
+            isCompactionScheduled = true;
+            CompletableFuture.runAsync(this::compact, compactionExecutor);
+        }
+    }
+
+    private synchronized void compact() {
+        isCompactionScheduled = false;
+        for (final Segment segment : new ArrayList<>(segments.values())) {
+            if (segment == activeSegment
+                || segment.pendingReads > 0
+                || segment.liveBytes >= segment.size * COMPACTION_LIVE_RATIO) {
+                continue;
+            }
+            try {
+                final List<Map.Entry<QualifiedSessionId, Location>> live = new ArrayList<>();
+                for (final Map.Entry<QualifiedSessionId, Location> entry : index.entrySet()) {
+                    if (entry.getValue().segmentId == segment.id) {
+                        live.add(entry);
+                    }
+                }
+                for (final Map.Entry<QualifiedSessionId, Location> entry : live) {
+                    index.put(entry.getKey(), append(segment.read(entry.getValue())));
+                }
+                segments.remove(segment.id);
+                segment.delete();
+                logger.log(DEBUG, () -> "Segment compacted: " + segment.file + ", moved records: " + live.size());
+            } catch (final IOException e) {
+                logger.log(ERROR, "Segment compaction failed: " + segment.file, e);
+            }
+        }
+    }
+
+    static byte[] serialize(final PassivatedPage page) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeUTF(page.htmlDigest());
+            out.writeInt(page.states().size());
+            for (final Map.Entry<ComponentCompositeKey, Object> entry : page.states().entrySet()) {
+                out.writeObject(entry.getKey().componentType());
+                out.writeUTF(entry.getKey().componentPath().toString());
+                out.writeObject(entry.getValue());
+            }
+        } catch (final NotSerializableException e) {
+            logger.log(DEBUG, () -> "Passivated page is not serializable, kept on the heap: " + e.getMessage());
+            return null;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static PassivatedPage deserialize(final QualifiedSessionId sessionId, final byte[] data) {
+        try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            final String htmlDigest = in.readUTF();
+            final int size = in.readInt();
+            final Map<ComponentCompositeKey, Object> states = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                final Object componentType = in.readObject();
+                final TreePositionPath componentPath = TreePositionPath.of(in.readUTF());
+                states.put(new ComponentCompositeKey(sessionId, componentType, componentPath), in.readObject());
+            }
+            return new PassivatedPage(states, htmlDigest);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record HeapEntry(PassivatedPage page, byte[] data) {
+    }
+
+    private record Location(int segmentId, long offset, int length) {
+    }
+
+    private static final class Segment {
+        final int id;
+        final Path file;
+        final FileChannel channel;
+        long size;
+        long liveBytes;
+        int pendingReads;
+
+        Segment(final int id, final Path directory) throws IOException {
+            this.id = id;
+            this.file = directory.resolve(SEGMENT_FILE_PREFIX + id + SEGMENT_FILE_SUFFIX);
+            this.channel = FileChannel.open(file,
+                                            StandardOpenOption.CREATE_NEW,
+                                            StandardOpenOption.READ,
+                                            StandardOpenOption.WRITE);
+        }
+
+        Location append(final byte[] data) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(data);
+            final long offset = size;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            size += data.length;
+            liveBytes += data.length;
+            return new Location(id, offset, data.length);
+        }
+
+        byte[] read(final Location location) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(location.length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, location.offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of segment " + file);
+                }
+            }
+            return buffer.array();
+        }
+
+        void delete() {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (final IOException e) {
+                logger.log(WARNING, "Segment file delete failed: " + file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package rsp.page;
+
+import rsp.util.RandomString;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Generates devices and pages sessions identifiers.
+ * An identifier consists of a random base62 part, optionally prefixed with a creation timestamp and a server node ID,
+ * for example to route a reconnecting browser to the node which keeps its session or to correlate the logs.
+ * The timestamp is followed by '.' and the node ID by '-', so the prefixes are told apart,
+ * and a generated identifier is safe to use in cookies and URLs.
+ * For example: {@code <timestamp>.<node ID>-<random>}.
+ */
+public final class SessionIdGenerator {
+    private static final Pattern NODE_ID_PATTERN = Pattern.compile("^[A-Za-z0-9_]+$");
+    private static final Pattern TIMESTAMPED_ID_PATTERN = Pattern.compile("^[0-9A-Za-z]+\\.([A-Za-z0-9_]+-)?[0-9A-Za-z]+$");
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    private final RandomString randomString;
+    private final int randomLength;
+    private final String nodeId;
+    private final LongSupplier clock;
+
+    /**
+     * Creates a new instance of a generator for identifiers of a random part only.
+     * @param randomLength the length of an identifier's random part
+     */
+    public SessionIdGenerator(final int randomLength) {
+        this(randomLength, null, null);
+    }
+
+    private SessionIdGenerator(final int randomLength, final String nodeId, final LongSupplier clock) {
+        this.randomString = new RandomString(randomLength);
+        this.randomLength = randomLength;
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a copy of this generator which embeds a server node's ID into identifiers.
+     * @param nodeId the node's ID, must consist of letters, digits or '_'
+     * @return a new generator
+     */
+    public SessionIdGenerator withNodeId(final String nodeId) {
+        Objects.requireNonNull(nodeId);
+        if (!NODE_ID_PATTERN.matcher(nodeId).matches()) {
+            throw new IllegalArgumentException("Node ID expected to consist of letters, digits or '_': " + nodeId);
+        }
+        return new SessionIdGenerator(randomLength, nodeId, clock);
+    }
+
+    /**
+     * Creates a copy of this generator which embeds the current time in milliseconds into identifiers.
+     * @return a new generator
+     */
+    public SessionIdGenerator withTimestamp() {
+        return withTimestamp(System::currentTimeMillis);
+    }
+
+    SessionIdGenerator withTimestamp(final LongSupplier clock) {
+        return new SessionIdGenerator(randomLength, nodeId, Objects.requireNonNull(clock));
+    }
+
+    /**
+     * Generates a new identifier.
+     * @return the identifier
+     */
+    public String newId() {
+        final String random = randomString.newString();
+        if (nodeId == null && clock == null) {
+            return random;
+        }
+        final StringBuilder sb = new StringBuilder(random.length() + 32);
+        if (clock != null) {
+            appendBase62(sb, clock.getAsLong());
+            sb.append('.');
+        }
+        if (nodeId != null) {
+            sb.append(nodeId).append('-');
+        }
+        return sb.append(random).toString();
+    }
+
+    /**
+     * Extracts the timestamp embedded into an identifier by a generator configured with {@link #withTimestamp()}.
+     * @param id the identifier, must not be null
+     * @return the Optional with the timestamp in milliseconds or the empty if the identifier has no valid timestamp
+     */
+    public static Optional<Long> timestamp(final String id) {
+        if (!TIMESTAMPED_ID_PATTERN.matcher(Objects.requireNonNull(id)).matches()) {
+            return Optional.empty();
+        }
+        final int end = id.indexOf('.');
+        long result = 0;
+        for (int i = 0; i < end; i++) {
+            final int digit = ALPHABET.indexOf(id.charAt(i));
+            if (digit < 0 || result > (Long.MAX_VALUE - digit) / ALPHABET.length()) {
+                return Optional.empty();
+            }
+            result = result * ALPHABET.length() + digit;
+        }
+        return Optional.of(result);
+    }
+
+    private static void appendBase62(final StringBuilder sb, final long value) {
+        final char[] digits = new char[11];
+        int i = digits.length;
+        long v = Math.max(value, 0);
+        do {
+            digits[--i] = ALPHABET.charAt((int) (v % ALPHABET.length()));
+            v /= ALPHABET.length();
+        } while (v > 0);
+        sb.append(digits, i, digits.length - i);
+    }
+}
@@ -3,17 +3,36 @@ package rsp.page;
 import rsp.dom.DefaultDomChangesContext;
 import rsp.dom.Event;
 import rsp.dom.TreePositionPath;
+import rsp.server.ExtractPropertyRequest;
 import rsp.server.RemoteOut;
 
 import java.util.*;
 
+/**
+ * A page's outbound commands channel.
+ * Queues the commands until the page's connection is established, and numbers the page's renders:
+ * every DOM modification batch is followed by its render number announcement.
+ * The DOM modifications and the events registrations made before the page's HTML is sent are discarded,
+ * as the HTML already contains the changed tree and the connected page registers all its events.
+ */
 public final class TemporaryBufferedPageCommands implements RemoteOut {
 
     private final Queue<PageCommand> queue = new ArrayDeque<>();
+    private final RenderFence renderFence;
 
     private RemoteOut remoteOut;
+    private boolean isHtmlSent;
 
     public TemporaryBufferedPageCommands() {
+        this(new RenderFence());
+    }
+
+    /**
+     * Creates a new instance of a page's commands channel.
+     * @param renderFence the page's render numbers counter, must not be null
+     */
+    public TemporaryBufferedPageCommands(final RenderFence renderFence) {
+        this.renderFence = Objects.requireNonNull(renderFence);
         synchronized (this) {
             this.remoteOut = new RemoteOut() {
                 @Override
@@ -36,6 +55,11 @@ public final class TemporaryBufferedPageCommands implements RemoteOut {
                     queue.add(new PageCommand.ExtractProperty(descriptor, path, name));
                 }
 
+                @Override
+                public void extractProperties(final int descriptor, final List<ExtractPropertyRequest> requests) {
+                    queue.add(new PageCommand.ExtractProperties(descriptor, requests));
+                }
+
                 @Override
                 public void modifyDom(final List<DefaultDomChangesContext.DomChange> domChanges) {
                     queue.add(new PageCommand.ModifyDom(domChanges));
@@ -59,7 +83,23 @@ public final class TemporaryBufferedPageCommands implements RemoteOut {
         }
     }
 
+    /**
+     * The page's render numbers counter.
+     * @return the render fence
+     */
+    public RenderFence renderFence() {
+        return renderFence;
+    }
+
+    /**
+     * Notifies that the page's HTML is built for sending, the later DOM changes are sent to the browser.
+     */
+    public synchronized void markHtmlSent() {
+        isHtmlSent = true;
+    }
+
     public synchronized void redirectMessagesOut(final RemoteOut directRemoteOut) {
+        isHtmlSent = true;
         remoteOut = Objects.requireNonNull(directRemoteOut);
         while (!queue.isEmpty()) {
             final PageCommand command = queue.remove();
@@ -74,11 +114,17 @@ public final class TemporaryBufferedPageCommands implements RemoteOut {
 
     @Override
     public synchronized void listenEvents(final List<Event> events) {
+        if (!isHtmlSent) {
+            return;
+        }
         remoteOut.listenEvents(events);
     }
 
     @Override
     public synchronized void forgetEvent(final String eventType, final TreePositionPath elementPath) {
+        if (!isHtmlSent) {
+            return;
+        }
         remoteOut.forgetEvent(eventType, elementPath);
     }
 
@@ -87,9 +133,20 @@ public final class TemporaryBufferedPageCommands implements RemoteOut {
         remoteOut.extractProperty(descriptor, path, name);
     }
 
+    @Override
+    public synchronized void extractProperties(final int descriptor, final List<ExtractPropertyRequest> requests) {
+        remoteOut.extractProperties(descriptor, requests);
+    }
+
     @Override
     public synchronized void modifyDom(final List<DefaultDomChangesContext.DomChange> domChange) {
+        if (!isHtmlSent) {
+            return;
+        }
         remoteOut.modifyDom(domChange);
+        if (!domChange.isEmpty()) {
+            remoteOut.setRenderNum(renderFence.advance(domChange));
+        }
     }
 
     @Override
@@ -13,11 +13,11 @@ public final class PathPattern {
     public final List<String> patternSegments;
     public final int[] paramsIndexes;
 
-    private final Map<Integer, Pattern> regexes;
+    private final Pattern[] regexes;
 
     private static final Pattern FIND_REGEX = Pattern.compile("\\(.*\\)");
 
-    private PathPattern(final List<String> patternSegments, final int[] paramsIndexes, final Map<Integer, Pattern> regexes) {
+    private PathPattern(final List<String> patternSegments, final int[] paramsIndexes, final Pattern[] regexes) {
         this.patternSegments = patternSegments;
         this.paramsIndexes = paramsIndexes;
         this.regexes = regexes;
@@ -44,7 +44,7 @@ public final class PathPattern {
     private static PathPattern parse(final String pattern) {
         final String[] segments = Arrays.stream(pattern.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
         final List<String> l = new ArrayList<>();
-        final Map<Integer, Pattern> regexMap = new HashMap<>();
+        final Pattern[] regexes = new Pattern[segments.length];
         for (int i = 0; i < segments.length; i++ ) {
             final String segment = segments[i];
             if (isParam(segment)) {
@@ -53,7 +53,7 @@ public final class PathPattern {
                     final String extractedStr = m.group(0);
                     final String r = extractedStr.substring(1, extractedStr.length() - 1);
                     final Pattern p = Pattern.compile(r);
-                    regexMap.put(i, p);
+                    regexes[i] = p;
                     final String paramName = segment.substring(0, segment.indexOf(extractedStr));
                     l.add(paramName);
                     continue;
@@ -61,7 +61,7 @@ public final class PathPattern {
             }
             l.add(segment);
         }
-        return new PathPattern(l, paramsIndexes(l), regexMap);
+        return new PathPattern(l, paramsIndexes(l), regexes);
     }
 
     private static int[] paramsIndexes(final List<String> patternSegments) {
@@ -84,9 +84,7 @@ public final class PathPattern {
 
         int i;
         for(i = 0; i < path.size() && i < patternSegments.size(); i++) {
-            if (!(path.get(i).equals(patternSegments.get(i))
-                    || isWildcard(patternSegments.get(i))
-                    || (isParam(patternSegments.get(i)) && (regexes.get(i) == null || regexes.get(i).matcher(path.get(i)).find())))) {
+            if (!matchSegment(i, path.get(i))) {
                 return false;
             }
         }
@@ -94,11 +92,33 @@ public final class PathPattern {
                 || (path.size() > patternSegments.size() && isWildcard(patternSegments.get(i -1))) ;
     }
 
-    private static boolean isParam(final String str) {
+    /**
+     * Checks if a single componentPath element matches the pattern's segment at the provided position.
+     * @param index the pattern segment's index
+     * @param element the componentPath element
+     * @return true if the element is matching the segment, false otherwise
+     */
+    boolean matchSegment(final int index, final String element) {
+        final String patternSegment = patternSegments.get(index);
+        return element.equals(patternSegment)
+               || isWildcard(patternSegment)
+               || (isParam(patternSegment) && (regexes[index] == null || regexes[index].matcher(element).find()));
+    }
+
+    /**
+     * Gets a parameter's precompiled regular expression.
+     * @param index the pattern segment's index
+     * @return the parameter's regular expression or null if it is not defined
+     */
+    Pattern regex(final int index) {
+        return regexes[index];
+    }
+
+    static boolean isParam(final String str) {
         return str.startsWith(":");
     }
 
-    private static boolean isWildcard(final String str) {
+    static boolean isWildcard(final String str) {
         return str.equals("*");
     }
 }
@@ -0,0 +1,50 @@
+package rsp.routing;
+
+import rsp.server.Path;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A route matching an input's componentPath to a pattern.
+ * Unlike a generic predicate route, its pattern is known to {@link RoutingDsl#concat},
+ * so the sequences of such routes are compiled into a {@link PathPatternTrie}.
+ * @param <T> the input type
+ * @param <S> the result state type, should be an immutable class
+ */
+final class PathPatternRoute<T, S> implements Route<T, S> {
+    final PathPattern pathPattern;
+    final Function<T, Path> pathOf;
+    final Predicate<T> guard;
+    private final Function<T, CompletableFuture<S>> matchFun;
+
+    /**
+     * Creates a new instance of a componentPath pattern route.
+     * @param pathPattern the match componentPath pattern
+     * @param pathOf the function extracting a componentPath from an input,
+     *               the routes sharing the same instance of this function can be compiled together
+     * @param guard an additional match condition checked before the componentPath, e.g. an HTTP method
+     * @param matchFun the function returning the result state as a CompletableFuture
+     */
+    PathPatternRoute(final PathPattern pathPattern,
+                     final Function<T, Path> pathOf,
+                     final Predicate<T> guard,
+                     final Function<T, CompletableFuture<S>> matchFun) {
+        this.pathPattern = Objects.requireNonNull(pathPattern);
+        this.pathOf = Objects.requireNonNull(pathOf);
+        this.guard = Objects.requireNonNull(guard);
+        this.matchFun = Objects.requireNonNull(matchFun);
+    }
+
+    @Override
+    public Optional<CompletableFuture<? extends S>> apply(final T t) {
+        return guard.test(t) && pathPattern.match(pathOf.apply(t)) ? Optional.of(matchFun.apply(t)) : Optional.empty();
+    }
+
+    Optional<CompletableFuture<? extends S>> applyMatched(final T t) {
+        return Optional.of(matchFun.apply(t));
+    }
+}
@@ -0,0 +1,153 @@
+package rsp.routing;
+
+import rsp.server.Path;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * A sequence of componentPath pattern routes compiled into a segments trie.
+ * A trie's node has its literal children in a hash map, the parameter edges with precompiled regular expressions guards
+ * and a wildcard edge, so finding the candidate routes takes the time proportional to an input componentPath's length
+ * rather than to the number of routes.
+ * The candidates are tried in their definition order, so the first matching route wins the same way as
+ * for a linear scan of the routes.
+ * @param <T> the input type
+ * @param <S> the result state type, should be an immutable class
+ */
+final class PathPatternTrie<T, S> implements Route<T, S> {
+    private static final BitSet NO_ROUTES = new BitSet(0);
+
+    private final List<PathPatternRoute<T, S>> routes;
+    private final Function<T, Path> pathOf;
+    private final Node root = new Node();
+    private final BitSet emptyPathRoutes = new BitSet();
+
+    /**
+     * Creates a new trie.
+     * @param routes the routes to compile, all the routes expected to share the same componentPath extraction function
+     */
+    PathPatternTrie(final List<PathPatternRoute<T, S>> routes) {
+        if (routes.isEmpty()) {
+            throw new IllegalArgumentException("At least one route expected");
+        }
+        this.routes = List.copyOf(routes);
+        this.pathOf = this.routes.get(0).pathOf;
+        for (int i = 0; i < this.routes.size(); i++) {
+            final PathPatternRoute<T, S> route = this.routes.get(i);
+            if (route.pathOf != pathOf) {
+                throw new IllegalArgumentException("Routes with different componentPath functions: " + i);
+            }
+            add(i, route.pathPattern);
+        }
+    }
+
+    private void add(final int routeIndex, final PathPattern pathPattern) {
+        final List<String> segments = pathPattern.patternSegments;
+        if (segments.isEmpty() || PathPattern.isWildcard(segments.get(0))) {
+            emptyPathRoutes.set(routeIndex);
+        }
+        Node node = root;
+        for (int i = 0; i < segments.size(); i++) {
+            final String segment = segments.get(i);
+            if (PathPattern.isWildcard(segment)) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else if (PathPattern.isParam(segment)) {
+                node = node.paramChild(pathPattern, i);
+            } else {
+                node = node.literals.computeIfAbsent(segment, k -> new Node());
+            }
+        }
+        if (!segments.isEmpty() && PathPattern.isWildcard(segments.get(segments.size() - 1))) {
+            node.prefixRoutes.set(routeIndex);
+        } else {
+            node.exactRoutes.set(routeIndex);
+        }
+    }
+
+    @Override
+    public Optional<CompletableFuture<? extends S>> apply(final T t) {
+        final BitSet candidates = candidates(pathOf.apply(t));
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            final PathPatternRoute<T, S> route = routes.get(i);
+            if (route.guard.test(t)) {
+                return route.applyMatched(t);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds the routes which patterns match a componentPath, the routes guards are not checked.
+     * @param path the componentPath
+     * @return the indices of the candidate routes in their definition order, the result must not be modified
+     */
+    BitSet candidates(final Path path) {
+        if (path.isEmpty()) {
+            return emptyPathRoutes;
+        } else if (path.size() == 0) {
+            return NO_ROUTES;
+        }
+        final BitSet candidates = new BitSet(routes.size());
+        collect(root, path, 0, candidates);
+        return candidates;
+    }
+
+    private static void collect(final Node node, final Path path, final int depth, final BitSet candidates) {
+        if (depth == path.size()) {
+            candidates.or(node.exactRoutes);
+            return;
+        }
+        final String element = path.get(depth);
+        final Node literal = node.literals.get(element);
+        if (literal != null) {
+            collect(literal, path, depth + 1, candidates);
+        }
+        for (final ParamEdge edge : node.params) {
+            if (edge.match(element)) {
+                collect(edge.child, path, depth + 1, candidates);
+            }
+        }
+        if (node.wildcard != null) {
+            candidates.or(node.wildcard.prefixRoutes);
+            collect(node.wildcard, path, depth + 1, candidates);
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        final List<ParamEdge> params = new ArrayList<>();
+        final BitSet exactRoutes = new BitSet();
+        final BitSet prefixRoutes = new BitSet();
+        Node wildcard;
+
+        Node paramChild(final PathPattern pathPattern, final int segmentIndex) {
+            final String name = pathPattern.patternSegments.get(segmentIndex);
+            final Pattern regex = pathPattern.regex(segmentIndex);
+            for (final ParamEdge edge : params) {
+                if (edge.hasSameRegex(regex) && (regex == null || edge.name.equals(name))) {
+                    return edge.child;
+                }
+            }
+            final ParamEdge edge = new ParamEdge(name, regex, new Node());
+            params.add(edge);
+            return edge.child;
+        }
+    }
+
+    private record ParamEdge(String name, Pattern regex, Node child) {
+        boolean match(final String element) {
+            // a componentPath element equal to the parameter's definition matches it as a literal
+            return regex == null || element.equals(name) || regex.matcher(element).find();
+        }
+
+        boolean hasSameRegex(final Pattern other) {
+            return regex == null ? other == null : other != null && regex.pattern().equals(other.pattern());
+        }
+    }
+}
@@ -4,6 +4,8 @@ import rsp.server.http.HttpRequest;
 import rsp.server.Path;
 import rsp.util.TriFunction;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
@@ -22,6 +24,9 @@ import java.util.function.Predicate;
  */
 public final class RoutingDsl {
 
+    private static final Function<Path, Path> PATH = path -> path;
+    private static final Function<HttpRequest, Path> REQUEST_PATH = request -> request.path;
+
     private RoutingDsl() {}
 
     /**
@@ -38,13 +43,43 @@ public final class RoutingDsl {
 
     /**
      * Concatenates routes.
+     * The routes are tried in order and the first matching route's result is taken.
+     * The adjacent routes created by the componentPath pattern functions like {@link #path(String, CompletableFuture)},
+     * {@link #get(String, Function)} or {@link #post(String, Function)} are compiled into a segments trie,
+     * so their matching time does not grow with the number of routes.
      * @param routeDefinitions routes definitions
      * @param <S> the type of the applications root component's state, should be an immutable class
      * @return the result route definition
      */
     @SafeVarargs
+    @SuppressWarnings("unchecked")
     public static <T, S> Route<T, S> concat(final Route<T, S>... routeDefinitions) {
-        return new ConcatRoutes<>(routeDefinitions);
+        final List<Route<T, S>> routes = new ArrayList<>();
+        final List<PathPatternRoute<T, S>> pathPatternRoutes = new ArrayList<>();
+        for (final Route<T, S> route : routeDefinitions) {
+            if (route instanceof PathPatternRoute<T, S> pathPatternRoute
+                && (pathPatternRoutes.isEmpty() || pathPatternRoutes.get(0).pathOf == pathPatternRoute.pathOf)) {
+                pathPatternRoutes.add(pathPatternRoute);
+            } else {
+                addCompiled(routes, pathPatternRoutes);
+                if (route instanceof PathPatternRoute<T, S> pathPatternRoute) {
+                    pathPatternRoutes.add(pathPatternRoute);
+                } else {
+                    routes.add(route);
+                }
+            }
+        }
+        addCompiled(routes, pathPatternRoutes);
+        return routes.size() == 1 ? routes.get(0) : new ConcatRoutes<>(routes.toArray(Route[]::new));
+    }
+
+    private static <T, S> void addCompiled(final List<Route<T, S>> routes, final List<PathPatternRoute<T, S>> pathPatternRoutes) {
+        if (pathPatternRoutes.size() == 1) {
+            routes.add(pathPatternRoutes.get(0));
+        } else if (pathPatternRoutes.size() > 1) {
+            routes.add(new PathPatternTrie<>(pathPatternRoutes));
+        }
+        pathPatternRoutes.clear();
     }
 
     /**
@@ -58,8 +93,8 @@ public final class RoutingDsl {
      */
     public static <S> Route<Path, S> path(final String pathPattern, final CompletableFuture<S> value) {
         final PathPattern pp = PathPattern.of(pathPattern);
-        return match(pp::match,
-                     new PathMatchFunction<>(pp, (p1, p2) -> value));
+        return new PathPatternRoute<>(pp, PATH, path -> true,
+                                      new PathMatchFunction<>(pp, (p1, p2) -> value));
     }
 
     /**
@@ -74,8 +109,8 @@ public final class RoutingDsl {
      */
     public static <S> Route<Path, S> path(final String pathPattern, final Function<String, CompletableFuture<S>> matchFun) {
         final PathPattern pp = PathPattern.of(pathPattern);
-        return match(pp::match,
-                     new PathMatchFunction<>(pp, (p1, p2) -> matchFun.apply(p1)));
+        return new PathPatternRoute<>(pp, PATH, path -> true,
+                                      new PathMatchFunction<>(pp, (p1, p2) -> matchFun.apply(p1)));
     }
 
     /**
@@ -90,8 +125,8 @@ public final class RoutingDsl {
      */
     public static <S> Route<Path, S> path(final String pathPattern, final BiFunction<String, String, CompletableFuture<S>> matchFun) {
         final PathPattern pp = PathPattern.of(pathPattern);
-        return match(pp::match,
-                     new PathMatchFunction<>(pp, matchFun));
+        return new PathPatternRoute<>(pp, PATH, path -> true,
+                                      new PathMatchFunction<>(pp, matchFun));
     }
 
     /**
@@ -116,8 +151,8 @@ public final class RoutingDsl {
      */
     public static <S> Route<HttpRequest, S> get(final String pathPattern, final Function<HttpRequest, CompletableFuture<S>> matchFun) {
         final PathPattern pp = PathPattern.of(pathPattern);
-        return match(req -> HttpRequest.HttpMethod.GET.equals(req.method) && pp.match(req.path),
-                     new HttpRequestMatchFunction<>(pp, (req, p1, p2) -> matchFun.apply(req)));
+        return new PathPatternRoute<>(pp, REQUEST_PATH, req -> HttpRequest.HttpMethod.GET.equals(req.method),
+                                      new HttpRequestMatchFunction<>(pp, (req, p1, p2) -> matchFun.apply(req)));
     }
 
     /**
@@ -132,8 +167,8 @@ public final class RoutingDsl {
      */
     public static <S> Route<HttpRequest, S> get(final String pathPattern, final BiFunction<HttpRequest, String, CompletableFuture<S>> matchFun) {
         final PathPattern pp = PathPattern.of(pathPattern);
-        return match(req -> HttpRequest.HttpMethod.GET.equals(req.method) && pp.match(req.path),
-                     new HttpRequestMatchFunction<>(pp, (req, p1, p2) -> matchFun.apply(req, p1)));
+        return new PathPatternRoute<>(pp, REQUEST_PATH, req -> HttpRequest.HttpMethod.GET.equals(req.method),
+                                      new HttpRequestMatchFunction<>(pp, (req, p1, p2) -> matchFun.apply(req, p1)));
     }
 
 
@@ -150,8 +185,8 @@ public final class RoutingDsl {
      */
     public static <S> Route<HttpRequest, S> get(final String pathPattern, final TriFunction<HttpRequest, String, String, CompletableFuture<S>> matchFun) {
         final PathPattern pp = PathPattern.of(pathPattern);
-        return match(req -> HttpRequest.HttpMethod.GET.equals(req.method) && pp.match(req.path),
-                     new HttpRequestMatchFunction<>(pp, matchFun));
+        return new PathPatternRoute<>(pp, REQUEST_PATH, req -> HttpRequest.HttpMethod.GET.equals(req.method),
+                                      new HttpRequestMatchFunction<>(pp, matchFun));
     }
 
     /**
@@ -166,8 +201,8 @@ public final class RoutingDsl {
      */
     public static <S> Route<HttpRequest, S> post(final String pathPattern, final Function<HttpRequest, CompletableFuture<S>> matchFun) {
         final PathPattern pp = PathPattern.of(pathPattern);
-        return match(req -> HttpRequest.HttpMethod.POST.equals(req.method) && pp.match(req.path),
-                     new HttpRequestMatchFunction<>(pp, (req, p1, p2) -> matchFun.apply(req)));
+        return new PathPatternRoute<>(pp, REQUEST_PATH, req -> HttpRequest.HttpMethod.POST.equals(req.method),
+                                      new HttpRequestMatchFunction<>(pp, (req, p1, p2) -> matchFun.apply(req)));
     }
 
     /**
@@ -182,8 +217,8 @@ public final class RoutingDsl {
      */
     public static <S> Route<HttpRequest, S> post(final String pathPattern, final BiFunction<String, HttpRequest, CompletableFuture<S>> matchFun) {
         final PathPattern pp = PathPattern.of(pathPattern);
-        return match(req -> HttpRequest.HttpMethod.POST.equals(req.method) && pp.match(req.path),
-                     new HttpRequestMatchFunction<>(pp, (req, p1, p2) -> matchFun.apply(p1, req)));
+        return new PathPatternRoute<>(pp, REQUEST_PATH, req -> HttpRequest.HttpMethod.POST.equals(req.method),
+                                      new HttpRequestMatchFunction<>(pp, (req, p1, p2) -> matchFun.apply(p1, req)));
     }
 
     /**
@@ -198,8 +233,8 @@ public final class RoutingDsl {
      */
     public static <S> Route<HttpRequest, S> post(final String pathPattern, final TriFunction<HttpRequest, String, String, CompletableFuture<S>> matchFun) {
         final PathPattern pp = PathPattern.of(pathPattern);
-        return match(req -> HttpRequest.HttpMethod.POST.equals(req.method) && pp.match(req.path),
-                     new HttpRequestMatchFunction<>(pp, matchFun));
+        return new PathPatternRoute<>(pp, REQUEST_PATH, req -> HttpRequest.HttpMethod.POST.equals(req.method),
+                                      new HttpRequestMatchFunction<>(pp, matchFun));
     }
 
     /**
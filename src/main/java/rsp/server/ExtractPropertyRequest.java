@@ -0,0 +1,17 @@
+package rsp.server;
+
+import rsp.dom.TreePositionPath;
+
+import java.util.Objects;
+
+/**
+ * A request to read a property of a browser's DOM element, a part of a batched properties extraction.
+ * @param path the element's path
+ * @param name the property's name
+ */
+public record ExtractPropertyRequest(TreePositionPath path, String name) {
+    public ExtractPropertyRequest {
+        Objects.requireNonNull(path);
+        Objects.requireNonNull(name);
+    }
+}
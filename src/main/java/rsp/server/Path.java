@@ -10,6 +10,8 @@ import java.util.stream.Stream;
  * A componentPath could be either absolute or relative.
  */
 public final class Path {
+    private static final String[] NO_ELEMENTS = new String[0];
+
     public static final Path EMPTY = Path.of("");
     public static final Path ROOT = Path.of("/");
 
@@ -34,9 +36,30 @@ public final class Path {
     public static Path of(final String pathStr) {
         Objects.requireNonNull(pathStr);
 
-        final String trimmedStr = pathStr.trim();
-        final String[] tokens = Arrays.stream(trimmedStr.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
-        return new Path(trimmedStr.startsWith("/"), tokens);
+        int start = 0;
+        int end = pathStr.length();
+        while (start < end && pathStr.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && pathStr.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        final boolean isAbsolute = start < end && pathStr.charAt(start) == '/';
+        String[] tokens = NO_ELEMENTS;
+        int tokensCount = 0;
+        int tokenStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || pathStr.charAt(i) == '/') {
+                if (i > tokenStart) {
+                    if (tokensCount == tokens.length) {
+                        tokens = Arrays.copyOf(tokens, Math.max(4, tokensCount * 2));
+                    }
+                    tokens[tokensCount++] = pathStr.substring(tokenStart, i);
+                }
+                tokenStart = i + 1;
+            }
+        }
+        return new Path(isAbsolute, tokensCount == tokens.length ? tokens : Arrays.copyOf(tokens, tokensCount));
     }
 
     public boolean isAbsolute() {
@@ -88,7 +111,7 @@ public final class Path {
      * @return true if this componentPath is empty, false otherwise
      */
     public boolean isEmpty() {
-        return EMPTY.equals(this);
+        return !isAbsolute && elements.length == 0;
     }
 
 
@@ -11,6 +11,7 @@ public interface RemoteOut {
     void listenEvents(List<Event> events);
     void forgetEvent(String eventType, TreePositionPath elementPath);
     void extractProperty(int descriptor, TreePositionPath path, String name);
+    void extractProperties(int descriptor, List<ExtractPropertyRequest> requests);
     void modifyDom(List<DefaultDomChangesContext.DomChange> domChange);
     void setHref(String path);
     void pushHistory(String path);
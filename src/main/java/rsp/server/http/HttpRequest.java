@@ -4,7 +4,9 @@ import rsp.page.PageRendering;
 import rsp.server.Path;
 
 import java.net.URI;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
@@ -22,6 +24,8 @@ public final class HttpRequest {
     private final Function<String, Optional<String>> getQueryParam;
     private final Function<String, Optional<String>> getHeader;
 
+    private volatile Map<String, String> cookies;
+
     /**
      * Creates a new instance of an HTTP request.
      * @param method the HTTP verb
@@ -70,12 +74,42 @@ public final class HttpRequest {
      * @return the Optional with the cookie value or the empty
      */
     public Optional<String> cookie(final String cookieName) {
-        return getHeader.apply("Cookie").flatMap(headerValue ->
-                Arrays.stream(headerValue.split(";"))
-                      .map(String::trim)
-                      .map(pairStr -> Arrays.stream(pairStr.split("=")).toArray(String[]::new))
-                      .filter(pair -> pair.length == 2 && pair[0].equals(cookieName)).findFirst()
-                      .map(pair -> pair[1]));
+        return Optional.ofNullable(cookies().get(cookieName));
+    }
+
+    /**
+     * Gets all the request's HTTP cookies.
+     * The Cookie header is parsed on the first access to a cookie and the result is reused.
+     * @return an immutable map of the cookies names to their values
+     */
+    public Map<String, String> cookies() {
+        Map<String, String> result = cookies;
+        if (result == null) {
+            result = getHeader.apply("Cookie").map(HttpRequest::parseCookies).orElse(Map.of());
+            cookies = result;
+        }
+        return result;
+    }
+
+    private static Map<String, String> parseCookies(final String headerValue) {
+        final Map<String, String> result = new HashMap<>();
+        int start = 0;
+        while (start < headerValue.length()) {
+            int end = headerValue.indexOf(';', start);
+            if (end < 0) {
+                end = headerValue.length();
+            }
+            final int eq = headerValue.indexOf('=', start);
+            if (eq > start && eq < end) {
+                final String name = headerValue.substring(start, eq).trim();
+                final String value = headerValue.substring(eq + 1, end).trim();
+                if (!name.isEmpty()) {
+                    result.putIfAbsent(name, value);
+                }
+            }
+            start = end + 1;
+        }
+        return Collections.unmodifiableMap(result);
     }
 
     /**
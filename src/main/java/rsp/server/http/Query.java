@@ -1,5 +1,125 @@
 package rsp.server.http;
 
-public record Query(String queryString) {
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Represents a URL's query.
+ * The query string's parameters are decoded lazily, on the first access, and then reused.
+ */
+public final class Query {
     public static final Query EMPTY = new Query("");
+
+    private final String queryString;
+
+    private volatile Map<String, List<String>> parameters;
+
+    /**
+     * Creates a new instance of a query.
+     * @param queryString a raw query string, with or without the leading '?', null is treated as an empty string
+     */
+    public Query(final String queryString) {
+        this.queryString = queryString == null ? "" : queryString;
+    }
+
+    /**
+     * The query's string.
+     * @return the raw query string
+     */
+    public String queryString() {
+        return queryString;
+    }
+
+    /**
+     * Gets the first value of a query parameter.
+     * @param name the parameter's name
+     * @return the Optional with the parameter's decoded value or the empty
+     */
+    public Optional<String> parameter(final String name) {
+        final List<String> values = parameters().get(name);
+        return values == null ? Optional.empty() : Optional.of(values.get(0));
+    }
+
+    /**
+     * Gets all the values of a query parameter.
+     * @param name the parameter's name
+     * @return the parameter's decoded values in their order in the query, or an empty list
+     */
+    public List<String> parameterValues(final String name) {
+        return parameters().getOrDefault(name, List.of());
+    }
+
+    /**
+     * Gets the query's parameters.
+     * @return an immutable map of the parameters names to their decoded values
+     */
+    public Map<String, List<String>> parameters() {
+        Map<String, List<String>> result = parameters;
+        if (result == null) {
+            result = parse(queryString);
+            parameters = result;
+        }
+        return result;
+    }
+
+    private static Map<String, List<String>> parse(final String queryString) {
+        final int length = queryString.length();
+        int start = length > 0 && queryString.charAt(0) == '?' ? 1 : 0;
+        if (start == length) {
+            return Map.of();
+        }
+        final Map<String, List<String>> result = new LinkedHashMap<>();
+        while (start <= length) {
+            int end = queryString.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                final int eq = queryString.indexOf('=', start);
+                final String name;
+                final String value;
+                if (eq < 0 || eq > end) {
+                    name = decode(queryString.substring(start, end));
+                    value = "";
+                } else {
+                    name = decode(queryString.substring(start, eq));
+                    value = decode(queryString.substring(eq + 1, end));
+                }
+                result.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+            }
+            start = end + 1;
+        }
+        result.replaceAll((k, v) -> List.copyOf(v));
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static String decode(final String s) {
+        if (s.indexOf('%') < 0 && s.indexOf('+') < 0) {
+            return s;
+        }
+        try {
+            return URLDecoder.decode(s, StandardCharsets.UTF_8);
+        } catch (final IllegalArgumentException ex) {
+            return s;
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final Query query = (Query) o;
+        return queryString.equals(query.queryString);
+    }
+
+    @Override
+    public int hashCode() {
+        return queryString.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Query[queryString=" + queryString + "]";
+    }
 }
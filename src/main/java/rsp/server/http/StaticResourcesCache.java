@@ -0,0 +1,354 @@
+package rsp.server.http;
+
+import rsp.server.Path;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static java.lang.System.Logger.Level.DEBUG;
+
+/**
+ * Serves static resources from the classpath.
+ * A resource is read once on its first request and kept in memory together with its gzip-compressed copy
+ * and a strong ETag computed from the content hash.
+ * The cache supports conditional requests, byte ranges and long-term caching for versioned URLs.
+ */
+public final class StaticResourcesCache {
+    private static final System.Logger logger = System.getLogger(StaticResourcesCache.class.getName());
+
+    public static final int NOT_MODIFIED_STATUS_CODE = 304;
+    public static final int PARTIAL_CONTENT_STATUS_CODE = 206;
+    public static final int NOT_FOUND_STATUS_CODE = 404;
+    public static final int RANGE_NOT_SATISFIABLE_STATUS_CODE = 416;
+
+    /**
+     * The name of a query parameter with the resource's content version.
+     */
+    public static final String VERSION_QUERY_PARAMETER = "v";
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE_CACHE_CONTROL = "no-cache";
+    private static final int VERSION_LENGTH = 16;
+
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(Map.entry("js", "text/javascript; charset=utf-8"),
+                                                                           Map.entry("mjs", "text/javascript; charset=utf-8"),
+                                                                           Map.entry("map", "application/json; charset=utf-8"),
+                                                                           Map.entry("json", "application/json; charset=utf-8"),
+                                                                           Map.entry("css", "text/css; charset=utf-8"),
+                                                                           Map.entry("html", "text/html; charset=utf-8"),
+                                                                           Map.entry("txt", "text/plain; charset=utf-8"),
+                                                                           Map.entry("xml", "application/xml; charset=utf-8"),
+                                                                           Map.entry("svg", "image/svg+xml"),
+                                                                           Map.entry("png", "image/png"),
+                                                                           Map.entry("jpg", "image/jpeg"),
+                                                                           Map.entry("jpeg", "image/jpeg"),
+                                                                           Map.entry("gif", "image/gif"),
+                                                                           Map.entry("webp", "image/webp"),
+                                                                           Map.entry("ico", "image/x-icon"),
+                                                                           Map.entry("woff", "font/woff"),
+                                                                           Map.entry("woff2", "font/woff2"),
+                                                                           Map.entry("wasm", "application/wasm"));
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final Class<?> resourcesBase;
+    private final Map<String, CachedResource> resources = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance of a cache.
+     * @param resourcesBase the class which resolves the resources paths, must not be null
+     */
+    public StaticResourcesCache(final Class<?> resourcesBase) {
+        this.resourcesBase = Objects.requireNonNull(resourcesBase);
+    }
+
+    public StaticResourcesCache() {
+        this(StaticResourcesCache.class);
+    }
+
+    /**
+     * Finds a resource, loading it on the first access.
+     * Not found resources are not cached.
+     * @param path the resource's path, must not be null
+     * @return the cached resource or an empty result if there is no such resource
+     */
+    public Optional<CachedResource> resource(final Path path) {
+        Objects.requireNonNull(path);
+        if (path.contains("..")) {
+            return Optional.empty();
+        }
+        final String resourceName = path.toString();
+        final CachedResource cached = resources.get(resourceName);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        final URL url = resourcesBase.getResource(resourceName);
+        if (url == null) {
+            return Optional.empty();
+        }
+        return Optional.of(resources.computeIfAbsent(resourceName, name -> load(name, url)));
+    }
+
+    /**
+     * Creates a URL for a resource with its content version, such a URL can be cached by a browser forever.
+     * @param path the resource's path, must not be null
+     * @return the resource's path with the version query parameter or the path itself if there is no such resource
+     */
+    public String versionedUrl(final Path path) {
+        return resource(path).map(r -> path + "?" + VERSION_QUERY_PARAMETER + "=" + r.version())
+                             .orElse(path.toString());
+    }
+
+    /**
+     * Creates a response for a static resource request.
+     * @param request the HTTP request, must not be null
+     * @return the response
+     */
+    public HttpResponse response(final HttpRequest request) {
+        Objects.requireNonNull(request);
+        final Optional<CachedResource> resource;
+        try {
+            resource = resource(request.path);
+        } catch (final UncheckedIOException e) {
+            return new HttpResponse(500,
+                                    List.of(),
+                                    "Exception on loading a static resource: " + request.path + " " + e.getMessage());
+        }
+        return resource.map(r -> response(request, r))
+                       .orElseGet(() -> new HttpResponse(NOT_FOUND_STATUS_CODE,
+                                                         List.of(),
+                                                         "Resource not found: " + request.path));
+    }
+
+    private static HttpResponse response(final HttpRequest request, final CachedResource resource) {
+        final boolean isGzip = resource.gzipContent != null
+                               && request.header("Range").isEmpty()
+                               && acceptsGzip(request.header("Accept-Encoding"));
+        final String etag = isGzip ? resource.gzipEtag() : resource.etag();
+
+        final List<Header> headers = new ArrayList<>();
+        headers.add(new Header("ETag", etag));
+        headers.add(new Header("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(resource.lastModified)));
+        headers.add(new Header("Cache-Control", request.queryParam(VERSION_QUERY_PARAMETER)
+                                                       .filter(resource.version::equals)
+                                                       .isPresent() ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL));
+        if (resource.gzipContent != null) {
+            headers.add(new Header("Vary", "Accept-Encoding"));
+        }
+
+        if (isNotModified(request, resource, etag)) {
+            return new HttpResponse(NOT_MODIFIED_STATUS_CODE, headers, InputStream.nullInputStream());
+        }
+
+        headers.add(new Header("Content-Type", resource.contentType));
+        headers.add(new Header("Accept-Ranges", "bytes"));
+        if (isGzip) {
+            headers.add(new Header("Content-Encoding", "gzip"));
+            headers.add(new Header("Content-Length", Integer.toString(resource.gzipContent.length)));
+            return new HttpResponse(HttpResponse.OK_STATUS_CODE, headers, new ByteArrayInputStream(resource.gzipContent));
+        }
+
+        final int length = resource.content.length;
+        final Optional<ByteRange> range = request.header("Range")
+                                                 .filter(h -> ifRangeMatches(request, resource))
+                                                 .flatMap(h -> parseRange(h, length));
+        if (range.isPresent() && !range.get().isSatisfiable()) {
+            headers.add(new Header("Content-Range", "bytes */" + length));
+            return new HttpResponse(RANGE_NOT_SATISFIABLE_STATUS_CODE, headers, InputStream.nullInputStream());
+        } else if (range.isPresent()) {
+            final int start = (int) range.get().start();
+            final int rangeLength = (int) (range.get().end() - start + 1);
+            headers.add(new Header("Content-Range", "bytes " + start + "-" + range.get().end() + "/" + length));
+            headers.add(new Header("Content-Length", Integer.toString(rangeLength)));
+            return new HttpResponse(PARTIAL_CONTENT_STATUS_CODE,
+                                    headers,
+                                    new ByteArrayInputStream(resource.content, start, rangeLength));
+        }
+        headers.add(new Header("Content-Length", Integer.toString(length)));
+        return new HttpResponse(HttpResponse.OK_STATUS_CODE, headers, new ByteArrayInputStream(resource.content));
+    }
+
+    private static boolean isNotModified(final HttpRequest request, final CachedResource resource, final String etag) {
+        final Optional<String> ifNoneMatch = request.header("If-None-Match");
+        if (ifNoneMatch.isPresent()) {
+            for (final String tag : ifNoneMatch.get().split(",")) {
+                final String t = tag.trim();
+                if (t.equals("*") || t.equals(etag) || t.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return request.header("If-Modified-Since")
+                      .flatMap(StaticResourcesCache::parseDate)
+                      .map(since -> !resource.lastModified.isAfter(since))
+                      .orElse(false);
+    }
+
+    private static boolean ifRangeMatches(final HttpRequest request, final CachedResource resource) {
+        return request.header("If-Range").map(v -> v.trim().equals(resource.etag())).orElse(true);
+    }
+
+    private static boolean acceptsGzip(final Optional<String> acceptEncoding) {
+        if (acceptEncoding.isEmpty()) {
+            return false;
+        }
+        for (final String coding : acceptEncoding.get().split(",")) {
+            final String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return !(parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?"));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a single bytes range, multiple ranges are not supported.
+     * @return the range, the {@link ByteRange#UNSATISFIABLE} range, or an empty result if the range is not supported
+     */
+    static Optional<ByteRange> parseRange(final String rangeHeader, final long length) {
+        final String value = rangeHeader.trim();
+        if (!value.startsWith("bytes=") || value.indexOf(',') >= 0) {
+            return Optional.empty();
+        }
+        final String spec = value.substring("bytes=".length()).trim();
+        final int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return Optional.empty();
+        }
+        try {
+            final String first = spec.substring(0, dash).trim();
+            final String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // a suffix range: the last N bytes
+                final long suffixLength = Long.parseLong(last);
+                return suffixLength <= 0 || length == 0 ? Optional.of(ByteRange.UNSATISFIABLE)
+                                                        : Optional.of(new ByteRange(Math.max(0, length - suffixLength), length - 1));
+            }
+            final long start = Long.parseLong(first);
+            final long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            return start >= length || start > end ? Optional.of(ByteRange.UNSATISFIABLE)
+                                                  : Optional.of(new ByteRange(start, end));
+        } catch (final NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<ZonedDateTime> parseDate(final String value) {
+        try {
+            return Optional.of(ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+        } catch (final DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static CachedResource load(final String name, final URL url) {
+        try {
+            final URLConnection connection = url.openConnection();
+            final long lastModifiedMillis = connection.getLastModified();
+            final byte[] content;
+            try (final InputStream in = connection.getInputStream()) {
+                content = in.readAllBytes();
+            }
+            final String contentType = contentType(name);
+            final byte[] gzipContent = isCompressible(contentType) ? gzip(content) : null;
+            final ZonedDateTime lastModified = Instant.ofEpochMilli(lastModifiedMillis > 0 ? lastModifiedMillis
+                                                                                           : System.currentTimeMillis())
+                                                      .truncatedTo(ChronoUnit.SECONDS)
+                                                      .atZone(ZoneOffset.UTC);
+            final CachedResource resource = new CachedResource(content,
+                                                               gzipContent != null && gzipContent.length < content.length ? gzipContent : null,
+                                                               version(content),
+                                                               contentType,
+                                                               lastModified);
+            logger.log(DEBUG, () -> "Static resource cached: " + name + " " + content.length + " bytes");
+            return resource;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String contentType(final String name) {
+        final int dot = name.lastIndexOf('.');
+        return dot < 0 ? DEFAULT_CONTENT_TYPE : CONTENT_TYPES.getOrDefault(name.substring(dot + 1).toLowerCase(), DEFAULT_CONTENT_TYPE);
+    }
+
+    private static boolean isCompressible(final String contentType) {
+        return contentType.startsWith("text/")
+                || contentType.startsWith("application/json")
+                || contentType.startsWith("application/xml")
+                || contentType.startsWith("image/svg+xml")
+                || contentType.startsWith("application/wasm");
+    }
+
+    private static byte[] gzip(final byte[] content) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+        try (final GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static String version(final byte[] content) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, VERSION_LENGTH);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A static resource kept in memory.
+     * @param content the resource's bytes
+     * @param gzipContent the gzip-compressed bytes or null if the resource is not worth compressing
+     * @param version the content hash based version
+     * @param contentType the resource's media type
+     * @param lastModified the resource's modification time
+     */
+    public record CachedResource(byte[] content,
+                                 byte[] gzipContent,
+                                 String version,
+                                 String contentType,
+                                 ZonedDateTime lastModified) {
+
+        public String etag() {
+            return "\"" + version + "\"";
+        }
+
+        public String gzipEtag() {
+            return "\"" + version + "-gz\"";
+        }
+    }
+
+    /**
+     * An inclusive range of bytes positions.
+     */
+    record ByteRange(long start, long end) {
+        static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+        boolean isSatisfiable() {
+            return start >= 0;
+        }
+    }
+}
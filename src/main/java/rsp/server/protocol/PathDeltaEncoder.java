@@ -0,0 +1,74 @@
+package rsp.server.protocol;
+
+import rsp.dom.TreePositionPath;
+
+/**
+ * Encodes the elements paths of a single MODIFY_DOM batch relative to the previously encoded path.
+ * Consecutive DOM changes usually address the same element, its sibling, child or parent,
+ * so most paths are sent as one of the short delta tokens instead of a full path like "1_2_5_3_1_7".
+ * A path which is not related to the previous one is sent in full.
+ * A delta token contains a non-digit character, so it is never confused with a full path.
+ */
+final class PathDeltaEncoder {
+    /**
+     * The same path as the previous one.
+     */
+    static final String SAME = "=";
+
+    /**
+     * The next sibling of the previous path.
+     */
+    static final String NEXT_SIBLING = "+";
+
+    /**
+     * The first child of the previous path.
+     */
+    static final String FIRST_CHILD = ">";
+
+    /**
+     * The parent of the previous path.
+     */
+    static final String PARENT = "^";
+
+    /**
+     * The next sibling of the previous path's parent.
+     */
+    static final String PARENT_NEXT_SIBLING = "^+";
+
+    private TreePositionPath previous;
+
+    /**
+     * Encodes a path and makes it the reference for the next one.
+     * @param path the path to encode
+     * @return the encoded path, quoted as a JSON string
+     */
+    String encode(final TreePositionPath path) {
+        final String token = token(path);
+        previous = path;
+        return "\"" + token + "\"";
+    }
+
+    private String token(final TreePositionPath path) {
+        if (previous == null) {
+            return path.toString();
+        }
+        final int level = path.level();
+        final int previousLevel = previous.level();
+        if (path.equals(previous)) {
+            return SAME;
+        } else if (level == previousLevel && level > 0 && path.equals(previous.incSibling())) {
+            return NEXT_SIBLING;
+        } else if (level == previousLevel + 1 && previousLevel > 0 && path.equals(previous.incLevel())) {
+            // not after the empty root path, the client would decode its first child as "_1"
+            return FIRST_CHILD;
+        } else if (level == previousLevel - 1 && level > 0) {
+            final TreePositionPath previousParent = previous.parent();
+            if (path.equals(previousParent)) {
+                return PARENT;
+            } else if (path.equals(previousParent.incSibling())) {
+                return PARENT_NEXT_SIBLING;
+            }
+        }
+        return path.toString();
+    }
+}
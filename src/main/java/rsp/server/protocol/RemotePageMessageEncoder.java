@@ -1,9 +1,13 @@
 package rsp.server.protocol;
 
+import rsp.dom.Attribute;
 import rsp.dom.Event;
+import rsp.dom.SharedDomChanges;
+import rsp.dom.Symbol;
 import rsp.dom.XmlNs;
 import rsp.dom.TreePositionPath;
 import rsp.dom.DefaultDomChangesContext.*;
+import rsp.server.ExtractPropertyRequest;
 import rsp.server.RemoteOut;
 
 import java.util.Arrays;
@@ -32,8 +36,9 @@ public final class RemotePageMessageEncoder implements RemoteOut {
     private static final int UPLOAD_FILE = 13; // (id, descriptor, fileName)
     private static final int REST_FORM = 14; // (id)
     private static final int FORGET_EVENT = 15; // (type, id)
+    private static final int EXTRACT_PROPERTIES = 16; // (descriptor, count, id, propertyName, ...)
 
-    // MODIFY_DOM commands
+    // MODIFY_DOM commands, the ids are elements paths encoded by PathDeltaEncoder
     private static final int  CREATE = 0; // (id, childId, xmlNs, tag)
     private static final int  CREATE_TEXT = 1; // (id, childId, text)
     private static final int  REMOVE = 2; // (id, childId)
@@ -41,6 +46,10 @@ public final class RemotePageMessageEncoder implements RemoteOut {
     private static final int  REMOVE_ATTR = 4; // (id, xmlNs, name, isProperty)
     private static final int  SET_STYLE = 5; // (id, name, value)
     private static final int  REMOVE_STYLE = 6; // (id, name)
+    private static final int  INSERT_HTML = 7; // (id, childId, html)
+    private static final int  REMOVE_NODES = 8; // (id, childId, count)
+    private static final int  SET_TEXT = 9; // (id, text)
+    private static final int  SET_ATTRS = 10; // (id, count, name, value, isProperty, ...)
 
     // EVENT modifier
     private static final int  NO_EVENT_MODIFIER = 0;
@@ -69,7 +78,7 @@ public final class RemotePageMessageEncoder implements RemoteOut {
     @Override
     public void listenEvents(final List<Event> events) {
         if (events.size() > 0) {
-            final String[] changes = events.stream().map(e -> joinString(quote(e.eventTarget.eventType),
+            final String[] changes = events.stream().map(e -> joinString(Symbol.of(e.eventTarget.eventType).quotedName,
                                                                          e.preventDefault,
                                                                          quote(e.eventTarget.elementPath.toString()),
                                                                          quote(modifierString(e.modifier)))).toArray(String[]::new);
@@ -82,7 +91,7 @@ public final class RemotePageMessageEncoder implements RemoteOut {
     @Override
     public void forgetEvent(final String eventType, final TreePositionPath path) {
         final String message = addSquareBrackets(joinString(FORGET_EVENT,
-                                                            quote(escape(eventType)),
+                                                            Symbol.of(eventType).quotedName,
                                                             quote(path.toString())));
         messagesOut.accept(message);
     }
@@ -108,16 +117,37 @@ public final class RemotePageMessageEncoder implements RemoteOut {
         messagesOut.accept(message);
     }
 
+    @Override
+    public void extractProperties(final int descriptor, final List<ExtractPropertyRequest> requests) {
+        final String[] fields = new String[requests.size() * 2 + 3];
+        fields[0] = Integer.toString(EXTRACT_PROPERTIES);
+        fields[1] = quote(descriptor);
+        fields[2] = Integer.toString(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            final ExtractPropertyRequest request = requests.get(i);
+            fields[i * 2 + 3] = quote(request.path());
+            fields[i * 2 + 4] = quote(escape(request.name()));
+        }
+        final String message = addSquareBrackets(joinString(fields));
+        messagesOut.accept(message);
+    }
+
     @Override
     public void modifyDom(final List<DomChange> domChanges) {
         if (!domChanges.isEmpty()) {
-            final String[] changes = domChanges.stream().map(this::modifyDomMessageBody).toArray(String[]::new);
-            final String message = addSquareBrackets(joinString(MODIFY_DOM,
-                                                                joinString(changes)));
+            final String message = domChanges instanceof SharedDomChanges sharedDomChanges ?
+                                   sharedDomChanges.encoded(this::modifyDomMessage) : modifyDomMessage(domChanges);
             messagesOut.accept(message);
         }
     }
 
+    private String modifyDomMessage(final List<DomChange> domChanges) {
+        final PathDeltaEncoder paths = new PathDeltaEncoder();
+        final String[] changes = domChanges.stream().map(domChange -> modifyDomMessageBody(domChange, paths)).toArray(String[]::new);
+        return addSquareBrackets(joinString(MODIFY_DOM,
+                                            joinString(changes)));
+    }
+
     @Override
     public void setHref(final String path) {
         final String message = addSquareBrackets(joinString(CHANGE_PAGE_URL, HREF_LOCATION_TYPE, quote(path)));
@@ -130,29 +160,51 @@ public final class RemotePageMessageEncoder implements RemoteOut {
         messagesOut.accept(message);
     }
 
-    private String modifyDomMessageBody(final DomChange domChange) {
+    private String modifyDomMessageBody(final DomChange domChange, final PathDeltaEncoder paths) {
         if (domChange instanceof RemoveAttr) {
             final RemoveAttr c = (RemoveAttr)domChange;
-            return joinString(REMOVE_ATTR, quote(c.path), xmlNsString(c.xmlNs), quote(escape(c.name)), c.isProperty);
+            return joinString(REMOVE_ATTR, paths.encode(c.path), xmlNsString(c.xmlNs), Symbol.of(c.name).quotedName, c.isProperty);
         } else if (domChange instanceof RemoveStyle) {
             final RemoveStyle c = (RemoveStyle)domChange;
-            return joinString(REMOVE_STYLE, quote(c.path), quote(escape(c.name)), false);
+            return joinString(REMOVE_STYLE, paths.encode(c.path), Symbol.of(c.name).quotedName, false);
         } else if (domChange instanceof Remove) {
             final Remove c = (Remove)domChange;
-            return joinString(REMOVE, quote(c.parentPath), quote(c.path));
+            return joinString(REMOVE, paths.encode(c.parentPath), paths.encode(c.path));
         } else if (domChange instanceof SetAttr) {
             final SetAttr c = (SetAttr)domChange;
-            return joinString(SET_ATTR, quote(c.path), xmlNsString(c.xmlNs), quote(escape(c.name)), quote(c.value), c.isProperty);
+            return joinString(SET_ATTR, paths.encode(c.path), xmlNsString(c.xmlNs), Symbol.of(c.name).quotedName, quote(c.value), c.isProperty);
         } else if (domChange instanceof SetStyle) {
             final SetStyle c = (SetStyle)domChange;
-            return joinString(SET_STYLE, quote(c.path), quote(escape(c.name)), quote(escape(c.value)));
+            return joinString(SET_STYLE, paths.encode(c.path), Symbol.of(c.name).quotedName, quote(escape(c.value)));
         } else if (domChange instanceof CreateText) {
             final CreateText c = (CreateText)domChange;
-            return joinString(CREATE_TEXT, quote(c.parentPath), quote(c.path), quote(escape(c.text)));
+            return joinString(CREATE_TEXT, paths.encode(c.parentPath), paths.encode(c.path), quote(escape(c.text)));
+        } else if (domChange instanceof InsertHtml) {
+            final InsertHtml c = (InsertHtml)domChange;
+            return joinString(INSERT_HTML, paths.encode(c.parentPath), paths.encode(c.path), quote(escape(c.html)));
+        } else if (domChange instanceof RemoveNodes) {
+            final RemoveNodes c = (RemoveNodes)domChange;
+            return joinString(REMOVE_NODES, paths.encode(c.parentPath), paths.encode(c.fromPath), c.count);
+        } else if (domChange instanceof SetText) {
+            final SetText c = (SetText)domChange;
+            return joinString(SET_TEXT, paths.encode(c.path), quote(escape(c.text)));
+        } else if (domChange instanceof SetAttrs) {
+            final SetAttrs c = (SetAttrs)domChange;
+            final Object[] fields = new Object[3 + c.attributes.size() * 3];
+            fields[0] = SET_ATTRS;
+            fields[1] = paths.encode(c.path);
+            fields[2] = c.attributes.size();
+            int i = 3;
+            for (final Attribute attribute : c.attributes) {
+                fields[i++] = Symbol.of(attribute.name).quotedName;
+                fields[i++] = quote(attribute.value);
+                fields[i++] = attribute.isProperty;
+            }
+            return joinString(fields);
         } else if (domChange instanceof Create) {
             final Create c = (Create)domChange;
-            return joinString(CREATE, quote(c.path.parent()),
-                    quote(c.path), xmlNsString(c.xmlNs), quote(escape(c.tag)));
+            return joinString(CREATE, paths.encode(c.path.parent()),
+                    paths.encode(c.path), xmlNsString(c.xmlNs), Symbol.of(c.tag).quotedName);
         } else {
             throw new IllegalStateException("Unsupported DomChange object type:" + domChange);
         }
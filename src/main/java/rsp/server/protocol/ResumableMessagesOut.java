@@ -0,0 +1,86 @@
+package rsp.server.protocol;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A channel of outbound protocol messages which survives reconnections of a remote peer.
+ * Every message gets a sequence number, the last messages are kept in a bounded replay buffer.
+ * When a peer reconnects with the number of messages it has received,
+ * the missing messages are replayed to the new connection.
+ */
+public final class ResumableMessagesOut implements Consumer<String> {
+
+    private final int capacity;
+    private final Deque<String> replayBuffer = new ArrayDeque<>();
+
+    private long sequence;
+    private Consumer<String> sink;
+
+    /**
+     * Creates a new instance of a channel.
+     * @param capacity the maximum number of messages kept for a replay
+     */
+    public ResumableMessagesOut(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Replay buffer capacity expected to be a non-negative number: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void accept(final String message) {
+        sequence++;
+        if (capacity > 0) {
+            if (replayBuffer.size() == capacity) {
+                replayBuffer.removeFirst();
+            }
+            replayBuffer.addLast(message);
+        }
+        if (sink != null) {
+            sink.accept(message);
+        }
+    }
+
+    /**
+     * Connects the channel to a remote peer.
+     * The messages the peer has not received yet are sent first.
+     * @param sink the new connection's messages consumer, must not be null
+     * @param receivedCount the number of this channel's messages received by the peer
+     * @return true if the channel resumed, false if the missing messages are not available anymore
+     */
+    public synchronized boolean attach(final Consumer<String> sink, final long receivedCount) {
+        Objects.requireNonNull(sink);
+        final long firstBufferedSequence = sequence - replayBuffer.size() + 1;
+        if (receivedCount > sequence || receivedCount + 1 < firstBufferedSequence) {
+            return false;
+        }
+        final Iterator<String> messages = replayBuffer.iterator();
+        for (long i = firstBufferedSequence; i <= sequence; i++) {
+            final String message = messages.next();
+            if (i > receivedCount) {
+                sink.accept(message);
+            }
+        }
+        this.sink = sink;
+        return true;
+    }
+
+    /**
+     * Disconnects the channel from the current peer, the messages are still buffered for a replay.
+     */
+    public synchronized void detach() {
+        this.sink = null;
+    }
+
+    /**
+     * The number of messages passed through this channel.
+     * @return the last message's sequence number
+     */
+    public synchronized long sequence() {
+        return sequence;
+    }
+}
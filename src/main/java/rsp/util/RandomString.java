@@ -2,25 +2,46 @@ package rsp.util;
 
 import java.security.SecureRandom;
 
+/**
+ * Generates random alphanumeric strings.
+ * Random bytes are drawn in bulk from a per-thread {@link SecureRandom} instance
+ * and mapped to the base62 alphabet without a modulo bias.
+ */
 public final class RandomString {
 
     private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
 
-    private final int length;
+    /**
+     * The bytes above this limit are rejected, the limit is the largest multiple of the alphabet's size within a byte.
+     */
+    private static final int UNBIASED_LIMIT = 256 - 256 % ALPHABET.length();
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
 
-    private final SecureRandom rnd = new SecureRandom();
+    private final int length;
 
     public RandomString(final int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Random string length expected to be a non-negative number: " + length);
+        }
         this.length = length;
     }
 
     public String newString() {
-        final StringBuilder sb = new StringBuilder(length);
-        var i = 0;
+        final SecureRandom rnd = RANDOM.get();
+        // about 3% of the bytes are rejected, a small margin makes refills rare
+        final byte[] bytes = new byte[length + length / 8 + 4];
+        final char[] chars = new char[length];
+        int i = 0;
         while (i < length) {
-            sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
-            i += 1;
+            rnd.nextBytes(bytes);
+            for (int j = 0; j < bytes.length && i < length; j++) {
+                final int b = bytes[j] & 0xFF;
+                if (b < UNBIASED_LIMIT) {
+                    chars[i++] = ALPHABET.charAt(b % ALPHABET.length());
+                }
+            }
         }
-        return sb.toString();
+        return new String(chars);
     }
 }
@@ -0,0 +1,249 @@
+package rsp.component;
+
+import org.junit.jupiter.api.Test;
+import rsp.dom.Event;
+import rsp.dom.TreePositionPath;
+import rsp.page.TemporaryBufferedPageCommands;
+import rsp.ref.ElementRef;
+import rsp.server.TestCollectingRemoteOut;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static rsp.html.HtmlDsl.*;
+import static rsp.util.HtmlAssertions.assertHtmlFragmentsEqual;
+import static rsp.util.TestUtils.findFirstListElementByType;
+import static rsp.util.TestRenderContexts.createRenderContext;
+import static rsp.util.TestEventContexts.createEventContext;
+
+class ComponentRenderContextTests {
+
+    static final long STATE_DELAY_MS = 400;
+
+    @Test
+    void resolves_sibling_components_slow_states_concurrently_and_renders_them_in_document_order() {
+        final AtomicInteger stateResolutionsCount = new AtomicInteger();
+        final ComponentView<String> parentView = state -> newState ->
+                div(span(state),
+                    slowStateComponent("a", stateResolutionsCount),
+                    slowStateComponent("b", stateResolutionsCount),
+                    slowStateComponent("c", stateResolutionsCount));
+        final ComponentRenderContext renderContext = createRenderContext(new TestCollectingRemoteOut());
+
+        final long startNanos = System.nanoTime();
+        new InitialStateComponentDefinition<>("parent", parentView).render(renderContext);
+        renderContext.awaitPendingStates();
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertHtmlFragmentsEqual("<div><span>parent</span><span>a</span><span>b</span><span>c</span></div>",
+                                 renderContext.html());
+        assertEquals(3, stateResolutionsCount.get());
+        assertEquals(4, renderContext.componentStates().size());
+        assertTrue(elapsedMs < STATE_DELAY_MS * 2, "Rendering took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void renders_fallback_view_on_state_timeout_and_replaces_it_when_state_arrives() {
+        final CompletableFuture<String> lateState = new CompletableFuture<>();
+        final StateResolution stateResolution = new StateResolution(0);
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final ComponentView<String> parentView = state -> newState ->
+                div(span(state),
+                    ComponentDsl.pathComponent(path -> lateState, (s, path) -> path, s -> ns -> span(s))
+                                .withStateTimeout(100, span("loading")));
+        final ComponentRenderContext renderContext = createRenderContext(remoteOut, stateResolution, false);
+
+        new InitialStateComponentDefinition<>("parent", parentView).render(renderContext);
+        renderContext.awaitPendingStates();
+
+        assertHtmlFragmentsEqual("<div><span>parent</span><span>loading</span></div>", renderContext.html());
+        assertEquals(1, stateResolution.timedOutCount());
+        assertEquals(1, stateResolution.resolvedCount());
+
+        lateState.complete("late");
+
+        final TestCollectingRemoteOut.ModifyDomOutMessage modifyDomOutMessage =
+                findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands).orElseThrow();
+        assertTrue(modifyDomOutMessage.domChange.toString().contains("late"));
+        assertEquals(2, stateResolution.resolvedCount());
+        assertTrue(stateResolution.maxLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void application_default_state_timeout_applies_to_components_without_own_deadline() {
+        final CompletableFuture<String> lateState = new CompletableFuture<>();
+        final StateResolution stateResolution = new StateResolution(50);
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final ComponentView<String> parentView = state -> newState ->
+                div(span(state),
+                    ComponentDsl.pathComponent(path -> lateState, (s, path) -> path, s -> ns -> span(s)));
+        final ComponentRenderContext renderContext = createRenderContext(remoteOut, stateResolution, false);
+
+        new InitialStateComponentDefinition<>("parent", parentView).render(renderContext);
+        renderContext.awaitPendingStates();
+
+        assertHtmlFragmentsEqual("<div><span>parent</span><template></template></div>", renderContext.html());
+        assertEquals(1, stateResolution.timedOutCount());
+
+        lateState.complete("late");
+
+        assertHtmlFragmentsEqual("<div><span>parent</span><span>late</span></div>", renderContext.html());
+        final TestCollectingRemoteOut.ModifyDomOutMessage modifyDomOutMessage =
+                findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands).orElseThrow();
+        assertTrue(modifyDomOutMessage.domChange.toString().contains("late"));
+    }
+
+    @Test
+    void live_rendering_does_not_wait_for_new_component_state() {
+        final CompletableFuture<String> lateState = new CompletableFuture<>();
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final ComponentView<Boolean> parentView = state -> newState ->
+                div(span(text("toggle"), on("click", ctx -> newState.setState(!state))),
+                    when(state, () -> ComponentDsl.pathComponent(path -> lateState, (s, path) -> path, s -> ns -> span(s))));
+        final ComponentRenderContext renderContext = createRenderContext(remoteOut);
+        new InitialStateComponentDefinition<>(false, parentView).render(renderContext);
+        final Event clickEvent = renderContext.pageIndex().allEvents().get(0);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                                  () -> clickEvent.eventHandler.accept(createEventContext(clickEvent.eventTarget.elementPath)));
+
+        assertTrue(remoteOut.commands.toString().contains("template"));
+        assertEquals(1, renderContext.pageIndex().pendingStatesCount());
+        remoteOut.clear();
+
+        lateState.complete("late");
+
+        final TestCollectingRemoteOut.ModifyDomOutMessage modifyDomOutMessage =
+                findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands).orElseThrow();
+        assertTrue(modifyDomOutMessage.domChange.toString().contains("late"));
+        assertEquals(0, renderContext.pageIndex().pendingStatesCount());
+    }
+
+    @Test
+    void late_state_arrived_before_html_is_sent_is_rendered_in_html_without_dom_changes() {
+        for (final boolean packRenderedNodes : new boolean[] {false, true}) {
+            final CompletableFuture<String> lateState = new CompletableFuture<>();
+            final TemporaryBufferedPageCommands commandsBuffer = new TemporaryBufferedPageCommands();
+            final ComponentView<String> parentView = state -> newState ->
+                    div(span(state),
+                        ComponentDsl.pathComponent(path -> lateState, (s, path) -> path, s -> ns -> span(s))
+                                    .withStateTimeout(50, span("loading")));
+            final ComponentRenderContext renderContext = createRenderContext(commandsBuffer,
+                                                                             new StateResolution(0),
+                                                                             packRenderedNodes);
+
+            new InitialStateComponentDefinition<>("parent", parentView).render(renderContext);
+            lateState.complete("late");
+
+            assertHtmlFragmentsEqual("<div><span>parent</span><span>late</span></div>", renderContext.html());
+            commandsBuffer.markHtmlSent();
+            final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+            commandsBuffer.redirectMessagesOut(remoteOut);
+            assertTrue(findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands).isEmpty());
+            assertEquals(0, commandsBuffer.renderFence().renderNumber());
+        }
+    }
+
+    @Test
+    void state_timeout_is_set_on_a_new_definition() {
+        final StatefulComponentDefinition<String> definition =
+                ComponentDsl.pathComponent(path -> new CompletableFuture<String>(), (s, path) -> path, s -> ns -> span(s));
+
+        final StatefulComponentDefinition<String> definitionWithTimeout = definition.withStateTimeout(100, span("loading"));
+
+        assertNotSame(definition, definitionWithTimeout);
+        assertEquals(StatefulComponentDefinition.DEFAULT_STATE_TIMEOUT, definition.stateTimeoutMs());
+        assertNull(definition.stateFallbackView());
+        assertEquals(100, definitionWithTimeout.stateTimeoutMs());
+        assertNotNull(definitionWithTimeout.stateFallbackView());
+        assertThrows(IllegalArgumentException.class, () -> definition.withStateTimeout(-2, null));
+    }
+
+    @Test
+    void page_index_follows_components_renders_and_unmounts() {
+        final ElementRef inputRef = createElementRef();
+        final ComponentView<Boolean> parentView = state -> newState ->
+                div(span(text("toggle"), on("click", ctx -> newState.setState(!state))),
+                    when(state, () -> new InitialStateComponentDefinition<>("child",
+                                                                           s -> ns -> input(elementId(inputRef),
+                                                                                            on("input", ctx -> {})))));
+        final ComponentRenderContext renderContext = createRenderContext(new TestCollectingRemoteOut());
+        new InitialStateComponentDefinition<>(true, parentView).render(renderContext);
+
+        final PageIndex pageIndex = renderContext.pageIndex();
+        assertEquals(2, pageIndex.componentsCount());
+        assertEquals(2, pageIndex.eventsCount());
+        assertEquals(TreePositionPath.of("1_2"), pageIndex.refPath(inputRef));
+        assertEquals(1, pageIndex.events(new Event.Target("input", TreePositionPath.of("1_2"))).size());
+        final List<Event> clickEvents = pageIndex.events(new Event.Target("click", TreePositionPath.of("1_1")));
+        assertEquals(1, clickEvents.size());
+
+        // Remove the child component
+        clickEvents.get(0).eventHandler.accept(createEventContext(clickEvents.get(0).eventTarget.elementPath));
+
+        assertEquals(1, pageIndex.componentsCount());
+        assertEquals(1, pageIndex.eventsCount());
+        assertNull(pageIndex.refPath(inputRef));
+        assertTrue(pageIndex.events(new Event.Target("input", TreePositionPath.of("1_2"))).isEmpty());
+        final Event clickEvent = pageIndex.events(new Event.Target("click", TreePositionPath.of("1_1"))).get(0);
+
+        // Add the child component back
+        clickEvent.eventHandler.accept(createEventContext(clickEvent.eventTarget.elementPath));
+
+        assertEquals(2, pageIndex.componentsCount());
+        assertEquals(2, pageIndex.eventsCount());
+        assertEquals(TreePositionPath.of("1_2"), pageIndex.refPath(inputRef));
+
+        renderContext.shutdown();
+
+        assertEquals(0, pageIndex.componentsCount());
+        assertEquals(0, pageIndex.eventsCount());
+        assertEquals(0, pageIndex.refsCount());
+    }
+
+    @Test
+    void packed_rendered_nodes_produce_the_same_html_and_updates_as_nodes() {
+        final ComponentView<Integer> childView = state -> newState ->
+                ul(of(IntStream.range(0, state).mapToObj(i -> li(text("item " + i)))));
+        final ComponentView<Integer> parentView = state -> newState ->
+                div(attr("class", "count-" + state),
+                    span(text("add"), on("click", ctx -> newState.setState(state + 1))),
+                    new InitialStateComponentDefinition<>("child", 2, childView));
+        final TestCollectingRemoteOut nodesRemoteOut = new TestCollectingRemoteOut();
+        final ComponentRenderContext nodesRenderContext = createRenderContext(nodesRemoteOut, new StateResolution(0), false);
+        final TestCollectingRemoteOut packedRemoteOut = new TestCollectingRemoteOut();
+        final ComponentRenderContext packedRenderContext = createRenderContext(packedRemoteOut, new StateResolution(0), true);
+
+        new InitialStateComponentDefinition<>(1, parentView).render(nodesRenderContext);
+        new InitialStateComponentDefinition<>(1, parentView).render(packedRenderContext);
+        assertEquals(nodesRenderContext.html(), packedRenderContext.html());
+
+        for (int i = 0; i < 2; i++) {
+            final Event nodesClick = nodesRenderContext.pageIndex().allEvents().get(0);
+            nodesClick.eventHandler.accept(createEventContext(nodesClick.eventTarget.elementPath));
+            final Event packedClick = packedRenderContext.pageIndex().allEvents().get(0);
+            packedClick.eventHandler.accept(createEventContext(packedClick.eventTarget.elementPath));
+        }
+
+        assertEquals(2, packedRemoteOut.commands.size());
+        assertEquals(nodesRemoteOut.commands.toString(), packedRemoteOut.commands.toString());
+        assertEquals(nodesRenderContext.html(), packedRenderContext.html());
+        assertTrue(packedRenderContext.html().contains("count-3"));
+    }
+
+    private static StatefulComponentDefinition<String> slowStateComponent(final String state,
+                                                                         final AtomicInteger stateResolutionsCount) {
+        return ComponentDsl.pathComponent(path -> {
+                                              stateResolutionsCount.incrementAndGet();
+                                              return CompletableFuture.supplyAsync(() -> state,
+                                                                                   CompletableFuture.delayedExecutor(STATE_DELAY_MS, TimeUnit.MILLISECONDS));
+                                          },
+                                          (s, path) -> path,
+                                          s -> ns -> span(s));
+    }
+}
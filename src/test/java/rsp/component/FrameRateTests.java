@@ -0,0 +1,67 @@
+package rsp.component;
+
+import org.junit.jupiter.api.Test;
+import rsp.server.TestCollectingRemoteOut;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static rsp.html.HtmlDsl.*;
+import static rsp.util.TestRenderContexts.createRenderContext;
+
+class FrameRateTests {
+
+    @Test
+    void frame_interval_is_calculated_from_frames_per_second() {
+        assertEquals(0, FrameRate.UNLIMITED.frameIntervalNanos());
+        assertEquals(100_000_000L, FrameRate.of(10).frameIntervalNanos());
+        assertThrows(IllegalArgumentException.class, () -> FrameRate.of(-1));
+    }
+
+    @Test
+    void frequent_state_updates_are_coalesced_into_one_rendering() throws InterruptedException {
+        final AtomicReference<Component<Integer>> componentRef = new AtomicReference<>();
+        final StatefulComponentDefinition<Integer> scd = new InitialStateComponentDefinition<>(0,
+                                                                                               state -> newState -> div(text("state-" + state))) {
+            @Override
+            protected FrameRate frameRate() {
+                return FrameRate.of(10);
+            }
+
+            @Override
+            public boolean render(final ComponentRenderContext renderContext) {
+                final Component<Integer> component = renderContext.openComponent(this);
+                componentRef.set(component);
+                component.render(renderContext);
+                renderContext.closeComponent();
+                return true;
+            }
+        };
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final Object sessionLock = new Object();
+        final ComponentRenderContext renderContext = createRenderContext(remoteOut, sessionLock);
+        scd.render(renderContext);
+
+        final Component<Integer> component = componentRef.get();
+        for (int i = 1; i <= 100; i++) {
+            component.setState(i);
+        }
+        assertEquals(99, component.skippedUpdatesCount());
+        assertEquals(100, component.getState());
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (isEmpty(remoteOut, sessionLock) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        synchronized (sessionLock) {
+            assertEquals(1, remoteOut.commands.size());
+            assertTrue(remoteOut.commands.get(0).toString().contains("state-100"));
+        }
+    }
+
+    private static boolean isEmpty(final TestCollectingRemoteOut remoteOut, final Object sessionLock) {
+        synchronized (sessionLock) {
+            return remoteOut.commands.isEmpty();
+        }
+    }
+}
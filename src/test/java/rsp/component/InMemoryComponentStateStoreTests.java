@@ -0,0 +1,76 @@
+package rsp.component;
+
+import org.junit.jupiter.api.Test;
+import rsp.dom.TreePositionPath;
+import rsp.page.QualifiedSessionId;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryComponentStateStoreTests {
+    static final QualifiedSessionId SESSION_1 = new QualifiedSessionId("d", "s1");
+    static final QualifiedSessionId SESSION_2 = new QualifiedSessionId("d", "s2");
+
+    @Test
+    void evicts_least_recently_used_state_over_max_size() {
+        final InMemoryComponentStateStore<String> store = new InMemoryComponentStateStore<>(2);
+        store.put(key(SESSION_1, "1"), "a");
+        store.put(key(SESSION_1, "2"), "b");
+        assertEquals(Optional.of("a"), store.get(key(SESSION_1, "1")));
+        store.put(key(SESSION_1, "3"), "c");
+
+        assertEquals(Optional.of("a"), store.get(key(SESSION_1, "1")));
+        assertEquals(Optional.empty(), store.get(key(SESSION_1, "2")));
+        assertEquals(Optional.of("c"), store.get(key(SESSION_1, "3")));
+        assertEquals(new ComponentStateStore.Stats(3, 1, 1, 2), store.stats());
+    }
+
+    @Test
+    void expires_states_not_accessed_longer_than_ttl() {
+        final AtomicLong clock = new AtomicLong();
+        final InMemoryComponentStateStore<String> store = new InMemoryComponentStateStore<>(10,
+                                                                                            Duration.ofNanos(100),
+                                                                                            clock::get);
+        store.put(key(SESSION_1, "1"), "a");
+        store.put(key(SESSION_1, "2"), "b");
+        clock.set(50);
+        assertEquals(Optional.of("a"), store.get(key(SESSION_1, "1")));
+        clock.set(120);
+
+        assertEquals(Optional.of("a"), store.get(key(SESSION_1, "1")));
+        assertEquals(Optional.empty(), store.get(key(SESSION_1, "2")));
+        assertEquals(1, store.stats().evictions());
+        assertEquals(1, store.stats().size());
+    }
+
+    @Test
+    void removes_session_states() {
+        final InMemoryComponentStateStore<String> store = new InMemoryComponentStateStore<>(10);
+        store.put(key(SESSION_1, "1"), "a");
+        store.put(key(SESSION_2, "1"), "b");
+        store.removeSession(SESSION_1);
+
+        assertEquals(Optional.empty(), store.get(key(SESSION_1, "1")));
+        assertEquals(Optional.of("b"), store.get(key(SESSION_2, "1")));
+        assertEquals(0.5, store.stats().hitRatio());
+    }
+
+    @Test
+    void forgets_sessions_of_evicted_states() {
+        final InMemoryComponentStateStore<String> store = new InMemoryComponentStateStore<>(1);
+        store.put(key(SESSION_1, "1"), "a");
+        store.put(key(SESSION_2, "1"), "b");
+        assertEquals(1, store.sessionsCount());
+
+        store.removeSession(SESSION_2);
+        assertEquals(0, store.sessionsCount());
+        assertEquals(0, store.stats().size());
+    }
+
+    private static ComponentCompositeKey key(final QualifiedSessionId sessionId, final String path) {
+        return new ComponentCompositeKey(sessionId, "test", TreePositionPath.of(path));
+    }
+}
@@ -9,14 +9,13 @@ import rsp.server.Path;
 import rsp.server.TestCollectingRemoteOut;
 import rsp.server.http.HttpRequest;
 import rsp.server.http.PageStateOrigin;
-import rsp.util.json.JsonDataType;
 
 import java.net.URI;
-import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static rsp.html.HtmlDsl.*;
 import static rsp.util.HtmlAssertions.assertHtmlFragmentsEqual;
+import static rsp.util.TestEventContexts.createEventContext;
 
 class InitialStateComponentDefinitionTests {
 
@@ -63,12 +62,7 @@ class InitialStateComponentDefinitionTests {
 
         // Click
         final Event clickEvent = renderContext.recursiveEvents().get(0);
-        final EventContext clickEventContext = new EventContext(clickEvent.eventTarget.elementPath,
-                                                                js -> CompletableFuture.completedFuture(JsonDataType.Object.EMPTY),
-                                                                ref -> null,
-                                                                JsonDataType.Object.EMPTY,
-                                                                (eventElementPath, customEvent) -> {},
-                                                                ref -> {});
+        final EventContext clickEventContext = createEventContext(clickEvent.eventTarget.elementPath);
         clickEvent.eventHandler.accept(clickEventContext);
 
         assertEquals(1, remoteOut.commands.size());
@@ -18,6 +18,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static rsp.html.HtmlDsl.*;
 import static rsp.util.HtmlAssertions.assertHtmlFragmentsEqual;
 import static rsp.util.TestUtils.findFirstListElementByType;
+import static rsp.util.TestEventContexts.createEventContext;
 
 class PathStateComponentDefinitionTests {
 
@@ -54,12 +55,7 @@ class PathStateComponentDefinitionTests {
 
         // Click
         final Event clickEvent = renderContext.recursiveEvents().get(0);
-        final EventContext clickEventContext1 = new EventContext(clickEvent.eventTarget.elementPath,
-                                                                 js -> CompletableFuture.completedFuture(JsonDataType.Object.EMPTY),
-                                                                 ref -> null,
-                                                                 JsonDataType.Object.EMPTY,
-                                                                 (eventElementPath, customEvent) -> {},
-                                                                 ref -> {});
+        final EventContext clickEventContext1 = createEventContext(clickEvent.eventTarget.elementPath);
         clickEvent.eventHandler.accept(clickEventContext1);
 
         assertEquals(3, remoteOut.commands.size());
@@ -76,17 +72,10 @@ class PathStateComponentDefinitionTests {
 
         // History backward
         final Event popstateEvent = renderContext.recursiveEvents().stream().filter(e -> "popstate".equals(e.eventTarget.eventType)).findFirst().orElseThrow();
-        final EventContext popstateEventContext = new EventContext(popstateEvent.eventTarget.elementPath,
-                                                                js -> CompletableFuture.completedFuture(JsonDataType.Object.EMPTY),
-                                                                ref -> null,
-                                                                JsonDataType.Object.EMPTY.put("path",
-                                                                                              new JsonDataType.String("state-0"))
-                                                                                         .put("query",
-                                                                                              new JsonDataType.String(""))
-                                                                                         .put("fragment",
-                                                                                              new JsonDataType.String("")),
-                                                                (eventElementPath, customEvent) -> {},
-                                                                ref -> {});
+        final EventContext popstateEventContext = createEventContext(popstateEvent.eventTarget.elementPath,
+                                                                     JsonDataType.Object.EMPTY.put("path", new JsonDataType.String("state-0"))
+                                                                                              .put("query", new JsonDataType.String(""))
+                                                                                              .put("fragment", new JsonDataType.String("")));
         popstateEvent.eventHandler.accept(popstateEventContext);
 
         assertEquals(2, remoteOut.commands.size());
@@ -0,0 +1,74 @@
+package rsp.component;
+
+import org.junit.jupiter.api.Test;
+import rsp.server.TestCollectingRemoteOut;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static rsp.html.HtmlDsl.*;
+import static rsp.util.HtmlAssertions.assertHtmlFragmentsEqual;
+import static rsp.util.TestUtils.findFirstListElementByType;
+import static rsp.util.TestRenderContexts.createRenderContext;
+
+class SharedStateComponentDefinitionTests {
+
+    @Test
+    void shared_state_change_is_rendered_once_for_pages_with_the_same_view() {
+        final AtomicInteger rendersCount = new AtomicInteger();
+        final SharedState<String> sharedState = new SharedState<>("a", Runnable::run);
+        final View<String> view = state -> {
+            rendersCount.incrementAndGet();
+            return div(text("leader-" + state));
+        };
+
+        final TestCollectingRemoteOut remoteOut1 = new TestCollectingRemoteOut();
+        final ComponentRenderContext renderContext1 = createRenderContext("session-1", remoteOut1, new Object());
+        new SharedStateComponentDefinition<>(sharedState, view).render(renderContext1);
+
+        final TestCollectingRemoteOut remoteOut2 = new TestCollectingRemoteOut();
+        final ComponentRenderContext renderContext2 = createRenderContext("session-2", remoteOut2, new Object());
+        new SharedStateComponentDefinition<>(sharedState, view).render(renderContext2);
+
+        assertEquals(2, sharedState.subscribersCount());
+        assertEquals(2, rendersCount.get());
+        assertHtmlFragmentsEqual("<div>leader-a</div>", renderContext1.html());
+
+        sharedState.set("b");
+
+        assertEquals(3, rendersCount.get());
+        final TestCollectingRemoteOut.ModifyDomOutMessage message1 =
+                findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut1.commands).orElseThrow();
+        final TestCollectingRemoteOut.ModifyDomOutMessage message2 =
+                findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut2.commands).orElseThrow();
+        assertSame(message1.domChange, message2.domChange);
+        assertTrue(message1.toString().contains("leader-b"));
+        assertHtmlFragmentsEqual("<div>leader-b</div>", renderContext2.html());
+    }
+
+    @Test
+    void unmounted_component_is_unsubscribed() {
+        final SharedState<String> sharedState = new SharedState<>("a", Runnable::run);
+        final ComponentRenderContext renderContext = createRenderContext("session-1", new TestCollectingRemoteOut(), new Object());
+        new SharedStateComponentDefinition<>(sharedState, state -> span(state)).render(renderContext);
+        assertEquals(1, sharedState.subscribersCount());
+
+        renderContext.shutdown();
+        assertEquals(0, sharedState.subscribersCount());
+    }
+
+    @Test
+    void nested_component_in_shared_view_is_rejected() {
+        final SharedState<String> sharedState = new SharedState<>("a", Runnable::run);
+        final View<String> view = state -> state.equals("a") ? span(state)
+                                                             : div(new InitialStateComponentDefinition<>(state, s -> ns -> span(s)));
+        final ComponentRenderContext renderContext = createRenderContext("session-1", new TestCollectingRemoteOut(), new Object());
+        new SharedStateComponentDefinition<>(sharedState, view).render(renderContext);
+
+        assertThrows(IllegalStateException.class, () -> sharedState.set("b"));
+
+        final SharedState<String> nestedSharedState = new SharedState<>("b", Runnable::run);
+        new SharedStateComponentDefinition<>(nestedSharedState, view).render(createRenderContext("session-2", new TestCollectingRemoteOut(), new Object()));
+        assertEquals(0, nestedSharedState.subscribersCount());
+    }
+}
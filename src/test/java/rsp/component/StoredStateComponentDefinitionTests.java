@@ -10,17 +10,16 @@ import rsp.server.Path;
 import rsp.server.TestCollectingRemoteOut;
 import rsp.server.http.HttpRequest;
 import rsp.server.http.PageStateOrigin;
-import rsp.util.json.JsonDataType;
 
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static rsp.html.HtmlDsl.*;
 import static rsp.util.HtmlAssertions.assertHtmlFragmentsEqual;
 import static rsp.util.TestUtils.findFirstListElementByType;
+import static rsp.util.TestEventContexts.createEventContext;
 
 class StoredStateComponentDefinitionTests {
     static final Map<ComponentCompositeKey, Integer> stateStore = new HashMap<>();
@@ -66,12 +65,7 @@ class StoredStateComponentDefinitionTests {
         // Remove sub component
         // Click
         final Event clickEvent = renderContext.recursiveEvents().get(0);
-        final EventContext clickEventContext = new EventContext(clickEvent.eventTarget.elementPath,
-                                                                js -> CompletableFuture.completedFuture(JsonDataType.Object.EMPTY),
-                                                                ref -> null,
-                                                                JsonDataType.Object.EMPTY,
-                                                                (eventElementPath, customEvent) -> {},
-                                                                ref -> {});
+        final EventContext clickEventContext = createEventContext(clickEvent.eventTarget.elementPath);
         clickEvent.eventHandler.accept(clickEventContext);
 
         assertEquals(1, remoteOut.commands.size());
@@ -88,4 +82,31 @@ class StoredStateComponentDefinitionTests {
         final TestCollectingRemoteOut.ModifyDomOutMessage modifyDomOutMessage2 = findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands).orElseThrow();
         assertTrue(modifyDomOutMessage2.toString().contains("test-store-100"));
     }
+
+    @Test
+    void component_states_are_removed_from_store_on_session_shutdown() {
+        final QualifiedSessionId qualifiedSessionId = new QualifiedSessionId("test-device", "test-session-2");
+        final URI uri = URI.create("http://localhost");
+        final HttpRequest httpRequest = new HttpRequest(HttpRequest.HttpMethod.GET,
+                                                        uri,
+                                                        uri.toString(),
+                                                        Path.ROOT);
+        final InMemoryComponentStateStore<Integer> store = new InMemoryComponentStateStore<>(100);
+        final ComponentRenderContext renderContext = new ComponentRenderContext(qualifiedSessionId,
+                                                                                TreePositionPath.of("1"),
+                                                                                new PageStateOrigin(httpRequest),
+                                                                                new TestCollectingRemoteOut(),
+                                                                                new Object());
+        final StatefulComponentDefinition<Integer> scd = new StoredStateComponentDefinition<>(100,
+                                                                                              s -> ns -> div(text("test-store-" + s)),
+                                                                                              store);
+        scd.render(renderContext);
+        assertEquals(1, store.stats().size());
+
+        renderContext.shutdown();
+        assertEquals(1, store.stats().size());
+
+        renderContext.runSessionShutdownHooks();
+        assertEquals(0, store.stats().size());
+    }
 }
@@ -0,0 +1,76 @@
+package rsp.component;
+
+import org.junit.jupiter.api.Test;
+import rsp.dom.Event;
+import rsp.page.EventContext;
+import rsp.server.TestCollectingRemoteOut;
+import rsp.util.json.JsonDataType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static rsp.html.HtmlDsl.*;
+import static rsp.util.TestUtils.findFirstListElementByType;
+import static rsp.util.TestRenderContexts.createRenderContext;
+import static rsp.util.TestEventContexts.createEventContext;
+
+class VirtualListComponentDefinitionTests {
+
+    final List<String> items = IntStream.range(0, 100_000).mapToObj(i -> "item-" + i).toList();
+
+    @Test
+    void window_includes_visible_items_and_overscan() {
+        final VirtualListComponentDefinition<String> definition = createDefinition();
+        assertEquals(new VirtualListComponentDefinition.Window(0, 7),
+                     definition.window(new VirtualListComponentDefinition.Viewport(0, 100)));
+        assertEquals(new VirtualListComponentDefinition.Window(48, 57),
+                     definition.window(new VirtualListComponentDefinition.Viewport(1000, 100)));
+        assertEquals(new VirtualListComponentDefinition.Window(99_998, 100_000),
+                     definition.window(new VirtualListComponentDefinition.Viewport(2_000_000, 100)));
+    }
+
+    @Test
+    void renders_only_the_window_and_updates_it_on_scroll() {
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final ComponentRenderContext renderContext = createRenderContext(remoteOut);
+        createDefinition().render(renderContext);
+
+        final String html = renderContext.html();
+        assertTrue(html.contains("item-6<"));
+        assertFalse(html.contains("item-7<"));
+
+        assertEquals(1, renderContext.recursiveEvents().size());
+        final Event scrollEvent = renderContext.recursiveEvents().get(0);
+        assertEquals("scroll", scrollEvent.eventTarget.eventType);
+        scrollEvent.eventHandler.accept(scrollEventContext(scrollEvent, 1005));
+
+        final TestCollectingRemoteOut.ModifyDomOutMessage message =
+                findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands).orElseThrow();
+        assertTrue(message.toString().contains("item-57"));
+        assertTrue(renderContext.html().contains("item-48"));
+        assertFalse(renderContext.html().contains("item-47"));
+
+        // scrolling within the same window does not cause a rendering
+        remoteOut.clear();
+        renderContext.recursiveEvents().get(0).eventHandler.accept(scrollEventContext(scrollEvent, 1010));
+        assertTrue(remoteOut.commands.isEmpty());
+    }
+
+    private VirtualListComponentDefinition<String> createDefinition() {
+        return new VirtualListComponentDefinition<>("list",
+                                                    items,
+                                                    item -> span(item),
+                                                    20,
+                                                    100,
+                                                    2,
+                                                    100);
+    }
+
+    private static EventContext scrollEventContext(final Event event, final int scrollTop) {
+        return createEventContext(event.eventTarget.elementPath,
+                                  new JsonDataType.Object(Map.of("scrollTop", new JsonDataType.Number(scrollTop),
+                                                                 "clientHeight", new JsonDataType.Number(100))));
+    }
+}
@@ -15,5 +15,9 @@ class DefaultDomChangesContextTests {
         EqualsVerifier.forClass(DefaultDomChangesContext.SetAttr.class).verify();
         EqualsVerifier.forClass(DefaultDomChangesContext.Create.class).verify();
         EqualsVerifier.forClass(DefaultDomChangesContext.CreateText.class).verify();
+        EqualsVerifier.forClass(DefaultDomChangesContext.InsertHtml.class).verify();
+        EqualsVerifier.forClass(DefaultDomChangesContext.RemoveNodes.class).verify();
+        EqualsVerifier.forClass(DefaultDomChangesContext.SetText.class).verify();
+        EqualsVerifier.forClass(DefaultDomChangesContext.SetAttrs.class).verify();
     }
 }
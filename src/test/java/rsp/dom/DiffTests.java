@@ -2,7 +2,13 @@ package rsp.dom;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DiffTests {
     final TreePositionPath basePath = new TreePositionPath(1);
@@ -64,7 +70,7 @@ class DiffTests {
 
         final TestChangesContext cp = new TestChangesContext();
         Diff.diff(tree1, tree2, basePath, cp, new HtmlBuilder(new StringBuilder()));
-        assertEquals("+TEXT:1:1_1=123", cp.resultAsString());
+        assertEquals("=TEXT:1_1=123", cp.resultAsString());
     }
 
 
@@ -140,7 +146,7 @@ class DiffTests {
 
         final TestChangesContext cp = new TestChangesContext();
         Diff.diff(tree1, tree2, basePath, cp, new HtmlBuilder(new StringBuilder()));
-        assertEquals("+TEXT:1:1_3=klm", cp.resultAsString());
+        assertEquals("=TEXT:1_3=klm", cp.resultAsString());
     }
 
     @Test
@@ -233,6 +239,154 @@ class DiffTests {
         assertEquals("-STYLE:1:style1", cp.resultAsString());
     }
 
+    @Test
+    void should_skip_the_same_prerendered_subtree() {
+        final Tag constantTag = new Tag(XmlNs.html, "span", false);
+        constantTag.addChild(new Text("constant"));
+        constantTag.prerender();
+
+        final Tag tree1 = new Tag(XmlNs.html, "div", false);
+        tree1.addChild(constantTag);
+        tree1.addChild(new Text("abc"));
+
+        final Tag tree2 = new Tag(XmlNs.html, "div", false);
+        tree2.addChild(constantTag);
+        tree2.addChild(new Text("def"));
+
+        final TestChangesContext cp = new TestChangesContext();
+        Diff.diff(tree1, tree2, basePath, cp, new HtmlBuilder(new StringBuilder()));
+        assertEquals("=TEXT:1_2=def", cp.resultAsString());
+        assertEquals("<span>constant</span>", constantTag.prerenderedHtml());
+    }
+
+    @Test
+    void should_insert_large_new_subtree_as_html() {
+        final Tag tree1 = new Tag(XmlNs.html, "div", false);
+
+        final Tag tree2 = new Tag(XmlNs.html, "div", false);
+        final Tag ul = new Tag(XmlNs.html, "ul", false);
+        final StringBuilder expectedHtml = new StringBuilder("<ul>");
+        for (int i = 0; i < Diff.INSERT_HTML_MIN_NODES / 2; i++) {
+            final Tag li = new Tag(XmlNs.html, "li", false);
+            li.addChild(new Text("item" + i));
+            ul.addChild(li);
+            expectedHtml.append("<li>item").append(i).append("</li>");
+        }
+        expectedHtml.append("</ul>");
+        final Tag input = new Tag(XmlNs.html, "input", true);
+        input.addAttribute("value", "v", true);
+        ul.addChild(input);
+        expectedHtml.insert(expectedHtml.length() - "</ul>".length(), "<input value=\"v\" />");
+        tree2.addChild(ul);
+
+        final TestChangesContext cp = new TestChangesContext();
+        Diff.diff(tree1, tree2, basePath, cp, new HtmlBuilder(new StringBuilder()));
+        assertEquals("+HTML:1:1_1=" + expectedHtml + " +ATTR:1_1_" + (Diff.INSERT_HTML_MIN_NODES / 2 + 1) + ":value=v:true",
+                     cp.resultAsString());
+    }
+
+    @Test
+    void should_create_new_subtree_by_nodes_when_html_is_ambiguous() {
+        assertCreatedByNodes(list("table", "tr", "td"), "+TAG:1_1:table +TAG:1_1_1:tr +TAG:1_1_1_1:td");
+        assertCreatedByNodes(list("div", "p", "div"), "+TAG:1_1:div +TAG:1_1_1:p +TAG:1_1_1_1:div");
+        assertCreatedByNodes(list("div", "a", "span"), "+TAG:1_1:div +TAG:1_1_1:a");
+        assertCreatedByNodes(list("div", "form", "span"), "+TAG:1_1:div +TAG:1_1_1:form");
+        assertCreatedByNodes(list("select", "option", "span"), "+TAG:1_1:select +TAG:1_1_1:option");
+        assertCreatedByNodes(list("div", "pre", "span"), "+TAG:1_1:div +TAG:1_1_1:pre");
+        assertCreatedByNodes(list("div", "textarea", "span"), "+TAG:1_1:div +TAG:1_1_1:textarea");
+        assertCreatedByNodes(list("ul", "li", "li"), "+TAG:1_1:ul +TAG:1_1_1:li +TAG:1_1_1_1:li");
+    }
+
+    @Test
+    void should_escape_values_of_new_subtree_html() {
+        final Tag tree1 = new Tag(XmlNs.html, "div", false);
+
+        final Tag tree2 = new Tag(XmlNs.html, "div", false);
+        final Tag ul = list("ul", "li", "span");
+        ul.addAttribute("title", "\"a\" & b", false);
+        ul.addStyle("font-family", "\"Open Sans\"");
+        ((Tag) ((Tag) ul.children.get(0)).children.get(0)).children.set(0, new Text("a < b & c"));
+        tree2.addChild(ul);
+
+        final TestChangesContext cp = new TestChangesContext();
+        Diff.diff(tree1, tree2, basePath, cp, new HtmlBuilder(new StringBuilder()));
+        final String result = cp.resultAsString();
+        assertTrue(result.startsWith("+HTML:1:1_1=<ul style=\"font-family:&quot;Open Sans&quot;;\" title=\"&quot;a&quot; &amp; b\">"
+                                     + "<li><span>a &lt; b &amp; c</span></li>"), result);
+    }
+
+    private void assertCreatedByNodes(final Tag newSubtree, final String expectedStart) {
+        final Tag tree1 = new Tag(XmlNs.html, "div", false);
+        final Tag tree2 = new Tag(XmlNs.html, "div", false);
+        tree2.addChild(newSubtree);
+
+        final TestChangesContext cp = new TestChangesContext();
+        Diff.diff(tree1, tree2, basePath, cp, new HtmlBuilder(new StringBuilder()));
+        final String result = cp.resultAsString();
+        assertTrue(result.startsWith(expectedStart), result);
+        assertFalse(result.contains("+HTML"), result);
+    }
+
+    private static Tag list(final String listTagName, final String itemTagName, final String itemChildTagName) {
+        final Tag list = new Tag(XmlNs.html, listTagName, false);
+        for (int i = 0; i < Diff.INSERT_HTML_MIN_NODES; i++) {
+            final Tag item = new Tag(XmlNs.html, itemTagName, false);
+            final Tag itemChild = new Tag(XmlNs.html, itemChildTagName, false);
+            itemChild.addChild(new Text("item" + i));
+            item.addChild(itemChild);
+            list.addChild(item);
+        }
+        return list;
+    }
+
+    @Test
+    void should_create_siblings_after_text_at_consecutive_paths() {
+        final Tag tree1 = new Tag(XmlNs.html, "div", false);
+
+        final Tag tree2 = new Tag(XmlNs.html, "div", false);
+        final Tag p = new Tag(XmlNs.html, "p", false);
+        p.addChild(new Text("text"));
+        p.addChild(new Tag(XmlNs.html, "b", false));
+        tree2.addChild(p);
+
+        final TestChangesContext cp = new TestChangesContext();
+        Diff.diff(tree1, tree2, basePath, cp, new HtmlBuilder(new StringBuilder()));
+        assertEquals("+TAG:1_1:p+TEXT:1_1:1_1_1=text  +TAG:1_1_2:b", cp.resultAsString());
+    }
+
+    @Test
+    void should_remove_trailing_children_as_range() {
+        final Tag tree1 = new Tag(XmlNs.html, "ul", false);
+        for (int i = 0; i < 5; i++) {
+            tree1.addChild(new Tag(XmlNs.html, "li", false));
+        }
+        final Tag tree2 = new Tag(XmlNs.html, "ul", false);
+        tree2.addChild(new Tag(XmlNs.html, "li", false));
+
+        final TestChangesContext cp = new TestChangesContext();
+        Diff.diff(tree1, tree2, basePath, cp, new HtmlBuilder(new StringBuilder()));
+        assertEquals("-NODES:1:1_2:4", cp.resultAsString());
+
+        final DefaultDomChangesContext domChanges = new DefaultDomChangesContext();
+        Diff.diff(tree1, tree2, basePath, domChanges, new HtmlBuilder(new StringBuilder()));
+        assertEquals(Set.of(TreePositionPath.of("1_2"), TreePositionPath.of("1_3"), TreePositionPath.of("1_4"), TreePositionPath.of("1_5")),
+                     domChanges.elementsToRemove);
+    }
+
+    @Test
+    void should_set_multiple_attributes_in_one_change() {
+        final Tag tree1 = new Tag(XmlNs.html, "div", false);
+        tree1.addAttribute("attr0", "value0", false);
+
+        final Tag tree2 = new Tag(XmlNs.html, "div", false);
+        tree2.addAttribute("attr1", "value1", false);
+        tree2.addAttribute("attr2", "value2", true);
+
+        final TestChangesContext cp = new TestChangesContext();
+        Diff.diff(tree1, tree2, basePath, cp, new HtmlBuilder(new StringBuilder()));
+        assertEquals("-ATTR:1:attr0 +ATTRS:1:attr1=value1:false,attr2=value2:true", cp.resultAsString());
+    }
+
     static class TestChangesContext implements DomChangesContext {
         final StringBuilder sb = new StringBuilder();
 
@@ -282,6 +436,31 @@ class DiffTests {
             insertDelimiter(sb);
         }
 
+        @Override
+        public void insertHtml(final TreePositionPath parentPath, final TreePositionPath path, final String html) {
+            insertDelimiter(sb);
+            sb.append("+HTML:" + parentPath + ":" + path + "=" + html);
+        }
+
+        @Override
+        public void removeNodes(final TreePositionPath parentPath, final TreePositionPath fromPath, final int count) {
+            insertDelimiter(sb);
+            sb.append("-NODES:" + parentPath + ":" + fromPath + ":" + count);
+        }
+
+        @Override
+        public void setText(final TreePositionPath path, final String text) {
+            insertDelimiter(sb);
+            sb.append("=TEXT:" + path + "=" + text);
+        }
+
+        @Override
+        public void setAttrs(final TreePositionPath path, final List<Attribute> attributes) {
+            insertDelimiter(sb);
+            sb.append("+ATTRS:" + path + ":" + attributes.stream().map(a -> a.name + "=" + a.value + ":" + a.isProperty)
+                                                             .collect(Collectors.joining(",")));
+        }
+
         private void insertDelimiter(final StringBuilder sb) {
             if (sb.length() != 0) sb.append(" ");
         }
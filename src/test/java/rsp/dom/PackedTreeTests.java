@@ -0,0 +1,134 @@
+package rsp.dom;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedTreeTests {
+    final TreePositionPath basePath = new TreePositionPath(1);
+
+    @Test
+    void packed_tree_builds_the_same_html_as_nodes() {
+        final Tag tree = tree("first", "second");
+        final PackedTree packedTree = PackedTree.pack(List.of(tree));
+
+        final HtmlBuilder hb = new HtmlBuilder(new StringBuilder());
+        hb.buildHtml(packedTree);
+
+        assertEquals(tree.toString(), hb.toString());
+        assertEquals(9, packedTree.nodesCount());
+        assertEquals(1, packedTree.rootsCount());
+    }
+
+    @Test
+    void unpacked_nodes_build_the_same_html() {
+        final Tag tree = tree("first", "second");
+        final List<Node> unpacked = PackedTree.pack(List.of(tree)).unpack();
+
+        assertEquals(1, unpacked.size());
+        assertEquals(tree.toString(), unpacked.get(0).toString());
+    }
+
+    @Test
+    void names_without_symbols_are_kept_in_tree_pool() {
+        final Tag tree = new Tag(XmlNs.html, "custom-element", false);
+        tree.addAttribute("data-row-1", "1", false);
+        tree.addStyle("--row-color", "red");
+
+        final Tag unpacked = (Tag) PackedTree.pack(List.of(tree)).unpack().get(0);
+
+        assertEquals(tree.toString(), unpacked.toString());
+    }
+
+    @Test
+    void prerendered_tag_is_referenced_not_copied() {
+        final Tag constant = new Tag(XmlNs.html, "footer", false);
+        constant.addChild(new Text("constant"));
+        constant.prerender();
+        final Tag tree = new Tag(XmlNs.html, "div", false);
+        tree.addChild(constant);
+
+        final PackedTree packedTree = PackedTree.pack(List.of(tree));
+
+        assertEquals(2, packedTree.nodesCount());
+        final Tag unpacked = (Tag) packedTree.unpack().get(0);
+        assertSame(constant, unpacked.children.get(0));
+
+        final DiffTests.TestChangesContext cp = new DiffTests.TestChangesContext();
+        Diff.diffChildren(packedTree, List.of(tree), basePath, cp, new HtmlBuilder(new StringBuilder()));
+        assertEquals("", cp.resultAsString());
+    }
+
+    @Test
+    void subtrees_select_nodes_of_the_same_storage() {
+        final Tag tree = tree("first", "second");
+        final Map<Node, Integer> nodesIndices = new IdentityHashMap<>();
+        final PackedTree packedTree = PackedTree.pack(List.of(tree), nodesIndices);
+        final Node ul = tree.children.get(1);
+
+        final PackedTree subtree = packedTree.subtrees(new int[] { nodesIndices.get(ul) });
+
+        final HtmlBuilder hb = new HtmlBuilder(new StringBuilder());
+        hb.buildHtml(subtree);
+        assertEquals(ul.toString(), hb.toString());
+        assertEquals(packedTree.nodesCount(), subtree.nodesCount());
+    }
+
+    @Test
+    void diff_of_packed_tree_is_the_same_as_diff_of_nodes() {
+        assertSameDiff(tree("first", "second"), tree("first", "second"));
+        assertSameDiff(tree("first", "second"), tree("first", "changed"));
+        assertSameDiff(tree("first", "second"), tree("first"));
+        assertSameDiff(tree("first"), tree("first", "second", "third"));
+
+        final Tag changedAttributes = tree("first", "second");
+        changedAttributes.attributes.clear();
+        changedAttributes.addAttribute("class", "other", false);
+        changedAttributes.addAttribute("value", "v", true);
+        changedAttributes.styles.clear();
+        changedAttributes.addStyle("color", "red");
+        assertSameDiff(tree("first", "second"), changedAttributes);
+
+        final Tag renamed = new Tag(XmlNs.html, "section", false);
+        renamed.addChild(new Text("text"));
+        assertSameDiff(tree("first", "second"), renamed);
+
+        final Tag textInsteadOfTag = new Tag(XmlNs.html, "div", false);
+        textInsteadOfTag.addChild(new Text("text"));
+        assertSameDiff(tree("first", "second"), textInsteadOfTag);
+        assertSameDiff(textInsteadOfTag, tree("first", "second"));
+    }
+
+    private void assertSameDiff(final Tag oldTree, final Tag newTree) {
+        final DiffTests.TestChangesContext expected = new DiffTests.TestChangesContext();
+        Diff.diffChildren(List.of(oldTree), List.of(newTree), basePath, expected, new HtmlBuilder(new StringBuilder()));
+
+        final DiffTests.TestChangesContext actual = new DiffTests.TestChangesContext();
+        Diff.diffChildren(PackedTree.pack(List.of(oldTree)), List.of(newTree), basePath, actual, new HtmlBuilder(new StringBuilder()));
+
+        assertEquals(expected.resultAsString(), actual.resultAsString());
+    }
+
+    private static Tag tree(final String... items) {
+        final Tag div = new Tag(XmlNs.html, "div", false);
+        div.addAttribute("class", "list", false);
+        div.addStyle("display", "block");
+        div.addStyle("width", "100px");
+        final Tag h1 = new Tag(XmlNs.html, "h1", false);
+        h1.addChild(new Text("title"));
+        div.addChild(h1);
+        final Tag ul = new Tag(XmlNs.html, "ul", false);
+        for (final String item : items) {
+            final Tag li = new Tag(XmlNs.html, "li", false);
+            li.addChild(new Text(item));
+            ul.addChild(li);
+        }
+        div.addChild(ul);
+        div.addChild(new Tag(XmlNs.html, "br", true));
+        return div;
+    }
+}
@@ -0,0 +1,45 @@
+package rsp.dom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTests {
+
+    @Test
+    void same_name_has_the_same_symbol() {
+        final Symbol symbol = Symbol.of(new String("section"));
+
+        assertSame(symbol, Symbol.of(new String("section")));
+        assertSame(symbol, Symbol.byId(symbol.id));
+        assertEquals("section", symbol.name);
+    }
+
+    @Test
+    void dynamic_names_are_not_registered() {
+        final String name = "data-row-" + System.nanoTime();
+        final Symbol symbol = Symbol.of(name);
+
+        assertEquals(Symbol.UNREGISTERED, symbol.id);
+        assertEquals(name, symbol.name);
+        assertEquals("\"" + name + "\"", symbol.quotedName);
+        assertSame(name, Symbol.intern(name));
+    }
+
+    @Test
+    void quoted_name_is_escaped_json_string() {
+        assertEquals("\"class\"", Symbol.of("class").quotedName);
+        assertEquals("\"a\\\"b\"", Symbol.of("a\"b").quotedName);
+    }
+
+    @Test
+    void nodes_share_canonical_names() {
+        final Tag tag1 = new Tag(XmlNs.html, new String("section"), false);
+        final Tag tag2 = new Tag(XmlNs.html, new String("section"), false);
+        tag1.addAttribute(new String("title"), "1", false);
+        tag2.addAttribute(new String("title"), "2", false);
+
+        assertSame(tag1.name, tag2.name);
+        assertSame(tag1.attributes.iterator().next().name, tag2.attributes.iterator().next().name);
+    }
+}
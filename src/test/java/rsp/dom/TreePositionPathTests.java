@@ -61,4 +61,14 @@ class TreePositionPathTests {
     void should_comply_to_equals_hash_contract() {
         EqualsVerifier.forClass(TreePositionPath.class).verify();
     }
+
+    @Test
+    void checks_path_prefix() {
+        final TreePositionPath path = TreePositionPath.of("1_2_1");
+        Assertions.assertTrue(path.startsWith(TreePositionPath.of("1_2_1")));
+        Assertions.assertTrue(path.startsWith(TreePositionPath.of("1_2")));
+        Assertions.assertTrue(path.startsWith(TreePositionPath.of("")));
+        Assertions.assertFalse(path.startsWith(TreePositionPath.of("1_3")));
+        Assertions.assertFalse(path.startsWith(TreePositionPath.of("1_2_1_1")));
+    }
 }
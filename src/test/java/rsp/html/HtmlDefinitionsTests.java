@@ -3,19 +3,17 @@ package rsp.html;
 import org.jsoup.nodes.Document;
 import org.junit.jupiter.api.Test;
 import rsp.component.ComponentRenderContext;
+import rsp.component.ComponentUnmountedCallback;
 import rsp.component.InitialStateComponentDefinition;
 import rsp.component.View;
-import rsp.page.PageRendering;
-import rsp.page.QualifiedSessionId;
-import rsp.server.Path;
+import rsp.dom.Tag;
 import rsp.server.TestCollectingRemoteOut;
-import rsp.server.http.HttpRequest;
-import rsp.server.http.PageStateOrigin;
 
-import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 import static rsp.html.HtmlDsl.*;
+import static rsp.util.TestRenderContexts.createRenderContext;
 
 public class HtmlDefinitionsTests {
 
@@ -49,27 +47,49 @@ public class HtmlDefinitionsTests {
         assertTrue(org.jsoup.Jsoup.parse(expectedHtml).hasSameValue(html));
     }
 
+    @Test
+    void renders_constant_definition_as_shared_prerendered_nodes() {
+        final ConstantDefinition header = constant(div(attr("class", "header"), span("static text")));
+        final View<String> view = state -> div(header, span(state));
+
+        final ComponentRenderContext rc1 = createRenderContext(new TestCollectingRemoteOut());
+        new InitialStateComponentDefinition<>("first", state -> newState -> view.apply(state)).render(rc1);
+        final ComponentRenderContext rc2 = createRenderContext(new TestCollectingRemoteOut());
+        new InitialStateComponentDefinition<>("second", state -> newState -> view.apply(state)).render(rc2);
+
+        assertEquals("<div><div class=\"header\"><span>static text</span></div><span>first</span></div>", rc1.html());
+        final Tag root1 = (Tag) rc1.rootNodes().get(0);
+        final Tag root2 = (Tag) rc2.rootNodes().get(0);
+        assertSame(root1.children.get(0), root2.children.get(0));
+        assertNotNull(((Tag) root1.children.get(0)).prerenderedHtml());
+    }
+
+    @Test
+    void constant_definition_cannot_contain_events() {
+        assertThrows(IllegalArgumentException.class, () -> constant(div(on("click", ctx -> {}))));
+    }
+
+    @Test
+    void constant_definition_cannot_contain_components() {
+        final AtomicInteger unmountsCount = new AtomicInteger();
+        final InitialStateComponentDefinition<String> component = new InitialStateComponentDefinition<>("state", s -> ns -> span(s)) {
+            @Override
+            protected ComponentUnmountedCallback<String> componentWillUnmount() {
+                return (key, state) -> unmountsCount.incrementAndGet();
+            }
+        };
+        assertThrows(IllegalArgumentException.class, () -> constant(div(component)));
+        assertEquals(0, unmountsCount.get());
+
+        final SegmentDefinition customDefinition = renderContext -> component.render(renderContext);
+        assertThrows(IllegalArgumentException.class, () -> constant(div(customDefinition)));
+        assertEquals(1, unmountsCount.get());
+    }
+
     private static <S> String htmlOf(final View<S> view, final S initialState) {
         final var component = new InitialStateComponentDefinition<S>(initialState, state -> newState -> view.apply(state));
-        final ComponentRenderContext rc = createRenderContext();
+        final ComponentRenderContext rc = createRenderContext(new TestCollectingRemoteOut());
         component.render(rc);
         return rc.html();
     }
-
-    private static ComponentRenderContext createRenderContext() {
-        final QualifiedSessionId qualifiedSessionId = new QualifiedSessionId("0", "0");
-        final URI uri = URI.create("http://localhost");
-        final HttpRequest httpRequest = new HttpRequest(HttpRequest.HttpMethod.GET,
-                                                        uri,
-                                                        uri.toString(),
-                                                        Path.ROOT);
-        final PageStateOrigin pageStateOrigin = new PageStateOrigin(httpRequest);
-        final ComponentRenderContext rc = new ComponentRenderContext(qualifiedSessionId,
-                                                                     PageRendering.DOCUMENT_DOM_PATH,
-                                                                     pageStateOrigin,
-                                                                     new TestCollectingRemoteOut(),
-                                                                     new Object());
-        return rc;
-
-    }
 }
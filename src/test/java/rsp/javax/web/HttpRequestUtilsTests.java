@@ -0,0 +1,99 @@
+package rsp.javax.web;
+
+import org.junit.jupiter.api.Test;
+import rsp.server.Path;
+import rsp.server.http.HttpRequest;
+
+import javax.websocket.server.HandshakeRequest;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HttpRequestUtilsTests {
+
+    @Test
+    void copies_only_selected_headers_to_handshake_request_snapshot() {
+        final HandshakeRequest handshakeRequest = new TestHandshakeRequest(URI.create("ws://localhost/a/b?x=1"),
+                                                                           Map.of("cookie", List.of("id=42"),
+                                                                                  "Authorization", List.of("secret")),
+                                                                           Map.of("x", List.of("1", "2")));
+        final HttpRequest request = HttpRequestUtils.httpRequest(handshakeRequest, Set.of("Cookie"));
+
+        assertEquals(Path.of("/a/b"), request.path);
+        assertEquals(Optional.of("42"), request.cookie("id"));
+        assertEquals(Optional.of("id=42"), request.header("COOKIE"));
+        assertEquals(Optional.empty(), request.header("Authorization"));
+        assertEquals(Optional.of("1"), request.queryParam("x"));
+    }
+
+    @Test
+    void reads_only_selected_headers_of_handshake_request() {
+        final Map<String, List<String>> headers = new HashMap<>() {
+            @Override
+            public Set<Map.Entry<String, List<String>>> entrySet() {
+                throw new UnsupportedOperationException("All the headers are read");
+            }
+
+            @Override
+            public Collection<List<String>> values() {
+                throw new UnsupportedOperationException("All the headers are read");
+            }
+        };
+        headers.put("user-agent", List.of("test"));
+        headers.put("Authorization", List.of("secret"));
+        final HandshakeRequest handshakeRequest = new TestHandshakeRequest(URI.create("ws://localhost/"),
+                                                                           headers,
+                                                                           Map.of());
+        final HttpRequest request = HttpRequestUtils.httpRequest(handshakeRequest, Set.of("User-Agent", "Origin"));
+
+        assertEquals(Optional.of("test"), request.header("User-Agent"));
+        assertEquals(Optional.empty(), request.header("Origin"));
+        assertEquals(Optional.empty(), request.header("Authorization"));
+    }
+
+    private record TestHandshakeRequest(URI uri,
+                                        Map<String, List<String>> headers,
+                                        Map<String, List<String>> parameters) implements HandshakeRequest {
+        @Override
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public Principal getUserPrincipal() {
+            return null;
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return uri;
+        }
+
+        @Override
+        public boolean isUserInRole(final String role) {
+            return false;
+        }
+
+        @Override
+        public Object getHttpSession() {
+            return null;
+        }
+
+        @Override
+        public Map<String, List<String>> getParameterMap() {
+            return parameters;
+        }
+
+        @Override
+        public String getQueryString() {
+            return uri.getQuery();
+        }
+    }
+}
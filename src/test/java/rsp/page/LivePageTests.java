@@ -4,13 +4,23 @@ import org.jsoup.nodes.Document;
 import org.junit.jupiter.api.Test;
 import rsp.component.*;
 import rsp.dom.TreePositionPath;
+import rsp.ref.ElementRef;
+import rsp.server.ExtractPropertyRequest;
+import rsp.server.ExtractPropertyResponse;
 import rsp.server.Path;
 import rsp.server.TestCollectingRemoteOut;
 import rsp.server.http.*;
 import rsp.util.json.JsonDataType;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static rsp.html.HtmlDsl.*;
@@ -43,7 +53,8 @@ class LivePageTests {
         final PageConfigScript pageConfigScript = new PageConfigScript(QID.sessionId,
                                                                        "/",
                                                                        DefaultConnectionLostWidget.HTML,
-                                                                       1000);
+                                                                       1000,
+                                                                       false);
         final PageStateOrigin httpStateOrigin = new PageStateOrigin(httpRequest);
         final TemporaryBufferedPageCommands commandsBuffer = new TemporaryBufferedPageCommands();
         final Object sessionLock = new Object();
@@ -85,6 +96,337 @@ class LivePageTests {
         assertTrue(modifyDomOutMessage.isPresent() && modifyDomOutMessage.get().domChange.get(0).toString().contains("1001"));
     }
 
+    @Test
+    void should_re_render_passivated_page_with_saved_states_on_next_event() {
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final URI uri = URI.create("http://localhost");
+        final HttpRequest httpRequest = new HttpRequest(HttpRequest.HttpMethod.GET,
+                                                        uri,
+                                                        uri.toString(),
+                                                        Path.ROOT);
+        final PageConfigScript pageConfigScript = new PageConfigScript(QID.sessionId,
+                                                                       "/",
+                                                                       DefaultConnectionLostWidget.HTML,
+                                                                       1000,
+                                                                       false);
+        final TemporaryBufferedPageCommands commandsBuffer = new TemporaryBufferedPageCommands();
+        final Object sessionLock = new Object();
+        final PageRenderContext domTreeContext = new PageRenderContext(QID,
+                                                                       pageConfigScript.toString(),
+                                                                       DOCUMENT_DOM_PATH,
+                                                                       new PageStateOrigin(httpRequest),
+                                                                       commandsBuffer,
+                                                                       sessionLock);
+        final ComponentView<State> counterView = state -> newState -> html(
+                body(
+                        span(text(state.toString()), on("click", eventContext -> newState.setState(new State(state.value + 1))))
+                )
+        );
+        final StatefulComponentDefinition<State> componentDefinition = ComponentDsl.pathComponent(p -> CompletableFuture.completedFuture(new State(10)),
+                                                                                                  (s, p) -> p,
+                                                                                                  counterView);
+        componentDefinition.render(domTreeContext);
+
+        final LivePageSession livePage = new LivePageSession(domTreeContext,
+                                                             componentDefinition,
+                                                             remoteOut,
+                                                             sessionLock,
+                                                             0);
+        livePage.init();
+        commandsBuffer.redirectMessagesOut(remoteOut);
+        remoteOut.commands.clear();
+
+        livePage.handleDomEvent(1, TreePositionPath.of("1_2_1"), "click", new JsonDataType.Object());
+        assertTrue(findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands)
+                .map(m -> m.domChange.get(0).toString().contains("11")).orElse(false));
+        remoteOut.commands.clear();
+
+        livePage.passivate();
+        assertTrue(livePage.isPassivated());
+
+        livePage.handleDomEvent(1, TreePositionPath.of("1_2_1"), "click", new JsonDataType.Object());
+        assertFalse(livePage.isPassivated());
+        assertTrue(findFirstListElementByType(TestCollectingRemoteOut.EvalJsMessage.class, remoteOut.commands).isEmpty());
+        assertTrue(findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands)
+                .map(m -> m.domChange.get(0).toString().contains("12")).orElse(false));
+    }
+
+    @Test
+    void should_keep_page_live_if_passivated_page_is_not_stored() {
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final URI uri = URI.create("http://localhost");
+        final HttpRequest httpRequest = new HttpRequest(HttpRequest.HttpMethod.GET,
+                                                        uri,
+                                                        uri.toString(),
+                                                        Path.ROOT);
+        final TemporaryBufferedPageCommands commandsBuffer = new TemporaryBufferedPageCommands();
+        final Object sessionLock = new Object();
+        final PageRenderContext domTreeContext = new PageRenderContext(QID,
+                                                                       "",
+                                                                       DOCUMENT_DOM_PATH,
+                                                                       new PageStateOrigin(httpRequest),
+                                                                       commandsBuffer,
+                                                                       sessionLock);
+        final ComponentView<State> counterView = state -> newState -> html(
+                body(
+                        span(text(state.toString()), on("click", eventContext -> newState.setState(new State(state.value + 1))))
+                )
+        );
+        final StatefulComponentDefinition<State> componentDefinition = ComponentDsl.pathComponent(p -> CompletableFuture.completedFuture(new State(10)),
+                                                                                                  (s, p) -> p,
+                                                                                                  counterView);
+        componentDefinition.render(domTreeContext);
+        final PassivatedPagesStore failingStore = new PassivatedPagesStore() {
+            @Override
+            public void put(final QualifiedSessionId sessionId, final PassivatedPage page) {
+                throw new UncheckedIOException(new IOException("Disk is full"));
+            }
+
+            @Override
+            public Optional<PassivatedPage> remove(final QualifiedSessionId sessionId) {
+                return Optional.empty();
+            }
+        };
+
+        final LivePageSession livePage = new LivePageSession(domTreeContext,
+                                                             componentDefinition,
+                                                             remoteOut,
+                                                             sessionLock,
+                                                             0,
+                                                             failingStore);
+        livePage.init();
+        commandsBuffer.redirectMessagesOut(remoteOut);
+        remoteOut.commands.clear();
+
+        assertThrows(UncheckedIOException.class, livePage::passivate);
+        assertFalse(livePage.isPassivated());
+
+        livePage.handleDomEvent(1, TreePositionPath.of("1_2_1"), "click", new JsonDataType.Object());
+        assertTrue(findFirstListElementByType(TestCollectingRemoteOut.EvalJsMessage.class, remoteOut.commands).isEmpty());
+        assertTrue(findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands)
+                .map(m -> m.domChange.get(0).toString().contains("11")).orElse(false));
+    }
+
+    @Test
+    void should_request_reload_and_stay_passivated_if_passivated_page_cannot_be_read() {
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final URI uri = URI.create("http://localhost");
+        final HttpRequest httpRequest = new HttpRequest(HttpRequest.HttpMethod.GET,
+                                                        uri,
+                                                        uri.toString(),
+                                                        Path.ROOT);
+        final TemporaryBufferedPageCommands commandsBuffer = new TemporaryBufferedPageCommands();
+        final Object sessionLock = new Object();
+        final PageRenderContext domTreeContext = new PageRenderContext(QID,
+                                                                       "",
+                                                                       DOCUMENT_DOM_PATH,
+                                                                       new PageStateOrigin(httpRequest),
+                                                                       commandsBuffer,
+                                                                       sessionLock);
+        final ComponentView<State> counterView = state -> newState -> html(
+                body(
+                        span(text(state.toString()), on("click", eventContext -> newState.setState(new State(state.value + 1))))
+                )
+        );
+        final StatefulComponentDefinition<State> componentDefinition = ComponentDsl.pathComponent(p -> CompletableFuture.completedFuture(new State(10)),
+                                                                                                  (s, p) -> p,
+                                                                                                  counterView);
+        componentDefinition.render(domTreeContext);
+        final PassivatedPagesStore brokenStore = new PassivatedPagesStore() {
+            @Override
+            public void put(final QualifiedSessionId sessionId, final PassivatedPage page) {
+            }
+
+            @Override
+            public Optional<PassivatedPage> remove(final QualifiedSessionId sessionId) {
+                throw new UncheckedIOException(new IOException("Corrupted segment"));
+            }
+        };
+
+        final LivePageSession livePage = new LivePageSession(domTreeContext,
+                                                             componentDefinition,
+                                                             remoteOut,
+                                                             sessionLock,
+                                                             0,
+                                                             brokenStore);
+        livePage.init();
+        commandsBuffer.redirectMessagesOut(remoteOut);
+        remoteOut.commands.clear();
+
+        livePage.passivate();
+        assertTrue(livePage.isPassivated());
+
+        livePage.handleDomEvent(1, TreePositionPath.of("1_2_1"), "click", new JsonDataType.Object());
+        assertTrue(livePage.isPassivated());
+        assertTrue(findFirstListElementByType(TestCollectingRemoteOut.EvalJsMessage.class, remoteOut.commands)
+                .map(m -> m.descriptor == -1 && m.js.equals("RSP.reload()")).orElse(false));
+        assertTrue(findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands).isEmpty());
+    }
+
+    @Test
+    void should_drop_stale_event_targeting_replaced_element() {
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final URI uri = URI.create("http://localhost");
+        final HttpRequest httpRequest = new HttpRequest(HttpRequest.HttpMethod.GET,
+                                                        uri,
+                                                        uri.toString(),
+                                                        Path.ROOT);
+        final PageConfigScript pageConfigScript = new PageConfigScript(QID.sessionId,
+                                                                       "/",
+                                                                       DefaultConnectionLostWidget.HTML,
+                                                                       1000,
+                                                                       false);
+        final TemporaryBufferedPageCommands commandsBuffer = new TemporaryBufferedPageCommands();
+        final Object sessionLock = new Object();
+        final PageRenderContext domTreeContext = new PageRenderContext(QID,
+                                                                       pageConfigScript.toString(),
+                                                                       DOCUMENT_DOM_PATH,
+                                                                       new PageStateOrigin(httpRequest),
+                                                                       commandsBuffer,
+                                                                       sessionLock);
+        final ComponentView<State> toggleView = state -> newState -> html(
+                body(
+                        when(state.value % 2 == 0,
+                             () -> span(text(state.toString()), on("click", eventContext -> newState.setState(new State(state.value + 1))))),
+                        when(state.value % 2 != 0,
+                             () -> div(text(state.toString()), on("click", eventContext -> newState.setState(new State(state.value + 1)))))
+                )
+        );
+        final StatefulComponentDefinition<State> componentDefinition = ComponentDsl.pathComponent(p -> CompletableFuture.completedFuture(new State(10)),
+                                                                                                  (s, p) -> p,
+                                                                                                  toggleView);
+        componentDefinition.render(domTreeContext);
+
+        final LivePageSession livePage = new LivePageSession(domTreeContext,
+                                                             componentDefinition,
+                                                             remoteOut,
+                                                             sessionLock,
+                                                             0,
+                                                             new InMemoryPassivatedPagesStore(),
+                                                             commandsBuffer.renderFence(),
+                                                             0);
+        livePage.init();
+        commandsBuffer.redirectMessagesOut(remoteOut);
+        remoteOut.commands.clear();
+
+        livePage.handleDomEvent(0, TreePositionPath.of("1_2_1"), "click", new JsonDataType.Object());
+        assertTrue(findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands).isPresent());
+        assertTrue(remoteOut.commands.stream().anyMatch(c -> c instanceof TestCollectingRemoteOut.SetRenderNumOutMessage m && m.renderNum == 1));
+        remoteOut.commands.clear();
+
+        livePage.handleDomEvent(0, TreePositionPath.of("1_2_1"), "click", new JsonDataType.Object());
+        assertTrue(remoteOut.commands.isEmpty());
+        assertEquals(1, livePage.droppedStaleEventsCount());
+
+        livePage.handleDomEvent(1, TreePositionPath.of("1_2_1"), "click", new JsonDataType.Object());
+        assertTrue(findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands)
+                .map(m -> m.domChange.toString().contains("12")).orElse(false));
+        assertEquals(1, livePage.droppedStaleEventsCount());
+    }
+
+    @Test
+    void should_read_properties_of_several_elements_in_one_request() {
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final ElementRef nameRef = createElementRef();
+        final ElementRef agreeRef = createElementRef();
+        final ComponentView<State> formView = state -> newState -> html(
+                body(
+                        input(elementId(nameRef)),
+                        input(elementId(agreeRef)),
+                        button(text(state.toString()), on("click", eventContext -> eventContext.propertiesBatch()
+                                .add(nameRef, "value")
+                                .add(agreeRef, "checked")
+                                .get()
+                                .thenAccept(values -> newState.setState(new State(values.get(0).asJsonString().value().length()
+                                                                                  + (values.get(1).asJsonBoolean().value() ? 100 : 0))))))
+                )
+        );
+        final LivePageSession livePage = createLivePage(formView, remoteOut, 0);
+
+        livePage.handleDomEvent(0, TreePositionPath.of("1_2_3"), "click", new JsonDataType.Object());
+        final var extractProperties = findFirstListElementByType(TestCollectingRemoteOut.ExtractPropertiesOutMessage.class,
+                                                                 remoteOut.commands).orElseThrow();
+        assertEquals(List.of(new ExtractPropertyRequest(TreePositionPath.of("1_2_1"), "value"),
+                             new ExtractPropertyRequest(TreePositionPath.of("1_2_2"), "checked")),
+                     extractProperties.requests);
+        assertEquals(1, livePage.pendingResponsesCount());
+        remoteOut.commands.clear();
+
+        livePage.handleExtractPropertyResponse(extractProperties.descriptor,
+                                               new ExtractPropertyResponse.Value(new JsonDataType.Array(new JsonDataType.String("abc"),
+                                                                                                        new JsonDataType.Boolean(true))));
+        assertEquals(0, livePage.pendingResponsesCount());
+        assertTrue(findFirstListElementByType(TestCollectingRemoteOut.ModifyDomOutMessage.class, remoteOut.commands)
+                .map(m -> m.domChange.toString().contains("103")).orElse(false));
+    }
+
+    @Test
+    void should_release_abandoned_request_on_response_timeout() {
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final LivePageSession livePage = createLivePage(view, remoteOut, 0);
+
+        final CompletableFuture<JsonDataType> result = livePage.evalJs("1+1", 50);
+        assertEquals(1, livePage.pendingResponsesCount());
+
+        final ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, ex.getCause());
+        assertEquals(0, livePage.pendingResponsesCount());
+    }
+
+    @Test
+    void should_fail_pending_requests_on_shutdown() {
+        final TestCollectingRemoteOut remoteOut = new TestCollectingRemoteOut();
+        final LivePageSession livePage = createLivePage(view, remoteOut, 0);
+
+        final CompletableFuture<JsonDataType> result = livePage.evalJs("1+1");
+        assertEquals(1, livePage.pendingResponsesCount());
+
+        livePage.shutdown();
+        final ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        assertEquals(0, livePage.pendingResponsesCount());
+    }
+
+    private static LivePageSession createLivePage(final ComponentView<State> componentView,
+                                                  final TestCollectingRemoteOut remoteOut,
+                                                  final int responseTimeoutMs) {
+        final URI uri = URI.create("http://localhost");
+        final HttpRequest httpRequest = new HttpRequest(HttpRequest.HttpMethod.GET,
+                                                        uri,
+                                                        uri.toString(),
+                                                        Path.ROOT);
+        final PageConfigScript pageConfigScript = new PageConfigScript(QID.sessionId,
+                                                                       "/",
+                                                                       DefaultConnectionLostWidget.HTML,
+                                                                       1000,
+                                                                       false);
+        final TemporaryBufferedPageCommands commandsBuffer = new TemporaryBufferedPageCommands();
+        final Object sessionLock = new Object();
+        final PageRenderContext domTreeContext = new PageRenderContext(QID,
+                                                                       pageConfigScript.toString(),
+                                                                       DOCUMENT_DOM_PATH,
+                                                                       new PageStateOrigin(httpRequest),
+                                                                       commandsBuffer,
+                                                                       sessionLock);
+        final StatefulComponentDefinition<State> componentDefinition = ComponentDsl.pathComponent(p -> CompletableFuture.completedFuture(new State(10)),
+                                                                                                  (s, p) -> p,
+                                                                                                  componentView);
+        componentDefinition.render(domTreeContext);
+
+        final LivePageSession livePage = new LivePageSession(domTreeContext,
+                                                             componentDefinition,
+                                                             remoteOut,
+                                                             sessionLock,
+                                                             0,
+                                                             new InMemoryPassivatedPagesStore(),
+                                                             commandsBuffer.renderFence(),
+                                                             responseTimeoutMs);
+        livePage.init();
+        commandsBuffer.redirectMessagesOut(remoteOut);
+        remoteOut.commands.clear();
+        return livePage;
+    }
+
     static final class State {
         public final long value;
 
@@ -0,0 +1,118 @@
+package rsp.page;
+
+import org.junit.jupiter.api.Test;
+import rsp.AppConfig;
+import rsp.component.ComponentView;
+import rsp.component.InitialStateComponentDefinition;
+import rsp.server.Path;
+import rsp.server.http.Header;
+import rsp.server.http.HttpRequest;
+import rsp.server.http.HttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static rsp.html.HtmlDsl.*;
+
+class PageRenderingTests {
+    static final ComponentView<String> plainHeadView = state -> newState ->
+            html(head(HeadType.PLAIN, title("Docs")),
+                 body(span(state)));
+
+    static final ComponentView<String> plainView = state -> newState ->
+            html(head(title("Docs")),
+                 body(span(state)));
+
+    static final ComponentView<String> liveView = state -> newState ->
+            html(head(title("Counter")),
+                 body(span(state),
+                      button(text("+"), on("click", ctx -> newState.setState(state + "+")))));
+
+    @Test
+    void page_with_plain_head_is_served_as_static_page() throws IOException {
+        final Map<QualifiedSessionId, RenderedPage> pagesStorage = new ConcurrentHashMap<>();
+
+        final HttpResponse response = response(pagesStorage, plainHeadView, AppConfig.DEFAULT);
+
+        final String body = responseBody(response);
+        assertEquals(200, response.status);
+        assertTrue(body.contains("<span>docs</span>"));
+        assertFalse(body.contains("<script"));
+        assertTrue(pagesStorage.isEmpty());
+        assertTrue(response.headers.stream().noneMatch(header -> header.name().equalsIgnoreCase("Set-Cookie")));
+    }
+
+    @Test
+    void page_without_events_and_refs_is_detected_as_static_if_enabled() throws IOException {
+        final Map<QualifiedSessionId, RenderedPage> pagesStorage = new ConcurrentHashMap<>();
+
+        final HttpResponse response = response(pagesStorage, plainView, AppConfig.DEFAULT.withDetectStaticPages(true));
+
+        final String body = responseBody(response);
+        assertTrue(body.startsWith("<!DOCTYPE html><html><head><title>Docs</title></head>"));
+        assertFalse(body.contains("<script"));
+        assertTrue(pagesStorage.isEmpty());
+    }
+
+    @Test
+    void detected_static_page_keeps_head_children_around_client_scripts() throws IOException {
+        final ComponentView<String> view = state -> newState ->
+                html(head(title("Docs"), script(text("var a = '<\\/script>';"))),
+                     body(span(state)));
+        final Map<QualifiedSessionId, RenderedPage> pagesStorage = new ConcurrentHashMap<>();
+
+        final HttpResponse response = response(pagesStorage,
+                                               view,
+                                               AppConfig.DEFAULT.withDetectStaticPages(true).withPackedDom(true));
+
+        final String body = responseBody(response);
+        assertTrue(body.startsWith("<!DOCTYPE html><html><head><title>Docs</title><script>"));
+        assertTrue(body.contains("</script></head><body><span>docs</span></body></html>"));
+        assertFalse(body.contains("src="));
+        assertTrue(pagesStorage.isEmpty());
+    }
+
+    @Test
+    void page_with_events_is_served_live_when_static_pages_detection_enabled() throws IOException {
+        final Map<QualifiedSessionId, RenderedPage> pagesStorage = new ConcurrentHashMap<>();
+
+        final HttpResponse response = response(pagesStorage, liveView, AppConfig.DEFAULT.withDetectStaticPages(true));
+
+        final String body = responseBody(response);
+        assertTrue(body.contains("<script"));
+        assertTrue(body.contains("renderHistorySize:" + RenderFence.DEFAULT_HISTORY_SIZE));
+        assertEquals(1, pagesStorage.size());
+    }
+
+    @Test
+    void page_without_events_is_served_live_by_default() throws IOException {
+        final Map<QualifiedSessionId, RenderedPage> pagesStorage = new ConcurrentHashMap<>();
+
+        final HttpResponse response = response(pagesStorage, plainView, AppConfig.DEFAULT);
+
+        assertTrue(responseBody(response).contains("<script"));
+        assertEquals(1, pagesStorage.size());
+    }
+
+    private static HttpResponse response(final Map<QualifiedSessionId, RenderedPage> pagesStorage,
+                                         final ComponentView<String> view,
+                                         final AppConfig config) {
+        final PageRendering<String> pageRendering = new PageRendering<>(pagesStorage,
+                                                                        new InitialStateComponentDefinition<>("docs", view),
+                                                                        config);
+        final URI uri = URI.create("http://localhost/docs");
+        final HttpRequest request = new HttpRequest(HttpRequest.HttpMethod.GET,
+                                                    uri,
+                                                    uri.toString(),
+                                                    Path.of("/docs"));
+        return pageRendering.httpResponse(request).join();
+    }
+
+    private static String responseBody(final HttpResponse response) throws IOException {
+        return new String(response.bodyStream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package rsp.page;
+
+import org.junit.jupiter.api.Test;
+import rsp.dom.DefaultDomChangesContext;
+import rsp.dom.TreePositionPath;
+import rsp.dom.XmlNs;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderFenceTests {
+
+    @Test
+    void numbers_renders_sequentially() {
+        final RenderFence renderFence = new RenderFence();
+        assertEquals(0, renderFence.renderNumber());
+        assertEquals(1, renderFence.advance(List.of()));
+        assertEquals(2, renderFence.advance(List.of()));
+        assertEquals(2, renderFence.renderNumber());
+    }
+
+    @Test
+    void accepts_events_of_current_render_and_not_affected_by_later_renders() {
+        final RenderFence renderFence = new RenderFence();
+        renderFence.advance(List.of(new DefaultDomChangesContext.SetText(TreePositionPath.of("1_2_1"), "text"),
+                                    new DefaultDomChangesContext.Remove(TreePositionPath.of("1_2"), TreePositionPath.of("1_2_2"))));
+        assertFalse(renderFence.isStale(1, TreePositionPath.of("1_2_2")));
+        assertFalse(renderFence.isStale(0, TreePositionPath.of("1_2_1")));
+        assertFalse(renderFence.isStale(0, TreePositionPath.of("1_2")));
+        assertEquals(0, renderFence.droppedEventsCount());
+    }
+
+    @Test
+    void drops_events_from_removed_or_replaced_elements_and_their_descendants() {
+        final RenderFence renderFence = new RenderFence();
+        renderFence.advance(List.of(new DefaultDomChangesContext.Remove(TreePositionPath.of("1_2"), TreePositionPath.of("1_2_2"))));
+        renderFence.advance(List.of(new DefaultDomChangesContext.Create(TreePositionPath.of("1_3"), XmlNs.html, "div")));
+        renderFence.advance(List.of(new DefaultDomChangesContext.RemoveNodes(TreePositionPath.of("1_4"), TreePositionPath.of("1_4_2"), 3)));
+
+        assertTrue(renderFence.isStale(0, TreePositionPath.of("1_2_2_1")));
+        assertFalse(renderFence.isStale(1, TreePositionPath.of("1_2_2_1")));
+        assertTrue(renderFence.isStale(1, TreePositionPath.of("1_3")));
+        assertTrue(renderFence.isStale(2, TreePositionPath.of("1_4_4")));
+        assertFalse(renderFence.isStale(2, TreePositionPath.of("1_4_5")));
+        assertFalse(renderFence.isStale(2, TreePositionPath.of("1_4_1")));
+        assertEquals(3, renderFence.droppedEventsCount());
+    }
+
+    @Test
+    void drops_events_older_than_kept_history() {
+        final RenderFence renderFence = new RenderFence(2);
+        renderFence.advance(List.of());
+        renderFence.advance(List.of());
+        renderFence.advance(List.of());
+        assertFalse(renderFence.isStale(1, TreePositionPath.of("1_1")));
+        assertTrue(renderFence.isStale(0, TreePositionPath.of("1_1")));
+        assertEquals(1, renderFence.droppedEventsCount());
+    }
+}
@@ -0,0 +1,136 @@
+package rsp.page;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rsp.component.ComponentCompositeKey;
+import rsp.dom.TreePositionPath;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentFilePassivatedPagesStoreTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keeps_pages_on_heap_within_budget() {
+        try (final SegmentFilePassivatedPagesStore store = new SegmentFilePassivatedPagesStore(directory, 1024 * 1024)) {
+            final QualifiedSessionId id = new QualifiedSessionId("d", "s1");
+            final PassivatedPage page = page(id, 10);
+            store.put(id, page);
+            assertEquals(1, store.heapPagesCount());
+            assertEquals(0, store.diskPagesCount());
+
+            assertEquals(Optional.of(page), store.remove(id));
+            assertEquals(Optional.empty(), store.remove(id));
+        }
+    }
+
+    @Test
+    void spills_pages_to_disk_over_budget() {
+        try (final SegmentFilePassivatedPagesStore store = new SegmentFilePassivatedPagesStore(directory, 0)) {
+            final QualifiedSessionId id1 = new QualifiedSessionId("d", "s1");
+            final QualifiedSessionId id2 = new QualifiedSessionId("d", "s2");
+            store.put(id1, page(id1, 1));
+            store.put(id2, page(id2, 2));
+            assertEquals(0, store.heapPagesCount());
+            assertEquals(2, store.diskPagesCount());
+
+            assertEquals(Optional.of(page(id2, 2)), store.remove(id2));
+            assertEquals(Optional.of(page(id1, 1)), store.remove(id1));
+            assertEquals(0, store.diskPagesCount());
+        }
+    }
+
+    @Test
+    void keeps_not_serializable_pages_on_heap() {
+        try (final SegmentFilePassivatedPagesStore store = new SegmentFilePassivatedPagesStore(directory, 0)) {
+            final QualifiedSessionId id = new QualifiedSessionId("d", "s1");
+            final PassivatedPage page = new PassivatedPage(Map.of(new ComponentCompositeKey(id, "counter", TreePositionPath.of("1")),
+                                                                  new Object()),
+                                                           PassivatedPage.htmlDigest("<html></html>"));
+            store.put(id, page);
+            assertEquals(1, store.heapPagesCount());
+            assertSame(page, store.remove(id).orElseThrow());
+        }
+    }
+
+    @Test
+    void compacts_segment_with_few_live_records() {
+        final QualifiedSessionId id1 = new QualifiedSessionId("d", "s1");
+        final QualifiedSessionId id2 = new QualifiedSessionId("d", "s2");
+        final QualifiedSessionId id3 = new QualifiedSessionId("d", "s3");
+        final QualifiedSessionId id4 = new QualifiedSessionId("d", "s4");
+        final int recordSize = SegmentFilePassivatedPagesStore.serialize(page(id1, 1)).length;
+        try (final SegmentFilePassivatedPagesStore store = new SegmentFilePassivatedPagesStore(directory,
+                                                                                               0,
+                                                                                               3L * recordSize,
+                                                                                               Runnable::run)) {
+            store.put(id1, page(id1, 1));
+            store.put(id2, page(id2, 2));
+            store.put(id3, page(id3, 3));
+            store.put(id4, page(id4, 4));
+            assertEquals(2, store.segmentsCount());
+
+            store.remove(id1);
+            store.remove(id2);
+            assertEquals(1, store.segmentsCount());
+
+            assertEquals(Optional.of(page(id3, 3)), store.remove(id3));
+            assertEquals(Optional.of(page(id4, 4)), store.remove(id4));
+        }
+    }
+
+    @Test
+    void deletes_released_segment_file_after_roll_over() {
+        final QualifiedSessionId id1 = new QualifiedSessionId("d", "s1");
+        final QualifiedSessionId id2 = new QualifiedSessionId("d", "s2");
+        final int recordSize = SegmentFilePassivatedPagesStore.serialize(page(id1, 1)).length;
+        try (final SegmentFilePassivatedPagesStore store = new SegmentFilePassivatedPagesStore(directory,
+                                                                                               0,
+                                                                                               recordSize,
+                                                                                               Runnable::run)) {
+            store.put(id1, page(id1, 1));
+            final Path firstSegment = store.directory().resolve("pages-0.seg");
+            assertEquals(Optional.of(page(id1, 1)), store.remove(id1));
+            assertTrue(Files.exists(firstSegment));
+
+            store.put(id2, page(id2, 2));
+            assertFalse(Files.exists(firstSegment));
+            assertEquals(1, store.segmentsCount());
+            assertEquals(Optional.of(page(id2, 2)), store.remove(id2));
+        }
+    }
+
+    @Test
+    void keeps_segment_files_in_own_directory() throws IOException {
+        final Path foreignFile = Files.createFile(directory.resolve("pages-0.seg"));
+        final Path storeDirectory;
+        try (final SegmentFilePassivatedPagesStore store = new SegmentFilePassivatedPagesStore(directory, 0)) {
+            final QualifiedSessionId id = new QualifiedSessionId("d", "s1");
+            store.put(id, page(id, 1));
+            storeDirectory = store.directory();
+            assertEquals(directory, storeDirectory.getParent());
+            assertTrue(Files.exists(storeDirectory.resolve("pages-0.seg")));
+            assertTrue(Files.exists(foreignFile));
+        }
+        assertFalse(Files.exists(storeDirectory));
+        assertTrue(Files.exists(foreignFile));
+    }
+
+    private static PassivatedPage page(final QualifiedSessionId id, final int value) {
+        return new PassivatedPage(Map.of(new ComponentCompositeKey(id, "counter", TreePositionPath.of("1")), new State(value),
+                                         new ComponentCompositeKey(id, "counter", TreePositionPath.of("1_1")), new State(value + 1)),
+                                  PassivatedPage.htmlDigest("<html>" + value + "</html>"));
+    }
+
+    record State(int value) implements Serializable {
+    }
+}
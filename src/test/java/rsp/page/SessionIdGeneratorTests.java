@@ -0,0 +1,72 @@
+package rsp.page;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionIdGeneratorTests {
+
+    @Test
+    void generates_random_ids() {
+        final String id = new SessionIdGenerator(64).newId();
+        assertTrue(id.matches("^[0-9A-Za-z]{64}$"), id);
+    }
+
+    @Test
+    void embeds_timestamp_and_node_id() {
+        final SessionIdGenerator generator = new SessionIdGenerator(16).withNodeId("node_1").withTimestamp(() -> 1700000000000L);
+        final String id = generator.newId();
+        assertTrue(id.matches("^[0-9A-Za-z]+\\.node_1-[0-9A-Za-z]{16}$"), id);
+        assertEquals(Optional.of(1700000000000L), SessionIdGenerator.timestamp(id));
+        assertEquals(Optional.empty(), SessionIdGenerator.timestamp("node_1-abc"));
+        assertThrows(IllegalArgumentException.class, () -> generator.withNodeId("node-1"));
+    }
+
+    @Test
+    void finds_no_timestamp_in_ids_without_timestamp() {
+        final String timestampedId = new SessionIdGenerator(16).withTimestamp(() -> 1700000000000L).newId();
+        assertTrue(timestampedId.matches("^[0-9A-Za-z]+\\.[0-9A-Za-z]{16}$"), timestampedId);
+        assertEquals(Optional.of(1700000000000L), SessionIdGenerator.timestamp(timestampedId));
+
+        assertEquals(Optional.empty(), SessionIdGenerator.timestamp(new SessionIdGenerator(16).withNodeId("node1").newId()));
+        assertEquals(Optional.empty(), SessionIdGenerator.timestamp(new SessionIdGenerator(16).newId()));
+        assertEquals(Optional.empty(), SessionIdGenerator.timestamp("node1-abc"));
+        assertEquals(Optional.empty(), SessionIdGenerator.timestamp(".abc"));
+        assertEquals(Optional.empty(), SessionIdGenerator.timestamp("1.node-1-abc"));
+    }
+
+    @Test
+    void generates_unique_ids_concurrently() throws Exception {
+        final int threads = 64;
+        final int idsPerThread = 2000;
+        final SessionIdGenerator generator = new SessionIdGenerator(PageRendering.KEY_LENGTH);
+        final Set<String> ids = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < idsPerThread; j++) {
+                        ids.add(generator.newId());
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+}
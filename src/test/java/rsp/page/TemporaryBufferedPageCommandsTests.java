@@ -2,6 +2,8 @@ package rsp.page;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import rsp.dom.DefaultDomChangesContext;
+import rsp.dom.TreePositionPath;
 import rsp.server.protocol.RemotePageMessageEncoder;
 
 import java.util.ArrayList;
@@ -23,6 +25,23 @@ class TemporaryBufferedPageCommandsTests {
         Assertions.assertEquals(2, testConsumer.messages.size());
     }
 
+    @Test
+    void discards_dom_changes_made_before_html_is_sent() {
+        final TemporaryBufferedPageCommands remoteOutWithBuffer = new TemporaryBufferedPageCommands();
+        final TestMessages testConsumer = new TestMessages();
+        final List<DefaultDomChangesContext.DomChange> domChanges =
+                List.of(new DefaultDomChangesContext.Remove(TreePositionPath.of("1_1"), TreePositionPath.of("1_1_1")));
+        remoteOutWithBuffer.modifyDom(domChanges);
+        remoteOutWithBuffer.listenEvents(List.of());
+        Assertions.assertEquals(0, remoteOutWithBuffer.renderFence().renderNumber());
+
+        remoteOutWithBuffer.markHtmlSent();
+        remoteOutWithBuffer.modifyDom(domChanges);
+        remoteOutWithBuffer.redirectMessagesOut(new RemotePageMessageEncoder(testConsumer));
+        Assertions.assertEquals(1, remoteOutWithBuffer.renderFence().renderNumber());
+        Assertions.assertEquals(2, testConsumer.messages.size());
+    }
+
     private static class TestMessages implements Consumer<String> {
         public List<String> messages = new ArrayList<>();
 
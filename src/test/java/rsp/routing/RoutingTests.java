@@ -5,11 +5,13 @@ import rsp.server.http.HttpRequest;
 import rsp.server.Path;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 import static rsp.routing.RoutingDsl.*;
 
 class RoutingTests {
@@ -62,4 +64,62 @@ class RoutingTests {
         return concat(path("/:a", s -> CompletableFuture.completedFuture("A")),
                       path("/:a/:b", s -> CompletableFuture.completedFuture("B")));
     }
+
+    @Test
+    void should_route_to_first_matching_path_pattern() {
+        final String[] patterns = { "/a/b", "/a/:p", "/a/:p(^\\d+$)/c", "/a/*", "/:p1/:p2", "/*", "", "/x/*/y", "/x/:p(^q)" };
+        final Route<Path, String> r = concat(patternRoutes(patterns));
+        final String[] paths = { "", "/", "/a", "/a/b", "/a/c", "/a/1/c", "/a/z/c", "/a/b/c/d", "/x/1/y", "/x/q1", "/x/1/z", "/q", "/:p/:p(^q)" };
+        for (final String path : paths) {
+            assertEquals(linearMatch(patterns, Path.of(path)), r.apply(Path.of(path)).map(CompletableFuture::join), path);
+        }
+    }
+
+    @Test
+    void should_keep_route_order_around_not_pattern_routes() {
+        final Route<Path, String> r = concat(path("/a/*", s -> CompletableFuture.completedFuture("A")),
+                                             match(p -> p.startsWith("a"), p -> CompletableFuture.completedFuture("B")),
+                                             path("/a", s -> CompletableFuture.completedFuture("C")),
+                                             path("/:p", s -> CompletableFuture.completedFuture("D")));
+        assertEquals("A", r.apply(Path.of("/a/1")).orElseThrow().join());
+        assertEquals("B", r.apply(Path.of("/a")).orElseThrow().join());
+        assertEquals("D", r.apply(Path.of("/b")).orElseThrow().join());
+        assertTrue(r.apply(Path.of("/b/c")).isEmpty());
+    }
+
+    @Test
+    void compiled_routes_select_only_matching_patterns_for_many_routes() {
+        final int routesCount = 2000;
+        final List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < routesCount; i++) {
+            patterns.add("/section" + i + "/:id(^\\d+$)/details");
+        }
+        final String[] patternsArray = patterns.toArray(String[]::new);
+        final Route<Path, String> compiled = concat(patternRoutes(patternsArray));
+        final Path path = Path.of("/section" + (routesCount - 1) + "/42/details");
+
+        assertEquals(Optional.of(patternsArray[routesCount - 1]), compiled.apply(path).map(CompletableFuture::join));
+        final PathPatternTrie<?, ?> trie = assertInstanceOf(PathPatternTrie.class, compiled);
+        assertEquals(1, trie.candidates(path).cardinality());
+        assertEquals(0, trie.candidates(Path.of("/section1/x/details")).cardinality());
+        assertEquals(0, trie.candidates(Path.of("/other/42/details")).cardinality());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Route<Path, String>[] patternRoutes(final String... patterns) {
+        final Route<Path, String>[] routes = (Route<Path, String>[]) new Route<?, ?>[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            routes[i] = path(patterns[i], CompletableFuture.completedFuture(patterns[i]));
+        }
+        return routes;
+    }
+
+    private static Optional<String> linearMatch(final String[] patterns, final Path path) {
+        for (final String pattern : patterns) {
+            if (PathPattern.of(pattern).match(path)) {
+                return Optional.of(pattern);
+            }
+        }
+        return Optional.empty();
+    }
 }
@@ -5,7 +5,9 @@ import rsp.server.http.HttpRequest;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -40,4 +42,25 @@ class HttpRequestTests {
         final Optional<String> cookieValue = request.cookie("name4");
         assertEquals(Optional.empty(), cookieValue);
     }
+
+    @Test
+    void should_parse_cookies_header_once() throws URISyntaxException {
+        final AtomicInteger headerReads = new AtomicInteger();
+        final URI uri = new URI("http://foo/bar");
+        final HttpRequest request = new HttpRequest(HttpRequest.HttpMethod.GET,
+                                                    uri,
+                                                    uri.toString(),
+                                                    Path.EMPTY,
+                                                    s -> Optional.empty(),
+                                                    s -> {
+                                                        headerReads.incrementAndGet();
+                                                        return Optional.of("a=1; b=x=y ;a=2; c");
+                                                    });
+
+        assertEquals(Optional.of("1"), request.cookie("a"));
+        assertEquals(Optional.of("x=y"), request.cookie("b"));
+        assertEquals(Optional.empty(), request.cookie("c"));
+        assertEquals(Map.of("a", "1", "b", "x=y"), request.cookies());
+        assertEquals(1, headerReads.get());
+    }
 }
@@ -44,4 +44,13 @@ class PathTests {
         assertArrayEquals(expectedElements, path.elements());
     }
 
+    @Test
+    void should_skip_empty_elements_and_surrounding_whitespace() {
+        final Path path = Path.of("  //foo//bar/ \t");
+        assertTrue(path.isAbsolute());
+        assertArrayEquals(new String[] {"foo", "bar"}, path.elements());
+        assertEquals(Path.of("/foo/bar"), path);
+        assertTrue(Path.of(" ").isEmpty());
+        assertFalse(Path.of("//").isEmpty());
+    }
 }
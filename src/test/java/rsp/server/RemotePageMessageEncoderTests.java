@@ -3,8 +3,10 @@ package rsp.server;
 
 
 import org.junit.jupiter.api.Test;
+import rsp.dom.Attribute;
 import rsp.dom.DefaultDomChangesContext;
 import rsp.dom.Event;
+import rsp.dom.SharedDomChanges;
 import rsp.dom.TreePositionPath;
 import rsp.dom.XmlNs;
 import rsp.server.protocol.RemotePageMessageEncoder;
@@ -13,6 +15,7 @@ import java.util.List;
 import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class RemotePageMessageEncoderTests {
 
@@ -41,14 +44,22 @@ class RemotePageMessageEncoderTests {
         assertEquals("[3,\"32\",\"1_1\",\"value\"]", c.result); // TODO why descriptor id is in quotes?
     }
 
+    @Test
+    void should_extract_properties_in_one_message() {
+        final MessagesConsumer c = new MessagesConsumer();
+        create(c).extractProperties(33, List.of(new ExtractPropertyRequest(TreePositionPath.of("1_1"), "value"),
+                                                new ExtractPropertyRequest(TreePositionPath.of("1_2_3"), "checked")));
+        assertEquals("[16,\"33\",2,\"1_1\",\"value\",\"1_2_3\",\"checked\"]", c.result);
+    }
+
     @Test
     void should_modify_dom_create_tag() {
         final MessagesConsumer c = new MessagesConsumer();
         create(c).modifyDom(List.of(new DefaultDomChangesContext.Create(TreePositionPath.of("1_1"), XmlNs.html, "div")));
-        assertEquals("[4,0,\"1\",\"1_1\",0,\"div\"]", c.result); // TODO should a unified way to be used to encode XmlNs.html and others? e.g. an enum integer values
+        assertEquals("[4,0,\"1\",\">\",0,\"div\"]", c.result); // TODO should a unified way to be used to encode XmlNs.html and others? e.g. an enum integer values
 
         create(c).modifyDom(List.of(new DefaultDomChangesContext.Create(TreePositionPath.of("100_1"), XmlNs.svg, "a")));
-        assertEquals("[4,0,\"100\",\"100_1\",\"svg\",\"a\"]", c.result);
+        assertEquals("[4,0,\"100\",\">\",\"svg\",\"a\"]", c.result);
     }
 
     @Test
@@ -56,7 +67,18 @@ class RemotePageMessageEncoderTests {
         final MessagesConsumer c = new MessagesConsumer();
         create(c).modifyDom(List.of(new DefaultDomChangesContext.Create(TreePositionPath.of("1_1"), XmlNs.html, "div"),
                                     new DefaultDomChangesContext.Create(TreePositionPath.of("1_1_1"), XmlNs.html, "div")));
-        assertEquals("[4,0,\"1\",\"1_1\",0,\"div\",0,\"1_1\",\"1_1_1\",0,\"div\"]", c.result);
+        assertEquals("[4,0,\"1\",\">\",0,\"div\",0,\"=\",\">\",0,\"div\"]", c.result);
+    }
+
+    @Test
+    void should_reuse_encoded_shared_modify_dom_message() {
+        final MessagesConsumer c1 = new MessagesConsumer();
+        final MessagesConsumer c2 = new MessagesConsumer();
+        final SharedDomChanges domChanges = new SharedDomChanges(List.of(new DefaultDomChangesContext.Create(TreePositionPath.of("1_1"), XmlNs.html, "div")));
+        create(c1).modifyDom(domChanges);
+        create(c2).modifyDom(domChanges);
+        assertEquals("[4,0,\"1\",\">\",0,\"div\"]", c1.result);
+        assertSame(c1.result, c2.result);
     }
 
     @Test
@@ -66,6 +88,24 @@ class RemotePageMessageEncoderTests {
         assertEquals("[4,1,\"1_1\",\"1_1_3\",\"foo bar\"]", c.result); //TODO check escape characters
     }
 
+    @Test
+    void should_modify_dom_insert_html() {
+        final MessagesConsumer c = new MessagesConsumer();
+        create(c).modifyDom(List.of(new DefaultDomChangesContext.InsertHtml(TreePositionPath.of("1_1"), TreePositionPath.of("1_1_3"), "<a href=\"/\">x</a>")));
+        assertEquals("[4,7,\"1_1\",\"1_1_3\",\"<a href=\\\"/\\\">x</a>\"]", c.result);
+    }
+
+    @Test
+    void should_modify_dom_remove_nodes_set_text_and_attrs() {
+        final MessagesConsumer c = new MessagesConsumer();
+        create(c).modifyDom(List.of(new DefaultDomChangesContext.RemoveNodes(TreePositionPath.of("1_1"), TreePositionPath.of("1_1_3"), 990),
+                                    new DefaultDomChangesContext.SetText(TreePositionPath.of("1_1_1"), "foo"),
+                                    new DefaultDomChangesContext.SetAttrs(TreePositionPath.of("1_1_2"),
+                                                                          List.of(new Attribute("a", "1", false),
+                                                                                  new Attribute("b", "2", true)))));
+        assertEquals("[4,8,\"1_1\",\"1_1_3\",990,9,\"1_1_1\",\"foo\",10,\"+\",2,\"a\",\"1\",false,\"b\",\"2\",true]", c.result);
+    }
+
     @Test
     void should_modify_dom_remove_tag() {
         final MessagesConsumer c = new MessagesConsumer();
@@ -36,6 +36,11 @@ public class TestCollectingRemoteOut implements RemoteOut {
         commands.add(new ExtractPropertyOutMessage(descriptor, path, name));
     }
 
+    @Override
+    public void extractProperties(final int descriptor, final List<ExtractPropertyRequest> requests) {
+        commands.add(new ExtractPropertiesOutMessage(descriptor, requests));
+    }
+
     @Override
     public void modifyDom(final List<DefaultDomChangesContext.DomChange> domChange) {
         commands.add(new ModifyDomOutMessage(domChange));
@@ -181,6 +186,30 @@ public class TestCollectingRemoteOut implements RemoteOut {
         }
     }
 
+    public static final class ExtractPropertiesOutMessage implements Message {
+        public final int descriptor;
+        public final List<ExtractPropertyRequest> requests;
+
+        public ExtractPropertiesOutMessage(final int descriptor, final List<ExtractPropertyRequest> requests) {
+            this.descriptor = descriptor;
+            this.requests = requests;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final ExtractPropertiesOutMessage that = (ExtractPropertiesOutMessage) o;
+            return descriptor == that.descriptor &&
+                    Objects.equals(requests, that.requests);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(descriptor, requests);
+        }
+    }
+
     public static final class ModifyDomOutMessage implements Message {
         public final List<DefaultDomChangesContext.DomChange> domChange;
 
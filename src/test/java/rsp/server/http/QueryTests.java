@@ -0,0 +1,39 @@
+package rsp.server.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryTests {
+
+    @Test
+    void parses_parameters_with_and_without_leading_question_mark() {
+        final Query query = new Query("?a=1&b=2&a=3");
+        assertEquals(Optional.of("1"), query.parameter("a"));
+        assertEquals(List.of("1", "3"), query.parameterValues("a"));
+        assertEquals(Map.of("a", List.of("1", "3"), "b", List.of("2")), query.parameters());
+        assertEquals(query.parameters(), new Query("a=1&b=2&a=3").parameters());
+    }
+
+    @Test
+    void decodes_names_and_values() {
+        final Query query = new Query("first%20name=John+Smith&flag&empty=&bad=%zz");
+        assertEquals(Optional.of("John Smith"), query.parameter("first name"));
+        assertEquals(Optional.of(""), query.parameter("flag"));
+        assertEquals(Optional.of(""), query.parameter("empty"));
+        assertEquals(Optional.of("%zz"), query.parameter("bad"));
+    }
+
+    @Test
+    void reuses_parsed_parameters() {
+        final Query query = new Query("a=1");
+        assertSame(query.parameters(), query.parameters());
+        assertTrue(Query.EMPTY.parameters().isEmpty());
+        assertTrue(new Query(null).parameters().isEmpty());
+        assertEquals(Optional.empty(), new Query("&&").parameter("a"));
+    }
+}
@@ -0,0 +1,136 @@
+package rsp.server.http;
+
+import org.junit.jupiter.api.Test;
+import rsp.server.Path;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticResourcesCacheTests {
+    private static final Path SCRIPT_PATH = Path.of("/static/rsp-client.min.js");
+
+    private final StaticResourcesCache cache = new StaticResourcesCache(StaticResourcesCacheTests.class);
+
+    @Test
+    void loads_resource_once() {
+        final StaticResourcesCache.CachedResource resource1 = cache.resource(SCRIPT_PATH).orElseThrow();
+        final StaticResourcesCache.CachedResource resource2 = cache.resource(SCRIPT_PATH).orElseThrow();
+        assertSame(resource1, resource2);
+        assertTrue(resource1.content().length > 0);
+        assertEquals("text/javascript; charset=utf-8", resource1.contentType());
+    }
+
+    @Test
+    void responds_not_found_for_missing_resource_or_parent_path() {
+        assertEquals(404, cache.response(request("/static/missing.js", Map.of(), Map.of())).status);
+        assertEquals(404, cache.response(request("/static/../static/rsp-client.min.js", Map.of(), Map.of())).status);
+    }
+
+    @Test
+    void responds_with_etag_and_revalidation_for_not_versioned_url() throws IOException {
+        final StaticResourcesCache.CachedResource resource = cache.resource(SCRIPT_PATH).orElseThrow();
+        final HttpResponse response = cache.response(request(SCRIPT_PATH.toString(), Map.of(), Map.of()));
+        assertEquals(200, response.status);
+        assertEquals(Optional.of(resource.etag()), header(response, "ETag"));
+        assertEquals(Optional.of("no-cache"), header(response, "Cache-Control"));
+        assertArrayEquals(resource.content(), response.bodyStream.readAllBytes());
+    }
+
+    @Test
+    void responds_immutable_for_versioned_url() {
+        final String url = cache.versionedUrl(SCRIPT_PATH);
+        final String version = url.substring(url.indexOf("?v=") + 3);
+        final HttpResponse response = cache.response(request(SCRIPT_PATH.toString(), Map.of(), Map.of("v", version)));
+        assertEquals(Optional.of("public, max-age=31536000, immutable"), header(response, "Cache-Control"));
+
+        final HttpResponse staleVersionResponse = cache.response(request(SCRIPT_PATH.toString(), Map.of(), Map.of("v", "stale")));
+        assertEquals(Optional.of("no-cache"), header(staleVersionResponse, "Cache-Control"));
+    }
+
+    @Test
+    void responds_not_modified_for_matching_etag() throws IOException {
+        final StaticResourcesCache.CachedResource resource = cache.resource(SCRIPT_PATH).orElseThrow();
+        final HttpResponse response = cache.response(request(SCRIPT_PATH.toString(),
+                                                             Map.of("If-None-Match", resource.etag()),
+                                                             Map.of()));
+        assertEquals(304, response.status);
+        assertEquals(0, response.bodyStream.readAllBytes().length);
+
+        final HttpResponse changedResponse = cache.response(request(SCRIPT_PATH.toString(),
+                                                                    Map.of("If-None-Match", "\"other\""),
+                                                                    Map.of()));
+        assertEquals(200, changedResponse.status);
+    }
+
+    @Test
+    void responds_with_gzip_when_accepted() throws IOException {
+        final StaticResourcesCache.CachedResource resource = cache.resource(SCRIPT_PATH).orElseThrow();
+        final HttpResponse response = cache.response(request(SCRIPT_PATH.toString(),
+                                                             Map.of("Accept-Encoding", "gzip, deflate, br"),
+                                                             Map.of()));
+        assertEquals(200, response.status);
+        assertEquals(Optional.of("gzip"), header(response, "Content-Encoding"));
+        assertEquals(Optional.of(resource.gzipEtag()), header(response, "ETag"));
+        try (final GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.bodyStream.readAllBytes()))) {
+            assertArrayEquals(resource.content(), in.readAllBytes());
+        }
+
+        final HttpResponse refusedResponse = cache.response(request(SCRIPT_PATH.toString(),
+                                                                    Map.of("Accept-Encoding", "gzip;q=0"),
+                                                                    Map.of()));
+        assertEquals(Optional.empty(), header(refusedResponse, "Content-Encoding"));
+    }
+
+    @Test
+    void responds_with_partial_content_for_range() throws IOException {
+        final StaticResourcesCache.CachedResource resource = cache.resource(SCRIPT_PATH).orElseThrow();
+        final int length = resource.content().length;
+        final HttpResponse response = cache.response(request(SCRIPT_PATH.toString(),
+                                                             Map.of("Range", "bytes=2-5"),
+                                                             Map.of()));
+        assertEquals(206, response.status);
+        assertEquals(Optional.of("bytes 2-5/" + length), header(response, "Content-Range"));
+        final byte[] body = response.bodyStream.readAllBytes();
+        assertEquals(4, body.length);
+        assertEquals(resource.content()[2], body[0]);
+
+        final HttpResponse unsatisfiableResponse = cache.response(request(SCRIPT_PATH.toString(),
+                                                                          Map.of("Range", "bytes=" + length + "-"),
+                                                                          Map.of()));
+        assertEquals(416, unsatisfiableResponse.status);
+        assertEquals(Optional.of("bytes */" + length), header(unsatisfiableResponse, "Content-Range"));
+    }
+
+    @Test
+    void parses_ranges() {
+        assertEquals(Optional.of(new StaticResourcesCache.ByteRange(0, 9)), StaticResourcesCache.parseRange("bytes=0-9", 100));
+        assertEquals(Optional.of(new StaticResourcesCache.ByteRange(90, 99)), StaticResourcesCache.parseRange("bytes=-10", 100));
+        assertEquals(Optional.of(new StaticResourcesCache.ByteRange(50, 99)), StaticResourcesCache.parseRange("bytes=50-", 100));
+        assertEquals(Optional.of(new StaticResourcesCache.ByteRange(50, 99)), StaticResourcesCache.parseRange("bytes=50-200", 100));
+        assertEquals(Optional.of(StaticResourcesCache.ByteRange.UNSATISFIABLE), StaticResourcesCache.parseRange("bytes=100-", 100));
+        assertEquals(Optional.empty(), StaticResourcesCache.parseRange("bytes=0-1,5-6", 100));
+        assertEquals(Optional.empty(), StaticResourcesCache.parseRange("items=0-1", 100));
+    }
+
+    private static Optional<String> header(final HttpResponse response, final String name) {
+        return response.headers.stream().filter(h -> h.name().equals(name)).map(Header::value).findFirst();
+    }
+
+    private static HttpRequest request(final String path,
+                                       final Map<String, String> headers,
+                                       final Map<String, String> queryParams) {
+        final URI uri = URI.create("http://localhost" + path);
+        return new HttpRequest(HttpRequest.HttpMethod.GET,
+                               uri,
+                               uri.toString(),
+                               Path.of(path),
+                               name -> Optional.ofNullable(queryParams.get(name)),
+                               name -> Optional.ofNullable(headers.get(name)));
+    }
+}
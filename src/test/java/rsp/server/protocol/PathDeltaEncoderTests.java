@@ -0,0 +1,33 @@
+package rsp.server.protocol;
+
+import org.junit.jupiter.api.Test;
+import rsp.dom.TreePositionPath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PathDeltaEncoderTests {
+
+    @Test
+    void encodes_paths_relative_to_previous() {
+        final PathDeltaEncoder paths = new PathDeltaEncoder();
+        assertEquals("\"1_2_5\"", paths.encode(TreePositionPath.of("1_2_5")));
+        assertEquals("\"=\"", paths.encode(TreePositionPath.of("1_2_5")));
+        assertEquals("\"+\"", paths.encode(TreePositionPath.of("1_2_6")));
+        assertEquals("\">\"", paths.encode(TreePositionPath.of("1_2_6_1")));
+        assertEquals("\"^\"", paths.encode(TreePositionPath.of("1_2_6")));
+        assertEquals("\">\"", paths.encode(TreePositionPath.of("1_2_6_1")));
+        assertEquals("\"^+\"", paths.encode(TreePositionPath.of("1_2_7")));
+        assertEquals("\"1_3_1\"", paths.encode(TreePositionPath.of("1_3_1")));
+        assertEquals("\"^\"", paths.encode(TreePositionPath.of("1_3")));
+        assertEquals("\"^\"", paths.encode(TreePositionPath.of("1")));
+        assertEquals("\"\"", paths.encode(TreePositionPath.of("")));
+    }
+
+    @Test
+    void encodes_first_child_of_root_path_in_full() {
+        final PathDeltaEncoder paths = new PathDeltaEncoder();
+        assertEquals("\"\"", paths.encode(TreePositionPath.of("")));
+        assertEquals("\"1\"", paths.encode(TreePositionPath.of("1")));
+        assertEquals("\">\"", paths.encode(TreePositionPath.of("1_1")));
+    }
+}
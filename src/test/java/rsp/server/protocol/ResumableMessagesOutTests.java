@@ -0,0 +1,71 @@
+package rsp.server.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResumableMessagesOutTests {
+
+    @Test
+    void sends_messages_to_attached_sink() {
+        final ResumableMessagesOut out = new ResumableMessagesOut(10);
+        final List<String> received = new ArrayList<>();
+        assertTrue(out.attach(received::add, 0));
+        out.accept("a");
+        out.accept("b");
+        assertEquals(List.of("a", "b"), received);
+        assertEquals(2, out.sequence());
+    }
+
+    @Test
+    void replays_missed_messages_on_resume() {
+        final ResumableMessagesOut out = new ResumableMessagesOut(10);
+        final List<String> received1 = new ArrayList<>();
+        out.attach(received1::add, 0);
+        out.accept("a");
+        out.accept("b");
+        out.detach();
+        out.accept("c");
+        out.accept("d");
+
+        final List<String> received2 = new ArrayList<>();
+        assertTrue(out.attach(received2::add, 1));
+        out.accept("e");
+
+        assertEquals(List.of("a", "b"), received1);
+        assertEquals(List.of("b", "c", "d", "e"), received2);
+    }
+
+    @Test
+    void does_not_resume_when_missed_messages_are_evicted() {
+        final ResumableMessagesOut out = new ResumableMessagesOut(2);
+        out.attach(s -> {}, 0);
+        out.detach();
+        out.accept("a");
+        out.accept("b");
+        out.accept("c");
+
+        assertFalse(out.attach(s -> {}, 0));
+        final List<String> received = new ArrayList<>();
+        assertTrue(out.attach(received::add, 1));
+        assertEquals(List.of("b", "c"), received);
+    }
+
+    @Test
+    void does_not_resume_for_unknown_sequence() {
+        final ResumableMessagesOut out = new ResumableMessagesOut(2);
+        out.accept("a");
+        assertFalse(out.attach(s -> {}, 2));
+    }
+
+    @Test
+    void resumes_without_replay_buffer_when_nothing_is_missed() {
+        final ResumableMessagesOut out = new ResumableMessagesOut(0);
+        out.accept("a");
+        assertTrue(out.attach(s -> {}, 1));
+        assertFalse(out.attach(s -> {}, 0));
+    }
+}
@@ -18,4 +18,11 @@ class RandomStringTests {
         Assertions.assertNotEquals(s1, s2);
     }
 
+    @Test
+    void should_create_strings_of_alphanumeric_characters() {
+        final RandomString rs = new RandomString(1000);
+        final String s = rs.newString();
+        Assertions.assertTrue(s.matches("^[0-9A-Za-z]{1000}$"));
+        Assertions.assertEquals("", new RandomString(0).newString());
+    }
 }
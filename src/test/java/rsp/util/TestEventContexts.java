@@ -0,0 +1,34 @@
+package rsp.util;
+
+import rsp.dom.TreePositionPath;
+import rsp.page.EventContext;
+import rsp.page.PropertiesBatch;
+import rsp.util.json.JsonDataType;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Creates events contexts of a test page without a browser:
+ * JavaScript evaluates to an empty object, no elements references are found, dispatching and navigation do nothing.
+ */
+public final class TestEventContexts {
+
+    private TestEventContexts() {}
+
+    public static EventContext createEventContext(final TreePositionPath eventElementPath) {
+        return createEventContext(eventElementPath, JsonDataType.Object.EMPTY);
+    }
+
+    public static EventContext createEventContext(final TreePositionPath eventElementPath,
+                                                  final JsonDataType.Object eventObject) {
+        return new EventContext(eventElementPath,
+                                js -> CompletableFuture.completedFuture(JsonDataType.Object.EMPTY),
+                                ref -> null,
+                                eventObject,
+                                (elementPath, customEvent) -> {},
+                                href -> {},
+                                () -> new PropertiesBatch(ref -> null,
+                                                          (requests, timeoutMs) -> CompletableFuture.completedFuture(new JsonDataType.Array()),
+                                                          0));
+    }
+}
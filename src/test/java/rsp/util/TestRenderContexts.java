@@ -0,0 +1,71 @@
+package rsp.util;
+
+import rsp.component.ComponentRenderContext;
+import rsp.component.PageIndex;
+import rsp.component.StateResolution;
+import rsp.page.PageRendering;
+import rsp.page.QualifiedSessionId;
+import rsp.server.Path;
+import rsp.server.RemoteOut;
+import rsp.server.http.HttpRequest;
+import rsp.server.http.PageStateOrigin;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+
+/**
+ * Creates components render contexts of a test page requested by http://localhost.
+ */
+public final class TestRenderContexts {
+
+    public static final String TEST_DEVICE_ID = "test-device";
+    public static final String TEST_SESSION_ID = "test-session";
+
+    private TestRenderContexts() {}
+
+    public static ComponentRenderContext createRenderContext(final RemoteOut remoteOut) {
+        return createRenderContext(TEST_SESSION_ID, remoteOut, new Object());
+    }
+
+    public static ComponentRenderContext createRenderContext(final RemoteOut remoteOut,
+                                                             final Object sessionLock) {
+        return createRenderContext(TEST_SESSION_ID, remoteOut, sessionLock);
+    }
+
+    public static ComponentRenderContext createRenderContext(final String sessionId,
+                                                             final RemoteOut remoteOut,
+                                                             final Object sessionLock) {
+        return createRenderContext(sessionId, remoteOut, sessionLock, new StateResolution(0), false);
+    }
+
+    public static ComponentRenderContext createRenderContext(final RemoteOut remoteOut,
+                                                             final StateResolution stateResolution,
+                                                             final boolean packRenderedNodes) {
+        return createRenderContext(TEST_SESSION_ID, remoteOut, new Object(), stateResolution, packRenderedNodes);
+    }
+
+    public static ComponentRenderContext createRenderContext(final String sessionId,
+                                                             final RemoteOut remoteOut,
+                                                             final Object sessionLock,
+                                                             final StateResolution stateResolution,
+                                                             final boolean packRenderedNodes) {
+        return new ComponentRenderContext(new QualifiedSessionId(TEST_DEVICE_ID, sessionId),
+                                          PageRendering.DOCUMENT_DOM_PATH,
+                                          pageStateOrigin(),
+                                          remoteOut,
+                                          sessionLock,
+                                          new LinkedHashMap<>(),
+                                          stateResolution,
+                                          new PageIndex(),
+                                          packRenderedNodes) {};
+    }
+
+    public static PageStateOrigin pageStateOrigin() {
+        final URI uri = URI.create("http://localhost");
+        final HttpRequest httpRequest = new HttpRequest(HttpRequest.HttpMethod.GET,
+                                                        uri,
+                                                        uri.toString(),
+                                                        Path.ROOT);
+        return new PageStateOrigin(httpRequest);
+    }
+}